@@ -58,6 +58,29 @@ public abstract class AbstractEventList extends AbstractList implements EventLis
         }
     }
 
+    /**
+     * A snapshot of the observers currently registered with this list.
+     *
+     * @return the observers currently registered with this list.
+     */
+    protected ListEventListener[] getListEventListeners() {
+        final ListEventListener[] listeners = this.listeners; // capture the current instance
+        final ListEventListener[] copy = new ListEventListener[listeners.length];
+        for (int i=0; i < listeners.length; i++) {
+            copy[i] = listeners[i];
+        }
+        return copy;
+    }
+
+    /**
+     * Are any observers currently registered with this list.
+     *
+     * @return <code>true</code> if at least one observer is registered.
+     */
+    protected boolean hasListEventListeners() {
+        return listeners.length > 0;
+    }
+
     /**
      * Signals each listener of an event.
      *
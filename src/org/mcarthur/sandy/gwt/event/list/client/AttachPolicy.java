@@ -0,0 +1,37 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+/**
+ * Decides how a view registers its listener with the EventList it is a view of.
+ * The default policy registers the listener directly which means the backing list keeps
+ * every view created from it alive until the view is {@link DetachableEventList#detach() detached}.
+ * Server side code can use a policy based on weak references instead.
+ *
+ * @author Sandy McArthur
+ * @see EventLists#setAttachPolicy(AttachPolicy)
+ */
+public interface AttachPolicy {
+    /**
+     * Register <code>listener</code> with <code>source</code>.
+     *
+     * @param source the EventList being viewed.
+     * @param listener the listener of the view.
+     * @return the listener actually added to <code>source</code>, needed to remove it later.
+     */
+    public ListEventListener attach(EventList source, ViewListEventListener listener);
+}
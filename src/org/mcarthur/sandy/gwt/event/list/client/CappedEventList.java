@@ -0,0 +1,80 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+import java.util.List;
+
+/**
+ * An EventList that holds at most a fixed number of elements, evicting the oldest, those at the
+ * head of the list, to make room. Meant for streaming views like logs and tickers that show the
+ * last entries of a feed. Elements are kept in a circular buffer so appending and evicting cost
+ * O(1) instead of shifting every element.
+ *
+ * <p>
+ * An append that evicts fires one REMOVED event for everything evicted followed by one ADDED
+ * event for everything appended, wrapped in a batch. Elements that are evicted are passed to
+ * the {@link EvictionListener}, if there is one, before those events are fired.
+ * </p>
+ *
+ * @author Sandy McArthur
+ * @see EventLists#cappedEventList(int)
+ */
+public interface CappedEventList extends EventList {
+    /**
+     * The most elements this list holds.
+     *
+     * @return the capacity of this list.
+     */
+    public int getCapacity();
+
+    /**
+     * Change the most elements this list holds, evicting from the head if it shrinks.
+     *
+     * @param capacity the new capacity.
+     * @throws IllegalArgumentException if <code>capacity</code> is less than one.
+     */
+    public void setCapacity(int capacity) throws IllegalArgumentException;
+
+    /**
+     * The observer of evicted elements.
+     *
+     * @return the observer of evicted elements, may be <code>null</code>.
+     */
+    public EvictionListener getEvictionListener();
+
+    /**
+     * Set the observer of evicted elements.
+     *
+     * @param evictionListener the observer of evicted elements, <code>null</code> for none.
+     */
+    public void setEvictionListener(EvictionListener evictionListener);
+
+    /**
+     * Observes elements pushed out of a CappedEventList, for example to archive them.
+     * Elements removed with {@link #remove(int)} or {@link #clear()} aren't evicted.
+     */
+    public static interface EvictionListener {
+        /**
+         * Elements were evicted. When more elements are appended at once than the list can
+         * hold the ones that never fit are included too.
+         *
+         * @param source the list the elements were evicted from.
+         * @param evicted the evicted elements, oldest first.
+         */
+        public void evicted(CappedEventList source, List evicted);
+    }
+}
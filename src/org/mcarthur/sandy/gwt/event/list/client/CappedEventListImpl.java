@@ -0,0 +1,255 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * CappedEventList backed by a circular array.
+ *
+ * @author Sandy McArthur
+ */
+class CappedEventListImpl extends AbstractEventList implements CappedEventList {
+    private Object[] ring;
+
+    /**
+     * The slot of the element at index 0.
+     */
+    private int head = 0;
+    private int size = 0;
+    private EvictionListener evictionListener;
+
+    CappedEventListImpl(final int capacity) {
+        checkCapacity(capacity);
+        ring = new Object[capacity];
+    }
+
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    public void setCapacity(final int capacity) {
+        checkCapacity(capacity);
+        if (capacity != ring.length) {
+            final List evicted = new ArrayList();
+            evict(Math.max(0, size - capacity), evicted);
+            final Object[] resized = new Object[capacity];
+            for (int i=0; i < size; i++) {
+                resized[i] = ring[slot(i)];
+            }
+            ring = resized;
+            head = 0;
+            notifyEvicted(evicted);
+            if (!evicted.isEmpty()) {
+                fireListEvent(ListEvent.createRemoved(this, 0, evicted.size()));
+            }
+        }
+    }
+
+    public EvictionListener getEvictionListener() {
+        return evictionListener;
+    }
+
+    public void setEvictionListener(final EvictionListener evictionListener) {
+        this.evictionListener = evictionListener;
+    }
+
+    public Object get(final int index) {
+        checkIndex(index, size);
+        return ring[slot(index)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Object set(final int index, final Object element) {
+        checkIndex(index, size);
+        final int slot = slot(index);
+        final Object old = ring[slot];
+        ring[slot] = element;
+        fireListEvent(ListEvent.createChanged(this, index));
+        return old;
+    }
+
+    public boolean add(final Object element) {
+        final List one = new ArrayList(1);
+        one.add(element);
+        return addAll(one);
+    }
+
+    public void add(final int index, final Object element) {
+        checkIndex(index, size + 1);
+        if (index == size) {
+            add(element);
+            return;
+        }
+        final List evicted = new ArrayList();
+        int insertAt = index;
+        if (size == ring.length) {
+            if (index == 0) {
+                // it would be the oldest element of a full list, so it is the one to go
+                evicted.add(element);
+                notifyEvicted(evicted);
+                return;
+            }
+            evict(1, evicted);
+            insertAt--;
+        }
+        // shift the tail right by one
+        for (int i=size; i > insertAt; i--) {
+            ring[slot(i)] = ring[slot(i - 1)];
+        }
+        ring[slot(insertAt)] = element;
+        size++;
+        notifyEvicted(evicted);
+        fireEvictedAndAdded(evicted.size(), insertAt, insertAt + 1);
+    }
+
+    public boolean addAll(final Collection c) {
+        if (c.isEmpty()) {
+            return false;
+        }
+        final List evicted = new ArrayList();
+        final int skipped = Math.max(0, c.size() - ring.length);
+        final int toAdd = c.size() - skipped;
+        evict(Math.max(0, size + toAdd - ring.length), evicted);
+        final int evictedCount = evicted.size();
+        final Iterator iter = c.iterator();
+        for (int i=0; i < skipped; i++) {
+            // never fit, straight to the eviction listener
+            evicted.add(iter.next());
+        }
+        final int start = size;
+        while (iter.hasNext()) {
+            ring[slot(size++)] = iter.next();
+        }
+        notifyEvicted(evicted);
+        fireEvictedAndAdded(evictedCount, start, size);
+        return true;
+    }
+
+    public boolean addAll(final int index, final Collection c) {
+        if (index == size) {
+            return addAll(c);
+        }
+        checkIndex(index, size + 1);
+        int i = index;
+        final Iterator iter = c.iterator();
+        while (iter.hasNext()) {
+            final int before = size;
+            add(i, iter.next());
+            // an add to a full list evicts the head, so the next slot doesn't move
+            if (size > before) {
+                i++;
+            }
+        }
+        return !c.isEmpty();
+    }
+
+    public Object remove(final int index) {
+        checkIndex(index, size);
+        final Object old = ring[slot(index)];
+        if (index < size / 2) {
+            // shift the head side right
+            for (int i=index; i > 0; i--) {
+                ring[slot(i)] = ring[slot(i - 1)];
+            }
+            ring[head] = null;
+            head = (head + 1) % ring.length;
+        } else {
+            for (int i=index; i < size - 1; i++) {
+                ring[slot(i)] = ring[slot(i + 1)];
+            }
+            ring[slot(size - 1)] = null;
+        }
+        size--;
+        fireListEvent(ListEvent.createRemoved(this, index));
+        return old;
+    }
+
+    protected void removeRange(final int start, final int end) {
+        if (start < 0 || end > size || start > end) {
+            throw new IndexOutOfBoundsException("start: " + start + ", end: " + end + ", size: " + size);
+        }
+        if (start == end) {
+            return;
+        }
+        final int count = end - start;
+        for (int i=start; i < size - count; i++) {
+            ring[slot(i)] = ring[slot(i + count)];
+        }
+        for (int i=size - count; i < size; i++) {
+            ring[slot(i)] = null;
+        }
+        size -= count;
+        fireListEvent(ListEvent.createRemoved(this, start, end));
+    }
+
+    public void clear() {
+        removeRange(0, size);
+    }
+
+    /**
+     * Drop <code>count</code> elements from the head, in O(count), without firing events.
+     */
+    private void evict(final int count, final List evicted) {
+        for (int i=0; i < count; i++) {
+            evicted.add(ring[head]);
+            ring[head] = null;
+            head = (head + 1) % ring.length;
+            size--;
+        }
+    }
+
+    private void notifyEvicted(final List evicted) {
+        if (evictionListener != null && !evicted.isEmpty()) {
+            evictionListener.evicted(this, evicted);
+        }
+    }
+
+    private void fireEvictedAndAdded(final int evictedCount, final int addedStart, final int addedEnd) {
+        if (evictedCount > 0) {
+            fireListEvent(ListEvent.createBatchStart(this));
+            fireListEvent(ListEvent.createRemoved(this, 0, evictedCount));
+        }
+        // listeners saw the list without the evicted head, so the added range is where it is now
+        fireListEvent(ListEvent.createAdded(this, addedStart, addedEnd));
+        if (evictedCount > 0) {
+            fireListEvent(ListEvent.createBatchEnd(this));
+        }
+    }
+
+    private int slot(final int index) {
+        return (head + index) % ring.length;
+    }
+
+    private void checkIndex(final int index, final int limit) {
+        if (index < 0 || index >= limit) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private static void checkCapacity(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least one: " + capacity);
+        }
+    }
+}
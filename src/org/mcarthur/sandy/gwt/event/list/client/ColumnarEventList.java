@@ -0,0 +1,267 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+import java.util.Comparator;
+
+/**
+ * An EventList that stores its records column by column instead of as one object per record.
+ * Each column is kept in its own array, a primitive array for {@link #TYPE_INT} and
+ * {@link #TYPE_DOUBLE} columns, so scanning one field of every record doesn't touch the
+ * other fields.
+ *
+ * <p>
+ * The elements of this list are {@link Row} views, created the first time {@link #get(int)}
+ * asks for a record and kept with that record until it's removed, so views that hold on to
+ * elements such as a {@link RangedEventList} or {@link FilteredEventList} keep showing the
+ * right records. Records are added with an <code>Object[]</code> of column values,
+ * primitive columns accept any {@link Number}, or with a Row from another ColumnarEventList
+ * with the same columns. Because a Row can't outlive its record {@link #set(int, Object)} and
+ * {@link #remove(int)} return the replaced record's values as an <code>Object[]</code>.
+ * </p>
+ *
+ * <p>
+ * The comparators and filters returned by {@link #getComparator(int)} and the
+ * <code>get...Filter</code> methods read the column arrays directly and are
+ * {@link PropertyDependent} on their column, so a {@link SortedEventList} or
+ * {@link FilteredEventList} built on this list isn't re-sorted or re-filtered when a different
+ * column changes. Column setters fire CHANGED events that name the changed column.
+ * </p>
+ *
+ * @author Sandy McArthur
+ * @see EventLists#columnarEventList(String[], int[])
+ */
+public interface ColumnarEventList extends EventList {
+    /**
+     * A column of <code>int</code> values.
+     */
+    public static final int TYPE_INT = 0;
+
+    /**
+     * A column of <code>double</code> values.
+     */
+    public static final int TYPE_DOUBLE = 1;
+
+    /**
+     * A column of objects.
+     */
+    public static final int TYPE_OBJECT = 2;
+
+    /**
+     * The number of columns in each record.
+     *
+     * @return the number of columns.
+     */
+    public int getColumnCount();
+
+    /**
+     * The name of a column.
+     *
+     * @param column the column.
+     * @return the column's name.
+     */
+    public String getColumnName(int column);
+
+    /**
+     * The type of a column.
+     *
+     * @param column the column.
+     * @return {@link #TYPE_INT}, {@link #TYPE_DOUBLE} or {@link #TYPE_OBJECT}.
+     */
+    public int getColumnType(int column);
+
+    /**
+     * Find a column by name.
+     *
+     * @param name the column's name.
+     * @return the column, or <code>-1</code> if there is no column with that name.
+     */
+    public int getColumnIndex(String name);
+
+    /**
+     * Read an <code>int</code> column.
+     *
+     * @param row the record.
+     * @param column a {@link #TYPE_INT} column.
+     * @return the value.
+     * @throws IndexOutOfBoundsException if <code>row</code> is out of range.
+     * @throws IllegalArgumentException if <code>column</code> isn't an int column.
+     */
+    public int getInt(int row, int column) throws IndexOutOfBoundsException, IllegalArgumentException;
+
+    /**
+     * Read a numeric column as a <code>double</code>.
+     *
+     * @param row the record.
+     * @param column a {@link #TYPE_INT} or {@link #TYPE_DOUBLE} column.
+     * @return the value.
+     * @throws IndexOutOfBoundsException if <code>row</code> is out of range.
+     * @throws IllegalArgumentException if <code>column</code> isn't a numeric column.
+     */
+    public double getDouble(int row, int column) throws IndexOutOfBoundsException, IllegalArgumentException;
+
+    /**
+     * Read any column, primitive values are boxed.
+     *
+     * @param row the record.
+     * @param column the column.
+     * @return the value.
+     * @throws IndexOutOfBoundsException if <code>row</code> is out of range.
+     */
+    public Object getValue(int row, int column) throws IndexOutOfBoundsException;
+
+    /**
+     * Write an <code>int</code> column, fires a CHANGED event naming the column.
+     *
+     * @param row the record.
+     * @param column a {@link #TYPE_INT} column.
+     * @param value the new value.
+     * @throws IndexOutOfBoundsException if <code>row</code> is out of range.
+     * @throws IllegalArgumentException if <code>column</code> isn't an int column.
+     */
+    public void setInt(int row, int column, int value) throws IndexOutOfBoundsException, IllegalArgumentException;
+
+    /**
+     * Write a <code>double</code> column, fires a CHANGED event naming the column.
+     *
+     * @param row the record.
+     * @param column a {@link #TYPE_DOUBLE} column.
+     * @param value the new value.
+     * @throws IndexOutOfBoundsException if <code>row</code> is out of range.
+     * @throws IllegalArgumentException if <code>column</code> isn't a double column.
+     */
+    public void setDouble(int row, int column, double value) throws IndexOutOfBoundsException, IllegalArgumentException;
+
+    /**
+     * Write any column, fires a CHANGED event naming the column.
+     * Primitive columns accept any non-null {@link Number}.
+     *
+     * @param row the record.
+     * @param column the column.
+     * @param value the new value.
+     * @throws IndexOutOfBoundsException if <code>row</code> is out of range.
+     */
+    public void setValue(int row, int column, Object value) throws IndexOutOfBoundsException;
+
+    /**
+     * Sum a numeric column without creating a Row for each record.
+     *
+     * @param column a {@link #TYPE_INT} or {@link #TYPE_DOUBLE} column.
+     * @return the sum of the column, <code>0</code> if this list is empty.
+     * @throws IllegalArgumentException if <code>column</code> isn't a numeric column.
+     */
+    public double sum(int column) throws IllegalArgumentException;
+
+    /**
+     * Copy a numeric column.
+     *
+     * @param column a {@link #TYPE_INT} or {@link #TYPE_DOUBLE} column.
+     * @return the column's values in list order.
+     * @throws IllegalArgumentException if <code>column</code> isn't a numeric column.
+     */
+    public double[] toDoubleArray(int column) throws IllegalArgumentException;
+
+    /**
+     * A Comparator of this list's Rows that orders by one column. Numeric columns are
+     * compared by value, object columns by their {@link Comparable natural order} with
+     * <code>null</code>s first.
+     *
+     * @param column the column to order by.
+     * @return a {@link PropertyDependent} Comparator for a {@link SortedEventList}.
+     */
+    public Comparator getComparator(int column);
+
+    /**
+     * A Filter of this list's Rows that tests an <code>int</code> column.
+     *
+     * @param column a {@link #TYPE_INT} column.
+     * @param filter tests the column's values.
+     * @return a {@link PropertyDependent} Filter for a {@link FilteredEventList}.
+     * @throws IllegalArgumentException if <code>column</code> isn't an int column.
+     */
+    public FilteredEventList.Filter getIntFilter(int column, IntEventList.IntFilter filter) throws IllegalArgumentException;
+
+    /**
+     * A Filter of this list's Rows that tests a numeric column.
+     *
+     * @param column a {@link #TYPE_INT} or {@link #TYPE_DOUBLE} column.
+     * @param filter tests the column's values.
+     * @return a {@link PropertyDependent} Filter for a {@link FilteredEventList}.
+     * @throws IllegalArgumentException if <code>column</code> isn't a numeric column.
+     */
+    public FilteredEventList.Filter getDoubleFilter(int column, DoubleEventList.DoubleFilter filter) throws IllegalArgumentException;
+
+    /**
+     * A Filter of this list's Rows that tests one column's values, boxed for primitive columns.
+     *
+     * @param column the column.
+     * @param filter tests the column's values.
+     * @return a {@link PropertyDependent} Filter for a {@link FilteredEventList}.
+     */
+    public FilteredEventList.Filter getValueFilter(int column, FilteredEventList.Filter filter);
+
+    /**
+     * A view of one record. A Row reads through to the column arrays and follows its record as
+     * records are added or removed before it. Rows are only equal to themselves.
+     */
+    public static interface Row {
+        /**
+         * The list this Row is a view of.
+         *
+         * @return the list this Row is a view of.
+         */
+        public ColumnarEventList getList();
+
+        /**
+         * The index of the record this Row shows.
+         *
+         * @return the record's current index, <code>-1</code> once the record was removed.
+         */
+        public int getIndex();
+
+        /**
+         * Same as <code>getList().getInt(getIndex(), column)</code>.
+         *
+         * @param column a {@link #TYPE_INT} column.
+         * @return the value.
+         */
+        public int getInt(int column);
+
+        /**
+         * Same as <code>getList().getDouble(getIndex(), column)</code>.
+         *
+         * @param column a {@link #TYPE_INT} or {@link #TYPE_DOUBLE} column.
+         * @return the value.
+         */
+        public double getDouble(int column);
+
+        /**
+         * Same as <code>getList().getValue(getIndex(), column)</code>.
+         *
+         * @param column the column.
+         * @return the value.
+         */
+        public Object getValue(int column);
+
+        /**
+         * Copy this record's values, primitive values are boxed.
+         *
+         * @return the column values of this record.
+         */
+        public Object[] toArray();
+    }
+}
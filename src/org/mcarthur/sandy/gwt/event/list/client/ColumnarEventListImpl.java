@@ -0,0 +1,532 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * ColumnarEventList that keeps each column in its own growable array.
+ *
+ * @author Sandy McArthur
+ */
+class ColumnarEventListImpl extends AbstractEventList implements ColumnarEventList {
+    private final String[] names;
+    private final int[] types;
+
+    /**
+     * One <code>int[]</code>, <code>double[]</code> or <code>Object[]</code> per column.
+     */
+    private final Object[] columns;
+
+    /**
+     * The Row of each record, created the first time it's asked for and moved with its record.
+     */
+    private RowImpl[] rows;
+    private int capacity = 10;
+    private int size = 0;
+
+    ColumnarEventListImpl(final String[] names, final int[] types) {
+        if (names.length != types.length) {
+            throw new IllegalArgumentException("names and types must be the same length.");
+        }
+        this.names = new String[names.length];
+        this.types = new int[types.length];
+        columns = new Object[names.length];
+        for (int i=0; i < names.length; i++) {
+            if (names[i] == null) {
+                throw new NullPointerException("null not allowed");
+            }
+            this.names[i] = names[i];
+            this.types[i] = types[i];
+            columns[i] = newColumn(types[i], capacity);
+        }
+        rows = new RowImpl[capacity];
+    }
+
+    public int getColumnCount() {
+        return names.length;
+    }
+
+    public String getColumnName(final int column) {
+        return names[column];
+    }
+
+    public int getColumnType(final int column) {
+        return types[column];
+    }
+
+    public int getColumnIndex(final String name) {
+        for (int i=0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public Object get(final int index) {
+        checkIndex(index, size);
+        if (rows[index] == null) {
+            rows[index] = new RowImpl(index);
+        }
+        return rows[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getInt(final int row, final int column) {
+        checkIndex(row, size);
+        checkType(column, TYPE_INT);
+        return ((int[])columns[column])[row];
+    }
+
+    public double getDouble(final int row, final int column) {
+        checkIndex(row, size);
+        return doubleValue(row, column);
+    }
+
+    public Object getValue(final int row, final int column) {
+        checkIndex(row, size);
+        return value(row, column);
+    }
+
+    public void setInt(final int row, final int column, final int value) {
+        checkIndex(row, size);
+        checkType(column, TYPE_INT);
+        ((int[])columns[column])[row] = value;
+        fireColumnChanged(row, column);
+    }
+
+    public void setDouble(final int row, final int column, final double value) {
+        checkIndex(row, size);
+        checkType(column, TYPE_DOUBLE);
+        ((double[])columns[column])[row] = value;
+        fireColumnChanged(row, column);
+    }
+
+    public void setValue(final int row, final int column, final Object value) {
+        checkIndex(row, size);
+        store(row, column, value);
+        fireColumnChanged(row, column);
+    }
+
+    public Object set(final int index, final Object element) {
+        checkIndex(index, size);
+        final Object[] values = toValues(element);
+        final Object[] old = toArray(index);
+        for (int c=0; c < values.length; c++) {
+            store(index, c, values[c]);
+        }
+        fireListEvent(ListEvent.createChanged(this, index));
+        return old;
+    }
+
+    public void add(final int index, final Object element) {
+        checkIndex(index, size + 1);
+        final Object[] values = toValues(element);
+        makeRoom(index, 1);
+        for (int c=0; c < values.length; c++) {
+            store(index, c, values[c]);
+        }
+        fireListEvent(ListEvent.createAdded(this, index));
+    }
+
+    public boolean addAll(final Collection c) {
+        return addAll(size, c);
+    }
+
+    public boolean addAll(final int index, final Collection c) {
+        checkIndex(index, size + 1);
+        final Object[][] records = new Object[c.size()][];
+        final Iterator iter = c.iterator();
+        for (int i=0; i < records.length; i++) {
+            records[i] = toValues(iter.next());
+        }
+        if (records.length == 0) {
+            return false;
+        }
+        makeRoom(index, records.length);
+        for (int i=0; i < records.length; i++) {
+            for (int col=0; col < records[i].length; col++) {
+                store(index + i, col, records[i][col]);
+            }
+        }
+        fireListEvent(ListEvent.createAdded(this, index, index + records.length));
+        return true;
+    }
+
+    public Object remove(final int index) {
+        checkIndex(index, size);
+        final Object[] old = toArray(index);
+        close(index, index + 1);
+        fireListEvent(ListEvent.createRemoved(this, index));
+        return old;
+    }
+
+    protected void removeRange(final int start, final int end) {
+        if (start < 0 || end > size || start > end) {
+            throw new IndexOutOfBoundsException("start: " + start + ", end: " + end + ", size: " + size);
+        }
+        if (start < end) {
+            close(start, end);
+            fireListEvent(ListEvent.createRemoved(this, start, end));
+        }
+    }
+
+    public void clear() {
+        removeRange(0, size);
+    }
+
+    public double sum(final int column) {
+        checkNumeric(column);
+        double sum = 0;
+        if (types[column] == TYPE_INT) {
+            final int[] values = (int[])columns[column];
+            for (int i=0; i < size; i++) {
+                sum += values[i];
+            }
+        } else {
+            final double[] values = (double[])columns[column];
+            for (int i=0; i < size; i++) {
+                sum += values[i];
+            }
+        }
+        return sum;
+    }
+
+    public double[] toDoubleArray(final int column) {
+        checkNumeric(column);
+        final double[] copy = new double[size];
+        for (int i=0; i < size; i++) {
+            copy[i] = doubleValue(i, column);
+        }
+        return copy;
+    }
+
+    public Comparator getComparator(final int column) {
+        return new ColumnComparator(column);
+    }
+
+    public FilteredEventList.Filter getIntFilter(final int column, final IntEventList.IntFilter filter) {
+        checkType(column, TYPE_INT);
+        return new ColumnFilter(column) {
+            public boolean accept(final Object element) {
+                return filter.accept(((int[])columns[column])[((Row)element).getIndex()]);
+            }
+        };
+    }
+
+    public FilteredEventList.Filter getDoubleFilter(final int column, final DoubleEventList.DoubleFilter filter) {
+        checkNumeric(column);
+        return new ColumnFilter(column) {
+            public boolean accept(final Object element) {
+                return filter.accept(doubleValue(((Row)element).getIndex(), column));
+            }
+        };
+    }
+
+    public FilteredEventList.Filter getValueFilter(final int column, final FilteredEventList.Filter filter) {
+        return new ColumnFilter(column) {
+            public boolean accept(final Object element) {
+                return filter.accept(value(((Row)element).getIndex(), column));
+            }
+        };
+    }
+
+    private double doubleValue(final int row, final int column) {
+        if (types[column] == TYPE_INT) {
+            return ((int[])columns[column])[row];
+        } else {
+            checkType(column, TYPE_DOUBLE);
+            return ((double[])columns[column])[row];
+        }
+    }
+
+    private Object value(final int row, final int column) {
+        switch (types[column]) {
+            case TYPE_INT:
+                return new Integer(((int[])columns[column])[row]);
+            case TYPE_DOUBLE:
+                return new Double(((double[])columns[column])[row]);
+            default:
+                return ((Object[])columns[column])[row];
+        }
+    }
+
+    private Object[] toArray(final int row) {
+        final Object[] values = new Object[names.length];
+        for (int c=0; c < values.length; c++) {
+            values[c] = value(row, c);
+        }
+        return values;
+    }
+
+    private void store(final int row, final int column, final Object value) {
+        switch (types[column]) {
+            case TYPE_INT:
+                ((int[])columns[column])[row] = toNumber(value).intValue();
+                break;
+            case TYPE_DOUBLE:
+                ((double[])columns[column])[row] = toNumber(value).doubleValue();
+                break;
+            default:
+                ((Object[])columns[column])[row] = value;
+        }
+    }
+
+    private void fireColumnChanged(final int row, final int column) {
+        fireListEvent(ListEvent.createPropertyChanged(this, row, row + 1, new String[] {names[column]}));
+    }
+
+    /**
+     * The column values of a record being added or set.
+     */
+    private Object[] toValues(final Object element) {
+        final Object[] values;
+        if (element instanceof Row) {
+            values = ((Row)element).toArray();
+        } else if (element instanceof Object[]) {
+            values = (Object[])element;
+        } else if (element == null) {
+            throw new NullPointerException("null not allowed");
+        } else {
+            throw new IllegalArgumentException("Expected a Row or Object[], was: " + element);
+        }
+        if (values.length != names.length) {
+            throw new IllegalArgumentException("Expected " + names.length + " values, was: " + values.length);
+        }
+        for (int c=0; c < values.length; c++) {
+            if (types[c] != TYPE_OBJECT) {
+                toNumber(values[c]);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Open a gap of <code>count</code> records at <code>index</code>.
+     */
+    private void makeRoom(final int index, final int count) {
+        final int newCapacity = size + count > capacity ? Math.max(capacity * 2, size + count) : capacity;
+        for (int c=0; c < columns.length; c++) {
+            final Object column = columns[c];
+            final Object target = newCapacity != capacity ? newColumn(types[c], newCapacity) : column;
+            if (target != column) {
+                System.arraycopy(column, 0, target, 0, index);
+            }
+            System.arraycopy(column, index, target, index + count, size - index);
+            columns[c] = target;
+        }
+        final RowImpl[] target = newCapacity != capacity ? new RowImpl[newCapacity] : rows;
+        if (target != rows) {
+            System.arraycopy(rows, 0, target, 0, index);
+        }
+        System.arraycopy(rows, index, target, index + count, size - index);
+        rows = target;
+        capacity = newCapacity;
+        size += count;
+        for (int i=index; i < index + count; i++) {
+            rows[i] = null;
+        }
+        moveRows(index + count, size);
+    }
+
+    /**
+     * Tell the Rows in <code>[start, end)</code> where their records are now.
+     */
+    private void moveRows(final int start, final int end) {
+        for (int i=start; i < end; i++) {
+            if (rows[i] != null) {
+                rows[i].index = i;
+            }
+        }
+    }
+
+    /**
+     * Close the gap left by removing records <code>[start, end)</code>.
+     */
+    private void close(final int start, final int end) {
+        for (int c=0; c < columns.length; c++) {
+            System.arraycopy(columns[c], end, columns[c], start, size - end);
+            if (types[c] == TYPE_OBJECT) {
+                // let go of removed references
+                final Object[] values = (Object[])columns[c];
+                for (int i=size - (end - start); i < size; i++) {
+                    values[i] = null;
+                }
+            }
+        }
+        for (int i=start; i < end; i++) {
+            if (rows[i] != null) {
+                rows[i].index = -1;
+            }
+        }
+        System.arraycopy(rows, end, rows, start, size - end);
+        for (int i=size - (end - start); i < size; i++) {
+            rows[i] = null;
+        }
+        size -= end - start;
+        moveRows(start, size);
+    }
+
+    private static Object newColumn(final int type, final int capacity) {
+        switch (type) {
+            case TYPE_INT:
+                return new int[capacity];
+            case TYPE_DOUBLE:
+                return new double[capacity];
+            case TYPE_OBJECT:
+                return new Object[capacity];
+            default:
+                throw new IllegalArgumentException("Unknown column type: " + type);
+        }
+    }
+
+    private static Number toNumber(final Object value) {
+        if (value == null) {
+            throw new NullPointerException("null not allowed");
+        }
+        return (Number)value;
+    }
+
+    private void checkType(final int column, final int type) {
+        if (types[column] != type) {
+            throw new IllegalArgumentException("Column " + names[column] + " is of type " + types[column] + " not " + type);
+        }
+    }
+
+    private void checkNumeric(final int column) {
+        if (types[column] == TYPE_OBJECT) {
+            throw new IllegalArgumentException("Column " + names[column] + " is not numeric.");
+        }
+    }
+
+    private void checkIndex(final int index, final int limit) {
+        if (index < 0 || index >= limit) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private class RowImpl implements Row {
+        /** The record's index, <code>-1</code> once it's removed. */
+        private int index;
+
+        RowImpl(final int index) {
+            this.index = index;
+        }
+
+        public ColumnarEventList getList() {
+            return ColumnarEventListImpl.this;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public int getInt(final int column) {
+            return ColumnarEventListImpl.this.getInt(index, column);
+        }
+
+        public double getDouble(final int column) {
+            return ColumnarEventListImpl.this.getDouble(index, column);
+        }
+
+        public Object getValue(final int column) {
+            return ColumnarEventListImpl.this.getValue(index, column);
+        }
+
+        public Object[] toArray() {
+            checkIndex(index, size);
+            return ColumnarEventListImpl.this.toArray(index);
+        }
+
+        public String toString() {
+            if (index < 0) {
+                return "Row[removed]";
+            }
+            final StringBuffer sb = new StringBuffer("Row[");
+            for (int c=0; c < names.length; c++) {
+                if (c > 0) {
+                    sb.append(", ");
+                }
+                sb.append(names[c]).append('=').append(value(index, c));
+            }
+            return sb.append(']').toString();
+        }
+    }
+
+    /**
+     * Compares Rows by one column. A SortedEventList directly over this list compares
+     * positions in the column array without asking for the Rows.
+     */
+    private class ColumnComparator implements IndexComparator, PropertyDependent {
+        private final int column;
+
+        ColumnComparator(final int column) {
+            this.column = column;
+        }
+
+        public int compare(final Object o1, final Object o2) {
+            return compare(ColumnarEventListImpl.this, ((Row)o1).getIndex(), ((Row)o2).getIndex());
+        }
+
+        public boolean canCompare(final List list) {
+            return list == ColumnarEventListImpl.this;
+        }
+
+        public int compare(final List list, final int i1, final int i2) {
+            switch (types[column]) {
+                case TYPE_INT: {
+                    final int[] values = (int[])columns[column];
+                    return values[i1] < values[i2] ? -1 : (values[i1] == values[i2] ? 0 : 1);
+                }
+                case TYPE_DOUBLE: {
+                    final double[] values = (double[])columns[column];
+                    return values[i1] < values[i2] ? -1 : (values[i1] == values[i2] ? 0 : 1);
+                }
+                default: {
+                    final Object[] values = (Object[])columns[column];
+                    if (values[i1] == null) {
+                        return values[i2] == null ? 0 : -1;
+                    }
+                    return values[i2] == null ? 1 : ((Comparable)values[i1]).compareTo(values[i2]);
+                }
+            }
+        }
+
+        public String[] getPropertyDependencies() {
+            return new String[] {names[column]};
+        }
+    }
+
+    private abstract class ColumnFilter implements FilteredEventList.Filter, PropertyDependent {
+        private final int column;
+
+        ColumnFilter(final int column) {
+            this.column = column;
+        }
+
+        public String[] getPropertyDependencies() {
+            return new String[] {names[column]};
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Format of the messages a {@link DeltaPublisher} sends to a {@link DeltaApplier}.
+ * <p>
+ * A message is a header followed by operations. The header is <code>D<i>base</i>,<i>sequence</i>;</code>
+ * for a delta that turns the list at sequence <i>base</i> into the list at <i>sequence</i>, or
+ * <code>S<i>sequence</i>;</code> for a snapshot that applies whatever the receiver has.
+ * Operations, applied in order, are:
+ * </p>
+ * <ul>
+ * <li><code>+<i>start</i>,<i>count</i>;</code> followed by <i>count</i> elements, inserted at <i>start</i>.</li>
+ * <li><code>~<i>start</i>,<i>count</i>;</code> followed by <i>count</i> elements, replacing those at <i>start</i>.</li>
+ * <li><code>-<i>start</i>,<i>count</i>;</code> removing <i>count</i> elements at <i>start</i>.</li>
+ * <li><code>*<i>count</i>;</code> followed by <i>count</i> elements, the whole contents of the list.</li>
+ * </ul>
+ * <p>
+ * An element is <code><i>length</i>:</code> followed by that many characters from the
+ * {@link DeltaCodec}. The length prefix means the encoded elements never need escaping.
+ * </p>
+ *
+ * @author Sandy McArthur
+ */
+final class Delta {
+    static final char DELTA = 'D';
+    static final char SNAPSHOT = 'S';
+
+    static final char ADDED = '+';
+    static final char CHANGED = '~';
+    static final char REMOVED = '-';
+    static final char CONTENTS = '*';
+
+    private Delta() {
+    }
+
+    static void appendRange(final StringBuffer sb, final char op, final int start, final int count) {
+        sb.append(op).append(start).append(',').append(count).append(';');
+    }
+
+    static void appendElements(final StringBuffer sb, final List source, final int start, final int end, final DeltaCodec codec) {
+        for (int i=start; i < end; i++) {
+            final String encoded = codec.encode(source.get(i));
+            sb.append(encoded.length()).append(':').append(encoded);
+        }
+    }
+
+    /**
+     * Reads a message a token at a time.
+     */
+    static class Reader {
+        private final String message;
+        private int pos = 0;
+
+        Reader(final String message) {
+            this.message = message;
+        }
+
+        boolean hasMore() {
+            return pos < message.length();
+        }
+
+        char readChar() throws IllegalArgumentException {
+            if (pos >= message.length()) {
+                throw new IllegalArgumentException("Truncated delta at " + pos);
+            }
+            return message.charAt(pos++);
+        }
+
+        /**
+         * Read a non-negative number up to and including <code>terminator</code>.
+         */
+        int readInt(final char terminator) throws IllegalArgumentException {
+            final int end = message.indexOf(terminator, pos);
+            if (end < 0) {
+                throw new IllegalArgumentException("Truncated delta at " + pos);
+            }
+            final int value;
+            try {
+                value = Integer.parseInt(message.substring(pos, end));
+            } catch (NumberFormatException nfe) {
+                throw new IllegalArgumentException("Malformed delta at " + pos);
+            }
+            if (value < 0) {
+                throw new IllegalArgumentException("Malformed delta at " + pos);
+            }
+            pos = end + 1;
+            return value;
+        }
+
+        List readElements(final int count, final DeltaCodec codec) throws IllegalArgumentException {
+            final List elements = new ArrayList(count);
+            for (int i=0; i < count; i++) {
+                final int length = readInt(':');
+                if (pos + length > message.length()) {
+                    throw new IllegalArgumentException("Truncated delta at " + pos);
+                }
+                elements.add(codec.decode(message.substring(pos, pos + length)));
+                pos += length;
+            }
+            return elements;
+        }
+    }
+}
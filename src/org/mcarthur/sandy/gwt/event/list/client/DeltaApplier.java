@@ -0,0 +1,190 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+import java.util.List;
+
+/**
+ * Applies the delta messages of a {@link DeltaPublisher} to a local EventList.
+ * Messages are applied in sequence. A message older than what was already applied is ignored,
+ * and a gap, a message that starts after what was applied, makes the applier ask its
+ * {@link ResyncHandler} for what it missed, which the publisher answers with
+ * {@link DeltaPublisher#poll(int)}.
+ *
+ * <pre>
+ * final EventList rows = EventLists.eventList();
+ * final DeltaApplier applier = new DeltaApplier(rows, codec, new DeltaApplier.ResyncHandler() {
+ *     public void resync(final DeltaApplier applier, final int sequence) {
+ *         service.poll(sequence, new AsyncCallback() {
+ *             public void onSuccess(final Object result) {
+ *                 applier.apply((String)result);
+ *             }
+ *             public void onFailure(final Throwable caught) {
+ *                 applier.resyncFailed();
+ *             }
+ *         });
+ *     }
+ * });
+ * applier.resync();
+ * </pre>
+ *
+ * @author Sandy McArthur
+ * @see DeltaPublisher
+ */
+public class DeltaApplier {
+    private final EventList target;
+    private final DeltaCodec codec;
+    private final ResyncHandler resyncHandler;
+
+    private int sequence = -1;
+
+    /**
+     * A resync was asked for and hasn't been answered yet.
+     */
+    private boolean resyncing = false;
+
+    /**
+     * Apply deltas to <code>target</code>.
+     *
+     * @param target the list to keep up to date.
+     * @param codec decodes the elements.
+     * @param resyncHandler asked for the missing changes when there is a gap, <code>null</code>
+     *      if gaps are handled by calling {@link #getSequence()} and polling.
+     */
+    public DeltaApplier(final EventList target, final DeltaCodec codec, final ResyncHandler resyncHandler) {
+        if (target == null || codec == null) {
+            throw new NullPointerException("null not allowed");
+        }
+        this.target = target;
+        this.codec = codec;
+        this.resyncHandler = resyncHandler;
+    }
+
+    /**
+     * The sequence number of the last applied message.
+     *
+     * @return the current sequence number, <code>-1</code> if nothing was applied yet.
+     */
+    public int getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Ask the {@link ResyncHandler} for the changes since {@link #getSequence()}.
+     * Does nothing if a resync is already under way.
+     */
+    public void resync() {
+        if (!resyncing && resyncHandler != null) {
+            resyncing = true;
+            resyncHandler.resync(this, sequence);
+        }
+    }
+
+    /**
+     * Forget a resync that won't be answered, because the request failed or timed out.
+     * Without this a lost answer would leave the applier waiting for it and ignoring every
+     * later delta. The next gap or call to {@link #resync()} asks the {@link ResyncHandler} again.
+     */
+    public void resyncFailed() {
+        resyncing = false;
+    }
+
+    /**
+     * Apply a message from a {@link DeltaPublisher}.
+     *
+     * @param message a delta or snapshot.
+     * @return <code>true</code> if the message was applied, <code>false</code> if it was
+     *      stale or there was a gap before it.
+     * @throws IllegalArgumentException if the message is malformed or doesn't fit the target.
+     */
+    public boolean apply(final String message) throws IllegalArgumentException {
+        final Delta.Reader reader = new Delta.Reader(message);
+        final char kind = reader.readChar();
+        final int newSequence;
+        if (kind == Delta.SNAPSHOT) {
+            newSequence = reader.readInt(';');
+            if (newSequence < sequence && !resyncing) {
+                // stale, unless it answers a resync from a publisher that started over
+                return false;
+            }
+
+        } else if (kind == Delta.DELTA) {
+            final int base = reader.readInt(',');
+            newSequence = reader.readInt(';');
+            if (newSequence < base) {
+                throw new IllegalArgumentException("Malformed delta header: " + base + "," + newSequence);
+            }
+            if (base != sequence) {
+                if (newSequence > sequence) {
+                    // missed something
+                    resync();
+                }
+                return false;
+            }
+
+        } else {
+            throw new IllegalArgumentException("Not a delta: " + kind);
+        }
+
+        while (reader.hasMore()) {
+            final char op = reader.readChar();
+            if (op == Delta.CONTENTS) {
+                EventLists.replaceAll(target, reader.readElements(reader.readInt(';'), codec));
+                continue;
+            }
+            final int start = reader.readInt(',');
+            final int count = reader.readInt(';');
+            if (start + count > target.size() + (op == Delta.ADDED ? count : 0)) {
+                throw new IllegalArgumentException("Delta doesn't fit: " + op + start + "," + count + " size: " + target.size());
+            }
+            if (op == Delta.ADDED) {
+                target.addAll(start, reader.readElements(count, codec));
+
+            } else if (op == Delta.CHANGED) {
+                final List elements = reader.readElements(count, codec);
+                for (int i=0; i < count; i++) {
+                    target.set(start + i, elements.get(i));
+                }
+
+            } else if (op == Delta.REMOVED) {
+                target.subList(start, start + count).clear();
+
+            } else {
+                throw new IllegalArgumentException("Unknown delta operation: " + op);
+            }
+        }
+        sequence = newSequence;
+        resyncing = false;
+        return true;
+    }
+
+    /**
+     * Fetches the changes a {@link DeltaApplier} missed.
+     */
+    public static interface ResyncHandler {
+        /**
+         * Get the changes since <code>sequence</code>, usually from
+         * {@link DeltaPublisher#poll(int)}, and pass them to {@link DeltaApplier#apply(String)}.
+         * This may be done later, the applier won't ask again until something is applied or
+         * {@link DeltaApplier#resyncFailed()} is called.
+         *
+         * @param applier the applier that missed changes.
+         * @param sequence the last sequence number it applied, <code>-1</code> if none.
+         */
+        public void resync(DeltaApplier applier, int sequence);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+/**
+ * Turns the elements of an EventList into text for a {@link DeltaPublisher} and back for a
+ * {@link DeltaApplier}.
+ *
+ * @author Sandy McArthur
+ */
+public interface DeltaCodec {
+    /**
+     * Codec for {@link String} elements.
+     */
+    public static final DeltaCodec STRING = new DeltaCodec() {
+        public String encode(final Object element) {
+            return (String)element;
+        }
+
+        public Object decode(final String encoded) {
+            return encoded;
+        }
+    };
+
+    /**
+     * Codec for {@link Integer} elements.
+     */
+    public static final DeltaCodec INTEGER = new DeltaCodec() {
+        public String encode(final Object element) {
+            return element.toString();
+        }
+
+        public Object decode(final String encoded) {
+            return Integer.valueOf(encoded);
+        }
+    };
+
+    /**
+     * Encode one element.
+     *
+     * @param element the element.
+     * @return the element as text.
+     */
+    public String encode(Object element);
+
+    /**
+     * Decode one element encoded by {@link #encode(Object)}.
+     *
+     * @param encoded the element as text.
+     * @return the element.
+     */
+    public Object decode(String encoded);
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns the changes to an EventList into compact delta messages that a {@link DeltaApplier}
+ * uses to keep a copy of the list up to date, typically a server side list mirrored in the
+ * browser. A message only carries the changed ranges and elements, so its size and the
+ * time to apply it depend on how much changed and not on the size of the list.
+ *
+ * <p>
+ * Changes are collected until {@link #flush()}, which numbers them with the next sequence
+ * number. With a {@link Transport} each flushed delta is pushed as it is made. Without one
+ * clients poll with the last sequence number they applied:
+ * </p>
+ * <pre>
+ * // server, in the RPC method
+ * return publisher.poll(clientSequence);
+ *
+ * // client, with the reply
+ * applier.apply(message);
+ * </pre>
+ *
+ * <p>
+ * The last few deltas are kept so a client that is behind gets only what it missed. A client
+ * further behind than that, or one that hasn't applied anything yet, gets a snapshot of the whole list.
+ * </p>
+ *
+ * <p>
+ * This class doesn't use anything GWT can't compile but it is meant for the server: the
+ * message is a String so it can be returned by a GWT RPC service or as the text of a response.
+ * </p>
+ *
+ * @author Sandy McArthur
+ * @see DeltaApplier
+ */
+public class DeltaPublisher {
+    private EventList source;
+    private final DeltaCodec codec;
+    private final int historySize;
+    private final Transport transport;
+    private final ListEventListener listener = new PublishingListEventListener();
+
+    /**
+     * The operations since the last flush.
+     */
+    private final StringBuffer pending = new StringBuffer();
+
+    /**
+     * An OTHER event was seen, the next delta carries the whole list.
+     */
+    private boolean reset = false;
+
+    private int sequence = 0;
+
+    /**
+     * The last <code>historySize</code> {@link Published} deltas, oldest first.
+     */
+    private final List history = new ArrayList();
+
+    /**
+     * Publish the changes to <code>source</code> for clients that poll.
+     *
+     * @param source the list to publish.
+     * @param codec encodes the elements.
+     * @param historySize how many deltas to keep for clients that are behind.
+     * @throws IllegalArgumentException if <code>historySize</code> is negative.
+     */
+    public DeltaPublisher(final EventList source, final DeltaCodec codec, final int historySize) throws IllegalArgumentException {
+        this(source, codec, historySize, null);
+    }
+
+    /**
+     * Publish the changes to <code>source</code>.
+     *
+     * @param source the list to publish.
+     * @param codec encodes the elements.
+     * @param historySize how many deltas to keep for clients that are behind.
+     * @param transport sends each delta as it is flushed, <code>null</code> if clients poll.
+     * @throws IllegalArgumentException if <code>historySize</code> is negative.
+     */
+    public DeltaPublisher(final EventList source, final DeltaCodec codec, final int historySize, final Transport transport) throws IllegalArgumentException {
+        if (source == null || codec == null) {
+            throw new NullPointerException("null not allowed");
+        }
+        if (historySize < 0) {
+            throw new IllegalArgumentException("historySize must not be negative: " + historySize);
+        }
+        this.source = source;
+        this.codec = codec;
+        this.historySize = historySize;
+        this.transport = transport;
+        source.addListEventListener(listener);
+    }
+
+    /**
+     * Stop publishing changes.
+     */
+    public void detach() {
+        getSource().removeListEventListener(listener);
+        source = null;
+        pending.setLength(0);
+        history.clear();
+    }
+
+    /**
+     * The sequence number of the last flushed delta.
+     *
+     * @return the current sequence number.
+     */
+    public int getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Turn the changes since the last flush into a delta with the next sequence number and
+     * send it to the transport, if there is one.
+     *
+     * @return the delta message, <code>null</code> if nothing changed.
+     */
+    public String flush() {
+        if (!reset && pending.length() == 0) {
+            return null;
+        }
+        final String operations;
+        if (reset) {
+            operations = contents();
+            reset = false;
+        } else {
+            operations = pending.toString();
+        }
+        pending.setLength(0);
+
+        final Published published = new Published(sequence, operations);
+        sequence++;
+        history.add(published);
+        while (history.size() > historySize) {
+            history.remove(0);
+        }
+
+        final String message = header(published.base) + operations;
+        if (transport != null) {
+            transport.send(message);
+        }
+        return message;
+    }
+
+    /**
+     * Everything a client that applied <code>sequence</code> is missing. Changes not yet
+     * flushed are flushed first.
+     *
+     * @param sequence the last sequence number the client applied, negative if none.
+     * @return a delta from <code>sequence</code> if the deltas since then are still kept,
+     *      an empty delta if the client is up to date, else a snapshot.
+     */
+    public String poll(final int sequence) {
+        getSource();
+        flush();
+        if (sequence == this.sequence) {
+            return header(sequence);
+        }
+        for (int i=0; i < history.size(); i++) {
+            if (((Published)history.get(i)).base == sequence) {
+                final StringBuffer sb = new StringBuffer(header(sequence));
+                for (int j=i; j < history.size(); j++) {
+                    sb.append(((Published)history.get(j)).operations);
+                }
+                return sb.toString();
+            }
+        }
+        return snapshot();
+    }
+
+    /**
+     * The whole list as of the last flush. Changes not yet flushed are flushed first.
+     *
+     * @return a snapshot message.
+     */
+    public String snapshot() {
+        getSource();
+        flush();
+        return Delta.SNAPSHOT + Integer.toString(sequence) + ';' + contents();
+    }
+
+    private String header(final int base) {
+        return Delta.DELTA + Integer.toString(base) + ',' + sequence + ';';
+    }
+
+    private String contents() {
+        final StringBuffer sb = new StringBuffer();
+        sb.append(Delta.CONTENTS).append(source.size()).append(';');
+        Delta.appendElements(sb, source, 0, source.size(), codec);
+        return sb.toString();
+    }
+
+    private EventList getSource() {
+        if (source == null) {
+            throw new IllegalStateException("detached.");
+        }
+        return source;
+    }
+
+    /**
+     * Sends delta messages to clients.
+     */
+    public static interface Transport {
+        /**
+         * Send one delta message. Messages must arrive in the order they are sent for them to
+         * be applied, a {@link DeltaApplier} that misses one asks to be resynchronized.
+         *
+         * @param message the delta.
+         */
+        public void send(String message);
+    }
+
+    /**
+     * A flushed delta.
+     */
+    private static class Published {
+        private final int base;
+        private final String operations;
+
+        Published(final int base, final String operations) {
+            this.base = base;
+            this.operations = operations;
+        }
+    }
+
+    private class PublishingListEventListener implements ListEventListener {
+        public void listChanged(final ListEvent listEvent) {
+            if (reset) {
+                // the next delta carries the whole list anyway
+                return;
+            }
+            final int start = listEvent.getIndexStart();
+            final int end = listEvent.getIndexEnd();
+            if (listEvent.isAdded()) {
+                Delta.appendRange(pending, Delta.ADDED, start, end - start);
+                Delta.appendElements(pending, source, start, end, codec);
+
+            } else if (listEvent.isChanged()) {
+                Delta.appendRange(pending, Delta.CHANGED, start, end - start);
+                Delta.appendElements(pending, source, start, end, codec);
+
+            } else if (listEvent.isRemoved()) {
+                Delta.appendRange(pending, Delta.REMOVED, start, end - start);
+
+            } else if (ListEvent.OTHER.equals(listEvent.getType())) {
+                pending.setLength(0);
+                reset = true;
+            }
+        }
+    }
+}
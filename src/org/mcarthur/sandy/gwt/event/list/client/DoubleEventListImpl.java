@@ -0,0 +1,178 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * DoubleEventList backed by a growable <code>double</code> array.
+ *
+ * @author Sandy McArthur
+ */
+class DoubleEventListImpl extends AbstractEventList implements DoubleEventList {
+    private double[] values = new double[10];
+    private int size = 0;
+
+    public Object get(final int index) {
+        return new Double(getDouble(index));
+    }
+
+    public double getDouble(final int index) {
+        checkIndex(index, size);
+        return values[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Object set(final int index, final Object element) {
+        return new Double(setDouble(index, unbox(element)));
+    }
+
+    public double setDouble(final int index, final double value) {
+        checkIndex(index, size);
+        final double old = values[index];
+        values[index] = value;
+        fireListEvent(ListEvent.createChanged(this, index));
+        return old;
+    }
+
+    public void add(final int index, final Object element) {
+        addDouble(index, unbox(element));
+    }
+
+    public void addDouble(final double value) {
+        addDouble(size, value);
+    }
+
+    public void addDouble(final int index, final double value) {
+        checkIndex(index, size + 1);
+        makeRoom(index, 1);
+        values[index] = value;
+        fireListEvent(ListEvent.createAdded(this, index));
+    }
+
+    public boolean addAll(final Collection c) {
+        return addAll(size, c);
+    }
+
+    public boolean addAll(final int index, final Collection c) {
+        final double[] added = new double[c.size()];
+        final Iterator iter = c.iterator();
+        for (int i=0; i < added.length; i++) {
+            added[i] = unbox(iter.next());
+        }
+        addAll(index, added);
+        return added.length > 0;
+    }
+
+    public void addAll(final double[] values) {
+        addAll(size, values);
+    }
+
+    public void addAll(final int index, final double[] values) {
+        checkIndex(index, size + 1);
+        if (values.length > 0) {
+            makeRoom(index, values.length);
+            for (int i=0; i < values.length; i++) {
+                this.values[index + i] = values[i];
+            }
+            fireListEvent(ListEvent.createAdded(this, index, index + values.length));
+        }
+    }
+
+    public Object remove(final int index) {
+        return new Double(removeDouble(index));
+    }
+
+    public double removeDouble(final int index) {
+        checkIndex(index, size);
+        final double old = values[index];
+        close(index, index + 1);
+        fireListEvent(ListEvent.createRemoved(this, index));
+        return old;
+    }
+
+    protected void removeRange(final int start, final int end) {
+        if (start < 0 || end > size || start > end) {
+            throw new IndexOutOfBoundsException("start: " + start + ", end: " + end + ", size: " + size);
+        }
+        if (start < end) {
+            close(start, end);
+            fireListEvent(ListEvent.createRemoved(this, start, end));
+        }
+    }
+
+    public void clear() {
+        removeRange(0, size);
+    }
+
+    public double[] toDoubleArray() {
+        final double[] copy = new double[size];
+        for (int i=0; i < size; i++) {
+            copy[i] = values[i];
+        }
+        return copy;
+    }
+
+    /**
+     * Open a gap of <code>count</code> slots at <code>index</code>.
+     */
+    private void makeRoom(final int index, final int count) {
+        if (size + count > values.length) {
+            final double[] grown = new double[Math.max(values.length * 2, size + count)];
+            for (int i=0; i < index; i++) {
+                grown[i] = values[i];
+            }
+            for (int i=index; i < size; i++) {
+                grown[i + count] = values[i];
+            }
+            values = grown;
+        } else {
+            for (int i=size - 1; i >= index; i--) {
+                values[i + count] = values[i];
+            }
+        }
+        size += count;
+    }
+
+    /**
+     * Close the gap left by removing <code>[start, end)</code>.
+     */
+    private void close(final int start, final int end) {
+        final int count = end - start;
+        for (int i=end; i < size; i++) {
+            values[i - count] = values[i];
+        }
+        size -= count;
+    }
+
+    private static double unbox(final Object element) {
+        if (element == null) {
+            throw new NullPointerException("null not allowed");
+        }
+        return ((Number)element).doubleValue();
+    }
+
+    private void checkIndex(final int index, final int limit) {
+        if (index < 0 || index >= limit) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
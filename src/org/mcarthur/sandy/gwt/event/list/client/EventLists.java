@@ -18,6 +18,7 @@ package org.mcarthur.sandy.gwt.event.list.client;
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -26,9 +27,160 @@ import java.util.List;
  * @author Sandy McArthur
  */
 public class EventLists {
+    /**
+     * Registers view listeners directly with the backing list.
+     */
+    private static final AttachPolicy STRONG = new AttachPolicy() {
+        public ListEventListener attach(final EventList source, final ViewListEventListener listener) {
+            source.addListEventListener(listener);
+            return listener;
+        }
+    };
+
+    private static AttachPolicy attachPolicy = STRONG;
+
     private EventLists() {
     }
 
+    /**
+     * Get the policy views created after this call use to register with their backing list.
+     *
+     * @return the current attach policy.
+     */
+    public static AttachPolicy getAttachPolicy() {
+        return attachPolicy;
+    }
+
+    /**
+     * Set the policy views created after this call use to register with their backing list.
+     * Views that already exist are not affected.
+     *
+     * @param attachPolicy the policy to use or <code>null</code> to register listeners directly.
+     */
+    public static void setAttachPolicy(final AttachPolicy attachPolicy) {
+        EventLists.attachPolicy = attachPolicy != null ? attachPolicy : STRONG;
+    }
+
+    /**
+     * Register a view's listener with <code>source</code> according to the current attach policy.
+     *
+     * @param source the EventList being viewed.
+     * @param listener the listener of the view.
+     * @return the listener to remove from <code>source</code> when the view is detached.
+     */
+    static ListEventListener attach(final EventList source, final ViewListEventListener listener) {
+        return attachPolicy.attach(source, listener);
+    }
+
+    /**
+     * Lists the views that are currently attached to <code>source</code>.
+     * Only views created by this class and lists built on {@link ViewListEventListener} are found.
+     * Views that went dormant because nothing used them are not attached and are not listed.
+     *
+     * @param source the EventList to inspect.
+     * @return the views directly attached to <code>source</code>.
+     */
+    public static List getViews(final EventList source) {
+        final List views = new ArrayList();
+        if (source instanceof AbstractEventList) {
+            final ListEventListener[] listeners = ((AbstractEventList)source).getListEventListeners();
+            for (int i=0; i < listeners.length; i++) {
+                if (listeners[i] instanceof ViewListEventListener) {
+                    final EventList view = ((ViewListEventListener)listeners[i]).getView();
+                    if (view != null) {
+                        views.add(view);
+                    }
+                }
+            }
+        }
+        return views;
+    }
+
+    /**
+     * Lists views, direct or stacked, of <code>source</code> that nothing is listening to.
+     * Because JavaScript cannot collect a view that is still attached, a view that shows up here
+     * after the widget that used it is gone was most likely never {@link DetachableEventList#detach() detached}.
+     *
+     * @param source the EventList to inspect.
+     * @return views of <code>source</code> without any listeners of their own.
+     */
+    public static List getUnobservedViews(final EventList source) {
+        final List unobserved = new ArrayList();
+        final Iterator iter = getViews(source).iterator();
+        while (iter.hasNext()) {
+            final EventList view = (EventList)iter.next();
+            if (view instanceof AbstractEventList && ((AbstractEventList)view).getListEventListeners().length == 0) {
+                unobserved.add(view);
+            } else {
+                unobserved.addAll(getUnobservedViews(view));
+            }
+        }
+        return unobserved;
+    }
+
+    /**
+     * Create a new EventList that holds at most <code>capacity</code> elements, evicting the
+     * oldest to make room for new ones.
+     *
+     * @param capacity the most elements the list holds.
+     * @return a new, empty CappedEventList.
+     * @throws IllegalArgumentException if <code>capacity</code> is less than one.
+     */
+    public static CappedEventList cappedEventList(final int capacity) throws IllegalArgumentException {
+        return new CappedEventListImpl(capacity);
+    }
+
+    /**
+     * Create a new EventList that stores records column by column.
+     *
+     * @param names the name of each column.
+     * @param types the type of each column, one of {@link ColumnarEventList#TYPE_INT},
+     *      {@link ColumnarEventList#TYPE_DOUBLE} or {@link ColumnarEventList#TYPE_OBJECT}.
+     * @return a new, empty ColumnarEventList.
+     * @throws IllegalArgumentException if <code>names</code> and <code>types</code> differ in length
+     *      or a type is unknown.
+     */
+    public static ColumnarEventList columnarEventList(final String[] names, final int[] types) throws IllegalArgumentException {
+        return new ColumnarEventListImpl(names, types);
+    }
+
+    /**
+     * Create a new EventList that stores <code>double</code> values without boxing them.
+     *
+     * @return a new, empty DoubleEventList.
+     */
+    public static DoubleEventList doubleEventList() {
+        return new DoubleEventListImpl();
+    }
+
+    /**
+     * Adapts a DoubleComparator for use with a {@link SortedEventList}.
+     * The elements passed to the returned Comparator must be {@link Number}s.
+     * A SortedEventList directly over a {@link DoubleEventList} compares its values by position
+     * without boxing them.
+     *
+     * @param comparator compares the unboxed values.
+     * @return a Comparator of boxed values.
+     */
+    public static Comparator doubleComparator(final DoubleEventList.DoubleComparator comparator) {
+        return new DoubleComparatorAdapter(comparator);
+    }
+
+    /**
+     * Adapts a DoubleFilter for use with a {@link FilteredEventList}.
+     * The elements passed to the returned Filter must be {@link Number}s.
+     *
+     * @param filter accepts the unboxed values.
+     * @return a Filter of boxed values.
+     */
+    public static FilteredEventList.Filter doubleFilter(final DoubleEventList.DoubleFilter filter) {
+        return new FilteredEventList.Filter() {
+            public boolean accept(final Object element) {
+                return filter.accept(((Number)element).doubleValue());
+            }
+        };
+    }
+
     /**
      * Create a new EventList.
      *
@@ -39,6 +191,20 @@ public class EventLists {
         return wrap(new ArrayList());
     }
 
+    /**
+     * Create a new EventList whose elements remove themselves <code>timeToLive</code>
+     * milliseconds after they are added.
+     *
+     * @param timeToLive the default time to live in milliseconds, {@link ExpiringEventList#NEVER} if elements don't expire.
+     * @param clock the source of time, <code>null</code> for {@link ExpiringEventList#SYSTEM_CLOCK}.
+     * @param scheduler calls {@link ExpiringEventList#expire()} when elements are due,
+     *      <code>null</code> if the caller will call it.
+     * @return a new, empty ExpiringEventList.
+     */
+    public static ExpiringEventList expiringEventList(final long timeToLive, final ExpiringEventList.Clock clock, final ExpiringEventList.ExpiryScheduler scheduler) {
+        return new ExpiringEventListImpl(timeToLive, clock, scheduler);
+    }
+
     /**
      * Creates a FilteredEventList.
      *
@@ -83,6 +249,93 @@ public class EventLists {
         return new FilteredEventListImpl2(eventList, filter);
     }
 
+    /**
+     * Creates a view of another EventList that can keep hash indexes of its elements.
+     * Changes to <code>eventList</code> are reflected in the view and its indexes and
+     * modifications to the view are propagated to <code>eventList</code>.
+     *
+     * @param eventList the event list to index.
+     * @return an IndexedEventList without any indexes yet.
+     * @see IndexedEventList#addIndex(String, KeyedReconciler.KeyExtractor)
+     */
+    public static IndexedEventList indexedEventList(final EventList eventList) {
+        return new IndexedEventListImpl(eventList);
+    }
+
+    /**
+     * Create a new EventList that stores <code>int</code> values without boxing them.
+     *
+     * @return a new, empty IntEventList.
+     */
+    public static IntEventList intEventList() {
+        return new IntEventListImpl();
+    }
+
+    /**
+     * Adapts a IntComparator for use with a {@link SortedEventList}.
+     * The elements passed to the returned Comparator must be {@link Number}s.
+     * A SortedEventList directly over a {@link IntEventList} compares its values by position
+     * without boxing them.
+     *
+     * @param comparator compares the unboxed values.
+     * @return a Comparator of boxed values.
+     */
+    public static Comparator intComparator(final IntEventList.IntComparator comparator) {
+        return new IntComparatorAdapter(comparator);
+    }
+
+    /**
+     * Adapts a IntFilter for use with a {@link FilteredEventList}.
+     * The elements passed to the returned Filter must be {@link Number}s.
+     *
+     * @param filter accepts the unboxed values.
+     * @return a Filter of boxed values.
+     */
+    public static FilteredEventList.Filter intFilter(final IntEventList.IntFilter filter) {
+        return new FilteredEventList.Filter() {
+            public boolean accept(final Object element) {
+                return filter.accept(((Number)element).intValue());
+            }
+        };
+    }
+
+    /**
+     * Create a new EventList that stores <code>long</code> values without boxing them.
+     *
+     * @return a new, empty LongEventList.
+     */
+    public static LongEventList longEventList() {
+        return new LongEventListImpl();
+    }
+
+    /**
+     * Adapts a LongComparator for use with a {@link SortedEventList}.
+     * The elements passed to the returned Comparator must be {@link Number}s.
+     * A SortedEventList directly over a {@link LongEventList} compares its values by position
+     * without boxing them.
+     *
+     * @param comparator compares the unboxed values.
+     * @return a Comparator of boxed values.
+     */
+    public static Comparator longComparator(final LongEventList.LongComparator comparator) {
+        return new LongComparatorAdapter(comparator);
+    }
+
+    /**
+     * Adapts a LongFilter for use with a {@link FilteredEventList}.
+     * The elements passed to the returned Filter must be {@link Number}s.
+     *
+     * @param filter accepts the unboxed values.
+     * @return a Filter of boxed values.
+     */
+    public static FilteredEventList.Filter longFilter(final LongEventList.LongFilter filter) {
+        return new FilteredEventList.Filter() {
+            public boolean accept(final Object element) {
+                return filter.accept(((Number)element).longValue());
+            }
+        };
+    }
+
     /**
      * Creates a new empty ranged event list.
      * 
@@ -116,6 +369,46 @@ public class EventLists {
         return new RangedEventListImpl2(eventList, maxSize);
     }
 
+    /**
+     * Create a RangedEventList over data loaded on demand from a provider.
+     * Pages are the same size as the range and up to ten are cached.
+     *
+     * @param provider supplies the elements and the total.
+     * @param maxSize max size of the range.
+     * @return a PagedEventList starting at the first element.
+     * @see #pagedEventList(PageProvider, int, int, int, Object)
+     */
+    public static PagedEventList pagedEventList(final PageProvider provider, final int maxSize) {
+        return pagedEventList(provider, maxSize, Math.max(maxSize, 1), 10, null);
+    }
+
+    /**
+     * Create a RangedEventList over data loaded on demand from a provider.
+     *
+     * @param provider supplies the elements and the total.
+     * @param maxSize max size of the range.
+     * @param pageSize number of elements requested from the provider at a time.
+     * @param cacheSize most pages kept in memory.
+     * @param placeholder presented in place of elements not loaded yet,
+     *      <code>null</code> for {@link PagedEventList#LOADING}.
+     * @return a PagedEventList starting at the first element.
+     */
+    public static PagedEventList pagedEventList(final PageProvider provider, final int maxSize, final int pageSize, final int cacheSize, final Object placeholder) {
+        return new PagedEventListImpl(provider, maxSize, pageSize, cacheSize, placeholder);
+    }
+
+    /**
+     * Create a new EventList that can take O(1) immutable snapshots of its contents.
+     * Element access and modification cost O(log n) instead of the O(1) access of
+     * {@link #eventList()} so only use this when snapshots are needed.
+     *
+     * @return a new, empty PersistentEventList.
+     * @see PersistentEventList#snapshot()
+     */
+    public static PersistentEventList persistentEventList() {
+        return new PersistentEventListImpl();
+    }
+
     /**
      * Presents a view of another EventList where the elements are in reverse order.
      * This could also be done with a SortedEventList but because this only supports
@@ -218,6 +511,48 @@ public class EventLists {
         return new SteadyRangedEventListImpl2(eventList, maxSize);
     }
 
+    /**
+     * Creates a view of another EventList that presents the elements whose text contains a query.
+     * Changes to <code>eventList</code> are reflected in the view and its index and modifications
+     * to the view are propagated to <code>eventList</code>.
+     *
+     * @param eventList the EventList to search.
+     * @param textExtractor extracts the searchable text of each element, <code>null</code> for
+     *      {@link TextSearchEventList#TO_STRING}.
+     * @return a view presenting every element until a query is set.
+     * @see TextSearchEventList#setQuery(String)
+     */
+    public static TextSearchEventList textSearchEventList(final EventList eventList, final TextSearchEventList.TextExtractor textExtractor) {
+        return new TextSearchEventListImpl(eventList, textExtractor);
+    }
+
+    /**
+     * Creates a view of another EventList that forwards its changes at most once per tick.
+     *
+     * @param eventList the EventList to throttle.
+     * @param scheduler decides when changes are forwarded, <code>null</code> if the caller
+     *      will call {@link ThrottledEventList#flush()}.
+     * @return a view of <code>eventList</code> that holds back its changes until flushed.
+     */
+    public static ThrottledEventList throttledEventList(final EventList eventList, final ThrottledEventList.FlushScheduler scheduler) {
+        return new ThrottledEventListImpl(eventList, scheduler);
+    }
+
+    /**
+     * Creates a view of the first <code>limit</code> elements of another EventList in sorted
+     * order, without keeping the rest of <code>eventList</code> sorted.
+     *
+     * @param eventList the EventList to take the top elements of.
+     * @param comparator orders the elements, <code>null</code> for natural ordering.
+     * @param limit the most elements the view presents.
+     * @return a view of the top <code>limit</code> elements of <code>eventList</code>.
+     * @throws IllegalArgumentException if <code>limit</code> is negative.
+     * @see #sortedEventList(EventList, Comparator)
+     */
+    public static TopNEventList topNEventList(final EventList eventList, final Comparator comparator, final int limit) throws IllegalArgumentException {
+        return new TopNEventListImpl(eventList, comparator, limit);
+    }
+
     /**
      * Wrap a <code>List</code> so it can be monitored for changes.
      * <p>
@@ -247,4 +582,112 @@ public class EventLists {
             throw new IllegalArgumentException("list must not be null.");
         }
     }
+
+    /**
+     * Replace the contents of <code>eventList</code> with <code>newContents</code> by changing only
+     * the elements that differ. Elements are compared with {@link Object#equals(Object)} and
+     * elements that are equal are kept, so a fresh snapshot from a server where only a few rows
+     * changed results in only a few small events instead of a <code>clear()</code> and
+     * <code>addAll(Collection)</code> of everything.
+     * <p>
+     * Lists created by {@link #eventList()} or {@link #wrap(List)} fire one batch of coalesced
+     * range events. Other lists are updated with <code>set</code>, <code>remove</code> and
+     * <code>addAll</code> and fire whatever those fire. This is meant for lists that keep elements
+     * where they are put; sorted views will place the elements according to their order anyway.
+     * </p>
+     *
+     * @param eventList the EventList to update.
+     * @param newContents the desired contents of <code>eventList</code>.
+     */
+    public static void replaceAll(final EventList eventList, final List newContents) {
+        if (eventList instanceof WrappedEventList) {
+            ((WrappedEventList)eventList).replaceAll(newContents);
+            return;
+        }
+
+        final List hunks = ListDiff.diff(eventList, newContents);
+        int shift = 0;
+        final Iterator iter = hunks.iterator();
+        while (iter.hasNext()) {
+            final ListDiff.Hunk hunk = (ListDiff.Hunk)iter.next();
+            final int oldSize = hunk.oldEnd - hunk.oldStart;
+            final int newSize = hunk.newEnd - hunk.newStart;
+            final int changed = Math.min(oldSize, newSize);
+            final int start = hunk.oldStart + shift;
+
+            for (int i=0; i < changed; i++) {
+                eventList.set(start + i, newContents.get(hunk.newStart + i));
+            }
+            if (oldSize > newSize) {
+                eventList.subList(start + changed, start + oldSize).clear();
+            }
+            if (newSize > oldSize) {
+                eventList.addAll(start + changed, newContents.subList(hunk.newStart + changed, hunk.newEnd));
+            }
+            shift += newSize - oldSize;
+        }
+    }
+
+    private static class IntComparatorAdapter implements IndexComparator {
+        private final IntEventList.IntComparator comparator;
+
+        IntComparatorAdapter(final IntEventList.IntComparator comparator) {
+            this.comparator = comparator;
+        }
+
+        public int compare(final Object o1, final Object o2) {
+            return comparator.compare(((Number)o1).intValue(), ((Number)o2).intValue());
+        }
+
+        public boolean canCompare(final List list) {
+            return list instanceof IntEventList;
+        }
+
+        public int compare(final List list, final int index1, final int index2) {
+            final IntEventList values = (IntEventList)list;
+            return comparator.compare(values.getInt(index1), values.getInt(index2));
+        }
+    }
+
+    private static class LongComparatorAdapter implements IndexComparator {
+        private final LongEventList.LongComparator comparator;
+
+        LongComparatorAdapter(final LongEventList.LongComparator comparator) {
+            this.comparator = comparator;
+        }
+
+        public int compare(final Object o1, final Object o2) {
+            return comparator.compare(((Number)o1).longValue(), ((Number)o2).longValue());
+        }
+
+        public boolean canCompare(final List list) {
+            return list instanceof LongEventList;
+        }
+
+        public int compare(final List list, final int index1, final int index2) {
+            final LongEventList values = (LongEventList)list;
+            return comparator.compare(values.getLong(index1), values.getLong(index2));
+        }
+    }
+
+    private static class DoubleComparatorAdapter implements IndexComparator {
+        private final DoubleEventList.DoubleComparator comparator;
+
+        DoubleComparatorAdapter(final DoubleEventList.DoubleComparator comparator) {
+            this.comparator = comparator;
+        }
+
+        public int compare(final Object o1, final Object o2) {
+            return comparator.compare(((Number)o1).doubleValue(), ((Number)o2).doubleValue());
+        }
+
+        public boolean canCompare(final List list) {
+            return list instanceof DoubleEventList;
+        }
+
+        public int compare(final List list, final int index1, final int index2) {
+            final DoubleEventList values = (DoubleEventList)list;
+            return comparator.compare(values.getDouble(index1), values.getDouble(index2));
+        }
+    }
 }
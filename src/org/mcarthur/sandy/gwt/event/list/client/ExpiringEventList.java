@@ -0,0 +1,140 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+/**
+ * An EventList whose elements remove themselves a while after they are added.
+ * Expiry times are kept in a min-heap so one scheduled callback, not a timer per element,
+ * drives the removals, and everything that has expired by then is removed together: one
+ * REMOVED event per run of adjacent elements, wrapped in a batch when there is more than one.
+ *
+ * <p>
+ * The time comes from a {@link Clock} and the callbacks from an {@link ExpiryScheduler} so
+ * tests can control time. In GWT client code the scheduler is usually a <code>Timer</code>:
+ * </p>
+ * <pre>
+ * final ExpiringEventList alerts = EventLists.expiringEventList(30000, null, new ExpiringEventList.ExpiryScheduler() {
+ *     public void scheduleExpiry(final ExpiringEventList list, final long delayMillis) {
+ *         new Timer() {
+ *             public void run() {
+ *                 list.expire();
+ *             }
+ *         }.schedule((int)Math.max(1, delayMillis));
+ *     }
+ * });
+ * </pre>
+ *
+ * <p>
+ * {@link #set(int, Object)} keeps the expiry time of the element it replaces.
+ * </p>
+ *
+ * @author Sandy McArthur
+ * @see EventLists#expiringEventList(long, ExpiringEventList.Clock, ExpiringEventList.ExpiryScheduler)
+ */
+public interface ExpiringEventList extends EventList {
+    /**
+     * The time to live of an element that never expires.
+     */
+    public static final long NEVER = 0;
+
+    /**
+     * Uses {@link System#currentTimeMillis()}.
+     */
+    public static final Clock SYSTEM_CLOCK = new Clock() {
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    /**
+     * The time to live given to elements added without one.
+     *
+     * @return the default time to live in milliseconds, {@link #NEVER} if they don't expire.
+     */
+    public long getTimeToLive();
+
+    /**
+     * Change the time to live given to elements added without one.
+     * Elements already in the list keep their expiry time.
+     *
+     * @param timeToLive the default time to live in milliseconds, {@link #NEVER} if they don't expire.
+     */
+    public void setTimeToLive(long timeToLive);
+
+    /**
+     * Append an element with its own time to live.
+     *
+     * @param element the element to append.
+     * @param timeToLive milliseconds until the element expires, {@link #NEVER} if it doesn't.
+     */
+    public void add(Object element, long timeToLive);
+
+    /**
+     * Insert an element with its own time to live.
+     *
+     * @param index where to insert the element.
+     * @param element the element to insert.
+     * @param timeToLive milliseconds until the element expires, {@link #NEVER} if it doesn't.
+     * @throws IndexOutOfBoundsException if <code>index</code> is out of range.
+     */
+    public void add(int index, Object element, long timeToLive) throws IndexOutOfBoundsException;
+
+    /**
+     * When an element expires.
+     *
+     * @param index the element's position.
+     * @return the {@link Clock} time the element expires at, <code>Long.MAX_VALUE</code> if it doesn't.
+     * @throws IndexOutOfBoundsException if <code>index</code> is out of range.
+     */
+    public long getExpiry(int index) throws IndexOutOfBoundsException;
+
+    /**
+     * Remove every element that has expired by now. The {@link ExpiryScheduler} arranges for
+     * this to be called but calling it more often does no harm.
+     *
+     * @return the number of elements removed.
+     */
+    public int expire();
+
+    /**
+     * The source of time for an ExpiringEventList.
+     */
+    public static interface Clock {
+        /**
+         * The current time.
+         *
+         * @return the current time in milliseconds.
+         */
+        public long currentTimeMillis();
+    }
+
+    /**
+     * Decides when an {@link ExpiringEventList} removes its expired elements.
+     */
+    public static interface ExpiryScheduler {
+        /**
+         * Arrange for {@link ExpiringEventList#expire()} to be called on <code>list</code>
+         * after <code>delayMillis</code>. Only called when the earliest expiry time moves
+         * earlier than the last callback asked for, so callbacks aren't cancelled, a callback
+         * that finds nothing expired is harmless.
+         *
+         * @param list the list to expire.
+         * @param delayMillis how long to wait, zero or more.
+         */
+        public void scheduleExpiry(ExpiringEventList list, long delayMillis);
+    }
+}
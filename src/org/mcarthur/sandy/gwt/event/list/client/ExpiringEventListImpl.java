@@ -0,0 +1,295 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ExpiringEventList with a binary min-heap of expiry times. Entries removed by other means are
+ * left in the heap, marked dead, until they reach the top or the heap is mostly dead.
+ *
+ * @author Sandy McArthur
+ */
+class ExpiringEventListImpl extends AbstractEventList implements ExpiringEventList {
+    private final Clock clock;
+    private final ExpiryScheduler scheduler;
+
+    /**
+     * An Entry for each element, in list order.
+     */
+    private final List entries = new ArrayList();
+
+    /**
+     * Entries that expire, as a binary heap ordered by expiry time.
+     */
+    private final List heap = new ArrayList();
+
+    private int deadInHeap = 0;
+    private long timeToLive;
+
+    /**
+     * The time the last scheduled callback runs at, <code>Long.MAX_VALUE</code> if none is pending.
+     */
+    private long scheduledAt = Long.MAX_VALUE;
+
+    ExpiringEventListImpl(final long timeToLive, final Clock clock, final ExpiryScheduler scheduler) {
+        this.timeToLive = timeToLive;
+        this.clock = clock != null ? clock : SYSTEM_CLOCK;
+        this.scheduler = scheduler;
+    }
+
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    public void setTimeToLive(final long timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    public Object get(final int index) {
+        return entry(index).element;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getExpiry(final int index) {
+        return entry(index).expiresAt;
+    }
+
+    public Object set(final int index, final Object element) {
+        final Entry entry = entry(index);
+        final Object old = entry.element;
+        entry.element = element;
+        fireListEvent(ListEvent.createChanged(this, index));
+        return old;
+    }
+
+    public void add(final int index, final Object element) {
+        add(index, element, timeToLive);
+    }
+
+    public void add(final Object element, final long timeToLive) {
+        add(entries.size(), element, timeToLive);
+    }
+
+    public void add(final int index, final Object element, final long timeToLive) {
+        if (index < 0 || index > entries.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + entries.size());
+        }
+        final long expiresAt = timeToLive > NEVER ? clock.currentTimeMillis() + timeToLive : Long.MAX_VALUE;
+        final Entry entry = new Entry(element, expiresAt);
+        entries.add(index, entry);
+        if (expiresAt != Long.MAX_VALUE) {
+            heapAdd(entry);
+        }
+        fireListEvent(ListEvent.createAdded(this, index));
+        schedule();
+    }
+
+    public Object remove(final int index) {
+        final Entry entry = entry(index);
+        entries.remove(index);
+        bury(entry);
+        fireListEvent(ListEvent.createRemoved(this, index));
+        return entry.element;
+    }
+
+    protected void removeRange(final int start, final int end) {
+        if (start < 0 || end > entries.size() || start > end) {
+            throw new IndexOutOfBoundsException("start: " + start + ", end: " + end + ", size: " + entries.size());
+        }
+        if (start < end) {
+            final List removed = entries.subList(start, end);
+            for (int i=0; i < removed.size(); i++) {
+                bury((Entry)removed.get(i));
+            }
+            removed.clear();
+            fireListEvent(ListEvent.createRemoved(this, start, end));
+        }
+    }
+
+    public void clear() {
+        removeRange(0, entries.size());
+    }
+
+    public int expire() {
+        final long now = clock.currentTimeMillis();
+        if (scheduledAt <= now) {
+            scheduledAt = Long.MAX_VALUE;
+        }
+        int expired = 0;
+        while (!heap.isEmpty() && ((Entry)heap.get(0)).expiresAt <= now) {
+            final Entry entry = heapPoll();
+            if (entry.dead) {
+                deadInHeap--;
+            } else {
+                entry.dead = true;
+                expired++;
+            }
+        }
+        if (expired > 0) {
+            removeExpired();
+        }
+        schedule();
+        return expired;
+    }
+
+    /**
+     * Compact the expired entries out of the list in one pass, firing a REMOVED event per run.
+     */
+    private void removeExpired() {
+        final List runs = new ArrayList(); // of int[] {start, end} in the original positions
+        int runStart = -1;
+        for (int i=0; i <= entries.size(); i++) {
+            final boolean dead = i < entries.size() && ((Entry)entries.get(i)).dead;
+            if (dead && runStart < 0) {
+                runStart = i;
+            } else if (!dead && runStart >= 0) {
+                runs.add(new int[] {runStart, i});
+                runStart = -1;
+            }
+        }
+
+        final boolean batch = runs.size() > 1;
+        if (batch) {
+            fireListEvent(ListEvent.createBatchStart(this));
+        }
+        // remove from the end so the earlier runs keep their positions
+        for (int r=runs.size() - 1; r >= 0; r--) {
+            final int[] run = (int[])runs.get(r);
+            entries.subList(run[0], run[1]).clear();
+            fireListEvent(ListEvent.createRemoved(this, run[0], run[1]));
+        }
+        if (batch) {
+            fireListEvent(ListEvent.createBatchEnd(this));
+        }
+    }
+
+    /**
+     * Ask for a callback if the earliest expiry is before the pending one.
+     */
+    private void schedule() {
+        if (scheduler == null) {
+            return;
+        }
+        while (!heap.isEmpty() && ((Entry)heap.get(0)).dead) {
+            heapPoll();
+            deadInHeap--;
+        }
+        if (!heap.isEmpty()) {
+            final long next = ((Entry)heap.get(0)).expiresAt;
+            if (next < scheduledAt) {
+                scheduledAt = next;
+                scheduler.scheduleExpiry(this, Math.max(0, next - clock.currentTimeMillis()));
+            }
+        }
+    }
+
+    /**
+     * Mark an entry removed by other means so the heap skips it.
+     */
+    private void bury(final Entry entry) {
+        if (entry.expiresAt != Long.MAX_VALUE && !entry.dead) {
+            entry.dead = true;
+            deadInHeap++;
+            if (deadInHeap > 16 && deadInHeap > heap.size() / 2) {
+                rebuildHeap();
+            }
+        }
+    }
+
+    private void rebuildHeap() {
+        final List live = new ArrayList();
+        for (int i=0; i < heap.size(); i++) {
+            final Entry entry = (Entry)heap.get(i);
+            if (!entry.dead) {
+                live.add(entry);
+            }
+        }
+        heap.clear();
+        deadInHeap = 0;
+        for (int i=0; i < live.size(); i++) {
+            heapAdd((Entry)live.get(i));
+        }
+    }
+
+    private void heapAdd(final Entry entry) {
+        heap.add(entry);
+        int child = heap.size() - 1;
+        while (child > 0) {
+            final int parent = (child - 1) / 2;
+            if (((Entry)heap.get(parent)).expiresAt <= entry.expiresAt) {
+                break;
+            }
+            heap.set(child, heap.get(parent));
+            child = parent;
+        }
+        heap.set(child, entry);
+    }
+
+    private Entry heapPoll() {
+        final Entry top = (Entry)heap.get(0);
+        final Entry last = (Entry)heap.remove(heap.size() - 1);
+        if (!heap.isEmpty()) {
+            int parent = 0;
+            while (true) {
+                int child = parent * 2 + 1;
+                if (child >= heap.size()) {
+                    break;
+                }
+                if (child + 1 < heap.size() && ((Entry)heap.get(child + 1)).expiresAt < ((Entry)heap.get(child)).expiresAt) {
+                    child++;
+                }
+                if (last.expiresAt <= ((Entry)heap.get(child)).expiresAt) {
+                    break;
+                }
+                heap.set(parent, heap.get(child));
+                parent = child;
+            }
+            heap.set(parent, last);
+        }
+        return top;
+    }
+
+    private Entry entry(final int index) {
+        if (index < 0 || index >= entries.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + entries.size());
+        }
+        return (Entry)entries.get(index);
+    }
+
+    /**
+     * An element and when it expires.
+     */
+    private static class Entry {
+        private Object element;
+        private final long expiresAt;
+
+        /**
+         * Expired or removed, either way no longer in the list.
+         */
+        private boolean dead = false;
+
+        Entry(final Object element, final long expiresAt) {
+            this.element = element;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
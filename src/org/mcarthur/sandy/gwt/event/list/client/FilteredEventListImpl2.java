@@ -22,10 +22,15 @@ import java.util.List;
 
 /**
  * A FilteredEventList that presents a view of a subset of elements in another EventList.
+ * <p>
+ * When nothing listens to this list and it was not read since the last change to the backing
+ * list it goes dormant: it stops listening to the backing list and drops its index. The next
+ * access rebuilds the index in one pass.
+ * </p>
  *
  * @author Sandy McArthur
  */
-class FilteredEventListImpl2 extends AbstractEventList implements FilteredEventList {
+class FilteredEventListImpl2 extends AbstractEventList implements FilteredEventList, DetachableEventList {
     // TODO: The EVERYTHING filter should have almost no overhead
     // TODO: add event batching
 
@@ -39,7 +44,20 @@ class FilteredEventListImpl2 extends AbstractEventList implements FilteredEventL
      * This is needed during a batch change from a deeper list.
      */
     private final List elements = new ArrayList();
-    private final EventList delegate;
+    private EventList delegate;
+
+    private final ViewListEventListener listEventListener = new FilteredListEventListener();
+    private ListEventListener registration;
+
+    /**
+     * When dormant this list isn't listening to the delegate and elements and translations are empty.
+     */
+    private boolean dormant = false;
+
+    /**
+     * Was this list read since the last event from the delegate.
+     */
+    private boolean read = false;
 
     /**
      * A list of {@link Index}es that map the TransformedEventList's index to the delegate list's
@@ -52,11 +70,68 @@ class FilteredEventListImpl2 extends AbstractEventList implements FilteredEventL
     public FilteredEventListImpl2(final EventList delegate, final Filter filter) {
         this.delegate = delegate;
         elements.addAll(delegate);
-        delegate.addListEventListener(new FilteredListEventListener());
+        registration = EventLists.attach(delegate, listEventListener);
         setFilter(filter);
     }
 
+    /**
+     * Get the backing EventList.
+     * @return the backing EventList.
+     */
+    private EventList getDelegate() {
+        if (delegate == null) {
+            throw new IllegalStateException("detached.");
+        }
+        return delegate;
+    }
+
+    public EventList detach() {
+        final EventList old = getDelegate();
+        if (!dormant) {
+            old.removeListEventListener(registration);
+        }
+        delegate = null;
+        elements.clear();
+        translations.clear();
+        return old;
+    }
+
+    public void addListEventListener(final ListEventListener listEventListener) {
+        wake();
+        super.addListEventListener(listEventListener);
+    }
+
+    /**
+     * Stop tracking the delegate until this list is needed again.
+     */
+    private void sleep() {
+        getDelegate().removeListEventListener(registration);
+        registration = null;
+        elements.clear();
+        translations.clear();
+        dormant = true;
+    }
+
+    /**
+     * Note this list is being used and rebuild it if it was dormant.
+     */
+    private void wake() {
+        if (dormant && delegate != null) {
+            dormant = false;
+            registration = EventLists.attach(delegate, listEventListener);
+            elements.addAll(delegate);
+            final int size = elements.size();
+            for (int i=0; i < size; i++) {
+                if (filter.accept(elements.get(i))) {
+                    translations.add(new Index(i));
+                }
+            }
+        }
+        read = true;
+    }
+
     protected int getSourceIndex(final int mutationIndex) {
+        wake();
         if (mutationIndex < getTranslations().size()) {
             return getTranslationIndex(mutationIndex).getIndex();
         } else if (mutationIndex == getTranslations().size()) {
@@ -93,6 +168,10 @@ class FilteredEventListImpl2 extends AbstractEventList implements FilteredEventL
     }
 
     public void filter() {
+        if (dormant) {
+            // the filter is applied when this list wakes up
+            return;
+        }
         int pos = 0;
         final List elements = this.elements;
         final List translations = getTranslations();
@@ -128,7 +207,7 @@ class FilteredEventListImpl2 extends AbstractEventList implements FilteredEventL
 
     public void add(final int index, final Object element) {
         if (filter.accept(element)) {
-            delegate.add(getSourceIndex(index), element);
+            getDelegate().add(getSourceIndex(index), element);
         } else {
             throw new IllegalArgumentException("Rejected by Filter: " + element);
         }
@@ -140,7 +219,7 @@ class FilteredEventListImpl2 extends AbstractEventList implements FilteredEventL
 
     public Object remove(final int index) {
         if (index < size()) {
-            return delegate.remove(getSourceIndex(index));
+            return getDelegate().remove(getSourceIndex(index));
         } else {
             throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
         }
@@ -149,7 +228,7 @@ class FilteredEventListImpl2 extends AbstractEventList implements FilteredEventL
     public Object set(final int index, final Object element) {
         if (filter.accept(element)) {
             if (index < size()) {
-                return delegate.set(getSourceIndex(index), element);
+                return getDelegate().set(getSourceIndex(index), element);
             } else {
                 throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
             }
@@ -159,11 +238,22 @@ class FilteredEventListImpl2 extends AbstractEventList implements FilteredEventL
     }
 
     public int size() {
+        wake();
         return getTranslations().size();
     }
 
-    private class FilteredListEventListener implements ListEventListener {
+    private class FilteredListEventListener implements ViewListEventListener {
+        public EventList getView() {
+            return FilteredEventListImpl2.this;
+        }
+
         public void listChanged(final ListEvent listEvent) {
+            if (!read && !hasListEventListeners()) {
+                sleep();
+                return;
+            }
+            read = false;
+
             if (listEvent.isAdded()) {
                 for (int i=listEvent.getIndexStart(); i < listEvent.getIndexEnd(); i++) {
                     elements.add(i, listEvent.getSourceList().get(i));
@@ -226,6 +316,19 @@ class FilteredEventListImpl2 extends AbstractEventList implements FilteredEventL
                     break;
                 }
             }
+
+            final String[] dependencies = filter instanceof PropertyDependent ? ((PropertyDependent)filter).getPropertyDependencies() : null;
+            if (!listEvent.isAnyPropertyChanged(dependencies)) {
+                // the filter doesn't read what changed so the same elements are accepted
+                int tEnd = tStart;
+                while (tEnd < translations.size() && ((Index)translations.get(tEnd)).getIndex() < listEvent.getIndexEnd()) {
+                    tEnd++;
+                }
+                if (tStart < tEnd) {
+                    fireListEvent(ListEvent.createChanged(FilteredEventListImpl2.this, tStart, tEnd, listEvent));
+                }
+                return;
+            }
             if (listEvent.getIndexEnd() - listEvent.getIndexStart() > 1) {
                 fireListEvent(ListEvent.createBatchStart(delegate, listEvent));
             }
@@ -247,7 +350,7 @@ class FilteredEventListImpl2 extends AbstractEventList implements FilteredEventL
                     if (filter.accept(obj)) {
                         // changed some how
                         // XXX: optimize for consecutive objects
-                        fireListEvent(ListEvent.createChanged(FilteredEventListImpl2.this, tStart));
+                        fireListEvent(ListEvent.createChanged(FilteredEventListImpl2.this, tStart, listEvent));
                         tStart++;
                     } else {
                         // no longer accepted
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Implemented by a {@link Comparator} given to a {@link SortedEventList} that can also compare
+ * two elements of a list by position. When {@link #canCompare(List)} accepts the sorted list's
+ * delegate the elements are compared where they are stored, so a primitive or off heap backed
+ * list is sorted without boxing a value or creating an element for each comparison.
+ *
+ * @author Sandy McArthur
+ * @see EventLists#sortedEventList(EventList, Comparator)
+ */
+public interface IndexComparator extends Comparator {
+    /**
+     * Can {@link #compare(List, int, int)} read the elements of <code>list</code>.
+     *
+     * @param list the delegate.
+     * @return <code>true</code> when the elements can be compared by position.
+     */
+    public boolean canCompare(List list);
+
+    /**
+     * Compare two elements of <code>list</code>, same contract as
+     * {@link Comparator#compare(Object, Object)}.
+     *
+     * @param list the delegate.
+     * @param index1 position of the first element.
+     * @param index2 position of the second element.
+     * @return negative, zero or positive as the first element sorts before, with or after the second.
+     */
+    public int compare(List list, int index1, int index2);
+}
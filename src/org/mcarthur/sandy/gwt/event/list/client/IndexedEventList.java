@@ -0,0 +1,111 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+/**
+ * A view of another EventList, in the same order, that keeps hash indexes from keys to the
+ * positions of the elements with that key. Lookups by key cost O(1) plus the number of
+ * elements with the key instead of a scan of the list. Each index is kept current from the
+ * backing list's events, inserts and removes still cost a shift of the positions after them.
+ *
+ * <p>
+ * While an index built with {@link #EQUALS} exists {@link #indexOf(Object)},
+ * {@link #lastIndexOf(Object)}, {@link #contains(Object)} and {@link #remove(Object)} use it
+ * instead of scanning the list.
+ * </p>
+ *
+ * @author Sandy McArthur
+ * @see EventLists#indexedEventList(EventList)
+ */
+public interface IndexedEventList extends DetachableEventList {
+    /**
+     * Index elements by themselves, compared with {@link Object#equals(Object)}.
+     */
+    public static final KeyedReconciler.KeyExtractor EQUALS = new KeyedReconciler.KeyExtractor() {
+        public Object getKey(final Object element) {
+            return element;
+        }
+    };
+
+    /**
+     * Index elements by themselves, compared with <code>==</code>.
+     * Look elements up by passing the element itself as the key.
+     */
+    public static final KeyedReconciler.KeyExtractor IDENTITY = new KeyedReconciler.KeyExtractor() {
+        public Object getKey(final Object element) {
+            return element;
+        }
+    };
+
+    /**
+     * Build an index. Replaces any index with the same name.
+     *
+     * @param name the name the index is looked up by.
+     * @param keyExtractor {@link #EQUALS}, {@link #IDENTITY} or a KeyExtractor whose keys are
+     *      compared with {@link Object#equals(Object)}.
+     */
+    public void addIndex(String name, KeyedReconciler.KeyExtractor keyExtractor);
+
+    /**
+     * Drop an index.
+     *
+     * @param name the index to drop.
+     * @return <code>true</code> if there was an index with that name.
+     */
+    public boolean removeIndex(String name);
+
+    /**
+     * The position of the first element with a key.
+     *
+     * @param name the index to use.
+     * @param key the key to find.
+     * @return the lowest position of an element with <code>key</code>, or <code>-1</code>.
+     * @throws IllegalArgumentException if there isn't an index with that name.
+     */
+    public int indexOfKey(String name, Object key) throws IllegalArgumentException;
+
+    /**
+     * The positions of all elements with a key.
+     *
+     * @param name the index to use.
+     * @param key the key to find.
+     * @return the positions of the elements with <code>key</code> in ascending order,
+     *      an empty array if there are none.
+     * @throws IllegalArgumentException if there isn't an index with that name.
+     */
+    public int[] indexesOfKey(String name, Object key) throws IllegalArgumentException;
+
+    /**
+     * The first element with a key.
+     *
+     * @param name the index to use.
+     * @param key the key to find.
+     * @return the element at {@link #indexOfKey(String, Object)}, or <code>null</code>.
+     * @throws IllegalArgumentException if there isn't an index with that name.
+     */
+    public Object getByKey(String name, Object key) throws IllegalArgumentException;
+
+    /**
+     * Remove every element with a key, fires a REMOVED event for each element.
+     *
+     * @param name the index to use.
+     * @param key the key to remove.
+     * @return the number of elements removed.
+     * @throws IllegalArgumentException if there isn't an index with that name.
+     */
+    public int removeByKey(String name, Object key) throws IllegalArgumentException;
+}
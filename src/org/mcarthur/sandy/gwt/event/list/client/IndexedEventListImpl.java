@@ -0,0 +1,351 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * IndexedEventList that maps each key to the {@link TransformedEventList.Index} objects of the
+ * positions holding it. All indexes share one Index per position so a structural change only
+ * renumbers the positions after it once.
+ *
+ * @author Sandy McArthur
+ */
+class IndexedEventListImpl extends TransformedEventList implements IndexedEventList {
+    private final IndexedListEventListener listEventListener = new IndexedListEventListener();
+    private final ListEventListener registration;
+
+    /**
+     * The Index of each position, in list order.
+     */
+    private final List positions = new ArrayList();
+
+    /**
+     * The KeyIndex objects, in the order they were added.
+     */
+    private final List indexes = new ArrayList();
+
+    IndexedEventListImpl(final EventList delegate) {
+        super(delegate);
+        registration = EventLists.attach(delegate, listEventListener);
+        inserted(0, delegate.size());
+    }
+
+    public EventList detach() {
+        getDelegate().removeListEventListener(registration);
+        positions.clear();
+        indexes.clear();
+        return releaseDelegate();
+    }
+
+    protected int getSourceIndex(final int mutationIndex) {
+        return mutationIndex;
+    }
+
+    public int size() {
+        return positions.size();
+    }
+
+    public void addIndex(final String name, final KeyedReconciler.KeyExtractor keyExtractor) {
+        if (name == null || keyExtractor == null) {
+            throw new NullPointerException("null not allowed");
+        }
+        removeIndex(name);
+        final KeyIndex keyIndex = new KeyIndex(name, keyExtractor);
+        keyIndex.inserted(0, positions.size());
+        indexes.add(keyIndex);
+    }
+
+    public boolean removeIndex(final String name) {
+        final Iterator iter = indexes.iterator();
+        while (iter.hasNext()) {
+            if (((KeyIndex)iter.next()).name.equals(name)) {
+                iter.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int indexOfKey(final String name, final Object key) {
+        return getIndex(name).first(key);
+    }
+
+    public int[] indexesOfKey(final String name, final Object key) {
+        return getIndex(name).all(key);
+    }
+
+    public Object getByKey(final String name, final Object key) {
+        final int index = indexOfKey(name, key);
+        return index >= 0 ? get(index) : null;
+    }
+
+    public int removeByKey(final String name, final Object key) {
+        final int[] found = indexesOfKey(name, key);
+        // remove from the end so the earlier positions stay put
+        for (int i=found.length - 1; i >= 0; i--) {
+            remove(found[i]);
+        }
+        return found.length;
+    }
+
+    public int indexOf(final Object element) {
+        final KeyIndex equalsIndex = getEqualsIndex();
+        return equalsIndex != null ? equalsIndex.first(element) : super.indexOf(element);
+    }
+
+    public int lastIndexOf(final Object element) {
+        final KeyIndex equalsIndex = getEqualsIndex();
+        if (equalsIndex != null) {
+            final int[] found = equalsIndex.all(element);
+            return found.length > 0 ? found[found.length - 1] : -1;
+        }
+        return super.lastIndexOf(element);
+    }
+
+    public boolean contains(final Object element) {
+        return indexOf(element) >= 0;
+    }
+
+    public boolean remove(final Object element) {
+        final int index = indexOf(element);
+        if (index >= 0) {
+            remove(index);
+            return true;
+        }
+        return false;
+    }
+
+    private KeyIndex getIndex(final String name) {
+        for (int i=0; i < indexes.size(); i++) {
+            final KeyIndex keyIndex = (KeyIndex)indexes.get(i);
+            if (keyIndex.name.equals(name)) {
+                return keyIndex;
+            }
+        }
+        throw new IllegalArgumentException("No index named: " + name);
+    }
+
+    private KeyIndex getEqualsIndex() {
+        for (int i=0; i < indexes.size(); i++) {
+            final KeyIndex keyIndex = (KeyIndex)indexes.get(i);
+            if (keyIndex.keyExtractor == EQUALS) {
+                return keyIndex;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Account for elements added at <code>[start, end)</code> of the backing list.
+     */
+    private void inserted(final int start, final int end) {
+        for (int i=start; i < end; i++) {
+            positions.add(i, new Index(i));
+        }
+        renumber(end);
+        for (int k=0; k < indexes.size(); k++) {
+            ((KeyIndex)indexes.get(k)).inserted(start, end);
+        }
+    }
+
+    /**
+     * Account for elements removed from <code>[start, end)</code> of the backing list.
+     */
+    private void removed(final int start, final int end) {
+        for (int k=0; k < indexes.size(); k++) {
+            ((KeyIndex)indexes.get(k)).removed(start, end);
+        }
+        for (int i=end - 1; i >= start; i--) {
+            positions.remove(i);
+        }
+        renumber(start);
+    }
+
+    private void changed(final int start, final int end) {
+        for (int k=0; k < indexes.size(); k++) {
+            final KeyIndex keyIndex = (KeyIndex)indexes.get(k);
+            keyIndex.unmap(start, end);
+            keyIndex.map(start, end);
+        }
+    }
+
+    private void renumber(final int from) {
+        for (int i=from; i < positions.size(); i++) {
+            ((Index)positions.get(i)).setIndex(i);
+        }
+    }
+
+    /**
+     * A key for {@link IndexedEventList#IDENTITY} indexes.
+     */
+    private static class IdentityKey {
+        private final Object element;
+
+        IdentityKey(final Object element) {
+            this.element = element;
+        }
+
+        public boolean equals(final Object obj) {
+            return obj instanceof IdentityKey && ((IdentityKey)obj).element == element;
+        }
+
+        public int hashCode() {
+            return System.identityHashCode(element);
+        }
+    }
+
+    /**
+     * One named index. Each key maps to an Index or, for a key held by more than one element,
+     * to a List of Index.
+     */
+    private class KeyIndex {
+        private final String name;
+        private final KeyedReconciler.KeyExtractor keyExtractor;
+        private final Map map = new HashMap();
+
+        /**
+         * The key of each position, in list order, so removed elements can be unmapped.
+         */
+        private final List keys = new ArrayList();
+
+        KeyIndex(final String name, final KeyedReconciler.KeyExtractor keyExtractor) {
+            this.name = name;
+            this.keyExtractor = keyExtractor;
+        }
+
+        private Object wrap(final Object key) {
+            return keyExtractor == IDENTITY ? new IdentityKey(key) : key;
+        }
+
+        void inserted(final int start, final int end) {
+            for (int i=start; i < end; i++) {
+                keys.add(i, null);
+            }
+            map(start, end);
+        }
+
+        void removed(final int start, final int end) {
+            unmap(start, end);
+            for (int i=end - 1; i >= start; i--) {
+                keys.remove(i);
+            }
+        }
+
+        /**
+         * Map the elements now at positions <code>[start, end)</code> of the backing list.
+         */
+        void map(final int start, final int end) {
+            final List delegate = getDelegate();
+            for (int i=start; i < end; i++) {
+                final Object key = wrap(keyExtractor.getKey(delegate.get(i)));
+                final Index index = (Index)positions.get(i);
+                keys.set(i, key);
+                final Object existing = map.get(key);
+                if (existing == null) {
+                    map.put(key, index);
+                } else if (existing instanceof Index) {
+                    final List list = new ArrayList(2);
+                    list.add(existing);
+                    list.add(index);
+                    map.put(key, list);
+                } else {
+                    ((List)existing).add(index);
+                }
+            }
+        }
+
+        /**
+         * Forget the keys of positions <code>[start, end)</code>.
+         */
+        void unmap(final int start, final int end) {
+            for (int i=start; i < end; i++) {
+                final Object key = keys.get(i);
+                final Object existing = map.get(key);
+                if (existing instanceof Index) {
+                    map.remove(key);
+                } else if (existing != null) {
+                    final List list = (List)existing;
+                    list.remove(positions.get(i));
+                    if (list.size() == 1) {
+                        map.put(key, list.get(0));
+                    }
+                }
+            }
+        }
+
+        int first(final Object key) {
+            final Object existing = map.get(wrap(key));
+            if (existing == null) {
+                return -1;
+            } else if (existing instanceof Index) {
+                return ((Index)existing).getIndex();
+            }
+            final List list = (List)existing;
+            int first = Integer.MAX_VALUE;
+            for (int i=0; i < list.size(); i++) {
+                first = Math.min(first, ((Index)list.get(i)).getIndex());
+            }
+            return first;
+        }
+
+        int[] all(final Object key) {
+            final Object existing = map.get(wrap(key));
+            if (existing == null) {
+                return new int[0];
+            } else if (existing instanceof Index) {
+                return new int[] {((Index)existing).getIndex()};
+            }
+            final List list = (List)existing;
+            final int[] all = new int[list.size()];
+            for (int i=0; i < all.length; i++) {
+                all[i] = ((Index)list.get(i)).getIndex();
+            }
+            Arrays.sort(all);
+            return all;
+        }
+    }
+
+    private class IndexedListEventListener implements ViewListEventListener {
+        public EventList getView() {
+            return IndexedEventListImpl.this;
+        }
+
+        public void listChanged(final ListEvent listEvent) {
+            if (listEvent.isAdded()) {
+                inserted(listEvent.getIndexStart(), listEvent.getIndexEnd());
+
+            } else if (listEvent.isChanged()) {
+                changed(listEvent.getIndexStart(), listEvent.getIndexEnd());
+
+            } else if (listEvent.isRemoved()) {
+                removed(listEvent.getIndexStart(), listEvent.getIndexEnd());
+
+            } else if (ListEvent.OTHER.equals(listEvent.getType())) {
+                // anything could have changed
+                removed(0, positions.size());
+                inserted(0, getDelegate().size());
+            }
+            fireListEvent(listEvent.resource(IndexedEventListImpl.this));
+        }
+    }
+}
@@ -0,0 +1,357 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies batches of keyed records to an EventList.
+ * Each element of the EventList is identified by a key extracted with a {@link KeyExtractor}.
+ * A record whose key is already in the list is merged into the existing element and the element
+ * is {@link EventList#set(int, Object) set} in place which fires a CHANGED event instead of a
+ * REMOVED and an ADDED. Records with new keys are appended with one
+ * {@link EventList#addAll(Collection)} and adjacent elements are removed as one range. When a
+ * call fires more than one event they are wrapped in a batch if the list is an
+ * {@link AbstractEventList}.
+ * <p>
+ * Lookups use a hash index from key to position. The index follows the EventList's events:
+ * changes in place and appends keep it current, other inserts and removals mark it stale and it
+ * is rebuilt once, on the next lookup.
+ * </p>
+ * <p>
+ * The {@link Merger} is required. One that copies a record's fields into the existing element
+ * lets the element keep its identity, which lets an <code>ObjectListTable</code> keep the
+ * rendered row instead of replacing it. {@link #REPLACE} swaps in the incoming record instead.
+ * </p>
+ * Keys must be unique within the EventList and must implement <code>equals</code> and
+ * <code>hashCode</code>. Use this with lists that keep elements where they are put such as
+ * {@link EventLists#eventList()}.
+ *
+ * @author Sandy McArthur
+ */
+public class KeyedReconciler {
+
+    /**
+     * Extracts the identity of an element.
+     */
+    public static interface KeyExtractor {
+        /**
+         * The key identifying <code>element</code>.
+         *
+         * @param element an element or record.
+         * @return the key of <code>element</code>, never <code>null</code>.
+         */
+        public Object getKey(Object element);
+    }
+
+    /**
+     * Combines an existing element with a newer record for the same key.
+     */
+    public static interface Merger {
+        /**
+         * Merge <code>record</code> into <code>existing</code>.
+         *
+         * @param existing the element currently in the list.
+         * @param record the incoming record with the same key.
+         * @return the element to keep in the list, usually <code>existing</code> after it has been updated.
+         */
+        public Object merge(Object existing, Object record);
+    }
+
+    /**
+     * Replaces the existing element with the incoming record. The element loses its identity so
+     * views keyed on it, such as an <code>ObjectListTable</code> row, are rebuilt.
+     */
+    public static final Merger REPLACE = new Merger() {
+        public Object merge(final Object existing, final Object record) {
+            return record;
+        }
+    };
+
+    private final EventList eventList;
+    private final KeyExtractor keyExtractor;
+    private final Merger merger;
+    private final ListEventListener listEventListener = new ReconcilerListEventListener();
+
+    /**
+     * Position to key.
+     */
+    private final List keys = new ArrayList();
+
+    /**
+     * Key to position as an Integer.
+     */
+    private final Map positions = new HashMap();
+
+    /**
+     * When <code>true</code> keys and positions need to be rebuilt.
+     */
+    private boolean stale = true;
+
+    /**
+     * Create a reconciler.
+     *
+     * @param eventList the list to apply records to.
+     * @param keyExtractor extracts keys from elements and records.
+     * @param merger combines existing elements with incoming records.
+     */
+    public KeyedReconciler(final EventList eventList, final KeyExtractor keyExtractor, final Merger merger) {
+        if (eventList == null) {
+            throw new NullPointerException("eventList must not be null.");
+        }
+        if (keyExtractor == null) {
+            throw new NullPointerException("keyExtractor must not be null.");
+        }
+        if (merger == null) {
+            throw new NullPointerException("merger must not be null.");
+        }
+        this.eventList = eventList;
+        this.keyExtractor = keyExtractor;
+        this.merger = merger;
+        eventList.addListEventListener(listEventListener);
+    }
+
+    /**
+     * Stop following the EventList's events. This reconciler must not be used afterwards.
+     */
+    public void detach() {
+        eventList.removeListEventListener(listEventListener);
+        keys.clear();
+        positions.clear();
+        stale = true;
+    }
+
+    /**
+     * The position of the element with <code>key</code>.
+     *
+     * @param key the key to look up.
+     * @return the position of the element with <code>key</code> or <code>-1</code>.
+     */
+    public int indexOfKey(final Object key) {
+        rebuildIfStale();
+        final Integer position = (Integer)positions.get(key);
+        return position != null ? position.intValue() : -1;
+    }
+
+    /**
+     * The element with <code>key</code>.
+     *
+     * @param key the key to look up.
+     * @return the element with <code>key</code> or <code>null</code>.
+     */
+    public Object getByKey(final Object key) {
+        final int index = indexOfKey(key);
+        return index >= 0 ? eventList.get(index) : null;
+    }
+
+    /**
+     * Insert or update each record. Records with keys already in the list are merged in place,
+     * the rest are appended in the order given.
+     *
+     * @param records the incoming records.
+     */
+    public void update(final Collection records) {
+        final List added = new ArrayList();
+        final Map addedByKey = new HashMap();
+        final Iterator iter = records.iterator();
+        while (iter.hasNext()) {
+            final Object record = iter.next();
+            final Object key = keyExtractor.getKey(record);
+            final int index = indexOfKey(key);
+            if (index >= 0) {
+                eventList.set(index, merger.merge(eventList.get(index), record));
+            } else if (addedByKey.containsKey(key)) {
+                // the same new key twice in one batch
+                final int addedIndex = ((Integer)addedByKey.get(key)).intValue();
+                added.set(addedIndex, merger.merge(added.get(addedIndex), record));
+            } else {
+                addedByKey.put(key, new Integer(added.size()));
+                added.add(record);
+            }
+        }
+        if (!added.isEmpty()) {
+            eventList.addAll(added);
+        }
+    }
+
+    /**
+     * Remove the elements with any of the given keys. Keys not in the list are ignored.
+     *
+     * @param keysToRemove the keys of the elements to remove.
+     */
+    public void removeKeys(final Collection keysToRemove) {
+        final List indexes = new ArrayList();
+        final Iterator iter = keysToRemove.iterator();
+        while (iter.hasNext()) {
+            final int index = indexOfKey(iter.next());
+            if (index >= 0) {
+                indexes.add(new Integer(index));
+            }
+        }
+        final List runs = toRuns(indexes);
+        if (runs.size() > 1) {
+            fireBatch(ListEvent.createBatchStart(eventList));
+        }
+        removeRuns(runs);
+        if (runs.size() > 1) {
+            fireBatch(ListEvent.createBatchEnd(eventList));
+        }
+    }
+
+    /**
+     * Make the list match a complete set of records: existing keys are merged in place, new keys
+     * are appended and elements whose keys are not among <code>records</code> are removed.
+     *
+     * @param records every record that should be in the list.
+     */
+    public void reconcile(final Collection records) {
+        rebuildIfStale();
+        final Set incoming = new HashSet();
+        // one CHANGED per record with a key in the list, one ADDED for all the others
+        int eventCount = 0;
+        boolean adding = false;
+        final Iterator iter = records.iterator();
+        while (iter.hasNext()) {
+            final Object key = keyExtractor.getKey(iter.next());
+            incoming.add(key);
+            if (positions.containsKey(key)) {
+                eventCount++;
+            } else {
+                adding = true;
+            }
+        }
+
+        final List indexes = new ArrayList();
+        for (int i=0; i < keys.size(); i++) {
+            if (!incoming.contains(keys.get(i))) {
+                indexes.add(new Integer(i));
+            }
+        }
+        final List runs = toRuns(indexes);
+        eventCount += runs.size() + (adding ? 1 : 0);
+
+        if (eventCount > 1) {
+            fireBatch(ListEvent.createBatchStart(eventList));
+        }
+        removeRuns(runs);
+        update(records);
+        if (eventCount > 1) {
+            fireBatch(ListEvent.createBatchEnd(eventList));
+        }
+    }
+
+    /**
+     * Group positions into runs of adjacent positions.
+     *
+     * @param indexes positions as Integers, in any order.
+     * @return <code>int[] {start, end}</code> for each run, in ascending order.
+     */
+    private static List toRuns(final List indexes) {
+        Collections.sort(indexes);
+        final List runs = new ArrayList();
+        int[] run = null;
+        for (int i=0; i < indexes.size(); i++) {
+            final int index = ((Integer)indexes.get(i)).intValue();
+            if (run != null && index < run[1]) {
+                // the same position twice
+                continue;
+            } else if (run != null && run[1] == index) {
+                run[1]++;
+            } else {
+                run = new int[] {index, index + 1};
+                runs.add(run);
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * Removes each run as one range, from the highest position down so earlier positions stay valid.
+     */
+    private void removeRuns(final List runs) {
+        for (int i=runs.size() - 1; i >= 0; i--) {
+            final int[] run = (int[])runs.get(i);
+            eventList.subList(run[0], run[1]).clear();
+        }
+    }
+
+    /**
+     * Wrap the changes of one call in a batch, the way {@link EventLists#replaceAll(EventList, List)}
+     * does, when the list is one whose events this package can fire.
+     */
+    private void fireBatch(final ListEvent listEvent) {
+        if (eventList instanceof AbstractEventList) {
+            ((AbstractEventList)eventList).fireListEvent(listEvent);
+        }
+    }
+
+    private void rebuildIfStale() {
+        if (stale) {
+            keys.clear();
+            positions.clear();
+            final int size = eventList.size();
+            for (int i=0; i < size; i++) {
+                index(i, eventList.get(i));
+            }
+            stale = false;
+        }
+    }
+
+    private void index(final int position, final Object element) {
+        final Object key = keyExtractor.getKey(element);
+        if (position < keys.size()) {
+            final Object oldKey = keys.set(position, key);
+            final Integer oldPosition = (Integer)positions.get(oldKey);
+            if (oldPosition != null && oldPosition.intValue() == position) {
+                positions.remove(oldKey);
+            }
+        } else {
+            keys.add(key);
+        }
+        positions.put(key, new Integer(position));
+    }
+
+    private class ReconcilerListEventListener implements ListEventListener {
+        public void listChanged(final ListEvent listEvent) {
+            if (stale) {
+                return;
+            }
+            final EventList source = listEvent.getSourceList();
+            if (listEvent.isChanged()) {
+                for (int i=listEvent.getIndexStart(); i < listEvent.getIndexEnd(); i++) {
+                    index(i, source.get(i));
+                }
+            } else if (listEvent.isAdded() && listEvent.getIndexStart() == keys.size()) {
+                // appended
+                for (int i=listEvent.getIndexStart(); i < listEvent.getIndexEnd(); i++) {
+                    index(i, source.get(i));
+                }
+            } else if (listEvent.isAdded() || listEvent.isRemoved()) {
+                // positions shifted, rebuild when next needed
+                stale = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Computes the differences between two lists as a series of {@link Hunk}s.
+ * The common prefix and suffix are trimmed first and what remains is compared with Myers'
+ * O(ND) difference algorithm. Elements are compared with {@link Object#equals(Object)}.
+ *
+ * @author Sandy McArthur
+ * @see EventLists#replaceAll(EventList, List)
+ */
+final class ListDiff {
+    /**
+     * When the lists differ by more than this many edits stop looking for the minimal script and
+     * treat the whole differing middle as one hunk. This bounds the memory used for the trace.
+     */
+    private static final int MAX_EDITS = 1024;
+
+    private ListDiff() {
+    }
+
+    /**
+     * A region where the old list and the new list differ.
+     * Old elements <code>[oldStart, oldEnd)</code> are replaced by new elements <code>[newStart, newEnd)</code>.
+     */
+    static final class Hunk {
+        final int oldStart;
+        final int oldEnd;
+        final int newStart;
+        final int newEnd;
+
+        Hunk(final int oldStart, final int oldEnd, final int newStart, final int newEnd) {
+            this.oldStart = oldStart;
+            this.oldEnd = oldEnd;
+            this.newStart = newStart;
+            this.newEnd = newEnd;
+        }
+
+        public String toString() {
+            return "Hunk[(" + oldStart + "," + oldEnd + ") -> (" + newStart + "," + newEnd + ")]";
+        }
+    }
+
+    /**
+     * The regions where <code>oldList</code> and <code>newList</code> differ, in ascending order.
+     *
+     * @param oldList the current contents.
+     * @param newList the desired contents.
+     * @return a List of {@link Hunk}s, empty when the lists are equal.
+     */
+    static List diff(final List oldList, final List newList) {
+        final List hunks = new ArrayList();
+        int oldEnd = oldList.size();
+        int newEnd = newList.size();
+
+        // common prefix
+        int start = 0;
+        while (start < oldEnd && start < newEnd && oldList.get(start).equals(newList.get(start))) {
+            start++;
+        }
+        // common suffix
+        while (oldEnd > start && newEnd > start && oldList.get(oldEnd - 1).equals(newList.get(newEnd - 1))) {
+            oldEnd--;
+            newEnd--;
+        }
+
+        if (start == oldEnd || start == newEnd) {
+            // pure insert or pure remove
+            if (start < oldEnd || start < newEnd) {
+                hunks.add(new Hunk(start, oldEnd, start, newEnd));
+            }
+            return hunks;
+        }
+
+        final int[][] matches = match(oldList, start, oldEnd, newList, start, newEnd);
+        if (matches == null) {
+            hunks.add(new Hunk(start, oldEnd, start, newEnd));
+            return hunks;
+        }
+
+        final int[] oldMatches = matches[0];
+        final int[] newMatches = matches[1];
+        int lastOld = start;
+        int lastNew = start;
+        for (int i=0; i < oldMatches.length; i++) {
+            if (oldMatches[i] > lastOld || newMatches[i] > lastNew) {
+                hunks.add(new Hunk(lastOld, oldMatches[i], lastNew, newMatches[i]));
+            }
+            lastOld = oldMatches[i] + 1;
+            lastNew = newMatches[i] + 1;
+        }
+        if (lastOld < oldEnd || lastNew < newEnd) {
+            hunks.add(new Hunk(lastOld, oldEnd, lastNew, newEnd));
+        }
+        return hunks;
+    }
+
+    /**
+     * Myers' greedy algorithm over <code>a[aStart,aEnd)</code> and <code>b[bStart,bEnd)</code>.
+     *
+     * @return the indexes of matched elements, <code>{oldIndexes, newIndexes}</code> in ascending
+     * order, or <code>null</code> when there are more than {@link #MAX_EDITS} edits.
+     */
+    private static int[][] match(final List a, final int aStart, final int aEnd, final List b, final int bStart, final int bEnd) {
+        final int n = aEnd - aStart;
+        final int m = bEnd - bStart;
+        final int max = Math.min(n + m, MAX_EDITS);
+        final int offset = max + 1;
+        final int[] v = new int[2 * max + 3];
+        final List trace = new ArrayList();
+
+        int editCount = -1;
+        for (int d=0; d <= max && editCount < 0; d++) {
+            for (int k=-d; k <= d; k+=2) {
+                int x;
+                if (k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])) {
+                    x = v[offset + k + 1];
+                } else {
+                    x = v[offset + k - 1] + 1;
+                }
+                int y = x - k;
+                while (x < n && y < m && a.get(aStart + x).equals(b.get(bStart + y))) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                if (x >= n && y >= m) {
+                    editCount = d;
+                    break;
+                }
+            }
+            // remember diagonals -d..d for the backtrack
+            final int[] snapshot = new int[2 * d + 1];
+            for (int k=-d; k <= d; k++) {
+                snapshot[k + d] = v[offset + k];
+            }
+            trace.add(snapshot);
+        }
+        if (editCount < 0) {
+            return null;
+        }
+
+        final int matchCount = (n + m - editCount) / 2;
+        final int[] oldMatches = new int[matchCount];
+        final int[] newMatches = new int[matchCount];
+        int pos = matchCount;
+        int x = n;
+        int y = m;
+        for (int d=editCount; d > 0; d--) {
+            final int[] prev = (int[])trace.get(d - 1);
+            final int k = x - y;
+            final int prevK;
+            if (k == -d || (k != d && prev[k - 1 + d - 1] < prev[k + 1 + d - 1])) {
+                prevK = k + 1; // insertion
+            } else {
+                prevK = k - 1; // deletion
+            }
+            final int prevX = prev[prevK + d - 1];
+            final int prevY = prevX - prevK;
+            final int snakeX = prevK == k + 1 ? prevX : prevX + 1;
+            while (x > snakeX) {
+                x--;
+                y--;
+                pos--;
+                oldMatches[pos] = aStart + x;
+                newMatches[pos] = bStart + y;
+            }
+            x = prevX;
+            y = prevY;
+        }
+        while (x > 0) {
+            x--;
+            y--;
+            pos--;
+            oldMatches[pos] = aStart + x;
+            newMatches[pos] = bStart + y;
+        }
+        assert pos == 0 : "pos: " + pos;
+        return new int[][] {oldMatches, newMatches};
+    }
+}
@@ -90,7 +90,7 @@ public final class ListEvent extends EventObject {
     }
 
     public static ListEvent createAdded(final EventList source, final int index, final ListEvent cause) throws IllegalArgumentException {
-        return new ListEvent(source, ADDED, index);
+        return new ListEvent(source, ADDED, index, index+1, cause);
     }
 
     public static ListEvent createAdded(final EventList source, final int indexStart, final int indexEnd) throws IllegalArgumentException {
@@ -106,7 +106,7 @@ public final class ListEvent extends EventObject {
     }
 
     public static ListEvent createChanged(final EventList source, final int index, final ListEvent cause) throws IllegalArgumentException {
-        return new ListEvent(source, CHANGED, index);
+        return new ListEvent(source, CHANGED, index, index+1, cause);
     }
 
     public static ListEvent createChanged(final EventList source, final int indexStart, final int indexEnd) throws IllegalArgumentException {
@@ -117,12 +117,42 @@ public final class ListEvent extends EventObject {
         return new ListEvent(source, CHANGED, indexStart, indexEnd, cause);
     }
 
+    /**
+     * Create a CHANGED event that says which properties of the elements changed so views that
+     * don't depend on those properties can skip re-evaluating the elements.
+     *
+     * @param source the EventList that changed.
+     * @param indexStart first index changed, inclusive.
+     * @param indexEnd last index changed, exclusive.
+     * @param changedProperties names of the properties that changed, <code>null</code> if unknown.
+     *      A <code>null</code> name means unknown properties changed.
+     * @return a CHANGED event.
+     * @throws IllegalArgumentException if source is <code>null</code>.
+     * @see #getChangedProperties()
+     * @see PropertyDependent
+     */
+    public static ListEvent createPropertyChanged(final EventList source, final int indexStart, final int indexEnd, final String[] changedProperties) throws IllegalArgumentException {
+        final ListEvent listEvent = new ListEvent(source, CHANGED, indexStart, indexEnd, null);
+        if (changedProperties != null) {
+            listEvent.changedProperties = new String[changedProperties.length];
+            for (int i=0; i < changedProperties.length; i++) {
+                if (changedProperties[i] == null) {
+                    // an unknown property changed
+                    listEvent.changedProperties = null;
+                    break;
+                }
+                listEvent.changedProperties[i] = changedProperties[i];
+            }
+        }
+        return listEvent;
+    }
+
     public static ListEvent createRemoved(final EventList source, final int index) throws IllegalArgumentException {
         return createRemoved(source, index, null);
     }
 
     public static ListEvent createRemoved(final EventList source, final int index, final ListEvent cause) throws IllegalArgumentException {
-        return new ListEvent(source, REMOVED, index);
+        return new ListEvent(source, REMOVED, index, index+1, cause);
     }
 
     public static ListEvent createRemoved(final EventList source, final int indexStart, final int indexEnd) throws IllegalArgumentException {
@@ -164,6 +194,11 @@ public final class ListEvent extends EventObject {
 
     private final ListEvent cause;
 
+    /**
+     * Names of the element properties that changed, <code>null</code> when unknown.
+     */
+    private String[] changedProperties;
+
     /**
      * Construct a ListEvent when none of the elements changed but the list did in some other manner.
      * @param source The EventList on which the ListEvent initially occurred.
@@ -231,6 +266,10 @@ public final class ListEvent extends EventObject {
             this.indexEnd = indexStart;
         }
         this.cause = cause;
+        if (cause != null && CHANGED.equals(type) && CHANGED.equals(cause.getType())) {
+            // a change derived from another change affects the same properties
+            changedProperties = cause.changedProperties;
+        }
     }
 
     /**
@@ -278,6 +317,45 @@ public final class ListEvent extends EventObject {
         return type;
     }
 
+    /**
+     * The names of the element properties that changed for a {@link #CHANGED} event.
+     *
+     * @return a copy of the names or <code>null</code> when they aren't known.
+     */
+    public String[] getChangedProperties() {
+        if (changedProperties == null) {
+            return null;
+        }
+        final String[] copy = new String[changedProperties.length];
+        for (int i=0; i < changedProperties.length; i++) {
+            copy[i] = changedProperties[i];
+        }
+        return copy;
+    }
+
+    /**
+     * Could this event have changed any of the named properties.
+     * This is always <code>true</code> when either the changed properties or
+     * <code>propertyNames</code> are unknown.
+     *
+     * @param propertyNames names of properties, <code>null</code> for unknown.
+     * @return <code>false</code> only when none of the named properties changed.
+     * @see PropertyDependent#getPropertyDependencies()
+     */
+    public boolean isAnyPropertyChanged(final String[] propertyNames) {
+        if (changedProperties == null || propertyNames == null) {
+            return true;
+        }
+        for (int i=0; i < changedProperties.length; i++) {
+            for (int j=0; j < propertyNames.length; j++) {
+                if (changedProperties[i].equals(propertyNames[j])) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * True when this event's type is {@link #ADDED}.
      * @return true when this event's type is {@link #ADDED}.
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link PageProvider} that serves ranges of a local List and calls back immediately.
+ * Handy for tests and as a stand-in until a real server side provider exists.
+ *
+ * @author Sandy McArthur
+ */
+public class ListPageProvider implements PageProvider {
+    private final List list;
+
+    /**
+     * @param list the data to serve, changes to it are seen by later requests.
+     */
+    public ListPageProvider(final List list) {
+        if (list == null) {
+            throw new NullPointerException("list must not be null.");
+        }
+        this.list = list;
+    }
+
+    public void requestRange(final int start, final int length, final Callback callback) {
+        final int total = list.size();
+        final int end = Math.min(total, start + length);
+        final List elements = new ArrayList();
+        for (int i=start; i < end; i++) {
+            elements.add(list.get(i));
+        }
+        callback.onSuccess(start, elements, total);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+/**
+ * An EventList of <code>long</code> values stored in a primitive array instead of as
+ * <code>Long</code> objects. The <code>List</code> methods still work with <code>Long</code>
+ * objects, accepting any {@link Number}, but the <code>long</code> accessors avoid creating
+ * an object per element.
+ * <p>
+ * GWT emulates <code>long</code> with a JavaScript number so in client code values beyond
+ * 2<sup>53</sup> lose precision.
+ * </p>
+ *
+ * <p>
+ * A {@link SortedEventList} directly over this list with a comparator from
+ * {@link EventLists#longComparator(LongEventList.LongComparator)} compares the values by position
+ * without boxing them. Other views, {@link FilteredEventList} included, see the boxed values;
+ * {@link EventLists#longFilter(LongEventList.LongFilter)} lets their filters be written in terms of
+ * <code>long</code> values.
+ * </p>
+ *
+ * @author Sandy McArthur
+ * @see EventLists#longEventList()
+ */
+public interface LongEventList extends EventList {
+    /**
+     * Get a value without boxing it.
+     *
+     * @param index position of the value.
+     * @return the value at <code>index</code>.
+     * @throws IndexOutOfBoundsException if <code>index</code> is out of range.
+     */
+    public long getLong(int index) throws IndexOutOfBoundsException;
+
+    /**
+     * Replace a value, fires a CHANGED event.
+     *
+     * @param index position of the value.
+     * @param value the new value.
+     * @return the old value.
+     * @throws IndexOutOfBoundsException if <code>index</code> is out of range.
+     */
+    public long setLong(int index, long value) throws IndexOutOfBoundsException;
+
+    /**
+     * Append a value, fires an ADDED event.
+     *
+     * @param value the value to append.
+     */
+    public void addLong(long value);
+
+    /**
+     * Insert a value, fires an ADDED event.
+     *
+     * @param index where to insert the value.
+     * @param value the value to insert.
+     * @throws IndexOutOfBoundsException if <code>index</code> is out of range.
+     */
+    public void addLong(int index, long value) throws IndexOutOfBoundsException;
+
+    /**
+     * Append values, fires one ADDED event for all of them.
+     *
+     * @param values the values to append.
+     */
+    public void addAll(long[] values);
+
+    /**
+     * Insert values, fires one ADDED event for all of them.
+     *
+     * @param index where to insert the values.
+     * @param values the values to insert.
+     * @throws IndexOutOfBoundsException if <code>index</code> is out of range.
+     */
+    public void addAll(int index, long[] values) throws IndexOutOfBoundsException;
+
+    /**
+     * Remove a value without boxing it, fires a REMOVED event.
+     *
+     * @param index position of the value.
+     * @return the removed value.
+     * @throws IndexOutOfBoundsException if <code>index</code> is out of range.
+     */
+    public long removeLong(int index) throws IndexOutOfBoundsException;
+
+    /**
+     * Copy the values into a new array.
+     *
+     * @return the values in this list.
+     */
+    public long[] toLongArray();
+
+    /**
+     * Compares <code>long</code> values.
+     *
+     * @see EventLists#longComparator(LongEventList.LongComparator)
+     */
+    public static interface LongComparator {
+        /**
+         * Same contract as {@link java.util.Comparator#compare(Object, Object)}.
+         *
+         * @param v1 first value.
+         * @param v2 second value.
+         * @return negative, zero or positive as v1 is less than, equal to or greater than v2.
+         */
+        public int compare(long v1, long v2);
+    }
+
+    /**
+     * Filters <code>long</code> values.
+     *
+     * @see EventLists#longFilter(LongEventList.LongFilter)
+     */
+    public static interface LongFilter {
+        /**
+         * Should the value be presented by a FilteredEventList.
+         *
+         * @param value the value to test.
+         * @return <code>true</code> to present the value.
+         */
+        public boolean accept(long value);
+    }
+}
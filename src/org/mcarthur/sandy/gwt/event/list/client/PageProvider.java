@@ -0,0 +1,61 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+import java.util.List;
+
+/**
+ * Supplies ranges of elements, and the total number of elements, to a {@link PagedEventList}.
+ * Requests are asynchronous: the provider calls back when the data arrives, usually after a
+ * server round trip. Calling back before <code>requestRange</code> returns is also allowed.
+ *
+ * @author Sandy McArthur
+ * @see EventLists#pagedEventList(PageProvider, int)
+ * @see ListPageProvider
+ */
+public interface PageProvider {
+    /**
+     * Request the elements <code>[start, start+length)</code>.
+     * Fewer elements may be returned when the range extends past the end of the data.
+     *
+     * @param start index of the first element wanted.
+     * @param length number of elements wanted.
+     * @param callback to be notified when the elements arrive.
+     */
+    public void requestRange(int start, int length, Callback callback);
+
+    /**
+     * Receives the results of {@link PageProvider#requestRange(int, int, Callback)}.
+     */
+    public static interface Callback {
+        /**
+         * Elements arrived.
+         *
+         * @param start index of the first element in <code>elements</code>.
+         * @param elements the elements, a <code>null</code> element is a loaded row that is <code>null</code>.
+         * @param total the current total number of elements available.
+         */
+        public void onSuccess(int start, List elements, int total);
+
+        /**
+         * The request failed.
+         *
+         * @param caught the reason.
+         */
+        public void onFailure(Throwable caught);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+/**
+ * A {@link RangedEventList} over data that isn't in memory.
+ * Elements are fetched a page at a time from a {@link PageProvider} when they are needed and
+ * until they arrive a placeholder is presented in their place. When a page arrives a CHANGED
+ * event is fired for the part of the range it covers. Recently used pages are kept in a
+ * least recently used cache.
+ * <p>
+ * This list is read only, the data is owned by the provider.
+ * </p>
+ *
+ * @author Sandy McArthur
+ * @see EventLists#pagedEventList(PageProvider, int)
+ */
+public interface PagedEventList extends RangedEventList {
+    /**
+     * Presented in place of elements that haven't been loaded yet.
+     */
+    public static final Object LOADING = new Object() {
+        public String toString() {
+            return "Loading...";
+        }
+    };
+
+    /**
+     * Has the element at <code>index</code> been loaded.
+     *
+     * @param index position in this list.
+     * @return <code>false</code> if {@link #get(int)} would return the placeholder.
+     */
+    public boolean isLoaded(int index);
+
+    /**
+     * The object presented in place of elements that haven't been loaded yet.
+     *
+     * @return the placeholder object.
+     */
+    public Object getPlaceholder();
+
+    /**
+     * The number of elements fetched from the provider per request.
+     *
+     * @return the number of elements per page.
+     */
+    public int getPageSize();
+
+    /**
+     * The most pages kept in the cache. Pages in the current range are never evicted.
+     *
+     * @return the most pages kept in the cache.
+     */
+    public int getCacheSize();
+
+    /**
+     * Set the most pages kept in the cache.
+     *
+     * @param pages the most pages kept in the cache.
+     * @throws IllegalArgumentException when pages is less than one.
+     */
+    public void setCacheSize(int pages) throws IllegalArgumentException;
+
+    /**
+     * Make sure the page holding the element at the absolute position <code>index</code> is
+     * cached or requested, without changing the range.
+     *
+     * @param index absolute position of an element in the provider's data.
+     */
+    public void fetch(int index);
+
+    /**
+     * Cancel a pending request for the page holding the element at the absolute position
+     * <code>index</code>. The provider can't be stopped but the answer will be ignored and so
+     * won't push more useful pages out of the cache.
+     *
+     * @param index absolute position of an element in the provider's data.
+     * @return <code>true</code> if a pending request was cancelled.
+     */
+    public boolean cancelFetch(int index);
+
+    /**
+     * The policy consulted each time the range moves, may be <code>null</code>.
+     *
+     * @return the current prefetch policy or <code>null</code>.
+     */
+    public PrefetchPolicy getPrefetchPolicy();
+
+    /**
+     * Set the policy consulted each time the range moves.
+     *
+     * @param prefetchPolicy the prefetch policy or <code>null</code> to only fetch what is visible.
+     */
+    public void setPrefetchPolicy(PrefetchPolicy prefetchPolicy);
+
+    /**
+     * The number of pages that were already cached when the range moved over them.
+     *
+     * @return the number of cache hits since the last reset.
+     */
+    public int getCacheHits();
+
+    /**
+     * The number of pages that had to be waited for when the range moved over them.
+     *
+     * @return the number of cache misses since the last reset.
+     */
+    public int getCacheMisses();
+
+    /**
+     * The fraction of pages that were already cached when the range moved over them.
+     * Useful for tuning the page size, cache size and prefetch policy.
+     *
+     * @return hits divided by hits plus misses, or zero when the range hasn't moved.
+     */
+    public double getCacheHitRate();
+
+    /**
+     * Reset the cache hit and miss counts to zero.
+     */
+    public void resetCacheStatistics();
+
+    /**
+     * Drop all cached pages and request the current range again.
+     */
+    public void refresh();
+
+    /**
+     * Request the rows of the current range that aren't loaded, including those of pages whose
+     * request failed, without dropping the cached pages. After a failure {@link #get(int)}
+     * presents the placeholder without asking again until the range moves or this is called.
+     */
+    public void retry();
+}
@@ -0,0 +1,518 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+import com.google.gwt.core.client.GWT;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * PagedEventList that loads pages from a {@link PageProvider} on demand.
+ *
+ * @author Sandy McArthur
+ */
+class PagedEventListImpl extends AbstractEventList implements PagedEventList {
+    private final PageProvider provider;
+    private final int pageSize;
+    private final Object placeholder;
+
+    /** Page number (Integer) to Page. */
+    private final Map pages = new HashMap();
+    /** Page number (Integer) to the PageCallback of the request that hasn't arrived yet. */
+    private final Map pending = new HashMap();
+    /**
+     * Page numbers (Integer) whose last request failed. {@link #get(int)} doesn't ask for them
+     * again, the next move of the range or {@link #retry()} does.
+     */
+    private final Set failed = new HashSet();
+    private int cacheSize;
+    private int clock = 0;
+
+    /**
+     * Non-zero while a request is being made so a provider that answers immediately doesn't
+     * cause events to be fired from inside {@link #get(int)}.
+     */
+    private int requesting = 0;
+
+    /**
+     * A total that arrived while a request was being made, <code>-1</code> when there isn't one.
+     * Applied once the request returns, or for a request from {@link #get(int)} by the next
+     * change of the window, so reading never changes the size.
+     */
+    private int deferredTotal = -1;
+
+    private PrefetchPolicy prefetchPolicy;
+    private int hits = 0;
+    private int misses = 0;
+
+    private int start = 0;
+    private int maxSize;
+    private int total = 0;
+    private int size = 0;
+
+    PagedEventListImpl(final PageProvider provider, final int maxSize, final int pageSize, final int cacheSize, final Object placeholder) {
+        if (provider == null) {
+            throw new NullPointerException("provider must not be null.");
+        }
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must be positive. was: " + maxSize);
+        }
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be greater than zero. was: " + pageSize);
+        }
+        if (cacheSize < 1) {
+            throw new IllegalArgumentException("cacheSize must be greater than zero. was: " + cacheSize);
+        }
+        this.provider = provider;
+        this.maxSize = maxSize;
+        this.pageSize = pageSize;
+        this.cacheSize = cacheSize;
+        this.placeholder = placeholder != null ? placeholder : LOADING;
+        // the first answer tells us the total
+        request(0);
+    }
+
+    public Object get(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        final int absolute = start + index;
+        final Integer pageNum = new Integer(absolute / pageSize);
+        final int slot = absolute % pageSize;
+        Page page = (Page)pages.get(pageNum);
+        if ((page == null || !page.isLoaded(slot)) && !failed.contains(pageNum)) {
+            // missing, or a short page from when the total was smaller
+            load(pageNum.intValue());
+            // the provider may have answered already
+            page = (Page)pages.get(pageNum);
+        }
+        if (page != null && page.isLoaded(slot)) {
+            page.lastUsed = ++clock;
+            return page.get(slot);
+        }
+        return placeholder;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isLoaded(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        final int absolute = start + index;
+        final Page page = (Page)pages.get(new Integer(absolute / pageSize));
+        return page != null && page.isLoaded(absolute % pageSize);
+    }
+
+    public Object getPlaceholder() {
+        return placeholder;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public void setCacheSize(final int cacheSize) {
+        if (cacheSize < 1) {
+            throw new IllegalArgumentException("cacheSize must be greater than zero. was: " + cacheSize);
+        }
+        this.cacheSize = cacheSize;
+        evict();
+    }
+
+    public void fetch(final int index) {
+        if (index < 0) {
+            throw new IllegalArgumentException("index must be positive. was: " + index);
+        }
+        applyDeferredTotal();
+        final Integer pageNum = new Integer(index / pageSize);
+        final Page page = (Page)pages.get(pageNum);
+        if (page != null) {
+            page.lastUsed = ++clock;
+        }
+        failed.remove(pageNum);
+        request(pageNum.intValue());
+    }
+
+    public boolean cancelFetch(final int index) {
+        if (index < 0) {
+            throw new IllegalArgumentException("index must be positive. was: " + index);
+        }
+        // the answer is ignored when it arrives because it's no longer the pending callback
+        return pending.remove(new Integer(index / pageSize)) != null;
+    }
+
+    public PrefetchPolicy getPrefetchPolicy() {
+        return prefetchPolicy;
+    }
+
+    public void setPrefetchPolicy(final PrefetchPolicy prefetchPolicy) {
+        this.prefetchPolicy = prefetchPolicy;
+    }
+
+    public int getCacheHits() {
+        return hits;
+    }
+
+    public int getCacheMisses() {
+        return misses;
+    }
+
+    public double getCacheHitRate() {
+        final int lookups = hits + misses;
+        return lookups > 0 ? (double)hits / lookups : 0;
+    }
+
+    public void resetCacheStatistics() {
+        hits = 0;
+        misses = 0;
+    }
+
+    public void refresh() {
+        applyDeferredTotal();
+        pages.clear();
+        pending.clear();
+        failed.clear();
+        if (size > 0) {
+            fireListEvent(ListEvent.createChanged(this, 0, size));
+        }
+        request(start / pageSize);
+    }
+
+    public void retry() {
+        applyDeferredTotal();
+        failed.clear();
+        if (size > 0) {
+            final int lastPage = (start + size - 1) / pageSize;
+            for (int pageNum = start / pageSize; pageNum <= lastPage; pageNum++) {
+                request(pageNum);
+            }
+        } else {
+            request(start / pageSize);
+        }
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public void setStart(final int start) {
+        if (start < 0) {
+            throw new IllegalArgumentException("Start must be positive. was: " + start);
+        }
+        applyDeferredTotal();
+        if (this.start != start) {
+            final int oldStart = this.start;
+            moveWindow(start, Math.min(maxSize, Math.max(total - start, 0)));
+            rangeMoved(oldStart);
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(final int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must be positive. was: " + maxSize);
+        }
+        applyDeferredTotal();
+        if (this.maxSize != maxSize) {
+            this.maxSize = maxSize;
+            moveWindow(start, Math.min(maxSize, Math.max(total - start, 0)));
+            rangeMoved(start);
+        }
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Move the visible window to <code>[newStart, newStart+newSize)</code> firing the fewest
+     * events that describe the move. Elements still visible after the move keep their identity.
+     */
+    private void moveWindow(final int newStart, final int newSize) {
+        final int oldStart = start;
+        final int oldEnd = start + size;
+        final int newEnd = newStart + newSize;
+
+        if (size == 0 && newSize == 0) {
+            start = newStart;
+            fireListEvent(ListEvent.createOther(this));
+
+        } else if (Math.max(oldStart, newStart) >= Math.min(oldEnd, newEnd)) {
+            // no overlap, everything changes
+            final int oldSize = size;
+            start = newStart;
+            final int common = Math.min(oldSize, newSize);
+            if (newSize < oldSize) {
+                size = newSize;
+                fireListEvent(ListEvent.createRemoved(this, newSize, oldSize));
+            }
+            if (common > 0) {
+                fireListEvent(ListEvent.createChanged(this, 0, common));
+            }
+            if (newSize > oldSize) {
+                size = newSize;
+                fireListEvent(ListEvent.createAdded(this, oldSize, newSize));
+            }
+
+        } else {
+            if (newStart > oldStart) {
+                // drop elements scrolled off the front
+                start = newStart;
+                size = oldEnd - newStart;
+                fireListEvent(ListEvent.createRemoved(this, 0, newStart - oldStart));
+            }
+            if (oldEnd > newEnd) {
+                // drop elements scrolled off the back
+                size = newEnd - start;
+                fireListEvent(ListEvent.createRemoved(this, size, oldEnd - start));
+            }
+            if (newStart < oldStart) {
+                start = newStart;
+                size += oldStart - newStart;
+                fireListEvent(ListEvent.createAdded(this, 0, oldStart - newStart));
+            }
+            if (newEnd > oldEnd) {
+                final int oldSize = size;
+                size = newSize;
+                fireListEvent(ListEvent.createAdded(this, oldSize, newSize));
+            }
+        }
+        assert start == newStart && size == newSize : "start: " + start + " size: " + size;
+        evict();
+    }
+
+    /**
+     * Record whether the pages of the new range were cached, request those that weren't and
+     * give the prefetch policy a chance to warm the cache for the next move.
+     */
+    private void rangeMoved(final int oldStart) {
+        // each move gets one more try at pages that failed
+        failed.clear();
+        if (size > 0) {
+            final int lastPage = (start + size - 1) / pageSize;
+            for (int pageNum = start / pageSize; pageNum <= lastPage; pageNum++) {
+                if (pages.containsKey(new Integer(pageNum))) {
+                    hits++;
+                } else {
+                    misses++;
+                }
+                // a cached page may still be missing rows from when the total was smaller
+                request(pageNum);
+            }
+        }
+        if (prefetchPolicy != null) {
+            prefetchPolicy.rangeMoved(this, oldStart);
+        }
+    }
+
+    private void request(final int pageNum) {
+        load(pageNum);
+        applyDeferredTotal();
+    }
+
+    /**
+     * Ask the provider for a page unless it's already asked for. Of a cached page only the rows
+     * that are missing and within the total are asked for, a complete page isn't asked for.
+     * A total in an immediate answer is deferred, see {@link #deferredTotal}.
+     */
+    private void load(final int pageNum) {
+        final Integer key = new Integer(pageNum);
+        if (pending.containsKey(key)) {
+            return;
+        }
+        int from = 0;
+        int to = pageSize;
+        final Page page = (Page)pages.get(key);
+        if (page != null) {
+            to = Math.min(pageSize, total - pageNum * pageSize);
+            while (from < to && page.isLoaded(from)) {
+                from++;
+            }
+            while (to > from && page.isLoaded(to - 1)) {
+                to--;
+            }
+            if (from == to) {
+                return;
+            }
+        }
+        final PageCallback callback = new PageCallback(pageNum);
+        pending.put(key, callback);
+        requesting++;
+        try {
+            provider.requestRange(pageNum * pageSize + from, to - from, callback);
+        } finally {
+            requesting--;
+        }
+    }
+
+    private void received(final int pageNum, final int firstIndex, final List elements, final int newTotal) {
+        final Integer key = new Integer(pageNum);
+        pending.remove(key);
+        failed.remove(key);
+
+        final int pageStart = pageNum * pageSize;
+        Page page = (Page)pages.get(key);
+        if (page == null) {
+            page = new Page(pageSize);
+            pages.put(key, page);
+        }
+        // the rows already loaded are kept, an answer for part of the page fills in the rest
+        for (int i=0; i < elements.size(); i++) {
+            final int slot = firstIndex + i - pageStart;
+            if (slot >= 0 && slot < pageSize) {
+                page.set(slot, elements.get(i));
+            }
+        }
+        page.lastUsed = ++clock;
+
+        if (requesting > 0) {
+            deferredTotal = newTotal;
+        } else {
+            deferredTotal = -1;
+            setTotal(newTotal);
+        }
+        if (requesting == 0) {
+            // when called back from inside request() the caller sees the page without an event
+            final int from = Math.max(pageStart, start) - start;
+            final int to = Math.min(pageStart + pageSize, start + size) - start;
+            if (from < to) {
+                fireListEvent(ListEvent.createChanged(this, from, to));
+            }
+        }
+        evict();
+    }
+
+    private void applyDeferredTotal() {
+        if (deferredTotal >= 0 && requesting == 0) {
+            final int newTotal = deferredTotal;
+            deferredTotal = -1;
+            setTotal(newTotal);
+        }
+    }
+
+    private void setTotal(final int newTotal) {
+        if (newTotal != total) {
+            total = newTotal;
+            final int newSize = Math.min(maxSize, Math.max(total - start, 0));
+            if (newSize != size) {
+                moveWindow(start, newSize);
+            }
+        }
+    }
+
+    /**
+     * Drop the least recently used pages outside the visible window until the cache fits its budget.
+     */
+    private void evict() {
+        if (pages.size() <= cacheSize) {
+            return;
+        }
+        final int firstVisible = start / pageSize;
+        final int lastVisible = size > 0 ? (start + size - 1) / pageSize : firstVisible;
+        final List candidates = new ArrayList();
+        final Iterator iter = pages.entrySet().iterator();
+        while (iter.hasNext()) {
+            final Map.Entry entry = (Map.Entry)iter.next();
+            final int pageNum = ((Integer)entry.getKey()).intValue();
+            if (pageNum < firstVisible || pageNum > lastVisible) {
+                candidates.add(entry);
+            }
+        }
+        while (pages.size() > cacheSize && !candidates.isEmpty()) {
+            int oldest = 0;
+            for (int i=1; i < candidates.size(); i++) {
+                final Page p = (Page)((Map.Entry)candidates.get(i)).getValue();
+                final Page o = (Page)((Map.Entry)candidates.get(oldest)).getValue();
+                if (p.lastUsed < o.lastUsed) {
+                    oldest = i;
+                }
+            }
+            final Map.Entry entry = (Map.Entry)candidates.remove(oldest);
+            pages.remove(entry.getKey());
+        }
+    }
+
+    private static class Page {
+        private final Object[] rows;
+        /** Which slots were answered, a row may legitimately be <code>null</code>. */
+        private final boolean[] loaded;
+        private int lastUsed;
+
+        Page(final int pageSize) {
+            rows = new Object[pageSize];
+            loaded = new boolean[pageSize];
+        }
+
+        Object get(final int slot) {
+            return rows[slot];
+        }
+
+        void set(final int slot, final Object row) {
+            rows[slot] = row;
+            loaded[slot] = true;
+        }
+
+        boolean isLoaded(final int slot) {
+            return loaded[slot];
+        }
+    }
+
+    private class PageCallback implements PageProvider.Callback {
+        private final int pageNum;
+
+        PageCallback(final int pageNum) {
+            this.pageNum = pageNum;
+        }
+
+        /**
+         * Answers to requests that were cancelled or made before a {@link #refresh()} are ignored.
+         */
+        private boolean isCurrent() {
+            return pending.get(new Integer(pageNum)) == this;
+        }
+
+        public void onSuccess(final int start, final List elements, final int total) {
+            if (isCurrent()) {
+                received(pageNum, start, elements, total);
+            }
+        }
+
+        public void onFailure(final Throwable caught) {
+            if (isCurrent()) {
+                pending.remove(new Integer(pageNum));
+                failed.add(new Integer(pageNum));
+                GWT.log("Failed to load page " + pageNum + " of PagedEventList.", caught);
+            }
+        }
+    }
+}
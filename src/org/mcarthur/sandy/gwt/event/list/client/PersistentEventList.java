@@ -0,0 +1,37 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+import java.util.List;
+
+/**
+ * An EventList that can hand out cheap, immutable snapshots of its contents.
+ * A snapshot shares structure with the live list so taking one costs O(1) no matter how large the
+ * list is, and it stays valid and unchanged while the live list keeps changing.
+ *
+ * @author Sandy McArthur
+ * @see EventLists#persistentEventList()
+ */
+public interface PersistentEventList extends EventList {
+    /**
+     * An immutable copy of the current contents of this list.
+     * Any attempt to modify the returned list throws an {@link UnsupportedOperationException}.
+     *
+     * @return an immutable copy of the current contents of this list.
+     */
+    public List snapshot();
+}
@@ -0,0 +1,396 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A PersistentEventList stored in a persistent counted B-tree.
+ * Nodes are never modified after they are built; every change copies the path from the root to
+ * the affected leaf and shares everything else, so get, set, add and remove are O(log n) and a
+ * snapshot is just a reference to the current root. Each branch keeps a table of cumulative
+ * child sizes, like the relaxed nodes of an RRB vector, so positions can be found in any subtree
+ * without it being perfectly balanced.
+ *
+ * @author Sandy McArthur
+ * @see EventLists#persistentEventList()
+ */
+class PersistentEventListImpl extends AbstractEventList implements PersistentEventList {
+    /**
+     * Most items or children in a node.
+     */
+    private static final int MAX_WIDTH = 32;
+
+    /**
+     * Fewest items or children in a node other than the root.
+     */
+    private static final int MIN_WIDTH = MAX_WIDTH / 2;
+
+    private static final Node EMPTY = new Leaf(new Object[0]);
+
+    private Node root = EMPTY;
+
+    public Object get(final int index) {
+        checkIndex(index, size());
+        return root.get(index);
+    }
+
+    public int size() {
+        return root.size();
+    }
+
+    public Object set(final int index, final Object element) {
+        checkNotNull(element);
+        checkIndex(index, size());
+        final Object old = root.get(index);
+        root = root.set(index, element);
+        fireListEvent(ListEvent.createChanged(this, index));
+        return old;
+    }
+
+    public void add(final int index, final Object element) {
+        checkNotNull(element);
+        checkIndex(index, size() + 1);
+        insert(index, element);
+        fireListEvent(ListEvent.createAdded(this, index));
+    }
+
+    public boolean addAll(final Collection c) {
+        return addAll(size(), c);
+    }
+
+    public boolean addAll(final int index, final Collection c) {
+        checkIndex(index, size() + 1);
+        final Iterator iter = c.iterator();
+        while (iter.hasNext()) {
+            checkNotNull(iter.next());
+        }
+        if (c.isEmpty()) {
+            return false;
+        }
+        int i = index;
+        final Iterator elements = c.iterator();
+        while (elements.hasNext()) {
+            insert(i++, elements.next());
+        }
+        fireListEvent(ListEvent.createAdded(this, index, i));
+        return true;
+    }
+
+    public Object remove(final int index) {
+        checkIndex(index, size());
+        final Object old = root.get(index);
+        Node newRoot = root.remove(index);
+        // collapse a root branch with a single child
+        while (newRoot instanceof Branch && newRoot.width() == 1) {
+            newRoot = ((Branch)newRoot).children[0];
+        }
+        root = newRoot;
+        fireListEvent(ListEvent.createRemoved(this, index));
+        return old;
+    }
+
+    public void clear() {
+        final int size = size();
+        if (size > 0) {
+            root = EMPTY;
+            fireListEvent(ListEvent.createRemoved(this, 0, size));
+        }
+    }
+
+    public Object[] toArray() {
+        final Object[] array = new Object[size()];
+        root.copyTo(array, 0);
+        return array;
+    }
+
+    public List snapshot() {
+        return new Snapshot(root);
+    }
+
+    private void insert(final int index, final Object element) {
+        final Node[] nodes = root.insert(index, element);
+        root = nodes.length == 1 ? nodes[0] : Branch.create(nodes, 0, nodes.length);
+    }
+
+    private static void checkIndex(final int index, final int limit) {
+        if (index < 0 || index >= limit) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (limit));
+        }
+    }
+
+    private static void checkNotNull(final Object element) {
+        if (element == null) {
+            throw new NullPointerException("null not allowed");
+        }
+    }
+
+    /**
+     * An immutable view of a root node.
+     */
+    private static class Snapshot extends AbstractList {
+        private final Node root;
+
+        Snapshot(final Node root) {
+            this.root = root;
+        }
+
+        public Object get(final int index) {
+            checkIndex(index, size());
+            return root.get(index);
+        }
+
+        public int size() {
+            return root.size();
+        }
+
+        public Object[] toArray() {
+            final Object[] array = new Object[size()];
+            root.copyTo(array, 0);
+            return array;
+        }
+    }
+
+    /**
+     * An immutable tree node. Methods that change contents return new nodes.
+     */
+    private abstract static class Node {
+        abstract int size();
+
+        /**
+         * Number of items in a leaf or children in a branch.
+         */
+        abstract int width();
+
+        abstract Object get(int index);
+
+        abstract Node set(int index, Object element);
+
+        /**
+         * @return one node or, if this node overflowed, two nodes.
+         */
+        abstract Node[] insert(int index, Object element);
+
+        /**
+         * @return the new node which may be narrower than {@link #MIN_WIDTH}.
+         */
+        abstract Node remove(int index);
+
+        abstract void copyTo(Object[] array, int offset);
+
+        /**
+         * Combine this node with the next sibling on the same level into one or two nodes.
+         */
+        abstract Node[] join(Node next);
+    }
+
+    private static final class Leaf extends Node {
+        private final Object[] items;
+
+        Leaf(final Object[] items) {
+            this.items = items;
+        }
+
+        int size() {
+            return items.length;
+        }
+
+        int width() {
+            return items.length;
+        }
+
+        Object get(final int index) {
+            return items[index];
+        }
+
+        Node set(final int index, final Object element) {
+            final Object[] copy = copy(items, 0, items.length);
+            copy[index] = element;
+            return new Leaf(copy);
+        }
+
+        Node[] insert(final int index, final Object element) {
+            final Object[] grown = new Object[items.length + 1];
+            System.arraycopy(items, 0, grown, 0, index);
+            grown[index] = element;
+            System.arraycopy(items, index, grown, index + 1, items.length - index);
+            if (grown.length <= MAX_WIDTH) {
+                return new Node[] {new Leaf(grown)};
+            }
+            final int half = grown.length / 2;
+            return new Node[] {new Leaf(copy(grown, 0, half)), new Leaf(copy(grown, half, grown.length))};
+        }
+
+        Node remove(final int index) {
+            final Object[] shrunk = new Object[items.length - 1];
+            System.arraycopy(items, 0, shrunk, 0, index);
+            System.arraycopy(items, index + 1, shrunk, index, shrunk.length - index);
+            return new Leaf(shrunk);
+        }
+
+        void copyTo(final Object[] array, final int offset) {
+            System.arraycopy(items, 0, array, offset, items.length);
+        }
+
+        Node[] join(final Node next) {
+            final Object[] nextItems = ((Leaf)next).items;
+            final Object[] all = new Object[items.length + nextItems.length];
+            System.arraycopy(items, 0, all, 0, items.length);
+            System.arraycopy(nextItems, 0, all, items.length, nextItems.length);
+            if (all.length <= MAX_WIDTH) {
+                return new Node[] {new Leaf(all)};
+            }
+            final int half = all.length / 2;
+            return new Node[] {new Leaf(copy(all, 0, half)), new Leaf(copy(all, half, all.length))};
+        }
+
+        private static Object[] copy(final Object[] array, final int start, final int end) {
+            final Object[] copy = new Object[end - start];
+            System.arraycopy(array, start, copy, 0, copy.length);
+            return copy;
+        }
+    }
+
+    private static final class Branch extends Node {
+        private final Node[] children;
+
+        /**
+         * Cumulative sizes: <code>sizes[i]</code> is the number of elements in children 0 through i.
+         */
+        private final int[] sizes;
+
+        private Branch(final Node[] children) {
+            this.children = children;
+            sizes = new int[children.length];
+            int total = 0;
+            for (int i=0; i < children.length; i++) {
+                total += children[i].size();
+                sizes[i] = total;
+            }
+        }
+
+        static Branch create(final Node[] nodes, final int start, final int end) {
+            final Node[] children = new Node[end - start];
+            System.arraycopy(nodes, start, children, 0, children.length);
+            return new Branch(children);
+        }
+
+        int size() {
+            return sizes[sizes.length - 1];
+        }
+
+        int width() {
+            return children.length;
+        }
+
+        /**
+         * Binary search for the child holding <code>index</code>.
+         * An index equal to the size maps to the last child so it can be used for appends.
+         */
+        private int childFor(final int index) {
+            int low = 0;
+            int high = sizes.length - 1;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (index < sizes[mid]) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low;
+        }
+
+        private int offsetOf(final int child) {
+            return child > 0 ? sizes[child - 1] : 0;
+        }
+
+        Object get(final int index) {
+            final int child = childFor(index);
+            return children[child].get(index - offsetOf(child));
+        }
+
+        Node set(final int index, final Object element) {
+            final int child = childFor(index);
+            return replace(child, 1, new Node[] {children[child].set(index - offsetOf(child), element)});
+        }
+
+        Node[] insert(final int index, final Object element) {
+            final int child = childFor(index);
+            final Node replaced = replace(child, 1, children[child].insert(index - offsetOf(child), element));
+            final Branch branch = (Branch)replaced;
+            if (branch.children.length <= MAX_WIDTH) {
+                return new Node[] {branch};
+            }
+            final int half = branch.children.length / 2;
+            return new Node[] {create(branch.children, 0, half), create(branch.children, half, branch.children.length)};
+        }
+
+        Node remove(final int index) {
+            final int child = childFor(index);
+            final Node smaller = children[child].remove(index - offsetOf(child));
+            if (smaller.width() >= MIN_WIDTH || children.length == 1) {
+                if (smaller.size() == 0) {
+                    return replace(child, 1, new Node[0]);
+                }
+                return replace(child, 1, new Node[] {smaller});
+            }
+            // rebalance with a sibling
+            if (child > 0) {
+                return replace(child - 1, 2, children[child - 1].join(smaller));
+            } else {
+                return replace(child, 2, smaller.join(children[child + 1]));
+            }
+        }
+
+        void copyTo(final Object[] array, final int offset) {
+            for (int i=0; i < children.length; i++) {
+                children[i].copyTo(array, offset + offsetOf(i));
+            }
+        }
+
+        Node[] join(final Node next) {
+            final Node[] nextChildren = ((Branch)next).children;
+            final Node[] all = new Node[children.length + nextChildren.length];
+            System.arraycopy(children, 0, all, 0, children.length);
+            System.arraycopy(nextChildren, 0, all, children.length, nextChildren.length);
+            if (all.length <= MAX_WIDTH) {
+                return new Node[] {new Branch(all)};
+            }
+            final int half = all.length / 2;
+            return new Node[] {create(all, 0, half), create(all, half, all.length)};
+        }
+
+        /**
+         * A copy of this branch with <code>count</code> children starting at <code>start</code>
+         * replaced by <code>nodes</code>. The result may be wider than {@link #MAX_WIDTH}.
+         */
+        private Node replace(final int start, final int count, final Node[] nodes) {
+            final Node[] newChildren = new Node[children.length - count + nodes.length];
+            System.arraycopy(children, 0, newChildren, 0, start);
+            System.arraycopy(nodes, 0, newChildren, start, nodes.length);
+            System.arraycopy(children, start + count, newChildren, start + nodes.length, children.length - start - count);
+            if (newChildren.length == 0) {
+                return EMPTY;
+            }
+            return new Branch(newChildren);
+        }
+    }
+}
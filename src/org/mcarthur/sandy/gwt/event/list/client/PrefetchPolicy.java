@@ -0,0 +1,36 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+/**
+ * Decides which pages a {@link PagedEventList} should load before they are visible.
+ *
+ * @author Sandy McArthur
+ * @see PagedEventList#setPrefetchPolicy(PrefetchPolicy)
+ * @see ScrollPrefetchPolicy
+ */
+public interface PrefetchPolicy {
+    /**
+     * Called after the range of <code>list</code> moved or was resized. Implementations
+     * use {@link PagedEventList#fetch(int)} to warm pages and
+     * {@link PagedEventList#cancelFetch(int)} to drop requests that are no longer useful.
+     *
+     * @param list the list whose range changed.
+     * @param oldStart the start of the range before it moved.
+     */
+    public void rangeMoved(PagedEventList list, int oldStart);
+}
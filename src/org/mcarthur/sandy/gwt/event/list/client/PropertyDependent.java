@@ -0,0 +1,35 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+/**
+ * Implemented by a {@link FilteredEventList.Filter} or a {@link java.util.Comparator} given to
+ * a {@link SortedEventList} to say which element properties it reads. When a CHANGED event says
+ * which properties changed and none of them are ones this depends on the view forwards the
+ * change without filtering or sorting the elements again.
+ *
+ * @author Sandy McArthur
+ * @see ListEvent#createPropertyChanged(EventList, int, int, String[])
+ */
+public interface PropertyDependent {
+    /**
+     * The names of the element properties this depends on.
+     *
+     * @return the property names, <code>null</code> if this could depend on any property.
+     */
+    public String[] getPropertyDependencies();
+}
@@ -21,42 +21,72 @@ import java.util.List;
 
 /**
  * RangedEventList that presents a view of a range of elements in another EventList.
+ * Only the visible elements are kept, everything else is read from the backing EventList so
+ * memory use is proportional to the max size and not the size of the backing list.
  *
  * @author Sandy McArthur
  */
-class RangedEventListImpl2 extends AbstractEventList implements RangedEventList {
+class RangedEventListImpl2 extends AbstractEventList implements RangedEventList, DetachableEventList {
 
-    private final List elements = new ArrayList();
-    private final EventList delegate;
+    /**
+     * The visible elements. While an event from the delegate is being translated this is what
+     * listeners have been told about so far, which can differ from the delegate.
+     */
+    private final List window = new ArrayList();
+    private EventList delegate;
+
+    private final ViewListEventListener listEventListener;
+    private final ListEventListener registration;
 
     private int startOffset = 0;
     private int maxSize = Integer.MAX_VALUE;
-    private int size;
 
     protected RangedEventListImpl2(final EventList delegate, final int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must be positive. was: " + maxSize);
+        }
         this.delegate = delegate;
-        elements.addAll(delegate);
-        size = delegate.size();
-        delegate.addListEventListener(getListEventListener());
-        setStartOffset(0);
-        setMaxSize(maxSize);
+        this.maxSize = maxSize;
+        // only copy what is visible
+        window.addAll(delegate.subList(0, Math.min(maxSize, delegate.size())));
+        listEventListener = getListEventListener();
+        registration = EventLists.attach(delegate, listEventListener);
     }
 
-    protected ListEventListener getListEventListener() {
+    protected ViewListEventListener getListEventListener() {
         return new RangedListEventListener();
     }
 
+    /**
+     * Get the backing EventList.
+     * @return the backing EventList.
+     */
+    private EventList getDelegate() {
+        if (delegate == null) {
+            throw new IllegalStateException("detached.");
+        }
+        return delegate;
+    }
+
+    public EventList detach() {
+        final EventList old = getDelegate();
+        old.removeListEventListener(registration);
+        delegate = null;
+        window.clear();
+        return old;
+    }
+
     protected int getSourceIndex(final int mutationIndex) {
         return getStart() + mutationIndex;
     }
 
     public void add(final int index, final Object element) {
-        delegate.add(getSourceIndex(index), element);
+        getDelegate().add(getSourceIndex(index), element);
     }
 
     public Object get(final int index) {
         if (index < size()) {
-            return elements.get(getSourceIndex(index));
+            return window.get(index);
         } else {
             throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
         }
@@ -64,7 +94,7 @@ class RangedEventListImpl2 extends AbstractEventList implements RangedEventList
 
     public Object remove(final int index) {
         if (index < size()) {
-            return delegate.remove(getSourceIndex(index));
+            return getDelegate().remove(getSourceIndex(index));
         } else {
             throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
         }
@@ -72,14 +102,14 @@ class RangedEventListImpl2 extends AbstractEventList implements RangedEventList
 
     public Object set(final int index, final Object element) {
         if (index < size()) {
-            return delegate.set(getSourceIndex(index), element);
+            return getDelegate().set(getSourceIndex(index), element);
         } else {
             throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
         }
     }
 
     public int size() {
-        return size;
+        return window.size();
     }
 
     public int getStart() {
@@ -91,59 +121,7 @@ class RangedEventListImpl2 extends AbstractEventList implements RangedEventList
             throw new IllegalArgumentException("Start must be positive. was: " + newStart);
         }
         if (getStartOffset() != newStart) {
-            final int oldStart = getStartOffset();
-            final int startDelta = newStart - oldStart;
-            assert startDelta != 0;
-            final int oldSize = size();
-            final int newSize = Math.min(getMaxSize(), Math.max(elements.size() - newStart, 0));
-
-            if (oldSize == 0 && newSize == 0) {
-                // offset changed but contents didn't.
-                setStartOffset(newStart);
-                fireListEvent(ListEvent.createOther(this));
-                return;
-            }
-
-            final int sizeDelta = newSize - oldSize;
-
-            if (startDelta > 0) {
-                // start increased
-                final int delta = Math.min(startDelta, getMaxSize());
-                assert delta > 0 : "delta: " + delta;
-                size -= delta;
-                assert size >= 0 : "size: " + size;
-
-                setStartOffset(newStart);
-                fireListEvent(ListEvent.createRemoved(this, 0, delta));
-
-                final int toAdd = delta + sizeDelta;
-                assert toAdd >= 0 : "Size changed in a unexpected way.";
-
-                if (toAdd > 0) {
-                    size += toAdd;
-                    fireListEvent(ListEvent.createAdded(this, oldSize - delta, newSize));
-                }
-            } else {
-                // start decreased
-                // startDelta is negative
-                final int delta = Math.min(-startDelta, oldSize);
-                assert delta >= 0 : "delta: " + delta;
-                size -= delta;
-                assert size >= 0 : "size: " + size;
-
-                setStartOffset(newStart);
-                if (delta > 0) {
-                    fireListEvent(ListEvent.createRemoved(this, oldSize - delta, oldSize));
-                }
-
-                final int toAdd = delta + sizeDelta;
-                assert toAdd >= 0 : "Size changed in a unexpected way.";
-
-                if (toAdd > 0) {
-                    size += toAdd;
-                    fireListEvent(ListEvent.createAdded(this, 0, toAdd));
-                }
-            }
+            moveWindow(newStart, getMaxSize());
         }
     }
 
@@ -167,72 +145,108 @@ class RangedEventListImpl2 extends AbstractEventList implements RangedEventList
             // no change
             return;
         }
+        moveWindow(getStart(), newMaxSize);
+    }
 
-        final int oldMaxSize = maxSize;
-        final int oldSize = size();
-        final int newSize = Math.min(newMaxSize, Math.max(elements.size() - getStart(), 0));
+    public int getTotal() {
+        return delegate != null ? delegate.size() : 0;
+    }
 
-        if (oldSize == newSize) {
+    /**
+     * Move the range to start at <code>newStart</code> with at most <code>newMaxSize</code>
+     * elements. Elements that stay visible are kept, the rest are removed and added.
+     */
+    private void moveWindow(final int newStart, final int newMaxSize) {
+        final int oldStart = getStart();
+        final int oldSize = size();
+        final int oldEnd = oldStart + oldSize;
+        final int newSize = Math.min(newMaxSize, Math.max(getTotal() - newStart, 0));
+        final int newEnd = newStart + newSize;
+        boolean fired = false;
+
+        maxSize = newMaxSize;
+        if (Math.max(oldStart, newStart) >= Math.min(oldEnd, newEnd)) {
+            // nothing in common
+            if (oldSize > 0) {
+                windowRemoved(0, oldSize, null);
+                fired = true;
+            }
+            setStartOffset(newStart);
+            if (newSize > 0) {
+                windowAdded(0, newSize, null);
+                fired = true;
+            }
+        } else {
+            if (newStart > oldStart) {
+                setStartOffset(newStart);
+                windowRemoved(0, newStart - oldStart, null);
+                fired = true;
+            }
+            if (oldEnd > newEnd) {
+                windowRemoved(newEnd - getStart(), oldEnd - getStart(), null);
+                fired = true;
+            }
+            if (newStart < oldStart) {
+                setStartOffset(newStart);
+                windowAdded(0, oldStart - newStart, null);
+                fired = true;
+            }
+            if (newEnd > oldEnd) {
+                windowAdded(size(), newSize, null);
+                fired = true;
+            }
+        }
+        setStartOffset(newStart);
+        assert size() == newSize : "size: " + size() + " expected: " + newSize;
+        if (!fired) {
             // offset changed but contents didn't.
-            maxSize = newMaxSize;
             fireListEvent(ListEvent.createOther(this));
-            return;
         }
+    }
 
-        final int maxSizeDelta = newMaxSize - oldMaxSize;
-        assert maxSizeDelta != 0 : "maxSizeDelta: " + maxSizeDelta;
-
-        if (maxSizeDelta > 0) {
-            // maxSize increased
-            final int delta = Math.min(maxSizeDelta, newSize - oldSize);
-            assert delta >= 0 : "delta: " + delta;
-            size += delta;
-            assert size >= 0 : "size: " + size;
-
-            maxSize = newMaxSize;
-
-            if (delta > 0) {
-                fireListEvent(ListEvent.createAdded(this, oldSize, newSize));
-            }
-
-        } else {
-            // maxSize decreased
-            // maxSizeDelta is negative
-            final int delta = Math.min(-maxSizeDelta, oldSize - newSize);
-            assert delta >= 0 : "delta: " + delta;
-            size -= delta;
-            assert size >= 0 : "size: " + size;
+    /**
+     * Drop the visible elements <code>[from, to)</code> and tell the listeners.
+     */
+    protected void windowRemoved(final int from, final int to, final ListEvent cause) {
+        window.subList(from, to).clear();
+        fireListEvent(ListEvent.createRemoved(this, from, to, cause));
+    }
 
-            maxSize = newMaxSize;
+    /**
+     * Make the elements of the backing list that are now at <code>[from, to)</code> of the
+     * range visible and tell the listeners.
+     */
+    protected void windowAdded(final int from, final int to, final ListEvent cause) {
+        final int start = getStart();
+        window.addAll(from, getDelegate().subList(start + from, start + to));
+        fireListEvent(ListEvent.createAdded(this, from, to, cause));
+    }
 
-            if (delta > 0) {
-                fireListEvent(ListEvent.createRemoved(this, newSize, oldSize));
-            }
+    /**
+     * Refresh the visible elements <code>[from, to)</code> from the backing list and tell the listeners.
+     */
+    protected void windowChanged(final int from, final int to, final ListEvent cause) {
+        final EventList delegate = getDelegate();
+        final int start = getStart();
+        for (int i=from; i < to; i++) {
+            window.set(i, delegate.get(start + i));
         }
+        fireListEvent(ListEvent.createChanged(this, from, to, cause));
     }
 
-    public int getTotal() {
-        return elements.size();
-    }
+    protected class RangedListEventListener implements ViewListEventListener {
+        public EventList getView() {
+            return RangedEventListImpl2.this;
+        }
 
-    protected class RangedListEventListener implements ListEventListener {
         public void listChanged(final ListEvent listEvent) {
             if (listEvent.isAdded()) {
-                for (int i=listEvent.getIndexStart(); i < listEvent.getIndexEnd(); i++) {
-                    elements.add(i, listEvent.getSourceList().get(i));
-                }
                 listChangedAdded(listEvent);
 
             } else if (listEvent.isChanged()) {
-                for (int i=listEvent.getIndexStart(); i < listEvent.getIndexEnd(); i++) {
-                    elements.set(i, listEvent.getSourceList().get(i));
-                }
                 listChangedChanged(listEvent);
 
             } else if (listEvent.isRemoved()) {
-                for (int i=listEvent.getIndexStart(); i < listEvent.getIndexEnd(); i++) {
-                    elements.remove(listEvent.getIndexStart());
-                }
                 listChangedRemoved(listEvent);
 
             } else {
@@ -242,44 +256,53 @@ class RangedEventListImpl2 extends AbstractEventList implements RangedEventList
 
         protected void listChangedAdded(final ListEvent listEvent) {
             final int indexStart = listEvent.getIndexStart();
-            final int indexEnd = listEvent.getIndexEnd();
+            final int added = listEvent.getIndexEnd() - indexStart;
             final int start = getStart();
-            final int size = size();
+            final int oldSize = size();
             final int maxSize = getMaxSize();
-            final int end = sumWithoutOverflow(start, maxSize);
-
-            final int rangeSize = Math.min(indexEnd - indexStart, Math.min(maxSize, end - indexStart));
-            final int removeSize = Math.min(size - (maxSize - rangeSize), end - indexStart);
+            final int newSize = Math.min(maxSize, Math.max(getTotal() - start, 0));
             final int insertStart = indexStart - start;
+            boolean fired = false;
+
+            if (insertStart >= maxSize) {
+                // the event was after our range
+
+            } else if (insertStart >= 0) {
+                // added inside the range, push elements off the end
+                final int visible = Math.min(added, maxSize - insertStart);
+                final int overflow = Math.max(0, oldSize + visible - maxSize);
+                if (overflow > 0) {
+                    windowRemoved(oldSize - overflow, oldSize, listEvent);
+                }
+                windowAdded(insertStart, insertStart + visible, listEvent);
+                fired = true;
 
-            if (removeSize > 0) {
-                RangedEventListImpl2.this.size -= removeSize;
-                assert RangedEventListImpl2.this.size >= 0 : "size: " + RangedEventListImpl2.this.size;
-                fireListEvent(ListEvent.createRemoved(RangedEventListImpl2.this, size - removeSize, size, listEvent));
-            }
-            if (0 <= insertStart + size && insertStart < maxSize) {
-                RangedEventListImpl2.this.size += rangeSize;
-                assert RangedEventListImpl2.this.size >= 0 : "size: " + RangedEventListImpl2.this.size;
-                final int indexStartOrZero = Math.max(0, insertStart);
-                fireListEvent(ListEvent.createAdded(RangedEventListImpl2.this, indexStartOrZero, indexStartOrZero + rangeSize, listEvent));
             } else {
-                // the event was after our range, let them know something changed.
+                // added before the range, everything visible shifts towards the end
+                final int shifted = Math.min(added, newSize);
+                final int kept = newSize - shifted;
+                if (oldSize > kept) {
+                    windowRemoved(kept, oldSize, listEvent);
+                    fired = true;
+                }
+                if (shifted > 0) {
+                    windowAdded(0, shifted, listEvent);
+                    fired = true;
+                }
+            }
+            if (!fired) {
+                // let them know something changed.
                 fireListEvent(ListEvent.createOther(RangedEventListImpl2.this, listEvent));
             }
         }
 
         protected void listChangedChanged(final ListEvent listEvent) {
-            final int indexStart = listEvent.getIndexStart();
-            final int indexEnd = listEvent.getIndexEnd();
             final int start = getStart();
-            final int maxSize = getMaxSize();
-            final int end = sumWithoutOverflow(start, maxSize);
-            // does the event affect our range?
-            if (start < indexEnd && indexStart < end) {
-                // clamp to current page range
-                final int changedStart = Math.max(0, indexStart - start);
-                final int changedEnd = Math.min(maxSize, indexEnd - start);
-                fireListEvent(ListEvent.createChanged(RangedEventListImpl2.this, changedStart, changedEnd, listEvent));
+            // clamp to current page range
+            final int changedStart = Math.max(0, listEvent.getIndexStart() - start);
+            final int changedEnd = Math.min(size(), listEvent.getIndexEnd() - start);
+            if (changedStart < changedEnd) {
+                windowChanged(changedStart, changedEnd, listEvent);
             } else {
                 // Something changed but it didn't directly affect us.
                 fireListEvent(ListEvent.createOther(RangedEventListImpl2.this, listEvent));
@@ -290,36 +313,40 @@ class RangedEventListImpl2 extends AbstractEventList implements RangedEventList
             final int indexStart = listEvent.getIndexStart();
             final int indexEnd = listEvent.getIndexEnd();
             final int start = getStart();
-            final int size = size();
-            final int delegateSize = elements.size();
-            final int maxSize = getMaxSize();
-            final int end = sumWithoutOverflow(start, maxSize);
-
-            final int rangeSize = Math.min(indexEnd - indexStart, Math.min(maxSize, end - indexStart));
-            final int removeStart = Math.max(0, indexStart - start);
-
-            if (removeStart < maxSize) {
-                RangedEventListImpl2.this.size -= rangeSize;
-                assert RangedEventListImpl2.this.size >= 0 : "size: " + RangedEventListImpl2.this.size;
-                fireListEvent(ListEvent.createRemoved(RangedEventListImpl2.this, removeStart, removeStart + rangeSize, listEvent));
-
-                if (RangedEventListImpl2.this.size < maxSize) {
-                    //final int addedSize = Math.min(size - (maxSize - rangeSize), delegateSize - end);
-                    final int addedSize = Math.min(delegateSize - (RangedEventListImpl2.this.size + startOffset), maxSize - RangedEventListImpl2.this.size);
-                    if (addedSize > 0) {
-                        RangedEventListImpl2.this.size += addedSize;
-                        assert RangedEventListImpl2.this.size >= 0 : "size: " + RangedEventListImpl2.this.size;
-                        fireListEvent(ListEvent.createAdded(RangedEventListImpl2.this, size - addedSize, size, listEvent));
-                    }
+            final int oldSize = size();
+            boolean fired = false;
+
+            if (oldSize > 0 && indexStart < start + oldSize) {
+                if (indexStart >= start) {
+                    // removed inside the range
+                    final int removeStart = indexStart - start;
+                    windowRemoved(removeStart, Math.min(indexEnd - start, oldSize), listEvent);
+                } else {
+                    // removed before the range, everything visible shifts towards the front
+                    windowRemoved(0, Math.min(indexEnd - indexStart, oldSize), listEvent);
                 }
-            } else {
+                fired = true;
+                fired |= fillWindow(listEvent);
+            }
+            if (!fired) {
                 // the event was after our range, let them know something changed.
                 fireListEvent(ListEvent.createOther(RangedEventListImpl2.this, listEvent));
             }
         }
 
-        private int sumWithoutOverflow(final int start, final int maxSize) {
-            return (Integer.MAX_VALUE - maxSize > start) ? start + maxSize : Integer.MAX_VALUE;
+        /**
+         * Pull up elements from after the range until it is full or the backing list runs out.
+         *
+         * @return <code>true</code> if an event was fired.
+         */
+        protected boolean fillWindow(final ListEvent cause) {
+            final int size = size();
+            final int newSize = Math.min(getMaxSize(), Math.max(getTotal() - getStart(), 0));
+            if (newSize > size) {
+                windowAdded(size, newSize, cause);
+                return true;
+            }
+            return false;
         }
     }
 }
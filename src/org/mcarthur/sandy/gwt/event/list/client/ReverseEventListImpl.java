@@ -21,19 +21,39 @@ package org.mcarthur.sandy.gwt.event.list.client;
  *
  * @author Sandy McArthur
  */
-class ReverseEventListImpl extends AbstractEventList implements EventList {
-    private final EventList delegate;
+class ReverseEventListImpl extends AbstractEventList implements EventList, DetachableEventList {
+    private EventList delegate;
     private final ReverseListEventListener listEventListener = new ReverseListEventListener();
+    private final ListEventListener registration;
 
     private int size = 0;
 
     public ReverseEventListImpl(final EventList delegate) {
         this.delegate = delegate;
-        delegate.addListEventListener(listEventListener);
+        registration = EventLists.attach(delegate, listEventListener);
 
         size = delegate.size();
     }
 
+    /**
+     * Get the backing EventList.
+     * @return the backing EventList.
+     */
+    private EventList getDelegate() {
+        if (delegate == null) {
+            throw new IllegalStateException("detached.");
+        }
+        return delegate;
+    }
+
+    public EventList detach() {
+        final EventList old = getDelegate();
+        old.removeListEventListener(registration);
+        delegate = null;
+        size = 0;
+        return old;
+    }
+
     protected int getSourceIndex(final int mutationIndex) {
         return invertIndex(mutationIndex);
     }
@@ -44,7 +64,7 @@ class ReverseEventListImpl extends AbstractEventList implements EventList {
 
     public Object get(final int index) {
         try {
-            return delegate.get(invertIndex(index)-1);
+            return getDelegate().get(invertIndex(index)-1);
         } catch (IndexOutOfBoundsException iobe) {
             final IndexOutOfBoundsException e = new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
             e.initCause(iobe);
@@ -58,7 +78,7 @@ class ReverseEventListImpl extends AbstractEventList implements EventList {
 
     public Object set(final int index, final Object element) {
         try {
-            return delegate.set(invertIndex(index) - 1, element);
+            return getDelegate().set(invertIndex(index) - 1, element);
         } catch (IndexOutOfBoundsException iobe) {
             final IndexOutOfBoundsException e = new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
             e.initCause(iobe);
@@ -69,7 +89,7 @@ class ReverseEventListImpl extends AbstractEventList implements EventList {
     public void add(final int index, final Object element) {
         try {
             final int invertedIndex = invertIndex(index);
-            delegate.add(invertedIndex, element);
+            getDelegate().add(invertedIndex, element);
         } catch (IndexOutOfBoundsException iobe) {
             final IndexOutOfBoundsException e = new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
             e.initCause(iobe);
@@ -79,7 +99,7 @@ class ReverseEventListImpl extends AbstractEventList implements EventList {
 
     public Object remove(final int index) {
         try {
-            return delegate.remove(invertIndex(index)-1);
+            return getDelegate().remove(invertIndex(index)-1);
         } catch (IndexOutOfBoundsException iobe) {
             final IndexOutOfBoundsException e = new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
             e.initCause(iobe);
@@ -87,7 +107,11 @@ class ReverseEventListImpl extends AbstractEventList implements EventList {
         }
     }
 
-    private class ReverseListEventListener implements ListEventListener {
+    private class ReverseListEventListener implements ViewListEventListener {
+        public EventList getView() {
+            return ReverseEventListImpl.this;
+        }
+
         public void listChanged(final ListEvent listEvent) {
             final ListEvent reverse;
             final int sizeDelta = listEvent.getIndexEnd() - listEvent.getIndexStart();
@@ -98,7 +122,7 @@ class ReverseEventListImpl extends AbstractEventList implements EventList {
 
             } else if (listEvent.isChanged()) {
                 final int revStart = invertIndex(listEvent.getIndexEnd());
-                reverse = ListEvent.createChanged(ReverseEventListImpl.this, revStart, revStart + sizeDelta);
+                reverse = ListEvent.createChanged(ReverseEventListImpl.this, revStart, revStart + sizeDelta, listEvent);
 
             } else if (listEvent.isRemoved()) {
                 final int revStart = invertIndex(listEvent.getIndexEnd());
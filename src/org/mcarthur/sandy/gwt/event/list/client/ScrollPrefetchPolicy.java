@@ -0,0 +1,135 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link PrefetchPolicy} that follows the direction and speed the range is being moved.
+ * While scrolling, the ranges ahead of the current one are warmed, more of them the faster
+ * the range is moving. After a large jump or when the range isn't moving, the ranges on
+ * either side of the current one are warmed. Pending prefetches that are no longer ahead,
+ * for example after the direction changes, are cancelled.
+ * <p>
+ * An instance keeps state about the movement of a range so it should only be given to one list.
+ * </p>
+ *
+ * @author Sandy McArthur
+ */
+public class ScrollPrefetchPolicy implements PrefetchPolicy {
+    private final int maxRangesAhead;
+
+    /** Smoothed number of elements the range moves each time. */
+    private int velocity = 0;
+
+    /** Absolute indexes (Integer) of the pages this policy asked for last time. */
+    private List outstanding = new ArrayList();
+
+    /**
+     * Warm up to three ranges ahead.
+     */
+    public ScrollPrefetchPolicy() {
+        this(3);
+    }
+
+    /**
+     * @param maxRangesAhead most ranges to warm ahead when scrolling quickly.
+     * @throws IllegalArgumentException when maxRangesAhead is less than one.
+     */
+    public ScrollPrefetchPolicy(final int maxRangesAhead) throws IllegalArgumentException {
+        if (maxRangesAhead < 1) {
+            throw new IllegalArgumentException("maxRangesAhead must be greater than zero. was: " + maxRangesAhead);
+        }
+        this.maxRangesAhead = maxRangesAhead;
+    }
+
+    /**
+     * The smoothed number of elements the range moves each time, negative when moving backwards.
+     *
+     * @return the current velocity.
+     */
+    public int getVelocity() {
+        return velocity;
+    }
+
+    public void rangeMoved(final PagedEventList list, final int oldStart) {
+        final int start = list.getStart();
+        final int range = Math.max(list.getMaxSize(), 1);
+        final int delta = start - oldStart;
+
+        if (Math.abs(delta) > range * maxRangesAhead) {
+            // a jump, not scrolling
+            velocity = 0;
+        } else if (delta == 0) {
+            // standing still, decay toward zero
+            velocity = velocity / 2;
+        } else {
+            // round away from zero so scrolling a row at a time still registers as moving
+            final int sum = velocity + delta;
+            velocity = sum >= 0 ? (sum + 1) / 2 : -((1 - sum) / 2);
+        }
+
+        final List wanted = new ArrayList();
+        if (velocity == 0) {
+            addPages(list, wanted, start - range);
+            addPages(list, wanted, start + range);
+        } else {
+            final int direction = velocity > 0 ? 1 : -1;
+            final int ahead = Math.min(maxRangesAhead, (Math.abs(velocity) + range - 1) / range);
+            for (int i=1; i <= ahead; i++) {
+                addPages(list, wanted, start + direction * i * range);
+            }
+        }
+
+        // cancel what is no longer wanted, unless it became visible
+        final int visibleEnd = start + list.size();
+        for (int i=0; i < outstanding.size(); i++) {
+            final Integer index = (Integer)outstanding.get(i);
+            if (!wanted.contains(index) && !overlaps(list, index.intValue(), start, visibleEnd)) {
+                list.cancelFetch(index.intValue());
+            }
+        }
+
+        for (int i=0; i < wanted.size(); i++) {
+            list.fetch(((Integer)wanted.get(i)).intValue());
+        }
+        outstanding = wanted;
+    }
+
+    /**
+     * Add the first absolute index of each page in the range starting at rangeStart.
+     */
+    private static void addPages(final PagedEventList list, final List pages, final int rangeStart) {
+        final int pageSize = list.getPageSize();
+        final int from = Math.max(rangeStart, 0);
+        final int to = Math.min(rangeStart + Math.max(list.getMaxSize(), 1), list.getTotal());
+        if (from >= to) {
+            return;
+        }
+        for (int pageStart = from - from % pageSize; pageStart < to; pageStart += pageSize) {
+            final Integer index = new Integer(pageStart);
+            if (!pages.contains(index)) {
+                pages.add(index);
+            }
+        }
+    }
+
+    private static boolean overlaps(final PagedEventList list, final int pageStart, final int start, final int end) {
+        return pageStart < end && start < pageStart + list.getPageSize();
+    }
+}
@@ -90,4 +90,49 @@ public interface SortedEventList extends EventList {
      * @see #add(Object)
      */
     public Object set(int index, Object element);
+
+    /**
+     * Finds <code>element</code> with a binary search using this list's comparator, then checks
+     * the elements that compare equal to it with {@link Object#equals(Object)}.
+     * Like the rest of this list this relies on elements not changing their sort order without
+     * a CHANGED event or a call to {@link #sort()}.
+     *
+     * @param element the element to find.
+     * @return the lowest index of <code>element</code>, or <code>-1</code> if it isn't in this list
+     *      or can't be compared to its elements.
+     */
+    public int indexOf(Object element);
+
+    /**
+     * Same as {@link #indexOf(Object)} but finds the highest index.
+     *
+     * @param element the element to find.
+     * @return the highest index of <code>element</code>, or <code>-1</code>.
+     */
+    public int lastIndexOf(Object element);
+
+    /**
+     * Same as <code>indexOf(element) >= 0</code>.
+     *
+     * @param element the element to find.
+     * @return <code>true</code> if <code>element</code> is in this list.
+     */
+    public boolean contains(Object element);
+
+    /**
+     * A live view of the elements from <code>from</code>, inclusive, up to <code>to</code>,
+     * exclusive, as ordered by this list's comparator. The bounds are found with a binary
+     * search and then moved as this list changes, so the view costs O(log n) to create and
+     * only the elements that cross a bound are compared again.
+     * The bounds are passed to the comparator like elements so they must be something it can
+     * compare, usually a sample element.
+     * Elements added through the view are added to this list and only appear in the view if
+     * they fall between its bounds.
+     * Call {@link DetachableEventList#detach()} when done with the view.
+     *
+     * @param from the lowest element of the view, or <code>null</code> to start at the first element.
+     * @param to the element the view stops before, or <code>null</code> to go to the last element.
+     * @return a view of the elements between <code>from</code> and <code>to</code>.
+     */
+    public DetachableEventList rangeView(Object from, Object to);
 }
@@ -17,6 +17,7 @@
 package org.mcarthur.sandy.gwt.event.list.client;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
@@ -24,11 +25,17 @@ import java.util.List;
 
 /**
  * A SortedEventList that presents a sorted view of another EventList.
+ * <p>
+ * When nothing listens to this list and it was not read since the last change to the backing
+ * list it goes dormant: it stops listening to the backing list and drops its index. The next
+ * access rebuilds the index with one sort.
+ * </p>
  *
  * @author Sandy McArthur
  * @see EventLists#sortedEventList()
  */
-class SortedEventListImpl extends TransformedEventList implements SortedEventList {    
+class SortedEventListImpl extends TransformedEventList implements SortedEventList, DetachableEventList {    
+
     private Comparator comparator;
 
     private static final Comparator NATURAL = new Comparator() {
@@ -45,15 +52,85 @@ class SortedEventListImpl extends TransformedEventList implements SortedEventLis
 
     private final List reverse = new ArrayList();
 
+    private final ViewListEventListener listEventListener = new SortedListEventListener();
+    private ListEventListener registration;
+
+    /**
+     * When dormant this list isn't listening to the delegate and translations and reverse are empty.
+     */
+    private boolean dormant = false;
+
+    /**
+     * Was this list read since the last event from the delegate.
+     */
+    private boolean read = false;
+
     protected SortedEventListImpl(final EventList delegate, final Comparator comparator) {
         super(delegate);
+        registration = EventLists.attach(delegate, listEventListener);
+        setComparator(comparator);
+    }
+
+    public EventList detach() {
+        if (!dormant) {
+            getDelegate().removeListEventListener(registration);
+        }
+        translations.clear();
+        reverse.clear();
+        return releaseDelegate();
+    }
+
+    public void addListEventListener(final ListEventListener listEventListener) {
+        wake();
+        super.addListEventListener(listEventListener);
+    }
+
+    /**
+     * Stop tracking the delegate until this list is needed again.
+     */
+    private void sleep() {
+        getDelegate().removeListEventListener(registration);
+        registration = null;
+        translations.clear();
+        reverse.clear();
+        dormant = true;
+    }
+
+    /**
+     * Note this list is being used and rebuild it if it was dormant.
+     */
+    private void wake() {
+        if (dormant) {
+            dormant = false;
+            registration = EventLists.attach(getDelegate(), listEventListener);
+            rebuild();
+        }
+        read = true;
+    }
+
+    /**
+     * Recreate the translations and reverse indexes from the delegate with one sort.
+     */
+    private void rebuild() {
+        final List delegate = getDelegate();
+        final List translations = getTranslations();
+        final List reverse = getReverse();
         final int size = delegate.size();
+        translations.clear();
+        reverse.clear();
         for (int i=0; i < size; i++) {
-            getTranslations().add(new Index(i));
+            translations.add(new Index(i));
             reverse.add(new Index(i));
         }
-        delegate.addListEventListener(new SortedListEventListener());
-        setComparator(comparator);
+        final IndexComparator indexComparator = getIndexComparator(delegate);
+        Collections.sort(translations, new Comparator() {
+            public int compare(final Object o1, final Object o2) {
+                return compareAt(indexComparator, delegate, ((Index)o1).getIndex(), ((Index)o2).getIndex());
+            }
+        });
+        for (int i=0; i < size; i++) {
+            ((Index)reverse.get(getTranslationIndex(i).getIndex())).setIndex(i);
+        }
     }
 
     /**
@@ -76,6 +153,7 @@ class SortedEventListImpl extends TransformedEventList implements SortedEventLis
     }
 
     protected int getSourceIndex(final int mutationIndex) {
+        wake();
         // TODO: deal with mutationIndex == size()
         if (mutationIndex < getTranslations().size()) {
             return getTranslationIndex(mutationIndex).getIndex();
@@ -91,11 +169,22 @@ class SortedEventListImpl extends TransformedEventList implements SortedEventLis
     }
 
     public int size() {
+        wake();
         return getTranslations().size();
     }
 
-    private class SortedListEventListener implements ListEventListener {
+    private class SortedListEventListener implements ViewListEventListener {
+        public EventList getView() {
+            return SortedEventListImpl.this;
+        }
+
         public void listChanged(final ListEvent listEvent) {
+            if (!read && !hasListEventListeners()) {
+                sleep();
+                return;
+            }
+            read = false;
+
             if (listEvent.isAdded()) {
                 listChangedAdded(listEvent);
 
@@ -117,21 +206,36 @@ class SortedEventListImpl extends TransformedEventList implements SortedEventLis
             final List delegate = getDelegate();
             final List translations = getTranslations();
             final List reverse = getReverse();
-            for (int i = listEvent.getIndexStart(); i < listEvent.getIndexEnd(); i++) {
-                final Object o = delegate.get(i);
-                int pos;
-                for (pos = 0; pos < translations.size(); pos++) {
-                    final Object posO = delegate.get(((Index)translations.get(pos)).getIndex());
-                    if (comparator.compare(posO, o) > 0) {
-                        break;
+            final int start = listEvent.getIndexStart();
+            final int end = listEvent.getIndexEnd();
+            // account for the whole added range first so the positions stay readable while
+            // each added element is placed and announced
+            final Iterator iter = translations.iterator();
+            while (iter.hasNext()) {
+                final Index idx = (Index)iter.next();
+                if (idx.getIndex() >= start) {
+                    idx.add(end - start);
+                }
+            }
+            final IndexComparator indexComparator = getIndexComparator(delegate);
+            for (int i = start; i < end; i++) {
+                // after any equal elements: the first position whose element sorts after i's
+                int low = 0;
+                int high = translations.size();
+                while (low < high) {
+                    final int mid = (low + high) >>> 1;
+                    if (compareAt(indexComparator, delegate, ((Index)translations.get(mid)).getIndex(), i) > 0) {
+                        high = mid;
+                    } else {
+                        low = mid + 1;
                     }
                 }
+                final int pos = low;
 
                 final Index newIdx = new Index(i);
                 final Index revIdx = new Index(pos);
 
                 // insert
-                shiftUp(i, translations.iterator());
                 shiftUp(pos, reverse.iterator());
                 translations.add(pos, newIdx);
                 reverse.add(i, revIdx);
@@ -140,6 +244,24 @@ class SortedEventListImpl extends TransformedEventList implements SortedEventLis
         }
 
         private void listChangedChanged(final ListEvent listEvent) {
+            final String[] dependencies = comparator instanceof PropertyDependent ? ((PropertyDependent)comparator).getPropertyDependencies() : null;
+            if (!listEvent.isAnyPropertyChanged(dependencies)) {
+                // the comparator doesn't read what changed so the order is the same
+                final List reverse = getReverse();
+                final int[] positions = new int[listEvent.getIndexEnd() - listEvent.getIndexStart()];
+                for (int i=0; i < positions.length; i++) {
+                    positions[i] = ((Index)reverse.get(listEvent.getIndexStart() + i)).getIndex();
+                }
+                Arrays.sort(positions);
+                int runStart = 0;
+                for (int i=1; i <= positions.length; i++) {
+                    if (i == positions.length || positions[i] != positions[i-1] + 1) {
+                        fireListEvent(ListEvent.createChanged(SortedEventListImpl.this, positions[runStart], positions[i-1] + 1, listEvent));
+                        runStart = i;
+                    }
+                }
+                return;
+            }
             // remove the changed range
             listChangedRemoved(ListEvent.createRemoved(listEvent.getSourceList(), listEvent.getIndexStart(), listEvent.getIndexEnd()));
             // add the changed range back in
@@ -185,6 +307,116 @@ class SortedEventListImpl extends TransformedEventList implements SortedEventLis
         }
     }
 
+    public int indexOf(final Object element) {
+        if (element == null) {
+            return super.indexOf(element);
+        }
+        try {
+            final int size = size();
+            for (int i=lowerBound(element); i < size && comparator.compare(get(i), element) == 0; i++) {
+                if (element.equals(get(i))) {
+                    return i;
+                }
+            }
+        } catch (ClassCastException cce) {
+            // can't be in this list
+        }
+        return -1;
+    }
+
+    public int lastIndexOf(final Object element) {
+        if (element == null) {
+            return super.lastIndexOf(element);
+        }
+        try {
+            for (int i=upperBound(element) - 1; i >= 0 && comparator.compare(get(i), element) == 0; i--) {
+                if (element.equals(get(i))) {
+                    return i;
+                }
+            }
+        } catch (ClassCastException cce) {
+            // can't be in this list
+        }
+        return -1;
+    }
+
+    public boolean contains(final Object element) {
+        return indexOf(element) >= 0;
+    }
+
+    public DetachableEventList rangeView(final Object from, final Object to) {
+        return new SortedRangeEventListImpl(this, from, to);
+    }
+
+    /**
+     * The first position whose element doesn't sort before <code>element</code>.
+     *
+     * @param element the element to compare against.
+     * @return a position from <code>0</code> to <code>size()</code>.
+     */
+    int lowerBound(final Object element) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (comparator.compare(get(mid), element) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * The first position whose element sorts after <code>element</code>.
+     *
+     * @param element the element to compare against.
+     * @return a position from <code>0</code> to <code>size()</code>.
+     */
+    int upperBound(final Object element) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (comparator.compare(get(mid), element) > 0) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * The comparator as an {@link IndexComparator} when it can read <code>delegate</code> by position.
+     */
+    private IndexComparator getIndexComparator(final List delegate) {
+        if (comparator instanceof IndexComparator && ((IndexComparator)comparator).canCompare(delegate)) {
+            return (IndexComparator)comparator;
+        }
+        return null;
+    }
+
+    /**
+     * Compare two elements of the delegate by position.
+     *
+     * @param indexComparator from {@link #getIndexComparator(List)}, <code>null</code> to compare the elements.
+     */
+    private int compareAt(final IndexComparator indexComparator, final List delegate, final int index1, final int index2) {
+        if (indexComparator != null) {
+            return indexComparator.compare(delegate, index1, index2);
+        }
+        return comparator.compare(delegate.get(index1), delegate.get(index2));
+    }
+
+    /**
+     * Compare with this list's comparator.
+     */
+    int compare(final Object o1, final Object o2) {
+        return comparator.compare(o1, o2);
+    }
+
     public Comparator getComparator() {
         return comparator != NATURAL ? comparator : null;
     }
@@ -198,27 +430,14 @@ class SortedEventListImpl extends TransformedEventList implements SortedEventLis
     }
 
     public void sort() {
-        if (size() == 0) {
+        if (dormant) {
+            // the comparator is applied when this list wakes up
             return;
         }
-        // TODO: optimize
-        final List delegate = getDelegate();
-        final List sorted = new ArrayList();
-        sorted.addAll(delegate);
-        Collections.sort(sorted, comparator);
-        
-        for (int i=0; i < sorted.size(); i++) {
-            final Object o = sorted.get(i);
-            int j;
-            for (j=0; j < delegate.size(); j++) {
-                if (o == delegate.get(j)) {
-                    break;
-                }
-            }
-            getTranslationIndex(i).setIndex(j);
-            ((Index)reverse.get(j)).setIndex(i);
+        rebuild();
+        final int size = getTranslations().size();
+        if (size > 0) {
+            fireListEvent(ListEvent.createChanged(this, 0, size));
         }
-        final ListEvent event = ListEvent.createChanged(this, 0, size());
-        fireListEvent(event);
     }
 }
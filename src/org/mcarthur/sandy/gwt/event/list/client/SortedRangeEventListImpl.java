@@ -0,0 +1,181 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+/**
+ * A live view of the elements of a SortedEventList between two bounds.
+ * The view is the positions <code>[start, end)</code> of the sorted list. Those positions are
+ * adjusted from the sorted list's events and only elements added next to a bound are compared
+ * against it.
+ *
+ * @author Sandy McArthur
+ * @see SortedEventList#rangeView(Object, Object)
+ */
+class SortedRangeEventListImpl extends TransformedEventList implements DetachableEventList {
+    private final Object from;
+    private final Object to;
+    private final ViewListEventListener listEventListener = new RangeListEventListener();
+    private final ListEventListener registration;
+
+    private int start;
+    private int end;
+
+    SortedRangeEventListImpl(final SortedEventListImpl delegate, final Object from, final Object to) {
+        super(delegate);
+        this.from = from;
+        this.to = to;
+        registration = EventLists.attach(delegate, listEventListener);
+        findBounds();
+    }
+
+    private SortedEventListImpl getSorted() {
+        return (SortedEventListImpl)getDelegate();
+    }
+
+    public EventList detach() {
+        getDelegate().removeListEventListener(registration);
+        start = 0;
+        end = 0;
+        return releaseDelegate();
+    }
+
+    protected int getSourceIndex(final int mutationIndex) {
+        return start + mutationIndex;
+    }
+
+    public int size() {
+        return end - start;
+    }
+
+    /**
+     * Find start and end with a binary search of the sorted list.
+     */
+    private void findBounds() {
+        final SortedEventListImpl sorted = getSorted();
+        start = from != null ? sorted.lowerBound(from) : 0;
+        end = to != null ? Math.max(start, sorted.lowerBound(to)) : sorted.size();
+    }
+
+    private boolean isBelow(final Object element) {
+        return from != null && getSorted().compare(element, from) < 0;
+    }
+
+    private boolean isAbove(final Object element) {
+        return to != null && getSorted().compare(element, to) >= 0;
+    }
+
+    private class RangeListEventListener implements ViewListEventListener {
+        public EventList getView() {
+            return SortedRangeEventListImpl.this;
+        }
+
+        public void listChanged(final ListEvent listEvent) {
+            if (listEvent.isAdded()) {
+                listChangedAdded(listEvent);
+
+            } else if (listEvent.isChanged()) {
+                listChangedChanged(listEvent);
+
+            } else if (listEvent.isRemoved()) {
+                listChangedRemoved(listEvent);
+
+            } else {
+                if (ListEvent.OTHER.equals(listEvent.getType())) {
+                    findBounds();
+                }
+                fireListEvent(listEvent.resource(SortedRangeEventListImpl.this));
+            }
+        }
+
+        private void listChangedAdded(final ListEvent listEvent) {
+            final EventList sorted = getDelegate();
+            int addedStart = -1;
+            int added = 0;
+            // as if each element was inserted in turn, lowest first
+            for (int p = listEvent.getIndexStart(); p < listEvent.getIndexEnd(); p++) {
+                if (p < start) {
+                    start++;
+                    end++;
+                } else if (p > end) {
+                    // past the range
+                } else {
+                    final Object element = sorted.get(p);
+                    if (isBelow(element)) {
+                        // only possible at p == start
+                        start++;
+                        end++;
+                    } else if (!isAbove(element)) {
+                        if (addedStart < 0) {
+                            addedStart = p - start;
+                        }
+                        added++;
+                        end++;
+                    }
+                }
+            }
+            if (added > 0) {
+                // sorted positions are contiguous so the added part of the view is too
+                fireListEvent(ListEvent.createAdded(SortedRangeEventListImpl.this, addedStart, addedStart + added, listEvent));
+            }
+        }
+
+        private void listChangedRemoved(final ListEvent listEvent) {
+            final int oldStart = start;
+            final int oldEnd = end;
+            final int removedStart = Math.max(listEvent.getIndexStart(), oldStart);
+            final int removedEnd = Math.min(listEvent.getIndexEnd(), oldEnd);
+            final int before = Math.max(0, Math.min(listEvent.getIndexEnd(), oldStart) - listEvent.getIndexStart());
+            final int inside = Math.max(0, removedEnd - removedStart);
+            start -= before;
+            end -= before + inside;
+            if (inside > 0) {
+                fireListEvent(ListEvent.createRemoved(SortedRangeEventListImpl.this, removedStart - oldStart, removedEnd - oldStart, listEvent));
+            }
+        }
+
+        private void listChangedChanged(final ListEvent listEvent) {
+            final int oldStart = start;
+            final int oldEnd = end;
+            findBounds();
+            if (start == oldStart && end == oldEnd) {
+                // the order held, forward the part of the change inside the view
+                final int changedStart = Math.max(listEvent.getIndexStart(), start);
+                final int changedEnd = Math.min(listEvent.getIndexEnd(), end);
+                if (changedStart < changedEnd) {
+                    fireListEvent(ListEvent.createChanged(SortedRangeEventListImpl.this, changedStart - start, changedEnd - start, listEvent));
+                }
+            } else {
+                // the sorted list was reordered, replace the contents
+                final int oldSize = oldEnd - oldStart;
+                final int newSize = end - start;
+                final boolean batch = oldSize > 0 && newSize > 0;
+                if (batch) {
+                    fireListEvent(ListEvent.createBatchStart(SortedRangeEventListImpl.this, listEvent));
+                }
+                if (oldSize > 0) {
+                    fireListEvent(ListEvent.createRemoved(SortedRangeEventListImpl.this, 0, oldSize, listEvent));
+                }
+                if (newSize > 0) {
+                    fireListEvent(ListEvent.createAdded(SortedRangeEventListImpl.this, 0, newSize, listEvent));
+                }
+                if (batch) {
+                    fireListEvent(ListEvent.createBatchEnd(SortedRangeEventListImpl.this, listEvent));
+                }
+            }
+        }
+    }
+}
@@ -16,10 +16,12 @@
 
 package org.mcarthur.sandy.gwt.event.list.client;
 
-import com.google.gwt.core.client.GWT;
-
 /**
  * RangedEventList that presents a view of a range of elements in another EventList.
+ * Unlike {@link RangedEventListImpl2} the start offset follows the visible elements when
+ * elements are added or removed before the range, so the visible elements stay put and only
+ * an {@link ListEvent#OTHER} event is fired. When no elements are visible there is nothing
+ * to keep steady and this behaves like a plain RangedEventList.
  *
  * @author Sandy McArthur
  */
@@ -29,16 +31,8 @@ class SteadyRangedEventListImpl2 extends RangedEventListImpl2 implements RangedE
         super(delegate, maxSize);
     }
 
-    protected ListEventListener getListEventListener() {
-        // TODO: finish this
-        if (false) {
-            // doesn't work yet
-            return new SteadyRangedListEventListener();
-        } else {
-            // not the correct behavior but it works
-            GWT.log("SteadyRangedEventList currently behaves like RangedEventList until some bugs in the SteadyRangedEventList logic can be fixed.", null);            
-            return super.getListEventListener();
-        }
+    protected ViewListEventListener getListEventListener() {
+        return new SteadyRangedListEventListener();
     }
 
     private class SteadyRangedListEventListener extends RangedListEventListener {
@@ -46,9 +40,10 @@ class SteadyRangedEventListImpl2 extends RangedEventListImpl2 implements RangedE
         protected void listChangedAdded(final ListEvent listEvent) {
             final int indexStart = listEvent.getIndexStart();
             final int indexEnd = listEvent.getIndexEnd();
-            if (indexStart <= getStart()) {
-                // the add was before the start offset
-                super.listChangedAdded(listEvent);
+            if (indexStart < getStart() && size() > 0) {
+                // the add was before the start offset, follow the visible elements
+                setStartOffset(getStart() + (indexEnd - indexStart));
+                fireListEvent(ListEvent.createOther(SteadyRangedEventListImpl2.this, listEvent));
             } else {
                 super.listChangedAdded(listEvent);
             }
@@ -57,18 +52,23 @@ class SteadyRangedEventListImpl2 extends RangedEventListImpl2 implements RangedE
         protected void listChangedRemoved(final ListEvent listEvent) {
             final int indexStart = listEvent.getIndexStart();
             final int indexEnd = listEvent.getIndexEnd();
-            if (indexEnd <= getStart()) {
-                // if the removal didn't affect any visible elements
-                final int removedSize = indexEnd - indexStart;
-                setStartOffset(getStart() - removedSize);
-                fireListEvent(ListEvent.createOther(SteadyRangedEventListImpl2.this));
-
-            } else if (indexStart < getStart()) {
-                // TODO: start offset needs adjusting and some visible elements were removed
-                // split the listEvent into two events:
-                // 1: for the visable range
-                // 2: for before the start offset
+            final int start = getStart();
+            if (size() == 0) {
+                // nothing visible to keep steady
                 super.listChangedRemoved(listEvent);
+
+            } else if (indexEnd <= start) {
+                // the removal didn't affect any visible elements
+                setStartOffset(start - (indexEnd - indexStart));
+                fireListEvent(ListEvent.createOther(SteadyRangedEventListImpl2.this, listEvent));
+
+            } else if (indexStart < start) {
+                // the removal spans the start offset: the part before it moves the start offset
+                // and the rest is removed from the front of the visible elements.
+                setStartOffset(indexStart);
+                windowRemoved(0, Math.min(indexEnd - start, size()), listEvent);
+                fillWindow(listEvent);
+
             } else {
                 super.listChangedRemoved(listEvent);
             }
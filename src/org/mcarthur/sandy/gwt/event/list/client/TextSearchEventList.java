@@ -0,0 +1,74 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+/**
+ * A view of another EventList, in the same order, that only presents the elements whose text
+ * contains a query. Meant for type-ahead search boxes: the text of each element is extracted
+ * once, lower cased and indexed by its three character grams as the backing list changes, so
+ * a new query doesn't call <code>toString()</code> on every element.
+ *
+ * <p>
+ * A query of three or more characters only checks the elements holding its rarest gram.
+ * A query that extends the previous one, the common case while typing, only checks the
+ * elements already presented when that is fewer. Shorter queries check the cached text of
+ * every element.
+ * </p>
+ *
+ * @author Sandy McArthur
+ * @see EventLists#textSearchEventList(EventList, TextSearchEventList.TextExtractor)
+ */
+public interface TextSearchEventList extends DetachableEventList {
+    /**
+     * Uses <code>String.valueOf(element)</code> as the text.
+     */
+    public static final TextExtractor TO_STRING = new TextExtractor() {
+        public String getText(final Object element) {
+            return String.valueOf(element);
+        }
+    };
+
+    /**
+     * The current query.
+     *
+     * @return the current query, an empty string presents every element.
+     */
+    public String getQuery();
+
+    /**
+     * Present the elements whose text contains <code>query</code>, ignoring case.
+     * Fires the minimal ADDED and REMOVED events, in a batch when there is more than one.
+     *
+     * @param query the text to search for, <code>null</code> or an empty string presents every element.
+     */
+    public void setQuery(String query);
+
+    /**
+     * Extracts the searchable text of an element.
+     * If the TextExtractor is also {@link PropertyDependent} a CHANGED event that doesn't
+     * name one of its properties doesn't cause the element to be indexed again.
+     */
+    public static interface TextExtractor {
+        /**
+         * The text to search, for example several fields separated by a newline.
+         *
+         * @param element the element to extract text from.
+         * @return the element's searchable text, <code>null</code> is treated as an empty string.
+         */
+        public String getText(Object element);
+    }
+}
@@ -0,0 +1,399 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * TextSearchEventList that keeps a trigram index of the backing list's elements.
+ *
+ * @author Sandy McArthur
+ */
+class TextSearchEventListImpl extends TransformedEventList implements TextSearchEventList {
+    private static final int GRAM = 3;
+
+    private final TextExtractor textExtractor;
+    private final ViewListEventListener listEventListener = new TextSearchListEventListener();
+    private final ListEventListener registration;
+
+    /**
+     * An Entry for each element of the backing list, in its order.
+     */
+    private final List entries = new ArrayList();
+
+    /**
+     * The entries presented by this list, in the backing list's order.
+     */
+    private final List visible = new ArrayList();
+
+    /**
+     * Maps a gram to the Set of entries whose text contains it.
+     */
+    private final Map postings = new HashMap();
+
+    private String query = "";
+
+    TextSearchEventListImpl(final EventList delegate, final TextExtractor textExtractor) {
+        super(delegate);
+        this.textExtractor = textExtractor != null ? textExtractor : TO_STRING;
+        registration = EventLists.attach(delegate, listEventListener);
+        inserted(0, delegate.size());
+        visible.addAll(entries);
+    }
+
+    public EventList detach() {
+        getDelegate().removeListEventListener(registration);
+        entries.clear();
+        visible.clear();
+        postings.clear();
+        return releaseDelegate();
+    }
+
+    protected int getSourceIndex(final int mutationIndex) {
+        if (mutationIndex < visible.size()) {
+            return ((Entry)visible.get(mutationIndex)).getIndex();
+        } else if (mutationIndex == visible.size()) {
+            return getDelegate().size();
+        } else {
+            throw new IndexOutOfBoundsException("Index: " + mutationIndex + ", Size: " + visible.size());
+        }
+    }
+
+    public int size() {
+        return visible.size();
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public void setQuery(String query) {
+        query = query != null ? query.toLowerCase() : "";
+        if (!this.query.equals(query)) {
+            final String oldQuery = this.query;
+            this.query = query;
+            show(search(oldQuery));
+        }
+    }
+
+    /**
+     * Find the entries matching the query, in the backing list's order.
+     */
+    private List search(final String oldQuery) {
+        if (query.length() == 0) {
+            return new ArrayList(entries);
+        }
+        Iterator candidates = entries.iterator();
+        int candidateCount = entries.size();
+        if (oldQuery.length() > 0 && query.indexOf(oldQuery) >= 0) {
+            // a refinement can only match what matches now
+            candidates = visible.iterator();
+            candidateCount = visible.size();
+        }
+        boolean ordered = true;
+        if (query.length() >= GRAM) {
+            for (int i=0; i + GRAM <= query.length(); i++) {
+                final Set posting = (Set)postings.get(query.substring(i, i + GRAM));
+                if (posting == null) {
+                    return new ArrayList();
+                }
+                if (posting.size() < candidateCount) {
+                    candidates = posting.iterator();
+                    candidateCount = posting.size();
+                    ordered = false;
+                }
+            }
+        }
+        final List matches = new ArrayList();
+        while (candidates.hasNext()) {
+            final Entry entry = (Entry)candidates.next();
+            if (matches(entry)) {
+                matches.add(entry);
+            }
+        }
+        if (!ordered) {
+            sortByIndex(matches);
+        }
+        return matches;
+    }
+
+    private boolean matches(final Entry entry) {
+        return entry.text.indexOf(query) >= 0;
+    }
+
+    /**
+     * Make the visible entries the same as <code>matches</code>, firing the events to get there.
+     */
+    private void show(final List matches) {
+        // work out the changes first so a batch can wrap them when there is more than one
+        final List changes = new ArrayList(); // of int[] {start, end, added run end or -1}
+        int i = 0; // position in the view as the changes are applied
+        int v = 0; // next old visible entry
+        int m = 0; // next match
+        while (v < visible.size() || m < matches.size()) {
+            final Entry old = v < visible.size() ? (Entry)visible.get(v) : null;
+            final Entry match = m < matches.size() ? (Entry)matches.get(m) : null;
+            if (old == match) {
+                i++;
+                v++;
+                m++;
+            } else if (match == null || (old != null && old.getIndex() < match.getIndex())) {
+                final int runStart = v;
+                while (v < visible.size() && (match == null || ((Entry)visible.get(v)).getIndex() < match.getIndex())) {
+                    v++;
+                }
+                changes.add(new int[] {i, i + v - runStart, -1});
+            } else {
+                final int runStart = m;
+                while (m < matches.size() && (old == null || ((Entry)matches.get(m)).getIndex() < old.getIndex())) {
+                    m++;
+                }
+                changes.add(new int[] {i, i + m - runStart, runStart});
+                i += m - runStart;
+            }
+        }
+
+        final boolean batch = changes.size() > 1;
+        if (batch) {
+            fireListEvent(ListEvent.createBatchStart(this));
+        }
+        for (int c=0; c < changes.size(); c++) {
+            final int[] change = (int[])changes.get(c);
+            if (change[2] < 0) {
+                for (int j=change[1] - 1; j >= change[0]; j--) {
+                    visible.remove(j);
+                }
+                fireListEvent(ListEvent.createRemoved(this, change[0], change[1]));
+            } else {
+                visible.addAll(change[0], matches.subList(change[2], change[2] + change[1] - change[0]));
+                fireListEvent(ListEvent.createAdded(this, change[0], change[1]));
+            }
+        }
+        if (batch) {
+            fireListEvent(ListEvent.createBatchEnd(this));
+        }
+    }
+
+    /**
+     * The position in visible where an entry is or would be.
+     */
+    private int visiblePosition(final Entry entry) {
+        int low = 0;
+        int high = visible.size();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (((Entry)visible.get(mid)).getIndex() < entry.getIndex()) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Index elements added at <code>[start, end)</code> of the backing list.
+     * The caller updates visible.
+     */
+    private void inserted(final int start, final int end) {
+        final List delegate = getDelegate();
+        for (int i=start; i < end; i++) {
+            final Entry entry = new Entry(i);
+            entries.add(i, entry);
+            index(entry, delegate.get(i));
+        }
+        renumber(end);
+    }
+
+    private void index(final Entry entry, final Object element) {
+        final String text = textExtractor.getText(element);
+        entry.text = text != null ? text.toLowerCase() : "";
+        final Iterator iter = grams(entry.text).iterator();
+        while (iter.hasNext()) {
+            final Object gram = iter.next();
+            Set posting = (Set)postings.get(gram);
+            if (posting == null) {
+                posting = new HashSet();
+                postings.put(gram, posting);
+            }
+            posting.add(entry);
+        }
+    }
+
+    private void unindex(final Entry entry) {
+        final Iterator iter = grams(entry.text).iterator();
+        while (iter.hasNext()) {
+            final Object gram = iter.next();
+            final Set posting = (Set)postings.get(gram);
+            posting.remove(entry);
+            if (posting.isEmpty()) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    private static Set grams(final String text) {
+        final Set grams = new HashSet();
+        for (int i=0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private void renumber(final int from) {
+        for (int i=from; i < entries.size(); i++) {
+            ((Entry)entries.get(i)).setIndex(i);
+        }
+    }
+
+    private static void sortByIndex(final List list) {
+        Collections.sort(list, new Comparator() {
+            public int compare(final Object o1, final Object o2) {
+                return ((Entry)o1).getIndex() - ((Entry)o2).getIndex();
+            }
+        });
+    }
+
+    /**
+     * An element of the backing list and its lower cased text.
+     */
+    private static class Entry extends Index {
+        private String text;
+
+        Entry(final int index) {
+            super(index);
+        }
+    }
+
+    private class TextSearchListEventListener implements ViewListEventListener {
+        public EventList getView() {
+            return TextSearchEventListImpl.this;
+        }
+
+        public void listChanged(final ListEvent listEvent) {
+            if (listEvent.isAdded()) {
+                listChangedAdded(listEvent);
+
+            } else if (listEvent.isChanged()) {
+                listChangedChanged(listEvent);
+
+            } else if (listEvent.isRemoved()) {
+                listChangedRemoved(listEvent);
+
+            } else {
+                if (ListEvent.OTHER.equals(listEvent.getType())) {
+                    // anything could have changed, index everything again
+                    entries.clear();
+                    postings.clear();
+                    inserted(0, getDelegate().size());
+                    visible.clear();
+                    visible.addAll(search(""));
+                }
+                fireListEvent(listEvent.resource(TextSearchEventListImpl.this));
+            }
+        }
+
+        private void listChangedAdded(final ListEvent listEvent) {
+            inserted(listEvent.getIndexStart(), listEvent.getIndexEnd());
+            int pos = -1;
+            int count = 0;
+            for (int i=listEvent.getIndexStart(); i < listEvent.getIndexEnd(); i++) {
+                final Entry entry = (Entry)entries.get(i);
+                if (matches(entry)) {
+                    if (pos < 0) {
+                        pos = visiblePosition(entry);
+                    }
+                    visible.add(pos + count, entry);
+                    count++;
+                }
+            }
+            if (count > 0) {
+                fireListEvent(ListEvent.createAdded(TextSearchEventListImpl.this, pos, pos + count, listEvent));
+            }
+        }
+
+        private void listChangedRemoved(final ListEvent listEvent) {
+            final int start = listEvent.getIndexStart();
+            final int end = listEvent.getIndexEnd();
+            int pos = -1;
+            int count = 0;
+            for (int i=start; i < end; i++) {
+                final Entry entry = (Entry)entries.get(i);
+                unindex(entry);
+                if (matches(entry)) {
+                    if (pos < 0) {
+                        pos = visiblePosition(entry);
+                    }
+                    count++;
+                }
+            }
+            for (int i=end - 1; i >= start; i--) {
+                entries.remove(i);
+            }
+            for (int i=count - 1; i >= 0; i--) {
+                visible.remove(pos + i);
+            }
+            renumber(start);
+            if (count > 0) {
+                fireListEvent(ListEvent.createRemoved(TextSearchEventListImpl.this, pos, pos + count, listEvent));
+            }
+        }
+
+        private void listChangedChanged(final ListEvent listEvent) {
+            final String[] dependencies = textExtractor instanceof PropertyDependent ? ((PropertyDependent)textExtractor).getPropertyDependencies() : null;
+            final boolean reindex = listEvent.isAnyPropertyChanged(dependencies);
+            final List delegate = getDelegate();
+            final List events = new ArrayList();
+            for (int i=listEvent.getIndexStart(); i < listEvent.getIndexEnd(); i++) {
+                final Entry entry = (Entry)entries.get(i);
+                final boolean wasVisible = matches(entry);
+                if (reindex) {
+                    unindex(entry);
+                    index(entry, delegate.get(i));
+                }
+                final boolean isVisible = matches(entry);
+                final int pos = visiblePosition(entry);
+                if (wasVisible && isVisible) {
+                    events.add(ListEvent.createChanged(TextSearchEventListImpl.this, pos, listEvent));
+                } else if (wasVisible) {
+                    visible.remove(pos);
+                    events.add(ListEvent.createRemoved(TextSearchEventListImpl.this, pos, listEvent));
+                } else if (isVisible) {
+                    visible.add(pos, entry);
+                    events.add(ListEvent.createAdded(TextSearchEventListImpl.this, pos, listEvent));
+                }
+            }
+            if (events.size() > 1) {
+                fireListEvent(ListEvent.createBatchStart(TextSearchEventListImpl.this, listEvent));
+            }
+            for (int i=0; i < events.size(); i++) {
+                fireListEvent((ListEvent)events.get(i));
+            }
+            if (events.size() > 1) {
+                fireListEvent(ListEvent.createBatchEnd(TextSearchEventListImpl.this, listEvent));
+            }
+        }
+    }
+}
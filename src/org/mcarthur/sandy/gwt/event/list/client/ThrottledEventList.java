@@ -0,0 +1,77 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+/**
+ * A view of another EventList that holds back its changes and forwards them at most once per
+ * tick. Between ticks this list keeps presenting the elements as they were at the last tick.
+ * When the tick comes the changes are compacted to their net effect, an element added and
+ * removed in the same tick is never reported, and fired as one REMOVED, ADDED or CHANGED
+ * event per run of adjacent elements, in a batch when there is more than one event.
+ * Consumers like a table then redraw at most once per tick however fast the backing list
+ * changes.
+ *
+ * <p>
+ * The tick is decided by a {@link FlushScheduler}. In GWT client code a scheduler that forwards
+ * the changes at most every 100 milliseconds is:
+ * </p>
+ * <pre>
+ * new ThrottledEventList.FlushScheduler() {
+ *     public void scheduleFlush(final ThrottledEventList list) {
+ *         new Timer() {
+ *             public void run() {
+ *                 list.flush();
+ *             }
+ *         }.schedule(100);
+ *     }
+ * }
+ * </pre>
+ *
+ * <p>
+ * Changes made through this list flush the held back changes first, and their own events
+ * are forwarded immediately, so the index passed means the same to this list and the backing list.
+ * </p>
+ *
+ * @author Sandy McArthur
+ * @see EventLists#throttledEventList(EventList, ThrottledEventList.FlushScheduler)
+ */
+public interface ThrottledEventList extends DetachableEventList {
+    /**
+     * Forward the changes held back since the last flush.
+     */
+    public void flush();
+
+    /**
+     * Are changes being held back.
+     *
+     * @return <code>true</code> when the backing list changed since the last flush.
+     */
+    public boolean isPending();
+
+    /**
+     * Decides when a {@link ThrottledEventList} forwards its changes.
+     */
+    public static interface FlushScheduler {
+        /**
+         * Arrange for {@link ThrottledEventList#flush()} to be called on <code>list</code>.
+         * This is called for the first change after each flush.
+         *
+         * @param list the list to flush.
+         */
+        public void scheduleFlush(ThrottledEventList list);
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ThrottledEventList that keeps a copy of the elements presented and, while changes are held
+ * back, where each element of the backing list came from. The origins are an int for each
+ * backing list element: the presented index it was at, or {@link #ADDED} for new elements.
+ * Changed elements are marked by storing <code>-(index + 2)</code>. Because elements are only
+ * added and removed the presented indexes stay in ascending order, which is what lets
+ * {@link #flush()} work out the net change in one pass.
+ *
+ * @author Sandy McArthur
+ */
+class ThrottledEventListImpl extends TransformedEventList implements ThrottledEventList {
+    private static final int ADDED = -1;
+
+    private final ViewListEventListener listEventListener = new ThrottledListEventListener();
+    private final ListEventListener registration;
+    private final FlushScheduler scheduler;
+
+    /**
+     * The elements as last forwarded.
+     */
+    private final List presented = new ArrayList();
+
+    /**
+     * Origins of the backing list elements, <code>null</code> when no changes are held back.
+     */
+    private int[] origins = null;
+    private int originsSize = 0;
+
+    /**
+     * Changed property names by presented index, a <code>null</code> value when unknown.
+     */
+    private final Map changedProperties = new HashMap();
+
+    /**
+     * An OTHER event was seen, everything is reported as an OTHER event.
+     */
+    private boolean other = false;
+
+    ThrottledEventListImpl(final EventList delegate, final FlushScheduler scheduler) {
+        super(delegate);
+        this.scheduler = scheduler;
+        registration = EventLists.attach(delegate, listEventListener);
+        presented.addAll(delegate);
+    }
+
+    public EventList detach() {
+        getDelegate().removeListEventListener(registration);
+        presented.clear();
+        origins = null;
+        originsSize = 0;
+        changedProperties.clear();
+        return releaseDelegate();
+    }
+
+    public boolean isPending() {
+        return origins != null || other;
+    }
+
+    public void flush() {
+        if (other) {
+            other = false;
+            origins = null;
+            changedProperties.clear();
+            presented.clear();
+            presented.addAll(getDelegate());
+            fireListEvent(ListEvent.createOther(this));
+            return;
+        }
+        if (origins == null) {
+            return;
+        }
+        final int[] origins = this.origins;
+        final int size = originsSize;
+        this.origins = null;
+        originsSize = 0;
+
+        // presented elements that are gone, as {start, end} runs
+        final List removed = new ArrayList();
+        int expected = 0;
+        for (int i=0; i < size; i++) {
+            final int origin = origin(origins[i]);
+            if (origin >= 0) {
+                if (origin > expected) {
+                    removed.add(new int[] {expected, origin});
+                }
+                expected = origin + 1;
+            }
+        }
+        if (presented.size() > expected) {
+            removed.add(new int[] {expected, presented.size()});
+        }
+
+        final boolean batch = removed.size() + countRuns(origins, size) > 1;
+        if (batch) {
+            fireListEvent(ListEvent.createBatchStart(this));
+        }
+        for (int r=removed.size() - 1; r >= 0; r--) {
+            final int[] run = (int[])removed.get(r);
+            presented.subList(run[0], run[1]).clear();
+            fireListEvent(ListEvent.createRemoved(this, run[0], run[1]));
+        }
+
+        // presented now holds the surviving elements in order, fill in the rest
+        final List delegate = getDelegate();
+        int i = 0;
+        while (i < size) {
+            if (origins[i] >= 0) {
+                i++;
+                continue;
+            }
+            final boolean added = origins[i] == ADDED;
+            int end = i + 1;
+            while (end < size && origins[end] < 0 && (origins[end] == ADDED) == added) {
+                end++;
+            }
+            if (added) {
+                presented.addAll(i, delegate.subList(i, end));
+                fireListEvent(ListEvent.createAdded(this, i, end));
+            } else {
+                List properties = new ArrayList();
+                for (int j=i; j < end; j++) {
+                    presented.set(j, delegate.get(j));
+                    properties = union(properties, (List)changedProperties.get(new Integer(origin(origins[j]))));
+                }
+                final String[] names = properties != null ? (String[])properties.toArray(new String[properties.size()]) : null;
+                fireListEvent(ListEvent.createPropertyChanged(this, i, end, names));
+            }
+            i = end;
+        }
+        changedProperties.clear();
+        if (batch) {
+            fireListEvent(ListEvent.createBatchEnd(this));
+        }
+    }
+
+    /**
+     * The number of runs of adjacent added or changed elements.
+     */
+    private static int countRuns(final int[] origins, final int size) {
+        int runs = 0;
+        for (int i=0; i < size; i++) {
+            if (origins[i] < 0 && (i == 0 || origins[i-1] >= 0 || (origins[i-1] == ADDED) != (origins[i] == ADDED))) {
+                runs++;
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * The presented index of an origin, {@link #ADDED} for new elements.
+     */
+    private static int origin(final int origin) {
+        return origin < ADDED ? -(origin + 2) : origin;
+    }
+
+    /**
+     * @return the union, <code>null</code> if either is unknown.
+     */
+    private static List union(final List names, final List more) {
+        if (names == null || more == null) {
+            return null;
+        }
+        final List union = new ArrayList(names);
+        for (int i=0; i < more.size(); i++) {
+            if (!union.contains(more.get(i))) {
+                union.add(more.get(i));
+            }
+        }
+        return union;
+    }
+
+    public Object get(final int index) {
+        if (index < 0 || index >= presented.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + presented.size());
+        }
+        return presented.get(index);
+    }
+
+    public void add(final int index, final Object element) {
+        flush();
+        super.add(index, element);
+        flush();
+    }
+
+    public Object remove(final int index) {
+        flush();
+        final Object removed = super.remove(index);
+        flush();
+        return removed;
+    }
+
+    public Object set(final int index, final Object element) {
+        flush();
+        final Object old = super.set(index, element);
+        flush();
+        return old;
+    }
+
+    protected int getSourceIndex(final int mutationIndex) {
+        return mutationIndex;
+    }
+
+    public int size() {
+        return presented.size();
+    }
+
+    /**
+     * Start tracking origins if this is the first change since the last flush.
+     */
+    private void pending() {
+        if (origins == null && !other) {
+            originsSize = presented.size();
+            origins = new int[Math.max(10, originsSize + originsSize / 2)];
+            for (int i=0; i < originsSize; i++) {
+                origins[i] = i;
+            }
+            if (scheduler != null) {
+                scheduler.scheduleFlush(this);
+            }
+        }
+    }
+
+    private class ThrottledListEventListener implements ViewListEventListener {
+        public EventList getView() {
+            return ThrottledEventListImpl.this;
+        }
+
+        public void listChanged(final ListEvent listEvent) {
+            if (listEvent.isBatchStart() || listEvent.isBatchEnd()) {
+                // flush makes its own batches
+                return;
+            }
+            pending();
+            if (other) {
+                return;
+            }
+            final int start = listEvent.getIndexStart();
+            final int end = listEvent.getIndexEnd();
+            if (listEvent.isAdded()) {
+                final int count = end - start;
+                if (originsSize + count > origins.length) {
+                    final int[] grown = new int[Math.max(originsSize + count, origins.length * 2)];
+                    System.arraycopy(origins, 0, grown, 0, originsSize);
+                    origins = grown;
+                }
+                System.arraycopy(origins, start, origins, end, originsSize - start);
+                for (int i=start; i < end; i++) {
+                    origins[i] = ADDED;
+                }
+                originsSize += count;
+
+            } else if (listEvent.isRemoved()) {
+                for (int i=start; i < end; i++) {
+                    if (origins[i] < ADDED) {
+                        changedProperties.remove(new Integer(origin(origins[i])));
+                    }
+                }
+                System.arraycopy(origins, end, origins, start, originsSize - end);
+                originsSize -= end - start;
+
+            } else if (listEvent.isChanged()) {
+                final String[] names = listEvent.getChangedProperties();
+                for (int i=start; i < end; i++) {
+                    final int origin = origins[i];
+                    if (origin == ADDED) {
+                        continue;
+                    }
+                    final Integer key = new Integer(origin(origin));
+                    List properties = names != null ? Arrays.asList(names) : null;
+                    if (origin < ADDED) {
+                        properties = union((List)changedProperties.get(key), properties);
+                    } else {
+                        origins[i] = -(origin + 2);
+                    }
+                    changedProperties.put(key, properties);
+                }
+
+            } else {
+                // anything could have changed
+                other = true;
+                origins = null;
+                originsSize = 0;
+                changedProperties.clear();
+            }
+        }
+    }
+}
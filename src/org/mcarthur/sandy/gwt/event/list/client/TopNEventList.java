@@ -0,0 +1,59 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+import java.util.Comparator;
+
+/**
+ * A view of the first N elements of another EventList in sorted order, without sorting the
+ * rest of the list. This replaces a {@link SortedEventList} under a {@link RangedEventList}
+ * when only the top of a large list is shown.
+ *
+ * <p>
+ * Besides the N presented elements a buffer of the next best elements is kept so that an
+ * element leaving the top can usually be replaced without looking at the backing list.
+ * A change to an element that doesn't belong in the buffer costs one comparison, a change
+ * inside the buffer O(log N) comparisons, and neither fires an event unless the top N changes.
+ * Only when removals exhaust the buffer is the backing list scanned to refill it.
+ * </p>
+ *
+ * @author Sandy McArthur
+ * @see EventLists#topNEventList(EventList, Comparator, int)
+ */
+public interface TopNEventList extends DetachableEventList {
+    /**
+     * The Comparator ordering this list.
+     *
+     * @return the Comparator used to order this list, else <code>null</code> if natural ordering is used.
+     */
+    public Comparator getComparator();
+
+    /**
+     * The most elements this list presents.
+     *
+     * @return N.
+     */
+    public int getLimit();
+
+    /**
+     * Change the most elements this list presents.
+     *
+     * @param limit the new N.
+     * @throws IllegalArgumentException if <code>limit</code> is negative.
+     */
+    public void setLimit(int limit) throws IllegalArgumentException;
+}
@@ -0,0 +1,366 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * TopNEventList that keeps the best <code>2 * limit</code> elements in a sorted buffer.
+ * The buffer always holds the best <code>buffer.size()</code> elements of the backing list.
+ * Changes are applied to the buffer first, then the presented elements are reconciled with
+ * the first <code>limit</code> entries of the buffer.
+ *
+ * @author Sandy McArthur
+ */
+class TopNEventListImpl extends TransformedEventList implements TopNEventList {
+    private static final Comparator NATURAL = new Comparator() {
+        public int compare(final Object o1, final Object o2) {
+            return ((Comparable)o1).compareTo(o2);
+        }
+    };
+
+    private final Comparator comparator;
+    private final ViewListEventListener listEventListener = new TopNListEventListener();
+    private final ListEventListener registration;
+
+    /**
+     * Entries in sorted order, ties broken by position in the backing list.
+     */
+    private final List buffer = new ArrayList();
+
+    /**
+     * The entries presented by this list.
+     */
+    private final List visible = new ArrayList();
+
+    /**
+     * The number of backing list elements, already accounted for, that aren't in the buffer.
+     * Every one of them sorts after every buffered element.
+     */
+    private int outside = 0;
+
+    private int limit;
+
+    /**
+     * Did the first <code>limit</code> buffered entries change since the last reconcile.
+     */
+    private boolean topChanged = false;
+
+    TopNEventListImpl(final EventList delegate, final Comparator comparator, final int limit) {
+        super(delegate);
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative: " + limit);
+        }
+        this.comparator = comparator != null ? comparator : NATURAL;
+        this.limit = limit;
+        registration = EventLists.attach(delegate, listEventListener);
+        refill();
+        visible.addAll(buffer.subList(0, Math.min(limit, buffer.size())));
+    }
+
+    public EventList detach() {
+        getDelegate().removeListEventListener(registration);
+        buffer.clear();
+        visible.clear();
+        return releaseDelegate();
+    }
+
+    public Comparator getComparator() {
+        return comparator != NATURAL ? comparator : null;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(final int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative: " + limit);
+        }
+        this.limit = limit;
+        topChanged = true;
+        if (buffer.size() < limit && outside > 0) {
+            refill();
+        }
+        trim();
+        reconcile(null, new ArrayList());
+    }
+
+    protected int getSourceIndex(final int mutationIndex) {
+        if (mutationIndex < visible.size()) {
+            return ((Entry)visible.get(mutationIndex)).getIndex();
+        } else if (mutationIndex == visible.size()) {
+            return getDelegate().size();
+        } else {
+            throw new IndexOutOfBoundsException("Index: " + mutationIndex + ", Size: " + visible.size());
+        }
+    }
+
+    public int size() {
+        return visible.size();
+    }
+
+    private int compare(final Entry e1, final Entry e2) {
+        final int c = comparator.compare(e1.element, e2.element);
+        return c != 0 ? c : e1.getIndex() - e2.getIndex();
+    }
+
+    /**
+     * Where an entry belongs in the buffer.
+     */
+    private int bufferPosition(final Entry entry) {
+        int low = 0;
+        int high = buffer.size();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (compare((Entry)buffer.get(mid), entry) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Rebuild the buffer from a scan of the backing list.
+     * The buffered entries that are still the best are kept so they stay presented.
+     */
+    private void refill() {
+        final List delegate = getDelegate();
+        final Map old = new HashMap();
+        for (int i=0; i < buffer.size(); i++) {
+            final Entry entry = (Entry)buffer.get(i);
+            old.put(new Integer(entry.getIndex()), entry);
+        }
+        buffer.clear();
+        topChanged = true;
+        final int capacity = limit * 2;
+        // with a limit of zero nothing is buffered
+        for (int i=0; capacity > 0 && i < delegate.size(); i++) {
+            // reuse buffered entries so reconcile sees them as unchanged
+            Entry entry = (Entry)old.get(new Integer(i));
+            if (entry == null) {
+                entry = new Entry(i, delegate.get(i));
+            }
+            if (buffer.size() < capacity || compare(entry, (Entry)buffer.get(buffer.size() - 1)) < 0) {
+                buffer.add(bufferPosition(entry), entry);
+                trim();
+            }
+        }
+        outside = delegate.size() - buffer.size();
+    }
+
+    /**
+     * Drop the worst entries past the buffer's capacity.
+     */
+    private void trim() {
+        final int capacity = limit * 2;
+        while (buffer.size() > capacity) {
+            buffer.remove(buffer.size() - 1);
+            outside++;
+        }
+    }
+
+    /**
+     * Account for an element of the backing list that isn't in the buffer.
+     */
+    private void offer(final Entry entry) {
+        if (outside > 0 && (buffer.isEmpty() || compare(entry, (Entry)buffer.get(buffer.size() - 1)) > 0)) {
+            // elements outside the buffer might sort before this one
+            outside++;
+            return;
+        }
+        final int pos = bufferPosition(entry);
+        buffer.add(pos, entry);
+        topChanged |= pos < limit;
+        trim();
+    }
+
+    /**
+     * Make the presented entries the first <code>limit</code> buffered entries, firing the
+     * events to get there along with <code>events</code>, in a batch if there is more than one.
+     */
+    private void reconcile(final ListEvent cause, final List events) {
+        if (buffer.size() < limit && outside > 0) {
+            refill();
+        }
+        if (!topChanged && events.isEmpty()) {
+            // the usual case for changes outside the top N
+            return;
+        }
+        topChanged = false;
+        final List top = buffer.subList(0, Math.min(limit, buffer.size()));
+        final Set oldEntries = new HashSet(visible);
+        final Set newEntries = new HashSet(top);
+        final List changes = new ArrayList(); // of Object[] {Integer position, Entry or null to remove}
+        int pos = 0;
+        int o = 0;
+        int n = 0;
+        while (o < visible.size() || n < top.size()) {
+            if (o < visible.size() && !newEntries.contains(visible.get(o))) {
+                changes.add(new Object[] {new Integer(pos), null});
+                o++;
+            } else if (n < top.size() && !oldEntries.contains(top.get(n))) {
+                changes.add(new Object[] {new Integer(pos), top.get(n)});
+                pos++;
+                n++;
+            } else {
+                pos++;
+                o++;
+                n++;
+            }
+        }
+
+        final boolean batch = changes.size() + events.size() > 1;
+        if (batch) {
+            fireListEvent(cause != null ? ListEvent.createBatchStart(this, cause) : ListEvent.createBatchStart(this));
+        }
+        for (int i=0; i < changes.size(); i++) {
+            final Object[] change = (Object[])changes.get(i);
+            final int position = ((Integer)change[0]).intValue();
+            if (change[1] == null) {
+                visible.remove(position);
+                fireListEvent(ListEvent.createRemoved(this, position, cause));
+            } else {
+                visible.add(position, change[1]);
+                fireListEvent(ListEvent.createAdded(this, position, cause));
+            }
+        }
+        for (int i=0; i < events.size(); i++) {
+            fireListEvent((ListEvent)events.get(i));
+        }
+        if (batch) {
+            fireListEvent(cause != null ? ListEvent.createBatchEnd(this, cause) : ListEvent.createBatchEnd(this));
+        }
+    }
+
+    /**
+     * A buffered element and its position in the backing list.
+     */
+    private static class Entry extends Index {
+        private Object element;
+
+        Entry(final int index, final Object element) {
+            super(index);
+            this.element = element;
+        }
+    }
+
+    private class TopNListEventListener implements ViewListEventListener {
+        public EventList getView() {
+            return TopNEventListImpl.this;
+        }
+
+        public void listChanged(final ListEvent listEvent) {
+            final List events = new ArrayList();
+            if (listEvent.isAdded()) {
+                listChangedAdded(listEvent);
+
+            } else if (listEvent.isChanged()) {
+                listChangedChanged(listEvent, events);
+
+            } else if (listEvent.isRemoved()) {
+                listChangedRemoved(listEvent);
+
+            } else {
+                if (ListEvent.OTHER.equals(listEvent.getType())) {
+                    // anything could have changed, start over without events of our own
+                    buffer.clear();
+                    refill();
+                    visible.clear();
+                    visible.addAll(buffer.subList(0, Math.min(limit, buffer.size())));
+                }
+                fireListEvent(listEvent.resource(TopNEventListImpl.this));
+                return;
+            }
+            reconcile(listEvent, events);
+        }
+
+        private void listChangedAdded(final ListEvent listEvent) {
+            final int start = listEvent.getIndexStart();
+            final int end = listEvent.getIndexEnd();
+            for (int i=0; i < buffer.size(); i++) {
+                final Entry entry = (Entry)buffer.get(i);
+                if (entry.getIndex() >= start) {
+                    entry.add(end - start);
+                }
+            }
+            final List delegate = getDelegate();
+            for (int i=start; i < end; i++) {
+                offer(new Entry(i, delegate.get(i)));
+            }
+        }
+
+        private void listChangedRemoved(final ListEvent listEvent) {
+            final int start = listEvent.getIndexStart();
+            final int end = listEvent.getIndexEnd();
+            int removedOutside = end - start;
+            for (int i=buffer.size() - 1; i >= 0; i--) {
+                final Entry entry = (Entry)buffer.get(i);
+                if (entry.getIndex() >= end) {
+                    entry.sub(end - start);
+                } else if (entry.getIndex() >= start) {
+                    buffer.remove(i);
+                    topChanged |= i < limit;
+                    removedOutside--;
+                }
+            }
+            outside -= removedOutside;
+        }
+
+        private void listChangedChanged(final ListEvent listEvent, final List events) {
+            final String[] dependencies = comparator instanceof PropertyDependent ? ((PropertyDependent)comparator).getPropertyDependencies() : null;
+            final boolean reorder = listEvent.isAnyPropertyChanged(dependencies);
+            final List delegate = getDelegate();
+            for (int i=listEvent.getIndexStart(); i < listEvent.getIndexEnd(); i++) {
+                int pos = -1;
+                for (int b=0; b < buffer.size(); b++) {
+                    if (((Entry)buffer.get(b)).getIndex() == i) {
+                        pos = b;
+                        break;
+                    }
+                }
+                if (!reorder) {
+                    // same order, just tell anyone showing it
+                    if (pos >= 0) {
+                        final Entry entry = (Entry)buffer.get(pos);
+                        entry.element = delegate.get(i);
+                        final int visiblePos = visible.indexOf(entry);
+                        if (visiblePos >= 0) {
+                            events.add(ListEvent.createChanged(TopNEventListImpl.this, visiblePos, listEvent));
+                        }
+                    }
+                } else {
+                    if (pos >= 0) {
+                        buffer.remove(pos);
+                        topChanged |= pos < limit;
+                    } else {
+                        outside--;
+                    }
+                    offer(new Entry(i, delegate.get(i)));
+                }
+            }
+        }
+    }
+}
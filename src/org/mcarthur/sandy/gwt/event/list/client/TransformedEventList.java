@@ -25,7 +25,7 @@ import java.util.NoSuchElementException;
  * @author Sandy McArthur
  */
 public abstract class TransformedEventList extends AbstractEventList implements EventList {
-    private final EventList delegate;
+    private EventList delegate;
 
     protected TransformedEventList(final EventList delegate) {
         this.delegate = delegate;
@@ -36,9 +36,25 @@ public abstract class TransformedEventList extends AbstractEventList implements
      * @return the backing EventList.
      */
     protected EventList getDelegate() {
+        if (delegate == null) {
+            throw new IllegalStateException("detached.");
+        }
         return delegate;
     }
 
+    /**
+     * Forget the backing EventList.
+     * Subclasses that support {@link DetachableEventList#detach()} use this after they have
+     * removed their listener from the backing EventList.
+     *
+     * @return the backing EventList.
+     */
+    protected EventList releaseDelegate() {
+        final EventList old = getDelegate();
+        delegate = null;
+        return old;
+    }
+
     protected abstract int getSourceIndex(int mutationIndex);
 
     /**
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.client;
+
+/**
+ * A ListEventListener that keeps a view of another EventList up to date.
+ * Registering the listener this way lets an {@link AttachPolicy} and
+ * {@link EventLists#getViews(EventList)} know which view a listener belongs to.
+ *
+ * @author Sandy McArthur
+ */
+public interface ViewListEventListener extends ListEventListener {
+    /**
+     * The view this listener keeps up to date.
+     *
+     * @return the view this listener keeps up to date or <code>null</code> if it is no longer reachable.
+     */
+    public EventList getView();
+}
@@ -124,14 +124,24 @@ class WrappedEventList extends AbstractEventList implements EventList {
         return element;
     }
 
+    protected void removeRange(final int start, final int end) {
+        if (start < 0 || end > size() || start > end) {
+            throw new IndexOutOfBoundsException("start: " + start + ", end: " + end + ", size: " + size());
+        }
+        if (start < end) {
+            getDelegate().subList(start, end).clear();
+            fireListEvent(ListEvent.createRemoved(this, start, end));
+        }
+    }
+
     public boolean remove(final Object element) {
+        // one scan to find it, then remove by position instead of scanning again
         final int index = getDelegate().indexOf(element);
-        final boolean wasRemoved = getDelegate().remove(element);
-        // only fire an event when the list changed
-        if (wasRemoved) {
-            fireListEvent(ListEvent.createRemoved(this, index));
+        if (index >= 0) {
+            remove(index);
+            return true;
         }
-        return wasRemoved;
+        return false;
     }
 
     public boolean removeAll(final Collection c) {
@@ -209,6 +219,63 @@ class WrappedEventList extends AbstractEventList implements EventList {
         return toBeRemoved.size() > 0;
     }
 
+    /**
+     * Make this list's contents equal to <code>newContents</code> with as few changes as possible.
+     * Each differing region is fired as at most one CHANGED, one REMOVED and one ADDED event and
+     * when more than one event is needed they are wrapped in a batch.
+     *
+     * @param newContents the new contents of this list.
+     * @throws NullPointerException if <code>newContents</code> contains <code>null</code>.
+     * @see EventLists#replaceAll(EventList, List)
+     */
+    void replaceAll(final List newContents) throws NullPointerException {
+        checkNoneNull(newContents);
+        final List delegate = getDelegate();
+        final List hunks = ListDiff.diff(delegate, newContents);
+
+        int eventCount = 0;
+        Iterator iter = hunks.iterator();
+        while (iter.hasNext()) {
+            final ListDiff.Hunk hunk = (ListDiff.Hunk)iter.next();
+            final int oldSize = hunk.oldEnd - hunk.oldStart;
+            final int newSize = hunk.newEnd - hunk.newStart;
+            eventCount += (Math.min(oldSize, newSize) > 0 ? 1 : 0) + (oldSize != newSize ? 1 : 0);
+        }
+
+        if (eventCount > 1) {
+            fireListEvent(ListEvent.createBatchStart(this));
+        }
+        int shift = 0;
+        iter = hunks.iterator();
+        while (iter.hasNext()) {
+            final ListDiff.Hunk hunk = (ListDiff.Hunk)iter.next();
+            final int oldSize = hunk.oldEnd - hunk.oldStart;
+            final int newSize = hunk.newEnd - hunk.newStart;
+            final int changed = Math.min(oldSize, newSize);
+            final int start = hunk.oldStart + shift;
+
+            if (changed > 0) {
+                for (int i=0; i < changed; i++) {
+                    delegate.set(start + i, newContents.get(hunk.newStart + i));
+                }
+                fireListEvent(ListEvent.createChanged(this, start, start + changed));
+            }
+            if (oldSize > newSize) {
+                final int removeStart = start + changed;
+                delegate.subList(removeStart, start + oldSize).clear();
+                fireListEvent(ListEvent.createRemoved(this, removeStart, start + oldSize));
+            } else if (newSize > oldSize) {
+                final int addStart = start + changed;
+                delegate.addAll(addStart, newContents.subList(hunk.newStart + changed, hunk.newEnd));
+                fireListEvent(ListEvent.createAdded(this, addStart, start + newSize));
+            }
+            shift += newSize - oldSize;
+        }
+        if (eventCount > 1) {
+            fireListEvent(ListEvent.createBatchEnd(this));
+        }
+    }
+
     public Object set(final int index, final Object element) {
         final Object oldElement = getDelegate().set(index, element);
         fireListEvent(ListEvent.createChanged(this, index));
@@ -21,13 +21,17 @@ import org.mcarthur.sandy.gwt.event.list.client.EventList;
 import org.mcarthur.sandy.gwt.event.list.client.EventLists;
 import org.mcarthur.sandy.gwt.event.list.client.ListEvent;
 import org.mcarthur.sandy.gwt.event.list.client.ListEventListener;
+import org.mcarthur.sandy.gwt.event.property.client.NamedPropertyChangeSource;
 import org.mcarthur.sandy.gwt.event.property.client.PropertyChangeSource;
 
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 /**
  * An <code>EventList</code> that adds itself as a <code>PropertyChangeListener</code> to each
@@ -38,6 +42,31 @@ import java.util.Iterator;
  * a {@link ListEvent#CHANGED} event.
  *
  * <p>
+ * When only some properties matter, for example those a sort or filter depends on, give this
+ * list their names. Elements that implement {@link NamedPropertyChangeSource} are only observed
+ * for those properties and changes to other properties of other elements are ignored.
+ * </p>
+ *
+ * <p>
+ * A bean that updates several properties in a row fires an event for each. To avoid running
+ * each one through sorting, filtering and rendering the changes can be coalesced by giving
+ * this list a {@link FlushScheduler}. Changed beans are then remembered until the scheduler
+ * calls {@link #flush()} and one CHANGED event is fired for each run of adjacent changed beans.
+ * In GWT client code a scheduler that flushes after the current event has been handled is:
+ * </p>
+ * <pre>
+ * new ObservingEventList.FlushScheduler() {
+ *     public void scheduleFlush(final ObservingEventList list) {
+ *         DeferredCommand.add(new Command() {
+ *             public void execute() {
+ *                 list.flush();
+ *             }
+ *         });
+ *     }
+ * }
+ * </pre>
+ *
+ * <p>
  * This <code>EventList</code> is most useful when combined with a <code>EventList</code> view
  * implementation that can maintain a different ordering or present a subset of the elements this
  * list.
@@ -60,17 +89,145 @@ public final class ObservingEventList extends AbstractEventList implements Event
         }
     };
 
+    private final FlushScheduler flushScheduler;
+
+    /**
+     * The properties observed or <code>null</code> for all of them.
+     */
+    private final String[] propertyNames;
+
+    /**
+     * {@link DirtyBean}s for beans with property changes that haven't been fired yet,
+     * by {@link IdentityKey} of the bean.
+     */
+    private final Map dirty = new HashMap();
+
+    /**
+     * Fire a CHANGED event as soon as an element fires a property change.
+     */
     public ObservingEventList() {
+        this(null, null);
+    }
+
+    /**
+     * Coalesce property changes until <code>flushScheduler</code> calls {@link #flush()}.
+     *
+     * @param flushScheduler decides when coalesced changes are fired,
+     *      <code>null</code> to fire every property change immediately.
+     */
+    public ObservingEventList(final FlushScheduler flushScheduler) {
+        this(null, flushScheduler);
+    }
+
+    /**
+     * Fire a CHANGED event as soon as one of the named properties of an element changes.
+     *
+     * @param propertyNames the properties that matter, <code>null</code> for all of them.
+     */
+    public ObservingEventList(final String[] propertyNames) {
+        this(propertyNames, null);
+    }
+
+    /**
+     * Only observe the named properties and coalesce their changes until
+     * <code>flushScheduler</code> calls {@link #flush()}.
+     *
+     * @param propertyNames the properties that matter, <code>null</code> for all of them.
+     * @param flushScheduler decides when coalesced changes are fired,
+     *      <code>null</code> to fire every property change immediately.
+     */
+    public ObservingEventList(final String[] propertyNames, final FlushScheduler flushScheduler) {
+        if (propertyNames != null) {
+            this.propertyNames = new String[propertyNames.length];
+            for (int i=0; i < propertyNames.length; i++) {
+                if (propertyNames[i] == null) {
+                    throw new NullPointerException("null not allowed");
+                }
+                this.propertyNames[i] = propertyNames[i];
+            }
+        } else {
+            this.propertyNames = null;
+        }
+        this.flushScheduler = flushScheduler;
         delegate.addListEventListener(observingListEventListener);
     }
 
+    /**
+     * The properties observed.
+     *
+     * @return a copy of the names of the properties observed or <code>null</code> for all of them.
+     */
+    public String[] getPropertyNames() {
+        if (propertyNames == null) {
+            return null;
+        }
+        final String[] copy = new String[propertyNames.length];
+        for (int i=0; i < propertyNames.length; i++) {
+            copy[i] = propertyNames[i];
+        }
+        return copy;
+    }
+
+    /**
+     * Fire CHANGED events for the elements whose properties changed since the last flush.
+     * Adjacent changed elements are reported with one event. Does nothing when changes aren't
+     * being coalesced.
+     */
+    public void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        // one pass finds every dirty bean, instead of a search for each of them
+        final List events = new ArrayList();
+        final int size = size();
+        int runStart = -1;
+        List properties = null;
+        for (int i=0; i <= size; i++) {
+            final DirtyBean dirtyBean = i < size ? (DirtyBean)dirty.get(new IdentityKey(get(i))) : null;
+            if (dirtyBean != null) {
+                if (runStart < 0) {
+                    runStart = i;
+                    properties = new ArrayList();
+                }
+                properties = DirtyBean.union(properties, dirtyBean.properties);
+            } else if (runStart >= 0) {
+                // one event for each run of adjacent beans
+                final String[] changed = properties != null ? (String[])properties.toArray(new String[properties.size()]) : null;
+                events.add(ListEvent.createPropertyChanged(this, runStart, i, changed));
+                runStart = -1;
+            }
+        }
+        dirty.clear();
+
+        final boolean batch = events.size() > 1;
+        if (batch) {
+            fireListEvent(ListEvent.createBatchStart(this));
+        }
+        for (int i=0; i < events.size(); i++) {
+            fireListEvent((ListEvent)events.get(i));
+        }
+        if (batch) {
+            fireListEvent(ListEvent.createBatchEnd(this));
+        }
+    }
+
+    private int indexOfIdentity(final Object element) {
+        final int size = size();
+        for (int i=0; i < size; i++) {
+            if (element == get(i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     /**
      * @throws IllegalArgumentException when <code>element</code> does not implement {@link PropertyChangeSource}.
      */
     public boolean add(final Object element) throws IllegalArgumentException {
         checkType(element);
         if (delegate.add(element)) {
-            ((PropertyChangeSource)element).addPropertyChangeListener(pcl);
+            observe(element);
             return true;
         }
         return false;
@@ -82,7 +239,7 @@ public final class ObservingEventList extends AbstractEventList implements Event
     public void add(final int index, final Object element) throws IllegalArgumentException {
         checkType(element);
         delegate.add(index, element);
-        ((PropertyChangeSource)element).addPropertyChangeListener(pcl);
+        observe(element);
     }
 
     /**
@@ -120,7 +277,7 @@ public final class ObservingEventList extends AbstractEventList implements Event
     public boolean remove(final Object element) {
         final boolean changed = delegate.remove(element);
         if (changed) {
-            ((PropertyChangeSource)element).removePropertyChangeListener(pcl);
+            unobserve(element);
         }
         return changed;
     }
@@ -128,7 +285,7 @@ public final class ObservingEventList extends AbstractEventList implements Event
     public Object remove(final int index) {
         final Object element = delegate.remove(index);
         if (element != null) {
-            ((PropertyChangeSource)element).removePropertyChangeListener(pcl);
+            unobserve(element);
         }
         return element;
     }
@@ -147,8 +304,8 @@ public final class ObservingEventList extends AbstractEventList implements Event
 
     public Object set(final int index, final Object element) {
         final Object removed = delegate.set(index, element);
-        ((PropertyChangeSource)removed).removePropertyChangeListener(pcl);
-        ((PropertyChangeSource)element).addPropertyChangeListener(pcl);
+        unobserve(removed);
+        observe(element);
         return removed;
     }
 
@@ -156,6 +313,44 @@ public final class ObservingEventList extends AbstractEventList implements Event
         return delegate.size();
     }
 
+    private void observe(final Object element) {
+        if (propertyNames != null && element instanceof NamedPropertyChangeSource) {
+            final NamedPropertyChangeSource source = (NamedPropertyChangeSource)element;
+            for (int i=0; i < propertyNames.length; i++) {
+                source.addPropertyChangeListener(propertyNames[i], pcl);
+            }
+        } else {
+            ((PropertyChangeSource)element).addPropertyChangeListener(pcl);
+        }
+    }
+
+    private void unobserve(final Object element) {
+        if (propertyNames != null && element instanceof NamedPropertyChangeSource) {
+            final NamedPropertyChangeSource source = (NamedPropertyChangeSource)element;
+            for (int i=0; i < propertyNames.length; i++) {
+                source.removePropertyChangeListener(propertyNames[i], pcl);
+            }
+        } else {
+            ((PropertyChangeSource)element).removePropertyChangeListener(pcl);
+        }
+    }
+
+    /**
+     * Does a change to <code>propertyName</code> matter.
+     * A <code>null</code> name means an unknown set of properties changed so it always matters.
+     */
+    private boolean isObserved(final String propertyName) {
+        if (propertyNames == null || propertyName == null) {
+            return true;
+        }
+        for (int i=0; i < propertyNames.length; i++) {
+            if (propertyNames[i].equals(propertyName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private static void checkType(final Object element) {
         if (!(element instanceof PropertyChangeSource)) {
             throw new IllegalArgumentException("element must implement PropertyChangeSource");
@@ -176,7 +371,7 @@ public final class ObservingEventList extends AbstractEventList implements Event
             while (iter.hasNext()) {
                 final Object element = iter.next();
                 if (contains(element)) {
-                    ((PropertyChangeSource)element).addPropertyChangeListener(pcl);
+                    observe(element);
                 }
             }
         }
@@ -189,7 +384,7 @@ public final class ObservingEventList extends AbstractEventList implements Event
             while (iter.hasNext()) {
                 final Object element = iter.next();
                 if (!contains(element)) {
-                    ((PropertyChangeSource)element).removePropertyChangeListener(pcl);
+                    unobserve(element);
                 }
             }
         }
@@ -198,14 +393,93 @@ public final class ObservingEventList extends AbstractEventList implements Event
 
     private class PropertyChangeEventListListener implements PropertyChangeListener {
         public void propertyChange(final PropertyChangeEvent evt) {
+            if (!isObserved(evt.getPropertyName())) {
+                // beans that only support listening to every property
+                return;
+            }
             final Object o = evt.getSource();
-            final int size = size();
-            for (int i=0; i < size; i++) {
-                if (o == get(i)) {
-                    fireListEvent(ListEvent.createChanged(ObservingEventList.this, i));
-                    break;
+            final String propertyName = evt.getPropertyName();
+            if (flushScheduler != null) {
+                final IdentityKey key = new IdentityKey(o);
+                DirtyBean dirtyBean = (DirtyBean)dirty.get(key);
+                if (dirtyBean == null) {
+                    dirtyBean = new DirtyBean();
+                    dirty.put(key, dirtyBean);
+                    if (dirty.size() == 1) {
+                        flushScheduler.scheduleFlush(ObservingEventList.this);
+                    }
                 }
+                dirtyBean.changed(propertyName);
+                return;
+            }
+            final int index = indexOfIdentity(o);
+            if (index >= 0) {
+                fireListEvent(ListEvent.createPropertyChanged(ObservingEventList.this, index, index + 1, new String[] {propertyName}));
             }
         }
     }
+
+    /**
+     * A bean with coalesced property changes.
+     */
+    private static class DirtyBean {
+        /** Names of the changed properties, <code>null</code> when an unknown property changed. */
+        private List properties = new ArrayList();
+
+        void changed(final String propertyName) {
+            if (propertyName == null) {
+                properties = null;
+            } else if (properties != null && !properties.contains(propertyName)) {
+                properties.add(propertyName);
+            }
+        }
+
+        /**
+         * Add the names in <code>more</code> to <code>names</code>.
+         * @return the union, <code>null</code> if either is unknown.
+         */
+        static List union(final List names, final List more) {
+            if (names == null || more == null) {
+                return null;
+            }
+            for (int i=0; i < more.size(); i++) {
+                if (!names.contains(more.get(i))) {
+                    names.add(more.get(i));
+                }
+            }
+            return names;
+        }
+    }
+
+    /**
+     * Compares beans by identity, they may override equals.
+     */
+    private static class IdentityKey {
+        private final Object bean;
+
+        IdentityKey(final Object bean) {
+            this.bean = bean;
+        }
+
+        public boolean equals(final Object obj) {
+            return obj instanceof IdentityKey && ((IdentityKey)obj).bean == bean;
+        }
+
+        public int hashCode() {
+            return System.identityHashCode(bean);
+        }
+    }
+
+    /**
+     * Decides when an {@link ObservingEventList} fires the property changes it has coalesced.
+     */
+    public static interface FlushScheduler {
+        /**
+         * Arrange for {@link ObservingEventList#flush()} to be called on <code>list</code> soon,
+         * typically once the current event has been handled. Called once per batch of changes.
+         *
+         * @param list the list to flush.
+         */
+        public void scheduleFlush(ObservingEventList list);
+    }
 }
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.property.server;
+
+import org.mcarthur.sandy.gwt.event.list.property.client.ObservingEventList;
+
+import java.util.concurrent.Executor;
+
+/**
+ * A {@link ObservingEventList.FlushScheduler} that flushes coalesced property changes with an
+ * {@link Executor}. Event lists aren't thread safe so use an executor that runs tasks on the
+ * thread that owns the list, for example the Swing event dispatch thread or a single thread
+ * executor that all changes to the list go through.
+ *
+ * @author Sandy McArthur
+ */
+public class ExecutorFlushScheduler implements ObservingEventList.FlushScheduler {
+    private final Executor executor;
+
+    /**
+     * @param executor runs the flushes.
+     */
+    public ExecutorFlushScheduler(final Executor executor) {
+        if (executor == null) {
+            throw new NullPointerException("executor must not be null.");
+        }
+        this.executor = executor;
+    }
+
+    public void scheduleFlush(final ObservingEventList list) {
+        executor.execute(new Runnable() {
+            public void run() {
+                list.flush();
+            }
+        });
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.server;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Writes and reads the elements of an EventList for an {@link EventLogRecorder} and
+ * {@link EventLogReplayer}.
+ *
+ * @author Sandy McArthur
+ */
+public interface ElementCodec {
+    /**
+     * Codec for {@link Integer} elements, written as zig-zag varints so small values of either
+     * sign take one byte.
+     */
+    public static final ElementCodec INTEGER = new ElementCodec() {
+        public void write(final DataOutput out, final Object element) throws IOException {
+            final int value = ((Integer)element).intValue();
+            EventLog.writeVarint(out, (value << 1) ^ (value >> 31));
+        }
+
+        public Object read(final DataInput in) throws IOException {
+            final int zigzag = EventLog.readVarint(in);
+            return new Integer((zigzag >>> 1) ^ -(zigzag & 1));
+        }
+    };
+
+    /**
+     * Codec for {@link String} elements.
+     */
+    public static final ElementCodec STRING = new ElementCodec() {
+        public void write(final DataOutput out, final Object element) throws IOException {
+            out.writeUTF((String)element);
+        }
+
+        public Object read(final DataInput in) throws IOException {
+            return in.readUTF();
+        }
+    };
+
+    /**
+     * Write one element.
+     *
+     * @param out where to write.
+     * @param element the element to write.
+     * @throws IOException if writing fails.
+     */
+    public void write(DataOutput out, Object element) throws IOException;
+
+    /**
+     * Read one element written by {@link #write(DataOutput, Object)}.
+     *
+     * @param in where to read from.
+     * @return the element.
+     * @throws IOException if reading fails.
+     */
+    public Object read(DataInput in) throws IOException;
+}
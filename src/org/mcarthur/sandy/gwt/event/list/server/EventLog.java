@@ -0,0 +1,71 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.server;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Format of the binary event log shared by {@link EventLogRecorder} and {@link EventLogReplayer}.
+ * <p>
+ * A log starts with {@link #MAGIC} and {@link #VERSION}. Each record is a type byte and, for
+ * ADDED, CHANGED and REMOVED, the start index and length as varints. ADDED and CHANGED records
+ * are followed by their elements as written by the {@link ElementCodec}. {@link #END} marks the
+ * end of the log.
+ * </p>
+ *
+ * @author Sandy McArthur
+ */
+final class EventLog {
+    static final int MAGIC = 0x454C4F47; // "ELOG"
+    static final int VERSION = 1;
+
+    static final int ADDED = 0;
+    static final int CHANGED = 1;
+    static final int REMOVED = 2;
+    static final int BATCH_START = 3;
+    static final int BATCH_END = 4;
+    static final int OTHER = 5;
+    static final int END = 0xFF;
+
+    private EventLog() {
+    }
+
+    /**
+     * Write a non-negative int 7 bits at a time, low bits first.
+     */
+    static void writeVarint(final DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarint(final DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            final int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint.");
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.server;
+
+import org.mcarthur.sandy.gwt.event.list.client.EventList;
+import org.mcarthur.sandy.gwt.event.list.client.ListEvent;
+import org.mcarthur.sandy.gwt.event.list.client.ListEventListener;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Records the changes to an EventList as a compact binary log that an {@link EventLogReplayer}
+ * can play back against another EventList. The log starts with the current contents of the
+ * list so the replay target should start empty.
+ *
+ * <pre>
+ * final EventLogRecorder recorder = new EventLogRecorder(list, out, ElementCodec.STRING);
+ * ... use list ...
+ * recorder.detach();
+ * </pre>
+ *
+ * <p>
+ * Listeners can't throw checked exceptions so when writing fails recording stops and the
+ * exception is thrown from {@link #detach()}.
+ * </p>
+ *
+ * @author Sandy McArthur
+ */
+public class EventLogRecorder {
+    private EventList source;
+    private final DataOutputStream out;
+    private final ElementCodec codec;
+    private final ListEventListener listener = new RecordingListEventListener();
+    private IOException failure;
+    private int recordCount = 0;
+
+    /**
+     * Start recording.
+     *
+     * @param source the list to record.
+     * @param out where to write the log, not closed by this recorder.
+     * @param codec writes the elements.
+     * @throws IOException if the log header or the initial contents can't be written.
+     */
+    public EventLogRecorder(final EventList source, final OutputStream out, final ElementCodec codec) throws IOException {
+        if (source == null || out == null || codec == null) {
+            throw new NullPointerException("null not allowed");
+        }
+        this.source = source;
+        this.out = new DataOutputStream(out);
+        this.codec = codec;
+
+        this.out.writeInt(EventLog.MAGIC);
+        EventLog.writeVarint(this.out, EventLog.VERSION);
+        if (!source.isEmpty()) {
+            writeElements(EventLog.ADDED, 0, source.size());
+        }
+        source.addListEventListener(listener);
+    }
+
+    /**
+     * The number of records written, including the initial contents.
+     *
+     * @return the number of records written so far.
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Stop recording, mark the end of the log and flush it.
+     *
+     * @throws IOException if writing failed at any point while recording.
+     */
+    public void detach() throws IOException {
+        if (source == null) {
+            throw new IllegalStateException("detached.");
+        }
+        source.removeListEventListener(listener);
+        source = null;
+        if (failure == null) {
+            try {
+                out.writeByte(EventLog.END);
+                out.flush();
+            } catch (IOException ioe) {
+                failure = ioe;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void writeElements(final int type, final int start, final int end) throws IOException {
+        out.writeByte(type);
+        EventLog.writeVarint(out, start);
+        EventLog.writeVarint(out, end - start);
+        for (int i=start; i < end; i++) {
+            codec.write(out, source.get(i));
+        }
+        recordCount++;
+    }
+
+    private void write(final ListEvent listEvent) throws IOException {
+        if (listEvent.isAdded()) {
+            writeElements(EventLog.ADDED, listEvent.getIndexStart(), listEvent.getIndexEnd());
+
+        } else if (listEvent.isChanged()) {
+            writeElements(EventLog.CHANGED, listEvent.getIndexStart(), listEvent.getIndexEnd());
+
+        } else if (listEvent.isRemoved()) {
+            out.writeByte(EventLog.REMOVED);
+            EventLog.writeVarint(out, listEvent.getIndexStart());
+            EventLog.writeVarint(out, listEvent.getIndexEnd() - listEvent.getIndexStart());
+            recordCount++;
+
+        } else if (listEvent.isBatchStart()) {
+            out.writeByte(EventLog.BATCH_START);
+            recordCount++;
+
+        } else if (listEvent.isBatchEnd()) {
+            out.writeByte(EventLog.BATCH_END);
+            recordCount++;
+
+        } else {
+            out.writeByte(EventLog.OTHER);
+            recordCount++;
+        }
+    }
+
+    private class RecordingListEventListener implements ListEventListener {
+        public void listChanged(final ListEvent listEvent) {
+            if (failure == null) {
+                try {
+                    write(listEvent);
+                } catch (IOException ioe) {
+                    failure = ioe;
+                    source.removeListEventListener(this);
+                }
+            }
+        }
+    }
+}
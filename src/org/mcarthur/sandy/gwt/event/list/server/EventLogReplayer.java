@@ -0,0 +1,153 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.server;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Plays back a log written by an {@link EventLogRecorder}.
+ * The whole log is decoded when this is constructed so the same session can be replayed
+ * many times, for example against different pipelines of filtered, sorted and ranged views,
+ * without decoding costs muddying the comparison.
+ *
+ * <pre>
+ * final EventLogReplayer replayer = new EventLogReplayer(in, ElementCodec.STRING);
+ * final EventList source = EventLists.eventList();
+ * final SortedEventList sorted = EventLists.sortedEventList(source);
+ * final long millis = replayer.replay(source);
+ * </pre>
+ *
+ * @author Sandy McArthur
+ */
+public class EventLogReplayer {
+    private final List records = new ArrayList();
+    private int mutationCount = 0;
+
+    /**
+     * Decode a log.
+     *
+     * @param in the log, read until the end marker but not closed.
+     * @param codec reads the elements.
+     * @throws IOException if the log can't be read or isn't an event log.
+     */
+    public EventLogReplayer(final InputStream in, final ElementCodec codec) throws IOException {
+        if (in == null || codec == null) {
+            throw new NullPointerException("null not allowed");
+        }
+        final DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != EventLog.MAGIC) {
+            throw new IOException("Not an event log.");
+        }
+        final int version = EventLog.readVarint(data);
+        if (version != EventLog.VERSION) {
+            throw new IOException("Unsupported event log version: " + version);
+        }
+
+        int type;
+        while ((type = data.readUnsignedByte()) != EventLog.END) {
+            final Record record;
+            switch (type) {
+                case EventLog.ADDED:
+                case EventLog.CHANGED:
+                    record = new Record(type, EventLog.readVarint(data), EventLog.readVarint(data));
+                    record.elements = new Object[record.length];
+                    for (int i=0; i < record.length; i++) {
+                        record.elements[i] = codec.read(data);
+                    }
+                    mutationCount++;
+                    break;
+                case EventLog.REMOVED:
+                    record = new Record(type, EventLog.readVarint(data), EventLog.readVarint(data));
+                    mutationCount++;
+                    break;
+                case EventLog.BATCH_START:
+                case EventLog.BATCH_END:
+                case EventLog.OTHER:
+                    record = new Record(type, 0, 0);
+                    break;
+                default:
+                    throw new IOException("Unknown record type: " + type);
+            }
+            records.add(record);
+        }
+    }
+
+    /**
+     * The number of records in the log, including batch markers and OTHER events.
+     *
+     * @return the number of records.
+     */
+    public int getRecordCount() {
+        return records.size();
+    }
+
+    /**
+     * The number of records that change the contents of the list.
+     *
+     * @return the number of ADDED, CHANGED and REMOVED records.
+     */
+    public int getMutationCount() {
+        return mutationCount;
+    }
+
+    /**
+     * Apply the recorded changes to <code>target</code>, which should start out empty.
+     * The target fires its own events for the changes so their granularity may differ from
+     * the recorded events, batch markers and OTHER events aren't reproduced.
+     *
+     * @param target the list to apply the changes to.
+     * @return the time it took in milliseconds.
+     */
+    public long replay(final List target) {
+        final long start = System.currentTimeMillis();
+        for (int i=0; i < records.size(); i++) {
+            final Record record = (Record)records.get(i);
+            switch (record.type) {
+                case EventLog.ADDED:
+                    target.addAll(record.start, Arrays.asList(record.elements));
+                    break;
+                case EventLog.CHANGED:
+                    for (int j=0; j < record.length; j++) {
+                        target.set(record.start + j, record.elements[j]);
+                    }
+                    break;
+                case EventLog.REMOVED:
+                    target.subList(record.start, record.start + record.length).clear();
+                    break;
+            }
+        }
+        return System.currentTimeMillis() - start;
+    }
+
+    private static class Record {
+        private final int type;
+        private final int start;
+        private final int length;
+        private Object[] elements;
+
+        Record(final int type, final int start, final int length) {
+            this.type = type;
+            this.start = start;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.server;
+
+import org.mcarthur.sandy.gwt.event.list.client.ExpiringEventList;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ExpiringEventList.ExpiryScheduler} that expires elements with a
+ * {@link ScheduledExecutorService}. Event lists aren't thread safe so use a single thread
+ * executor that all changes to the list go through.
+ *
+ * @author Sandy McArthur
+ */
+public class ExecutorExpiryScheduler implements ExpiringEventList.ExpiryScheduler {
+    private final ScheduledExecutorService executor;
+
+    /**
+     * @param executor runs the expiries.
+     */
+    public ExecutorExpiryScheduler(final ScheduledExecutorService executor) {
+        if (executor == null) {
+            throw new NullPointerException("executor must not be null.");
+        }
+        this.executor = executor;
+    }
+
+    public void scheduleExpiry(final ExpiringEventList list, final long delayMillis) {
+        executor.schedule(new Runnable() {
+            public void run() {
+                list.expire();
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,528 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.server;
+
+import org.mcarthur.sandy.gwt.event.list.client.AbstractEventList;
+import org.mcarthur.sandy.gwt.event.list.client.EventList;
+import org.mcarthur.sandy.gwt.event.list.client.ListEvent;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * A durable EventList. Every change is appended to a memory-mapped journal before it is made
+ * and the journal is folded into a snapshot file from time to time. Opening the list maps the
+ * snapshot and replays the journal written since, so a restart costs reading the snapshot and
+ * the journal tail instead of rebuilding the list from upstream data.
+ *
+ * <pre>
+ * final JournaledEventList quotes = new JournaledEventList(new File("data/quotes"), codec);
+ * final SortedEventList sorted = EventLists.sortedEventList(quotes);
+ * ...
+ * quotes.close();
+ * </pre>
+ *
+ * <p>
+ * A change costs encoding it and copying it into the mapped journal. The journal is forced
+ * to disk every <code>forceInterval</code> changes and by {@link #force()}, changes after
+ * the last force may be lost if the machine crashes, though not if only the process dies.
+ * A torn record at the end of the journal is detected by its checksum and dropped.
+ * </p>
+ *
+ * <p>
+ * List methods can't throw checked exceptions so when the journal can't be written the change
+ * isn't made and an IllegalStateException caused by the IOException is thrown.
+ * <code>null</code> elements aren't allowed. Like other EventLists this isn't thread safe.
+ * </p>
+ *
+ * @author Sandy McArthur
+ */
+public class JournaledEventList extends AbstractEventList implements EventList {
+    static final int SNAPSHOT_MAGIC = 0x45534E50; // "ESNP"
+    static final int JOURNAL_MAGIC = 0x454A524E; // "EJRN"
+    static final int VERSION = 1;
+
+    /**
+     * Magic, version and generation.
+     */
+    static final int JOURNAL_HEADER = 16;
+
+    /**
+     * Length and checksum before each journal record.
+     */
+    private static final int RECORD_HEADER = 8;
+
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+
+    private final List elements = new ArrayList();
+    private final File snapshotFile;
+    private final File journalFile;
+    private final ElementCodec codec;
+    private final int forceInterval;
+    private final int compactThreshold;
+
+    private RandomAccessFile journalRaf;
+    private FileChannel journalChannel;
+    private MappedByteBuffer journal;
+    private int journalEnd;
+    private int journalRecords = 0;
+    private int unforced = 0;
+
+    /**
+     * The snapshot the journal applies to.
+     */
+    private long generation;
+
+    private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+    private final DataOutputStream recordOut = new DataOutputStream(recordBytes);
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Open or create a journaled list that forces every 1000 changes and compacts when the
+     * journal passes 4 MB.
+     *
+     * @param directory where the snapshot and journal files are kept, created if needed.
+     * @param codec writes and reads the elements.
+     * @throws IOException if the files can't be created or read.
+     */
+    public JournaledEventList(final File directory, final ElementCodec codec) throws IOException {
+        this(directory, codec, 1000, 4 * 1024 * 1024);
+    }
+
+    /**
+     * Open or create a journaled list.
+     *
+     * @param directory where the snapshot and journal files are kept, created if needed.
+     * @param codec writes and reads the elements.
+     * @param forceInterval force the journal to disk after this many changes, zero to only
+     *      force when {@link #force()} is called.
+     * @param compactThreshold compact when the journal grows past this many bytes, zero to only
+     *      compact when {@link #compact()} is called.
+     * @throws IOException if the files can't be created or read.
+     */
+    public JournaledEventList(final File directory, final ElementCodec codec, final int forceInterval, final int compactThreshold) throws IOException {
+        if (directory == null || codec == null) {
+            throw new NullPointerException("null not allowed");
+        }
+        if (forceInterval < 0 || compactThreshold < 0) {
+            throw new IllegalArgumentException("forceInterval and compactThreshold must not be negative.");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create directory: " + directory);
+        }
+        this.snapshotFile = new File(directory, "snapshot");
+        this.journalFile = new File(directory, "journal");
+        this.codec = codec;
+        this.forceInterval = forceInterval;
+        this.compactThreshold = compactThreshold;
+
+        readSnapshot();
+        openJournal();
+    }
+
+    public Object get(final int index) {
+        return elements.get(index);
+    }
+
+    public int size() {
+        return elements.size();
+    }
+
+    public void add(final int index, final Object element) {
+        if (index < 0 || index > elements.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + elements.size());
+        }
+        checkNotNull(element);
+        final List added = new ArrayList(1);
+        added.add(element);
+        append(EventLog.ADDED, index, added);
+        elements.add(index, element);
+        fireListEvent(ListEvent.createAdded(this, index));
+        afterChange();
+    }
+
+    public boolean addAll(final Collection c) {
+        return addAll(elements.size(), c);
+    }
+
+    public boolean addAll(final int index, final Collection c) {
+        if (index < 0 || index > elements.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + elements.size());
+        }
+        final List added = new ArrayList(c);
+        if (added.isEmpty()) {
+            return false;
+        }
+        for (int i=0; i < added.size(); i++) {
+            checkNotNull(added.get(i));
+        }
+        append(EventLog.ADDED, index, added);
+        elements.addAll(index, added);
+        fireListEvent(ListEvent.createAdded(this, index, index + added.size()));
+        afterChange();
+        return true;
+    }
+
+    public Object set(final int index, final Object element) {
+        if (index < 0 || index >= elements.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + elements.size());
+        }
+        checkNotNull(element);
+        final List changed = new ArrayList(1);
+        changed.add(element);
+        append(EventLog.CHANGED, index, changed);
+        final Object old = elements.set(index, element);
+        fireListEvent(ListEvent.createChanged(this, index));
+        afterChange();
+        return old;
+    }
+
+    public Object remove(final int index) {
+        if (index < 0 || index >= elements.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + elements.size());
+        }
+        appendRemoved(index, 1);
+        final Object old = elements.remove(index);
+        fireListEvent(ListEvent.createRemoved(this, index));
+        afterChange();
+        return old;
+    }
+
+    protected void removeRange(final int start, final int end) {
+        if (start < 0 || end > elements.size() || start > end) {
+            throw new IndexOutOfBoundsException("start: " + start + ", end: " + end + ", size: " + elements.size());
+        }
+        if (start < end) {
+            appendRemoved(start, end - start);
+            elements.subList(start, end).clear();
+            fireListEvent(ListEvent.createRemoved(this, start, end));
+            afterChange();
+        }
+    }
+
+    public void clear() {
+        removeRange(0, elements.size());
+    }
+
+    /**
+     * The number of changes in the journal, which is what has to be replayed when the list is
+     * opened again.
+     *
+     * @return the number of changes since the last compaction.
+     */
+    public int getJournalRecordCount() {
+        return journalRecords;
+    }
+
+    /**
+     * Force the journal to disk.
+     *
+     * @throws IOException if forcing fails.
+     */
+    public void force() throws IOException {
+        checkOpen();
+        journal.force();
+        unforced = 0;
+    }
+
+    /**
+     * Write the contents of the list to a new snapshot and empty the journal.
+     *
+     * @throws IOException if the snapshot can't be written, the previous snapshot and the
+     *      journal are still good if so.
+     */
+    public void compact() throws IOException {
+        checkOpen();
+        final long next = generation + 1;
+        final File tmp = new File(snapshotFile.getPath() + ".tmp");
+        final FileOutputStream fos = new FileOutputStream(tmp);
+        try {
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(next);
+            out.writeInt(elements.size());
+            for (int i=0; i < elements.size(); i++) {
+                codec.write(out, elements.get(i));
+            }
+            out.flush();
+            fos.getFD().sync();
+        } finally {
+            fos.close();
+        }
+        if (!tmp.renameTo(snapshotFile)) {
+            // some platforms won't rename over an existing file
+            snapshotFile.delete();
+            if (!tmp.renameTo(snapshotFile)) {
+                throw new IOException("Can't replace snapshot: " + snapshotFile);
+            }
+        }
+
+        // the journal is for the previous generation so it is ignored from here on
+        generation = next;
+        resetJournal();
+    }
+
+    /**
+     * Force the journal to disk and release the files. Using the list afterwards throws an
+     * IllegalStateException.
+     *
+     * @throws IOException if forcing or closing fails.
+     */
+    public void close() throws IOException {
+        checkOpen();
+        journal.force();
+        journal = null;
+        journalChannel.close();
+        journalRaf.close();
+    }
+
+    private void readSnapshot() throws IOException {
+        generation = 0;
+        if (!snapshotFile.exists()) {
+            return;
+        }
+        final RandomAccessFile raf = new RandomAccessFile(snapshotFile, "r");
+        try {
+            final FileChannel channel = raf.getChannel();
+            final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            final DataInputStream in = new DataInputStream(new ByteBufferInputStream(mapped));
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a snapshot: " + snapshotFile);
+            }
+            final int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version: " + version);
+            }
+            generation = in.readLong();
+            final int count = in.readInt();
+            elements.clear();
+            for (int i=0; i < count; i++) {
+                elements.add(codec.read(in));
+            }
+        } finally {
+            raf.close();
+        }
+    }
+
+    private void openJournal() throws IOException {
+        final boolean existed = journalFile.exists();
+        journalRaf = new RandomAccessFile(journalFile, "rw");
+        journalChannel = journalRaf.getChannel();
+        map((int)Math.max(INITIAL_CAPACITY, journalChannel.size()));
+
+        if (!existed || journal.getInt(0) != JOURNAL_MAGIC || journal.getInt(4) != VERSION || journal.getLong(8) != generation) {
+            // new, or left over from before the last compaction and already in the snapshot
+            journalEnd = journal.capacity();
+            resetJournal();
+            return;
+        }
+
+        journalEnd = JOURNAL_HEADER;
+        while (journalEnd + RECORD_HEADER <= journal.capacity()) {
+            final int length = journal.getInt(journalEnd);
+            if (length <= 0 || journalEnd + RECORD_HEADER + length > journal.capacity()) {
+                break;
+            }
+            final byte[] body = new byte[length];
+            journal.position(journalEnd + RECORD_HEADER);
+            journal.get(body);
+            crc.reset();
+            crc.update(body, 0, length);
+            if ((int)crc.getValue() != journal.getInt(journalEnd + 4)) {
+                // torn write
+                break;
+            }
+            replay(body);
+            journalEnd += RECORD_HEADER + length;
+            journalRecords++;
+        }
+        // clear whatever is past the last good record so it can't be mistaken for a record later
+        zero(journalEnd, journal.capacity());
+        journal.force();
+    }
+
+    private void replay(final byte[] body) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteBufferInputStream(ByteBuffer.wrap(body)));
+        final int type = in.readUnsignedByte();
+        final int start = EventLog.readVarint(in);
+        final int count = EventLog.readVarint(in);
+        switch (type) {
+            case EventLog.ADDED:
+                final List added = new ArrayList(count);
+                for (int i=0; i < count; i++) {
+                    added.add(codec.read(in));
+                }
+                elements.addAll(start, added);
+                break;
+            case EventLog.CHANGED:
+                for (int i=0; i < count; i++) {
+                    elements.set(start + i, codec.read(in));
+                }
+                break;
+            case EventLog.REMOVED:
+                elements.subList(start, start + count).clear();
+                break;
+            default:
+                throw new IOException("Unknown journal record type: " + type);
+        }
+    }
+
+    private void resetJournal() throws IOException {
+        // old records must be gone before the header says they belong to the new snapshot
+        zero(JOURNAL_HEADER, Math.max(JOURNAL_HEADER, journalEnd));
+        journal.force();
+        journal.putInt(0, JOURNAL_MAGIC);
+        journal.putInt(4, VERSION);
+        journal.putLong(8, generation);
+        journal.force();
+        journalEnd = JOURNAL_HEADER;
+        journalRecords = 0;
+        unforced = 0;
+    }
+
+    private void map(final int capacity) throws IOException {
+        journal = journalChannel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private void zero(final int start, final int end) {
+        for (int i=start; i < end; i++) {
+            journal.put(i, (byte)0);
+        }
+    }
+
+    private void append(final int type, final int start, final List elements) {
+        checkOpen();
+        try {
+            recordBytes.reset();
+            recordOut.writeByte(type);
+            EventLog.writeVarint(recordOut, start);
+            EventLog.writeVarint(recordOut, elements.size());
+            for (int i=0; i < elements.size(); i++) {
+                codec.write(recordOut, elements.get(i));
+            }
+            appendRecord();
+        } catch (IOException ioe) {
+            final IllegalStateException ise = new IllegalStateException("Can't write journal: " + ioe.getMessage());
+            ise.initCause(ioe);
+            throw ise;
+        }
+    }
+
+    private void appendRemoved(final int start, final int count) {
+        checkOpen();
+        try {
+            recordBytes.reset();
+            recordOut.writeByte(EventLog.REMOVED);
+            EventLog.writeVarint(recordOut, start);
+            EventLog.writeVarint(recordOut, count);
+            appendRecord();
+        } catch (IOException ioe) {
+            final IllegalStateException ise = new IllegalStateException("Can't write journal: " + ioe.getMessage());
+            ise.initCause(ioe);
+            throw ise;
+        }
+    }
+
+    private void appendRecord() throws IOException {
+        recordOut.flush();
+        final byte[] body = recordBytes.toByteArray();
+        final int needed = RECORD_HEADER + body.length;
+        if (journalEnd + needed > journal.capacity()) {
+            journal.force();
+            map(Math.max(journal.capacity() * 2, journalEnd + needed));
+        }
+        crc.reset();
+        crc.update(body, 0, body.length);
+        journal.position(journalEnd + RECORD_HEADER);
+        journal.put(body);
+        journal.putInt(journalEnd + 4, (int)crc.getValue());
+        // the length goes in last, until then the record doesn't exist
+        journal.putInt(journalEnd, body.length);
+        journalEnd += needed;
+        journalRecords++;
+        unforced++;
+    }
+
+    /**
+     * Force and compact as configured, once the change has been made and announced.
+     */
+    private void afterChange() {
+        try {
+            if (compactThreshold > 0 && journalEnd > compactThreshold) {
+                compact();
+            } else if (forceInterval > 0 && unforced >= forceInterval) {
+                force();
+            }
+        } catch (IOException ioe) {
+            // the change is in the journal, a later force or compaction will try again
+        }
+    }
+
+    private void checkOpen() {
+        if (journal == null) {
+            throw new IllegalStateException("closed.");
+        }
+    }
+
+    private static void checkNotNull(final Object element) {
+        if (element == null) {
+            throw new NullPointerException("null not allowed");
+        }
+    }
+
+    /**
+     * Reads the remaining bytes of a ByteBuffer.
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        public int read(final byte[] b, final int off, final int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            final int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+    }
+}
@@ -0,0 +1,937 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.server;
+
+import org.mcarthur.sandy.gwt.event.list.client.AbstractEventList;
+import org.mcarthur.sandy.gwt.event.list.client.DoubleEventList;
+import org.mcarthur.sandy.gwt.event.list.client.EventList;
+import org.mcarthur.sandy.gwt.event.list.client.FilteredEventList;
+import org.mcarthur.sandy.gwt.event.list.client.IndexComparator;
+import org.mcarthur.sandy.gwt.event.list.client.IntEventList;
+import org.mcarthur.sandy.gwt.event.list.client.ListEvent;
+import org.mcarthur.sandy.gwt.event.list.client.LongEventList;
+import org.mcarthur.sandy.gwt.event.list.client.PropertyDependent;
+
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * An EventList of fixed-size records kept outside the Java heap in direct
+ * {@link ByteBuffer} segments, for lists of millions of records where an object per record
+ * would take more memory than the data. It is the server side counterpart of
+ * {@link org.mcarthur.sandy.gwt.event.list.client.ColumnarEventList}.
+ *
+ * <p>
+ * Each record is a fixed set of <code>int</code>, <code>long</code> and <code>double</code>
+ * fields. Fields are read and written with {@link #getInt(int, int)}, {@link #setInt(int, int, int)}
+ * and so on without creating any objects. The elements of this list are {@link Record} views,
+ * created the first time {@link #get(int)} asks for a record. A Record follows its record until
+ * it's removed, so views that hold on to elements keep showing the right records, and the list
+ * only holds it weakly, so Records nobody holds on to are garbage collected. Records are
+ * added with an <code>Object[]</code> of {@link Number}s or with a Record, and
+ * {@link #set(int, Object)} and {@link #remove(int)} return the replaced record's values as an
+ * <code>Object[]</code>.
+ * </p>
+ *
+ * <p>
+ * Records are stored in segments of <code>segmentSize</code> records. Inserting or removing a
+ * record only moves the records after it in its own segment. A full segment is split in half
+ * and a segment that falls under a quarter full is merged with the next one if they fit
+ * together.
+ * </p>
+ *
+ * <p>
+ * The comparators returned by {@link #getComparator(int)} are {@link IndexComparator}s, so a
+ * SortedEventList directly over this list compares the fields straight from the segments
+ * without creating a Record per record. The filters returned by the <code>get...Filter</code>
+ * methods test Records: a FilteredEventList keeps a copy of its backing list's elements, so
+ * it does hold a Record for every record. Both are {@link PropertyDependent} on their field.
+ * Field setters fire CHANGED events that name the changed field, so a sorted or filtered view
+ * isn't re-evaluated when another field changes.
+ * </p>
+ *
+ * @author Sandy McArthur
+ */
+public class OffHeapEventList extends AbstractEventList implements EventList {
+    /**
+     * A 4 byte <code>int</code> field.
+     */
+    public static final int TYPE_INT = 0;
+
+    /**
+     * An 8 byte <code>double</code> field.
+     */
+    public static final int TYPE_DOUBLE = 1;
+
+    /**
+     * An 8 byte <code>long</code> field.
+     */
+    public static final int TYPE_LONG = 2;
+
+    private final String[] names;
+    private final int[] types;
+
+    /**
+     * Byte offset of each field within a record.
+     */
+    private final int[] offsets;
+    private final int recordSize;
+    private final int segmentSize;
+
+    private final List segments = new ArrayList();
+    private int size = 0;
+
+    /**
+     * Index of the first record of each segment, <code>null</code> when it needs recomputing.
+     */
+    private int[] starts = null;
+
+    /**
+     * Where the last {@link #locate(int)} found a record.
+     */
+    private Segment located;
+    private int locatedSegment;
+    private int locatedOffset;
+
+    private final byte[] scratch;
+
+    /**
+     * Create a list with segments of 4096 records.
+     *
+     * @param names the name of each field.
+     * @param types the type of each field, {@link #TYPE_INT}, {@link #TYPE_DOUBLE} or {@link #TYPE_LONG}.
+     * @throws IllegalArgumentException if <code>names</code> and <code>types</code> differ in length
+     *      or a type is unknown.
+     */
+    public OffHeapEventList(final String[] names, final int[] types) throws IllegalArgumentException {
+        this(names, types, 4096);
+    }
+
+    /**
+     * Create a list.
+     *
+     * @param names the name of each field.
+     * @param types the type of each field, {@link #TYPE_INT}, {@link #TYPE_DOUBLE} or {@link #TYPE_LONG}.
+     * @param segmentSize the most records in each segment.
+     * @throws IllegalArgumentException if <code>names</code> and <code>types</code> differ in length,
+     *      a type is unknown or <code>segmentSize</code> is less than four.
+     */
+    public OffHeapEventList(final String[] names, final int[] types, final int segmentSize) throws IllegalArgumentException {
+        if (names.length != types.length) {
+            throw new IllegalArgumentException("names and types must be the same length.");
+        }
+        if (segmentSize < 4) {
+            throw new IllegalArgumentException("segmentSize must be at least 4: " + segmentSize);
+        }
+        this.names = new String[names.length];
+        this.types = new int[types.length];
+        offsets = new int[names.length];
+        int offset = 0;
+        for (int i=0; i < names.length; i++) {
+            if (names[i] == null) {
+                throw new NullPointerException("null not allowed");
+            }
+            this.names[i] = names[i];
+            this.types[i] = types[i];
+            offsets[i] = offset;
+            switch (types[i]) {
+                case TYPE_INT:
+                    offset += 4;
+                    break;
+                case TYPE_DOUBLE:
+                case TYPE_LONG:
+                    offset += 8;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown field type: " + types[i]);
+            }
+        }
+        recordSize = Math.max(1, offset);
+        this.segmentSize = segmentSize;
+        scratch = new byte[segmentSize * recordSize];
+    }
+
+    /**
+     * The number of fields in each record.
+     *
+     * @return the number of fields.
+     */
+    public int getFieldCount() {
+        return names.length;
+    }
+
+    /**
+     * The name of a field.
+     *
+     * @param field the field's position.
+     * @return the field's name.
+     */
+    public String getFieldName(final int field) {
+        return names[field];
+    }
+
+    /**
+     * The type of a field.
+     *
+     * @param field the field's position.
+     * @return {@link #TYPE_INT}, {@link #TYPE_DOUBLE} or {@link #TYPE_LONG}.
+     */
+    public int getFieldType(final int field) {
+        return types[field];
+    }
+
+    /**
+     * The position of a field.
+     *
+     * @param name the field's name.
+     * @return the field's position, <code>-1</code> if there is no such field.
+     */
+    public int getFieldIndex(final String name) {
+        for (int i=0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The bytes used by each record.
+     *
+     * @return the record size in bytes.
+     */
+    public int getRecordSize() {
+        return recordSize;
+    }
+
+    /**
+     * The number of segments the records are stored in.
+     *
+     * @return the number of segments.
+     */
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    public Object get(final int index) {
+        checkIndex(index, size);
+        locate(index);
+        final Segment segment = located;
+        if (segment.records == null) {
+            segment.records = new RecordRef[segmentSize];
+        }
+        RecordImpl record = record(segment, locatedOffset);
+        if (record == null) {
+            record = new RecordImpl(segment, locatedOffset);
+            segment.records[locatedOffset] = new RecordRef(record);
+        }
+        return record;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Read an <code>int</code> field.
+     *
+     * @param index the record.
+     * @param field a {@link #TYPE_INT} field.
+     * @return the value.
+     * @throws IndexOutOfBoundsException if <code>index</code> is out of range.
+     * @throws IllegalArgumentException if <code>field</code> isn't an int field.
+     */
+    public int getInt(final int index, final int field) throws IndexOutOfBoundsException, IllegalArgumentException {
+        checkType(field, TYPE_INT);
+        checkIndex(index, size);
+        return buffer(index).getInt(position(field));
+    }
+
+    /**
+     * Read a <code>long</code> field.
+     *
+     * @param index the record.
+     * @param field a {@link #TYPE_LONG} or {@link #TYPE_INT} field.
+     * @return the value.
+     * @throws IndexOutOfBoundsException if <code>index</code> is out of range.
+     * @throws IllegalArgumentException if <code>field</code> is a double field.
+     */
+    public long getLong(final int index, final int field) throws IndexOutOfBoundsException, IllegalArgumentException {
+        checkIndex(index, size);
+        if (types[field] == TYPE_INT) {
+            return buffer(index).getInt(position(field));
+        }
+        checkType(field, TYPE_LONG);
+        return buffer(index).getLong(position(field));
+    }
+
+    /**
+     * Read any field as a <code>double</code>.
+     *
+     * @param index the record.
+     * @param field the field.
+     * @return the value.
+     * @throws IndexOutOfBoundsException if <code>index</code> is out of range.
+     */
+    public double getDouble(final int index, final int field) throws IndexOutOfBoundsException {
+        checkIndex(index, size);
+        final ByteBuffer buffer = buffer(index);
+        switch (types[field]) {
+            case TYPE_INT:
+                return buffer.getInt(position(field));
+            case TYPE_LONG:
+                return buffer.getLong(position(field));
+            default:
+                return buffer.getDouble(position(field));
+        }
+    }
+
+    /**
+     * Read a field, boxed.
+     *
+     * @param index the record.
+     * @param field the field.
+     * @return an Integer, Double or Long.
+     * @throws IndexOutOfBoundsException if <code>index</code> is out of range.
+     */
+    public Object getValue(final int index, final int field) throws IndexOutOfBoundsException {
+        checkIndex(index, size);
+        final ByteBuffer buffer = buffer(index);
+        switch (types[field]) {
+            case TYPE_INT:
+                return new Integer(buffer.getInt(position(field)));
+            case TYPE_LONG:
+                return new Long(buffer.getLong(position(field)));
+            default:
+                return new Double(buffer.getDouble(position(field)));
+        }
+    }
+
+    /**
+     * Write an <code>int</code> field and fire a CHANGED event naming it.
+     *
+     * @param index the record.
+     * @param field a {@link #TYPE_INT} field.
+     * @param value the new value.
+     * @throws IndexOutOfBoundsException if <code>index</code> is out of range.
+     * @throws IllegalArgumentException if <code>field</code> isn't an int field.
+     */
+    public void setInt(final int index, final int field, final int value) throws IndexOutOfBoundsException, IllegalArgumentException {
+        checkType(field, TYPE_INT);
+        checkIndex(index, size);
+        buffer(index).putInt(position(field), value);
+        fireFieldChanged(index, field);
+    }
+
+    /**
+     * Write a <code>long</code> field and fire a CHANGED event naming it.
+     *
+     * @param index the record.
+     * @param field a {@link #TYPE_LONG} field.
+     * @param value the new value.
+     * @throws IndexOutOfBoundsException if <code>index</code> is out of range.
+     * @throws IllegalArgumentException if <code>field</code> isn't a long field.
+     */
+    public void setLong(final int index, final int field, final long value) throws IndexOutOfBoundsException, IllegalArgumentException {
+        checkType(field, TYPE_LONG);
+        checkIndex(index, size);
+        buffer(index).putLong(position(field), value);
+        fireFieldChanged(index, field);
+    }
+
+    /**
+     * Write a <code>double</code> field and fire a CHANGED event naming it.
+     *
+     * @param index the record.
+     * @param field a {@link #TYPE_DOUBLE} field.
+     * @param value the new value.
+     * @throws IndexOutOfBoundsException if <code>index</code> is out of range.
+     * @throws IllegalArgumentException if <code>field</code> isn't a double field.
+     */
+    public void setDouble(final int index, final int field, final double value) throws IndexOutOfBoundsException, IllegalArgumentException {
+        checkType(field, TYPE_DOUBLE);
+        checkIndex(index, size);
+        buffer(index).putDouble(position(field), value);
+        fireFieldChanged(index, field);
+    }
+
+    /**
+     * @return the replaced record's values as an <code>Object[]</code>.
+     */
+    public Object set(final int index, final Object element) {
+        checkIndex(index, size);
+        final Object[] values = toValues(element);
+        final Object[] old = toArray(index);
+        write(buffer(index), locatedOffset * recordSize, values);
+        fireListEvent(ListEvent.createChanged(this, index));
+        return old;
+    }
+
+    public void add(final int index, final Object element) {
+        checkIndex(index, size + 1);
+        final Object[] values = toValues(element);
+        insert(index, values);
+        fireListEvent(ListEvent.createAdded(this, index));
+    }
+
+    public boolean addAll(final Collection c) {
+        return addAll(size, c);
+    }
+
+    public boolean addAll(final int index, final Collection c) {
+        checkIndex(index, size + 1);
+        final Object[][] records = new Object[c.size()][];
+        final Iterator iter = c.iterator();
+        for (int i=0; iter.hasNext(); i++) {
+            records[i] = toValues(iter.next());
+        }
+        if (records.length == 0) {
+            return false;
+        }
+        for (int i=0; i < records.length; i++) {
+            insert(index + i, records[i]);
+        }
+        fireListEvent(ListEvent.createAdded(this, index, index + records.length));
+        return true;
+    }
+
+    /**
+     * @return the removed record's values as an <code>Object[]</code>.
+     */
+    public Object remove(final int index) {
+        checkIndex(index, size);
+        final Object[] old = toArray(index);
+        delete(index, index + 1);
+        fireListEvent(ListEvent.createRemoved(this, index));
+        return old;
+    }
+
+    protected void removeRange(final int start, final int end) {
+        if (start < 0 || end > size || start > end) {
+            throw new IndexOutOfBoundsException("start: " + start + ", end: " + end + ", size: " + size);
+        }
+        if (start < end) {
+            delete(start, end);
+            fireListEvent(ListEvent.createRemoved(this, start, end));
+        }
+    }
+
+    public void clear() {
+        removeRange(0, size);
+    }
+
+    /**
+     * A Comparator of this list's Records that orders by one field.
+     *
+     * @param field the field to order by.
+     * @return a {@link PropertyDependent} {@link IndexComparator} for a
+     *      {@link org.mcarthur.sandy.gwt.event.list.client.SortedEventList}.
+     */
+    public Comparator getComparator(final int field) {
+        return new FieldComparator(field);
+    }
+
+    /**
+     * A Filter of this list's Records that tests an <code>int</code> field.
+     *
+     * @param field a {@link #TYPE_INT} field.
+     * @param filter tests the field's values.
+     * @return a {@link PropertyDependent} Filter for a {@link FilteredEventList}.
+     * @throws IllegalArgumentException if <code>field</code> isn't an int field.
+     */
+    public FilteredEventList.Filter getIntFilter(final int field, final IntEventList.IntFilter filter) throws IllegalArgumentException {
+        checkType(field, TYPE_INT);
+        return new FieldFilter(field) {
+            public boolean accept(final Object element) {
+                return filter.accept(getInt(((Record)element).getIndex(), field));
+            }
+        };
+    }
+
+    /**
+     * A Filter of this list's Records that tests a <code>long</code> or <code>int</code> field.
+     *
+     * @param field a {@link #TYPE_LONG} or {@link #TYPE_INT} field.
+     * @param filter tests the field's values.
+     * @return a {@link PropertyDependent} Filter for a {@link FilteredEventList}.
+     * @throws IllegalArgumentException if <code>field</code> is a double field.
+     */
+    public FilteredEventList.Filter getLongFilter(final int field, final LongEventList.LongFilter filter) throws IllegalArgumentException {
+        if (types[field] != TYPE_INT) {
+            checkType(field, TYPE_LONG);
+        }
+        return new FieldFilter(field) {
+            public boolean accept(final Object element) {
+                return filter.accept(getLong(((Record)element).getIndex(), field));
+            }
+        };
+    }
+
+    /**
+     * A Filter of this list's Records that tests any field as a <code>double</code>.
+     *
+     * @param field the field.
+     * @param filter tests the field's values.
+     * @return a {@link PropertyDependent} Filter for a {@link FilteredEventList}.
+     */
+    public FilteredEventList.Filter getDoubleFilter(final int field, final DoubleEventList.DoubleFilter filter) {
+        return new FieldFilter(field) {
+            public boolean accept(final Object element) {
+                return filter.accept(getDouble(((Record)element).getIndex(), field));
+            }
+        };
+    }
+
+    /**
+     * Find the segment holding record <code>index</code>, or the one to append to when
+     * <code>index == size</code>, and leave it in {@link #located}.
+     */
+    private void locate(final int index) {
+        computeStarts();
+        int low = 0;
+        int high = starts.length - 1;
+        while (low < high) {
+            final int mid = (low + high + 1) >>> 1;
+            if (starts[mid] <= index) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        locatedSegment = low;
+        located = (Segment)segments.get(low);
+        locatedOffset = index - starts[low];
+    }
+
+    private void computeStarts() {
+        if (starts == null) {
+            starts = new int[segments.size()];
+            int start = 0;
+            for (int s=0; s < starts.length; s++) {
+                final Segment segment = (Segment)segments.get(s);
+                segment.number = s;
+                starts[s] = start;
+                start += segment.size;
+            }
+        }
+    }
+
+    /**
+     * The buffer holding record <code>index</code>, with {@link #locatedOffset} set.
+     */
+    private ByteBuffer buffer(final int index) {
+        locate(index);
+        return located.buffer;
+    }
+
+    /**
+     * The position of a field of the last located record.
+     */
+    private int position(final int field) {
+        return locatedOffset * recordSize + offsets[field];
+    }
+
+    private void insert(final int index, final Object[] values) {
+        if (segments.isEmpty()) {
+            segments.add(new Segment());
+            starts = null;
+        }
+        locate(index);
+        if (located.size == segmentSize) {
+            split(locatedSegment);
+            locate(index);
+        }
+        final Segment segment = located;
+        final int offset = locatedOffset;
+        move(segment, offset, offset + 1, segment.size - offset);
+        if (segment.records != null) {
+            segment.records[offset] = null;
+        }
+        write(segment.buffer, offset * recordSize, values);
+        segment.size++;
+        size++;
+        for (int s=locatedSegment + 1; s < starts.length; s++) {
+            starts[s]++;
+        }
+    }
+
+    private void delete(final int start, final int end) {
+        int remaining = end - start;
+        while (remaining > 0) {
+            locate(start);
+            final Segment segment = located;
+            final int offset = locatedOffset;
+            final int count = Math.min(remaining, segment.size - offset);
+            if (segment.records != null) {
+                for (int i=offset; i < offset + count; i++) {
+                    final RecordImpl record = record(segment, i);
+                    if (record != null) {
+                        record.segment = null;
+                    }
+                    segment.records[i] = null;
+                }
+            }
+            move(segment, offset + count, offset, segment.size - offset - count);
+            if (segment.records != null) {
+                for (int i=segment.size - count; i < segment.size; i++) {
+                    segment.records[i] = null;
+                }
+            }
+            segment.size -= count;
+            size -= count;
+            remaining -= count;
+            if (segment.size == 0) {
+                segments.remove(locatedSegment);
+            } else if (segment.size < segmentSize / 4 && locatedSegment + 1 < segments.size()) {
+                final Segment next = (Segment)segments.get(locatedSegment + 1);
+                if (segment.size + next.size <= segmentSize) {
+                    copy(next, 0, segment, segment.size, next.size);
+                    segment.size += next.size;
+                    segments.remove(locatedSegment + 1);
+                }
+            }
+            starts = null;
+        }
+    }
+
+    /**
+     * Move the upper half of a full segment to a new segment after it.
+     */
+    private void split(final int s) {
+        final Segment segment = (Segment)segments.get(s);
+        final Segment upper = new Segment();
+        final int keep = segment.size / 2;
+        copy(segment, keep, upper, 0, segment.size - keep);
+        upper.size = segment.size - keep;
+        segment.size = keep;
+        segments.add(s + 1, upper);
+        starts = null;
+    }
+
+    /**
+     * Move <code>count</code> records, and their Records, within a segment, the ranges may overlap.
+     * The caller clears the slots of Records that were left behind.
+     */
+    private void move(final Segment segment, final int from, final int to, final int count) {
+        if (count > 0) {
+            final ByteBuffer buffer = segment.buffer.duplicate();
+            buffer.position(from * recordSize);
+            buffer.get(scratch, 0, count * recordSize);
+            buffer.position(to * recordSize);
+            buffer.put(scratch, 0, count * recordSize);
+            if (segment.records != null) {
+                System.arraycopy(segment.records, from, segment.records, to, count);
+                for (int i=to; i < to + count; i++) {
+                    final RecordImpl record = record(segment, i);
+                    if (record != null) {
+                        record.offset = i;
+                    }
+                }
+            }
+        }
+    }
+
+    private void copy(final Segment source, final int from, final Segment target, final int to, final int count) {
+        final ByteBuffer src = source.buffer.duplicate();
+        src.position(from * recordSize);
+        src.limit((from + count) * recordSize);
+        final ByteBuffer dst = target.buffer.duplicate();
+        dst.position(to * recordSize);
+        dst.put(src);
+        if (source.records != null) {
+            if (target.records == null) {
+                target.records = new RecordRef[segmentSize];
+            }
+            for (int i=0; i < count; i++) {
+                final RecordImpl record = record(source, from + i);
+                target.records[to + i] = source.records[from + i];
+                source.records[from + i] = null;
+                if (record != null) {
+                    record.segment = target;
+                    record.offset = to + i;
+                }
+            }
+        }
+    }
+
+    /**
+     * The Record of a slot of a segment, <code>null</code> if none was asked for or it was collected.
+     */
+    private static RecordImpl record(final Segment segment, final int offset) {
+        final RecordRef ref = segment.records[offset];
+        return ref != null ? (RecordImpl)ref.get() : null;
+    }
+
+    private void write(final ByteBuffer buffer, final int position, final Object[] values) {
+        for (int f=0; f < values.length; f++) {
+            final Number value = (Number)values[f];
+            switch (types[f]) {
+                case TYPE_INT:
+                    buffer.putInt(position + offsets[f], value.intValue());
+                    break;
+                case TYPE_LONG:
+                    buffer.putLong(position + offsets[f], value.longValue());
+                    break;
+                default:
+                    buffer.putDouble(position + offsets[f], value.doubleValue());
+            }
+        }
+    }
+
+    private Object[] toArray(final int index) {
+        final Object[] values = new Object[names.length];
+        for (int f=0; f < values.length; f++) {
+            values[f] = getValue(index, f);
+        }
+        return values;
+    }
+
+    private void fireFieldChanged(final int index, final int field) {
+        fireListEvent(ListEvent.createPropertyChanged(this, index, index + 1, new String[] {names[field]}));
+    }
+
+    /**
+     * The field values of a record being added or set.
+     */
+    private Object[] toValues(final Object element) {
+        final Object[] values;
+        if (element instanceof Record) {
+            values = ((Record)element).toArray();
+        } else if (element instanceof Object[]) {
+            values = (Object[])element;
+        } else if (element == null) {
+            throw new NullPointerException("null not allowed");
+        } else {
+            throw new IllegalArgumentException("Expected a Record or Object[], was: " + element);
+        }
+        if (values.length != names.length) {
+            throw new IllegalArgumentException("Expected " + names.length + " values, was: " + values.length);
+        }
+        for (int f=0; f < values.length; f++) {
+            if (values[f] == null) {
+                throw new NullPointerException("null not allowed");
+            }
+            if (!(values[f] instanceof Number)) {
+                throw new IllegalArgumentException("Field " + names[f] + " must be a Number, was: " + values[f]);
+            }
+        }
+        return values;
+    }
+
+    private void checkType(final int field, final int type) {
+        if (types[field] != type) {
+            throw new IllegalArgumentException("Field " + names[field] + " is of type " + types[field] + " not " + type);
+        }
+    }
+
+    private void checkIndex(final int index, final int limit) {
+        if (index < 0 || index >= limit) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * A view of one record. A Record reads through to the segments and follows its record as
+     * records are added or removed before it. Records are only equal to themselves.
+     */
+    public static interface Record {
+        /**
+         * The list this Record is a view of.
+         *
+         * @return the list this Record is a view of.
+         */
+        public OffHeapEventList getList();
+
+        /**
+         * The index of the record this Record shows.
+         *
+         * @return the record's current index, <code>-1</code> once the record was removed.
+         */
+        public int getIndex();
+
+        /**
+         * Same as <code>getList().getInt(getIndex(), field)</code>.
+         *
+         * @param field a {@link OffHeapEventList#TYPE_INT} field.
+         * @return the value.
+         */
+        public int getInt(int field);
+
+        /**
+         * Same as <code>getList().getLong(getIndex(), field)</code>.
+         *
+         * @param field a {@link OffHeapEventList#TYPE_LONG} or {@link OffHeapEventList#TYPE_INT} field.
+         * @return the value.
+         */
+        public long getLong(int field);
+
+        /**
+         * Same as <code>getList().getDouble(getIndex(), field)</code>.
+         *
+         * @param field the field.
+         * @return the value.
+         */
+        public double getDouble(int field);
+
+        /**
+         * Copy this record's values, boxed.
+         *
+         * @return the field values of this record.
+         */
+        public Object[] toArray();
+    }
+
+    /**
+     * Up to <code>segmentSize</code> records.
+     */
+    private class Segment {
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(segmentSize * recordSize);
+        private int size = 0;
+
+        /**
+         * The Record of each record that was asked for, <code>null</code> until one is.
+         */
+        private RecordRef[] records;
+
+        /**
+         * This segment's position in {@link #segments}, current while {@link #starts} is.
+         */
+        private int number;
+    }
+
+    /**
+     * Holds a Record weakly so the segments don't keep every Record that was ever asked for.
+     */
+    private static class RecordRef extends WeakReference {
+        RecordRef(final RecordImpl record) {
+            super(record);
+        }
+    }
+
+    private class RecordImpl implements Record {
+        /** The segment holding the record, <code>null</code> once it's removed. */
+        private Segment segment;
+        private int offset;
+
+        RecordImpl(final Segment segment, final int offset) {
+            this.segment = segment;
+            this.offset = offset;
+        }
+
+        public OffHeapEventList getList() {
+            return OffHeapEventList.this;
+        }
+
+        public int getIndex() {
+            if (segment == null) {
+                return -1;
+            }
+            computeStarts();
+            return starts[segment.number] + offset;
+        }
+
+        public int getInt(final int field) {
+            return OffHeapEventList.this.getInt(getIndex(), field);
+        }
+
+        public long getLong(final int field) {
+            return OffHeapEventList.this.getLong(getIndex(), field);
+        }
+
+        public double getDouble(final int field) {
+            return OffHeapEventList.this.getDouble(getIndex(), field);
+        }
+
+        public Object[] toArray() {
+            final int index = getIndex();
+            checkIndex(index, size);
+            return OffHeapEventList.this.toArray(index);
+        }
+
+        public String toString() {
+            final int index = getIndex();
+            if (index < 0) {
+                return "Record[removed]";
+            }
+            final StringBuffer sb = new StringBuffer("Record[");
+            for (int f=0; f < names.length; f++) {
+                if (f > 0) {
+                    sb.append(", ");
+                }
+                sb.append(names[f]).append('=').append(getValue(index, f));
+            }
+            return sb.append(']').toString();
+        }
+    }
+
+    private class FieldComparator implements IndexComparator, PropertyDependent {
+        private final int field;
+
+        FieldComparator(final int field) {
+            this.field = field;
+        }
+
+        public int compare(final Object o1, final Object o2) {
+            return compare(OffHeapEventList.this, ((Record)o1).getIndex(), ((Record)o2).getIndex());
+        }
+
+        public boolean canCompare(final List list) {
+            return list == OffHeapEventList.this;
+        }
+
+        public int compare(final List list, final int i1, final int i2) {
+            switch (types[field]) {
+                case TYPE_INT: {
+                    final int v1 = getInt(i1, field);
+                    final int v2 = getInt(i2, field);
+                    return v1 < v2 ? -1 : (v1 == v2 ? 0 : 1);
+                }
+                case TYPE_LONG: {
+                    final long v1 = getLong(i1, field);
+                    final long v2 = getLong(i2, field);
+                    return v1 < v2 ? -1 : (v1 == v2 ? 0 : 1);
+                }
+                default: {
+                    final double v1 = getDouble(i1, field);
+                    final double v2 = getDouble(i2, field);
+                    return v1 < v2 ? -1 : (v1 == v2 ? 0 : 1);
+                }
+            }
+        }
+
+        public String[] getPropertyDependencies() {
+            return new String[] {names[field]};
+        }
+    }
+
+    private abstract class FieldFilter implements FilteredEventList.Filter, PropertyDependent {
+        private final int field;
+
+        FieldFilter(final int field) {
+            this.field = field;
+        }
+
+        public String[] getPropertyDependencies() {
+            return new String[] {names[field]};
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.server;
+
+import org.mcarthur.sandy.gwt.event.list.client.AttachPolicy;
+import org.mcarthur.sandy.gwt.event.list.client.EventList;
+import org.mcarthur.sandy.gwt.event.list.client.ListEvent;
+import org.mcarthur.sandy.gwt.event.list.client.ListEventListener;
+import org.mcarthur.sandy.gwt.event.list.client.ViewListEventListener;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * An {@link AttachPolicy} that lets views be garbage collected once nothing but the backing
+ * list refers to them. The backing list only holds a weak reference to the view's listener and
+ * the stale registration is removed the next time the backing list fires an event.
+ * This relies on {@link java.lang.ref.WeakReference} and cannot be used in GWT client code.
+ *
+ * <blockquote><code>EventLists.setAttachPolicy(new WeakAttachPolicy());</code></blockquote>
+ *
+ * @author Sandy McArthur
+ */
+public class WeakAttachPolicy implements AttachPolicy {
+    public ListEventListener attach(final EventList source, final ViewListEventListener listener) {
+        final ListEventListener weakListener = new WeakViewListEventListener(source, listener);
+        source.addListEventListener(weakListener);
+        return weakListener;
+    }
+
+    private static class WeakViewListEventListener implements ViewListEventListener {
+        private final EventList source;
+        private final WeakReference listener;
+
+        public WeakViewListEventListener(final EventList source, final ViewListEventListener listener) {
+            this.source = source;
+            this.listener = new WeakReference(listener);
+        }
+
+        public EventList getView() {
+            final ViewListEventListener viewListener = (ViewListEventListener)listener.get();
+            return viewListener != null ? viewListener.getView() : null;
+        }
+
+        public void listChanged(final ListEvent listEvent) {
+            final ListEventListener viewListener = (ListEventListener)listener.get();
+            if (viewListener != null) {
+                viewListener.listChanged(listEvent);
+            } else {
+                // the view was collected, stop tracking it.
+                source.removeListEventListener(this);
+            }
+        }
+    }
+}
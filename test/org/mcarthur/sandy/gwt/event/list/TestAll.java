@@ -19,12 +19,25 @@ package org.mcarthur.sandy.gwt.event.list;
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
+import org.mcarthur.sandy.gwt.event.list.test.CappedEventListTest;
+import org.mcarthur.sandy.gwt.event.list.test.ColumnarEventListTest;
+import org.mcarthur.sandy.gwt.event.list.test.DeltaSyncTest;
+import org.mcarthur.sandy.gwt.event.list.test.DetachableEventListTest;
+import org.mcarthur.sandy.gwt.event.list.test.ExpiringEventListTest;
 import org.mcarthur.sandy.gwt.event.list.test.FilteredEventListTest;
+import org.mcarthur.sandy.gwt.event.list.test.IndexedEventListTest;
+import org.mcarthur.sandy.gwt.event.list.test.KeyedReconcilerTest;
 import org.mcarthur.sandy.gwt.event.list.test.ListEventTest;
+import org.mcarthur.sandy.gwt.event.list.test.NumericEventListTest;
+import org.mcarthur.sandy.gwt.event.list.test.PagedEventListTest;
+import org.mcarthur.sandy.gwt.event.list.test.PersistentEventListTest;
 import org.mcarthur.sandy.gwt.event.list.test.RangedEventListTest;
 import org.mcarthur.sandy.gwt.event.list.test.ReverseEventListTest;
 import org.mcarthur.sandy.gwt.event.list.test.SortedEventListTest;
 import org.mcarthur.sandy.gwt.event.list.test.SteadyRangedEventListTest;
+import org.mcarthur.sandy.gwt.event.list.test.TextSearchEventListTest;
+import org.mcarthur.sandy.gwt.event.list.test.ThrottledEventListTest;
+import org.mcarthur.sandy.gwt.event.list.test.TopNEventListTest;
 import org.mcarthur.sandy.gwt.event.list.test.WrappedEventListTest;
 
 /**
@@ -39,14 +52,28 @@ public class TestAll extends TestCase {
 
         suite.addTestSuite(ListEventTest.class);
 
+        suite.addTestSuite(CappedEventListTest.class);
+        suite.addTestSuite(ColumnarEventListTest.class);
+        suite.addTestSuite(DeltaSyncTest.class);
+        suite.addTestSuite(DetachableEventListTest.class);
+        suite.addTestSuite(ExpiringEventListTest.class);
         suite.addTestSuite(FilteredEventListTest.class);
+        suite.addTestSuite(IndexedEventListTest.class);
+        suite.addTestSuite(KeyedReconcilerTest.class);
+        suite.addTestSuite(NumericEventListTest.class);
+        suite.addTestSuite(PagedEventListTest.class);
+        suite.addTestSuite(PersistentEventListTest.class);
         suite.addTestSuite(RangedEventListTest.class);
         suite.addTestSuite(ReverseEventListTest.class);
         suite.addTestSuite(SteadyRangedEventListTest.class);
         suite.addTestSuite(SortedEventListTest.class);
+        suite.addTestSuite(TextSearchEventListTest.class);
+        suite.addTestSuite(ThrottledEventListTest.class);
+        suite.addTestSuite(TopNEventListTest.class);
         suite.addTestSuite(WrappedEventListTest.class);
 
         suite.addTest(org.mcarthur.sandy.gwt.event.list.property.TestAll.suite());
+        suite.addTest(org.mcarthur.sandy.gwt.event.list.server.TestAll.suite());
 
         return suite;
     }
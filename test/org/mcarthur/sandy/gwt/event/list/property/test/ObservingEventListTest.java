@@ -18,15 +18,23 @@ package org.mcarthur.sandy.gwt.event.list.property.test;
 
 import junit.framework.TestCase;
 import org.mcarthur.sandy.gwt.event.list.client.EventList;
+import org.mcarthur.sandy.gwt.event.list.client.EventLists;
+import org.mcarthur.sandy.gwt.event.list.client.FilteredEventList;
 import org.mcarthur.sandy.gwt.event.list.client.ListEvent;
 import org.mcarthur.sandy.gwt.event.list.client.ListEventListener;
+import org.mcarthur.sandy.gwt.event.list.client.PropertyDependent;
+import org.mcarthur.sandy.gwt.event.list.client.SortedEventList;
 import org.mcarthur.sandy.gwt.event.list.property.client.ObservingEventList;
+import org.mcarthur.sandy.gwt.event.list.property.server.ExecutorFlushScheduler;
+import org.mcarthur.sandy.gwt.event.property.client.NamedPropertyChangeSource;
 import org.mcarthur.sandy.gwt.event.property.client.PropertyChangeSource;
 
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * Tests for {@link org.mcarthur.sandy.gwt.event.list.property.client.ObservingEventList}.
@@ -197,12 +205,233 @@ public class ObservingEventListTest extends TestCase {
         assertEquals(0, mn2.pcs.getPropertyChangeListeners().length);
     }
 
+    public void testCoalescedChanges() {
+        final List scheduled = new ArrayList();
+        final ObservingEventList el = new ObservingEventList(new ObservingEventList.FlushScheduler() {
+            public void scheduleFlush(final ObservingEventList list) {
+                scheduled.add(list);
+            }
+        });
+        prefillWithMutableNumbers(el, 10);
+
+        final List events = new ArrayList();
+        el.addListEventListener(new ListEventListener() {
+            public void listChanged(final ListEvent listEvent) {
+                events.add(listEvent);
+            }
+        });
+
+        final int[] changed = {2, 3, 4, 7};
+        for (int i=0; i < changed.length; i++) {
+            final MutableNumber mn = (MutableNumber)el.get(changed[i]);
+            for (int j=1; j <= 5; j++) {
+                mn.setValue(mn.getValue() + j);
+            }
+        }
+        assertEquals(0, events.size());
+        assertEquals(1, scheduled.size());
+
+        el.flush();
+        assertEquals(4, events.size());
+        assertEquals(ListEvent.createBatchStart(el), events.get(0));
+        assertEquals(ListEvent.createChanged(el, 2, 5), events.get(1));
+        assertEquals(ListEvent.createChanged(el, 7), events.get(2));
+        assertEquals(ListEvent.createBatchEnd(el), events.get(3));
+
+        // the next change schedules another flush
+        events.clear();
+        ((MutableNumber)el.get(0)).setValue(-1);
+        assertEquals(2, scheduled.size());
+        el.flush();
+        assertEquals(1, events.size());
+        assertEquals(ListEvent.createChanged(el, 0), events.get(0));
+
+        // nothing to do
+        events.clear();
+        el.flush();
+        assertEquals(0, events.size());
+    }
+
+    public void testCoalescedChangeOfRemovedElement() {
+        final ObservingEventList el = new ObservingEventList(new ExecutorFlushScheduler(new Executor() {
+            public void execute(final Runnable command) {
+                // flushed manually below
+            }
+        }));
+        prefillWithMutableNumbers(el, 5);
+        final List events = new ArrayList();
+        el.addListEventListener(new ListEventListener() {
+            public void listChanged(final ListEvent listEvent) {
+                events.add(listEvent);
+            }
+        });
+
+        final MutableNumber mn = (MutableNumber)el.get(1);
+        mn.setValue(100);
+        ((MutableNumber)el.get(3)).setValue(300);
+        el.remove(mn);
+        events.clear();
+
+        el.flush();
+        assertEquals(1, events.size());
+        assertEquals(ListEvent.createChanged(el, 2), events.get(0));
+    }
+
+    public void testExecutorFlushScheduler() {
+        final List tasks = new ArrayList();
+        final ObservingEventList el = new ObservingEventList(new ExecutorFlushScheduler(new Executor() {
+            public void execute(final Runnable command) {
+                tasks.add(command);
+            }
+        }));
+        prefillWithMutableNumbers(el, 3);
+        final List events = new ArrayList();
+        el.addListEventListener(new ListEventListener() {
+            public void listChanged(final ListEvent listEvent) {
+                events.add(listEvent);
+            }
+        });
+
+        ((MutableNumber)el.get(0)).setValue(10);
+        ((MutableNumber)el.get(1)).setValue(11);
+        assertEquals(1, tasks.size());
+        assertEquals(0, events.size());
+
+        ((Runnable)tasks.get(0)).run();
+        assertEquals(1, events.size());
+        assertEquals(ListEvent.createChanged(el, 0, 2), events.get(0));
+    }
+
+    public void testPropertyNames() {
+        final ObservingEventList el = new ObservingEventList(new String[] {"value"});
+        final NamedBean named = new NamedBean();
+        final MutableNumber plain = new MutableNumber(0);
+        el.add(named);
+        el.add(plain);
+
+        // only registered for the property that matters
+        assertEquals(1, named.pcs.getPropertyChangeListeners("value").length);
+        assertEquals(0, named.pcs.getPropertyChangeListeners("label").length);
+        assertEquals(1, plain.pcs.getPropertyChangeListeners().length);
+
+        final List events = new ArrayList();
+        el.addListEventListener(new ListEventListener() {
+            public void listChanged(final ListEvent listEvent) {
+                events.add(listEvent);
+            }
+        });
+
+        named.setLabel("ignored");
+        assertEquals(0, events.size());
+        named.setValue(5);
+        assertEquals(1, events.size());
+        assertEquals(ListEvent.createChanged(el, 0), events.get(0));
+
+        events.clear();
+        plain.pcs.firePropertyChange("label", "a", "b");
+        assertEquals(0, events.size());
+        plain.setValue(3);
+        assertEquals(1, events.size());
+        assertEquals(ListEvent.createChanged(el, 1), events.get(0));
+
+        el.remove(named);
+        assertEquals(0, named.pcs.getPropertyChangeListeners("value").length);
+        assertEquals(0, named.pcs.getPropertyChangeListeners().length);
+    }
+
+    private static class ValueDependent implements FilteredEventList.Filter, Comparator, PropertyDependent {
+        private int evaluations = 0;
+
+        public boolean accept(final Object element) {
+            evaluations++;
+            return ((NamedBean)element).value % 2 == 0;
+        }
+
+        public int compare(final Object o1, final Object o2) {
+            evaluations++;
+            return ((NamedBean)o1).value - ((NamedBean)o2).value;
+        }
+
+        public String[] getPropertyDependencies() {
+            return new String[] {"value"};
+        }
+    }
+
+    public void testDependencyAwareViews() {
+        final ObservingEventList el = new ObservingEventList();
+        for (int i=0; i < 10; i++) {
+            final NamedBean bean = new NamedBean();
+            bean.setValue(10 - i);
+            el.add(bean);
+        }
+        final ValueDependent dependent = new ValueDependent();
+        final FilteredEventList filtered = EventLists.filteredEventList(el, dependent);
+        final SortedEventList sorted = EventLists.sortedEventList(filtered, dependent);
+        final List events = new ArrayList();
+        sorted.addListEventListener(new ListEventListener() {
+            public void listChanged(final ListEvent listEvent) {
+                events.add(listEvent);
+            }
+        });
+        assertEquals(5, sorted.size());
+
+        // the label isn't read by the filter or comparator
+        final NamedBean six = (NamedBean)el.get(4);
+        dependent.evaluations = 0;
+        six.setLabel("six");
+        assertEquals(0, dependent.evaluations);
+        assertEquals(1, events.size());
+        assertEquals(ListEvent.createChanged(sorted, 2), events.get(0));
+        assertSame(six, sorted.get(2));
+
+        // the value is
+        events.clear();
+        six.setValue(7);
+        assertTrue(dependent.evaluations > 0);
+        assertEquals(4, sorted.size());
+    }
+
     private void prefillWithMutableNumbers(final List l, final int count) {
         for (int i=0; i < count; i++) {
             l.add(new MutableNumber(i));
         }
     }
 
+    public static class NamedBean implements NamedPropertyChangeSource {
+        public final PropertyChangeSupport pcs = new PropertyChangeSupport(this);
+
+        private int value;
+        private String label;
+
+        public void setValue(final int value) {
+            final int old = this.value;
+            this.value = value;
+            pcs.firePropertyChange("value", old, value);
+        }
+
+        public void setLabel(final String label) {
+            final String old = this.label;
+            this.label = label;
+            pcs.firePropertyChange("label", old, label);
+        }
+
+        public void addPropertyChangeListener(final PropertyChangeListener listener) {
+            pcs.addPropertyChangeListener(listener);
+        }
+
+        public void removePropertyChangeListener(final PropertyChangeListener listener) {
+            pcs.removePropertyChangeListener(listener);
+        }
+
+        public void addPropertyChangeListener(final String propertyName, final PropertyChangeListener listener) {
+            pcs.addPropertyChangeListener(propertyName, listener);
+        }
+
+        public void removePropertyChangeListener(final String propertyName, final PropertyChangeListener listener) {
+            pcs.removePropertyChangeListener(propertyName, listener);
+        }
+    }
+
     public static class MutableNumber extends Number implements Comparable, PropertyChangeSource {
         public final PropertyChangeSupport pcs = new PropertyChangeSupport(this);
 
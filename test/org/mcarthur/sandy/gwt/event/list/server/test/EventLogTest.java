@@ -0,0 +1,152 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.server.test;
+
+import junit.framework.TestCase;
+import org.mcarthur.sandy.gwt.event.list.client.EventList;
+import org.mcarthur.sandy.gwt.event.list.client.EventLists;
+import org.mcarthur.sandy.gwt.event.list.client.SortedEventList;
+import org.mcarthur.sandy.gwt.event.list.server.ElementCodec;
+import org.mcarthur.sandy.gwt.event.list.server.EventLogRecorder;
+import org.mcarthur.sandy.gwt.event.list.server.EventLogReplayer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for {@link org.mcarthur.sandy.gwt.event.list.server.EventLogRecorder} and
+ * {@link org.mcarthur.sandy.gwt.event.list.server.EventLogReplayer}.
+ *
+ * @author Sandy McArthur
+ */
+public class EventLogTest extends TestCase {
+
+    private static void mutateRandomly(final EventList el, final Random rnd, final int count) {
+        for (int i=0; i < count; i++) {
+            final int size = el.size();
+            switch (rnd.nextInt(4)) {
+                case 0:
+                    el.addAll(rnd.nextInt(size + 1), Arrays.asList(new Integer[] {new Integer(-i), new Integer(i * 1000)}));
+                    break;
+                case 1:
+                    if (size > 0) {
+                        el.set(rnd.nextInt(size), new Integer(rnd.nextInt()));
+                    }
+                    break;
+                case 2:
+                    if (size > 0) {
+                        final int from = rnd.nextInt(size);
+                        el.subList(from, Math.min(size, from + 3)).clear();
+                    }
+                    break;
+                default:
+                    el.add(rnd.nextInt(size + 1), new Integer(rnd.nextInt(100) - 50));
+            }
+        }
+    }
+
+    public void testRecordAndReplay() throws IOException {
+        final EventList el = EventLists.eventList();
+        el.add(new Integer(7));
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final EventLogRecorder recorder = new EventLogRecorder(el, out, ElementCodec.INTEGER);
+        mutateRandomly(el, new Random(35), 500);
+        recorder.detach();
+
+        final EventLogReplayer replayer = new EventLogReplayer(new ByteArrayInputStream(out.toByteArray()), ElementCodec.INTEGER);
+        assertEquals(recorder.getRecordCount(), replayer.getRecordCount());
+
+        // replay twice against different pipelines
+        final EventList plain = EventLists.eventList();
+        replayer.replay(plain);
+        assertEquals(el, plain);
+
+        final EventList source = EventLists.eventList();
+        final SortedEventList sorted = EventLists.sortedEventList(source);
+        replayer.replay(source);
+        assertEquals(el, source);
+        final List expected = new ArrayList(el);
+        Collections.sort(expected);
+        assertEquals(expected, sorted);
+    }
+
+    public void testCompact() throws IOException {
+        final EventList el = EventLists.eventList();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final EventLogRecorder recorder = new EventLogRecorder(el, out, ElementCodec.INTEGER);
+        for (int i=0; i < 100; i++) {
+            el.add(new Integer(i % 50));
+        }
+        el.remove(0);
+        recorder.detach();
+
+        // header is five bytes, each add is type, index, length and one byte value
+        assertTrue("log was " + out.size() + " bytes", out.size() <= 5 + 100 * 5 + 3 + 1);
+    }
+
+    public void testStrings() throws IOException {
+        final EventList el = EventLists.eventList();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final EventLogRecorder recorder = new EventLogRecorder(el, out, ElementCodec.STRING);
+        el.add("one");
+        el.add(0, "zero");
+        el.set(1, "uno");
+        recorder.detach();
+
+        final EventList replayed = EventLists.eventList();
+        new EventLogReplayer(new ByteArrayInputStream(out.toByteArray()), ElementCodec.STRING).replay(replayed);
+        assertEquals(Arrays.asList(new String[] {"zero", "uno"}), replayed);
+    }
+
+    public void testWriteFailureReportedOnDetach() throws IOException {
+        final boolean[] broken = new boolean[1];
+        final OutputStream out = new OutputStream() {
+            public void write(final int b) throws IOException {
+                if (broken[0]) {
+                    throw new IOException("disk full");
+                }
+            }
+        };
+        final EventList el = EventLists.eventList();
+        final EventLogRecorder recorder = new EventLogRecorder(el, out, ElementCodec.INTEGER);
+        broken[0] = true;
+        el.add(new Integer(1));
+        el.add(new Integer(2));
+        try {
+            recorder.detach();
+            fail("Expected IOException");
+        } catch (IOException ioe) {
+            assertEquals("disk full", ioe.getMessage());
+        }
+    }
+
+    public void testRejectsOtherData() {
+        try {
+            new EventLogReplayer(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5}), ElementCodec.INTEGER);
+            fail("Expected IOException");
+        } catch (IOException ioe) {
+            // expected
+        }
+    }
+}
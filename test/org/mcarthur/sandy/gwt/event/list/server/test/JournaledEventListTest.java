@@ -0,0 +1,163 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.server.test;
+
+import junit.framework.TestCase;
+import org.mcarthur.sandy.gwt.event.list.server.ElementCodec;
+import org.mcarthur.sandy.gwt.event.list.server.JournaledEventList;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for {@link org.mcarthur.sandy.gwt.event.list.server.JournaledEventList}.
+ *
+ * @author Sandy McArthur
+ */
+public class JournaledEventListTest extends TestCase {
+    private File directory;
+
+    protected void setUp() throws Exception {
+        directory = File.createTempFile("journaled", "");
+        directory.delete();
+    }
+
+    protected void tearDown() throws Exception {
+        final File[] files = directory.listFiles();
+        for (int i=0; files != null && i < files.length; i++) {
+            files[i].delete();
+        }
+        directory.delete();
+    }
+
+    public void testRecoverFromJournal() throws IOException {
+        final JournaledEventList jel = new JournaledEventList(directory, ElementCodec.STRING, 0, 0);
+        jel.addAll(Arrays.asList(new Object[] {"a", "b", "c", "d"}));
+        jel.set(1, "B");
+        jel.remove("c");
+        jel.add(0, "z");
+        assertEquals(4, jel.getJournalRecordCount());
+        jel.force();
+
+        // the process died without closing
+        final JournaledEventList recovered = new JournaledEventList(directory, ElementCodec.STRING, 0, 0);
+        assertEquals(Arrays.asList(new Object[] {"z", "a", "B", "d"}), recovered);
+        assertEquals(4, recovered.getJournalRecordCount());
+        recovered.close();
+
+        try {
+            recovered.add("x");
+            fail("Expected IllegalStateException.");
+        } catch (IllegalStateException ise) {
+            // expected
+        }
+        try {
+            jel.add(null);
+            fail("Expected NullPointerException.");
+        } catch (NullPointerException npe) {
+            // expected
+        }
+        jel.close();
+    }
+
+    public void testCompactEmptiesJournal() throws IOException {
+        final JournaledEventList jel = new JournaledEventList(directory, ElementCodec.INTEGER, 0, 0);
+        for (int i=0; i < 100; i++) {
+            jel.add(Integer.valueOf(i));
+        }
+        jel.compact();
+        assertEquals(0, jel.getJournalRecordCount());
+        jel.subList(10, 90).clear();
+        jel.close();
+
+        final JournaledEventList reopened = new JournaledEventList(directory, ElementCodec.INTEGER, 0, 0);
+        assertEquals(20, reopened.size());
+        assertEquals(Integer.valueOf(90), reopened.get(10));
+        // only the change since the snapshot was replayed
+        assertEquals(1, reopened.getJournalRecordCount());
+        reopened.close();
+    }
+
+    public void testTornRecordDropped() throws IOException {
+        final JournaledEventList jel = new JournaledEventList(directory, ElementCodec.STRING, 0, 0);
+        jel.add("kept");
+        jel.add("torn");
+        jel.close();
+
+        // damage the last record's element: the journal header, the "kept" record of
+        // 8 + 9 bytes, then the record header and the type and range of the "torn" record
+        final RandomAccessFile raf = new RandomAccessFile(new File(directory, "journal"), "rw");
+        raf.seek(16 + 17 + 8 + 5);
+        raf.write('X');
+        raf.close();
+
+        final JournaledEventList recovered = new JournaledEventList(directory, ElementCodec.STRING, 0, 0);
+        assertEquals(Arrays.asList(new Object[] {"kept"}), recovered);
+        recovered.add("after");
+        recovered.close();
+
+        final JournaledEventList again = new JournaledEventList(directory, ElementCodec.STRING, 0, 0);
+        assertEquals(Arrays.asList(new Object[] {"kept", "after"}), again);
+        again.close();
+    }
+
+    public void testRandomChangesSurviveRestarts() throws IOException {
+        final Random r = new Random(49); // don't change the seed
+        final List expected = new ArrayList();
+        // a small threshold so the journal is compacted and remapped along the way
+        JournaledEventList jel = new JournaledEventList(directory, ElementCodec.INTEGER, 50, 2000);
+        for (int i=0; i < 3000; i++) {
+            final int op = r.nextInt(20);
+            if (op < 8 || expected.isEmpty()) {
+                final int index = r.nextInt(expected.size() + 1);
+                final List values = new ArrayList();
+                for (int j=r.nextInt(3); j >= 0; j--) {
+                    values.add(Integer.valueOf(r.nextInt()));
+                }
+                jel.addAll(index, values);
+                expected.addAll(index, values);
+            } else if (op < 13) {
+                final int index = r.nextInt(expected.size());
+                assertEquals(expected.remove(index), jel.remove(index));
+            } else if (op < 15) {
+                final int start = r.nextInt(expected.size());
+                final int end = Math.min(expected.size(), start + r.nextInt(5));
+                jel.subList(start, end).clear();
+                expected.subList(start, end).clear();
+            } else if (op < 19) {
+                final int index = r.nextInt(expected.size());
+                final Integer value = Integer.valueOf(r.nextInt());
+                jel.set(index, value);
+                expected.set(index, value);
+            } else {
+                if (r.nextBoolean()) {
+                    jel.close();
+                } else {
+                    jel.force();
+                }
+                jel = new JournaledEventList(directory, ElementCodec.INTEGER, 50, 2000);
+            }
+            assertEquals(expected, jel);
+        }
+        jel.close();
+    }
+}
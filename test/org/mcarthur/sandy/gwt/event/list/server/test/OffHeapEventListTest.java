@@ -0,0 +1,275 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.server.test;
+
+import junit.framework.TestCase;
+import org.mcarthur.sandy.gwt.event.list.client.DoubleEventList;
+import org.mcarthur.sandy.gwt.event.list.client.EventLists;
+import org.mcarthur.sandy.gwt.event.list.client.FilteredEventList;
+import org.mcarthur.sandy.gwt.event.list.client.IndexComparator;
+import org.mcarthur.sandy.gwt.event.list.client.IntEventList;
+import org.mcarthur.sandy.gwt.event.list.client.ListEvent;
+import org.mcarthur.sandy.gwt.event.list.client.ListEventListener;
+import org.mcarthur.sandy.gwt.event.list.client.RangedEventList;
+import org.mcarthur.sandy.gwt.event.list.client.SortedEventList;
+import org.mcarthur.sandy.gwt.event.list.server.OffHeapEventList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for {@link org.mcarthur.sandy.gwt.event.list.server.OffHeapEventList}.
+ *
+ * @author Sandy McArthur
+ */
+public class OffHeapEventListTest extends TestCase {
+    private static final int ID = 0;
+    private static final int PRICE = 1;
+    private static final int VOLUME = 2;
+
+    private static OffHeapEventList createQuotes(final int segmentSize) {
+        return new OffHeapEventList(new String[] {"id", "price", "volume"},
+                new int[] {OffHeapEventList.TYPE_INT, OffHeapEventList.TYPE_DOUBLE, OffHeapEventList.TYPE_LONG}, segmentSize);
+    }
+
+    private static OffHeapEventList createIds(final int count) {
+        final OffHeapEventList ohel = new OffHeapEventList(new String[] {"id"}, new int[] {OffHeapEventList.TYPE_INT}, 4);
+        for (int i=0; i < count; i++) {
+            ohel.add(new Object[] {new Integer(i)});
+        }
+        return ohel;
+    }
+
+    private static List ids(final List records) {
+        final List ids = new ArrayList();
+        for (int i=0; i < records.size(); i++) {
+            ids.add(new Integer(((OffHeapEventList.Record)records.get(i)).getInt(ID)));
+        }
+        return ids;
+    }
+
+    public void testFields() {
+        final OffHeapEventList ohel = createQuotes(4);
+        assertEquals(20, ohel.getRecordSize());
+        assertEquals(2, ohel.getFieldIndex("volume"));
+        ohel.add(new Object[] {new Integer(1), new Double(2.5), new Long(1L << 40)});
+        ohel.add(0, new Object[] {new Integer(2), new Integer(3), new Integer(4)});
+        assertEquals(2, ohel.getInt(0, ID));
+        assertEquals(3.0, ohel.getDouble(0, PRICE), 0);
+        assertEquals(1L << 40, ohel.getLong(1, VOLUME));
+        assertEquals(1L, ohel.getLong(1, ID));
+
+        final OffHeapEventList.Record record = (OffHeapEventList.Record)ohel.get(1);
+        assertEquals(Arrays.asList(new Object[] {new Integer(1), new Double(2.5), new Long(1L << 40)}), Arrays.asList(record.toArray()));
+        ohel.add(record);
+        assertEquals(Arrays.asList(record.toArray()), Arrays.asList(((OffHeapEventList.Record)ohel.get(2)).toArray()));
+        assertFalse(record.equals(ohel.get(2)));
+
+        final Object[] old = (Object[])ohel.set(0, new Object[] {new Integer(5), new Double(6), new Long(7)});
+        assertEquals(new Integer(2), old[ID]);
+        assertEquals(Arrays.asList(new Object[] {new Integer(1), new Double(2.5), new Long(1L << 40)}), Arrays.asList((Object[])ohel.remove(1)));
+        assertEquals(2, ohel.size());
+
+        try {
+            ohel.getInt(0, PRICE);
+            fail("Expected IllegalArgumentException.");
+        } catch (IllegalArgumentException iae) {
+            // expected
+        }
+        try {
+            ohel.add(new Object[] {new Integer(1), "2", new Long(3)});
+            fail("Expected IllegalArgumentException.");
+        } catch (IllegalArgumentException iae) {
+            // expected
+        }
+        try {
+            ohel.getLong(2, VOLUME);
+            fail("Expected IndexOutOfBoundsException.");
+        } catch (IndexOutOfBoundsException ioobe) {
+            // expected
+        }
+    }
+
+    public void testFieldChangesOnlyResortDependents() {
+        final OffHeapEventList ohel = createQuotes(8);
+        for (int i=0; i < 20; i++) {
+            ohel.add(new Object[] {new Integer(i), new Double((i * 7) % 20), new Long(i)});
+        }
+        final SortedEventList byPrice = EventLists.sortedEventList(ohel, ohel.getComparator(PRICE));
+        final FilteredEventList cheap = EventLists.filteredEventList(ohel, ohel.getDoubleFilter(PRICE, new DoubleEventList.DoubleFilter() {
+            public boolean accept(final double value) {
+                return value < 5;
+            }
+        }));
+        assertEquals(5, cheap.size());
+        assertEquals(0.0, ((OffHeapEventList.Record)byPrice.get(0)).getDouble(PRICE), 0);
+        assertEquals(19.0, ((OffHeapEventList.Record)byPrice.get(19)).getDouble(PRICE), 0);
+
+        final List events = new ArrayList();
+        byPrice.addListEventListener(new ListEventListener() {
+            public void listChanged(final ListEvent listEvent) {
+                events.add(listEvent);
+            }
+        });
+        ohel.setLong(3, VOLUME, 100);
+        assertEquals(1, events.size());
+        assertTrue(((ListEvent)events.get(0)).isChanged());
+
+        ohel.setDouble(4, PRICE, -1);
+        assertEquals(4, ((OffHeapEventList.Record)byPrice.get(0)).getInt(ID));
+        assertEquals(6, cheap.size());
+    }
+
+    public void testViewsOfRecords() {
+        final OffHeapEventList ohel = createIds(5);
+        final RangedEventList first3 = EventLists.rangedEventList(ohel, 3);
+        final FilteredEventList even = EventLists.filteredEventList(ohel, ohel.getIntFilter(ID, new IntEventList.IntFilter() {
+            public boolean accept(final int value) {
+                return value % 2 == 0;
+            }
+        }));
+        final SortedEventList descending = EventLists.sortedEventList(ohel, Collections.reverseOrder(ohel.getComparator(ID)));
+
+        ohel.add(0, new Object[] {new Integer(99)});
+        assertEquals(Arrays.asList(new Object[] {new Integer(99), new Integer(0), new Integer(1)}), ids(first3));
+
+        ohel.remove(0);
+        ohel.remove(0);
+        assertEquals(Arrays.asList(new Object[] {new Integer(1), new Integer(2), new Integer(3)}), ids(first3));
+
+        // enough inserts before the window to split segments
+        for (int i=0; i < 6; i++) {
+            ohel.add(0, new Object[] {new Integer(10 + i * 2)});
+        }
+        ohel.remove(7);
+        assertEquals(Arrays.asList(new Object[] {new Integer(20), new Integer(18), new Integer(16)}), ids(first3));
+        assertEquals(Arrays.asList(new Object[] {new Integer(20), new Integer(18), new Integer(16), new Integer(14), new Integer(12), new Integer(10), new Integer(4)}), ids(even));
+        assertEquals(Arrays.asList(new Object[] {new Integer(20), new Integer(18), new Integer(16), new Integer(14), new Integer(12), new Integer(10), new Integer(4), new Integer(3), new Integer(1)}), ids(descending));
+    }
+
+    public void testSortingComparesByPosition() {
+        final int[] gets = new int[1];
+        final OffHeapEventList ohel = new OffHeapEventList(new String[] {"id"}, new int[] {OffHeapEventList.TYPE_INT}, 64) {
+            public Object get(final int index) {
+                gets[0]++;
+                return super.get(index);
+            }
+        };
+        final Random r = new Random(50); // don't change the seed
+        for (int i=0; i < 1000; i++) {
+            ohel.add(new Object[] {new Integer(r.nextInt(100))});
+        }
+        final SortedEventList sorted = EventLists.sortedEventList(ohel, ohel.getComparator(ID));
+        ohel.add(new Object[] {new Integer(50)});
+        ohel.setInt(3, ID, 200);
+        assertEquals(0, gets[0]);
+
+        assertTrue(ohel.getComparator(ID) instanceof IndexComparator);
+        for (int i=1; i < sorted.size(); i++) {
+            assertTrue(((OffHeapEventList.Record)sorted.get(i - 1)).getInt(ID) <= ((OffHeapEventList.Record)sorted.get(i)).getInt(ID));
+        }
+        assertEquals(200, ((OffHeapEventList.Record)sorted.get(sorted.size() - 1)).getInt(ID));
+    }
+
+    public void testRecordsFollowTheirRecords() {
+        final Random r = new Random(50); // don't change the seed
+        final OffHeapEventList ohel = createIds(0);
+        final List records = new ArrayList();
+        final List removed = new ArrayList();
+        for (int i=0; i < 3000; i++) {
+            final int op = r.nextInt(10);
+            if (op < 5 || records.isEmpty()) {
+                final int index = r.nextInt(records.size() + 1);
+                final List values = new ArrayList();
+                for (int j=r.nextInt(6); j >= 0; j--) {
+                    values.add(new Object[] {new Integer(i)});
+                }
+                ohel.addAll(index, values);
+                for (int j=0; j < values.size(); j++) {
+                    records.add(index + j, r.nextBoolean() ? ohel.get(index + j) : null);
+                }
+            } else if (op < 8) {
+                final int start = r.nextInt(records.size());
+                final int end = Math.min(records.size(), start + 1 + r.nextInt(6));
+                ohel.subList(start, end).clear();
+                for (int j=start; j < end; j++) {
+                    removed.add(records.remove(start));
+                }
+            } else {
+                final int index = r.nextInt(records.size());
+                ohel.setInt(index, ID, -i);
+            }
+            for (int j=0; j < records.size(); j++) {
+                final OffHeapEventList.Record record = (OffHeapEventList.Record)records.get(j);
+                if (record != null) {
+                    assertSame(record, ohel.get(j));
+                    assertEquals(j, record.getIndex());
+                }
+            }
+        }
+        for (int i=0; i < removed.size(); i++) {
+            final OffHeapEventList.Record record = (OffHeapEventList.Record)removed.get(i);
+            assertTrue(record == null || record.getIndex() == -1);
+        }
+    }
+
+    public void testRandomOperationsMatchArrayList() {
+        final Random r = new Random(50); // don't change the seed
+        final OffHeapEventList ohel = createQuotes(16);
+        final List expected = new ArrayList();
+        for (int i=0; i < 5000; i++) {
+            final int op = r.nextInt(10);
+            if (op < 5 || expected.isEmpty()) {
+                final int index = r.nextInt(expected.size() + 1);
+                final List values = new ArrayList();
+                for (int j=r.nextInt(r.nextInt(10) == 0 ? 40 : 3); j >= 0; j--) {
+                    values.add(new Object[] {new Integer(i), new Double(r.nextDouble()), new Long(r.nextLong())});
+                }
+                ohel.addAll(index, values);
+                for (int j=0; j < values.size(); j++) {
+                    expected.add(index + j, Arrays.asList((Object[])values.get(j)));
+                }
+            } else if (op < 7) {
+                final int index = r.nextInt(expected.size());
+                assertEquals(expected.remove(index), Arrays.asList((Object[])ohel.remove(index)));
+            } else if (op < 8) {
+                final int start = r.nextInt(expected.size());
+                final int end = Math.min(expected.size(), start + r.nextInt(30));
+                ohel.subList(start, end).clear();
+                expected.subList(start, end).clear();
+            } else {
+                final int index = r.nextInt(expected.size());
+                final long volume = r.nextLong();
+                ohel.setLong(index, VOLUME, volume);
+                final List values = new ArrayList((List)expected.get(index));
+                values.set(VOLUME, new Long(volume));
+                expected.set(index, values);
+            }
+            assertEquals(expected.size(), ohel.size());
+            if (i % 50 == 0 || expected.size() < 20) {
+                for (int j=0; j < expected.size(); j++) {
+                    assertEquals(expected.get(j), Arrays.asList(((OffHeapEventList.Record)ohel.get(j)).toArray()));
+                }
+            }
+            // small segments are merged so there are never many more segments than needed
+            assertTrue(ohel.getSegmentCount() <= 2 + ohel.size() / 4);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.server.test;
+
+import junit.framework.TestCase;
+import org.mcarthur.sandy.gwt.event.list.client.EventList;
+import org.mcarthur.sandy.gwt.event.list.client.EventLists;
+import org.mcarthur.sandy.gwt.event.list.client.SortedEventList;
+import org.mcarthur.sandy.gwt.event.list.server.WeakAttachPolicy;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for {@link org.mcarthur.sandy.gwt.event.list.server.WeakAttachPolicy}.
+ *
+ * @author Sandy McArthur
+ */
+public class WeakAttachPolicyTest extends TestCase {
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        EventLists.setAttachPolicy(new WeakAttachPolicy());
+    }
+
+    protected void tearDown() throws Exception {
+        EventLists.setAttachPolicy(null);
+        super.tearDown();
+    }
+
+    public void testReachableViewStillWorks() {
+        final EventList el = EventLists.eventList();
+        final SortedEventList sel = EventLists.sortedEventList(el);
+
+        el.add(Integer.valueOf(2));
+        el.add(Integer.valueOf(1));
+        assertEquals(2, sel.size());
+        assertEquals(Integer.valueOf(1), sel.get(0));
+        assertEquals(1, EventLists.getViews(el).size());
+    }
+
+    public void testUnreachableViewIsCollected() {
+        final EventList el = EventLists.eventList();
+        final WeakReference ref = new WeakReference(EventLists.filteredEventList(EventLists.sortedEventList(el)));
+
+        collect(ref);
+        assertNull("view was not collected", ref.get());
+
+        // the next event removes the stale registration
+        el.add("one");
+        assertEquals(0, EventLists.getViews(el).size());
+    }
+
+    private static void collect(final WeakReference ref) {
+        for (int i=0; i < 50 && ref.get() != null; i++) {
+            final List garbage = new ArrayList();
+            for (int j=0; j < 1000; j++) {
+                garbage.add(new byte[1024]);
+            }
+            System.gc();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.test;
+
+import org.mcarthur.sandy.gwt.event.list.client.CappedEventList;
+import org.mcarthur.sandy.gwt.event.list.client.EventList;
+import org.mcarthur.sandy.gwt.event.list.client.EventLists;
+import org.mcarthur.sandy.gwt.event.list.client.ListEvent;
+import org.mcarthur.sandy.gwt.event.list.client.ListEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for {@link org.mcarthur.sandy.gwt.event.list.client.CappedEventList}.
+ *
+ * @author Sandy McArthur
+ */
+public class CappedEventListTest extends EventListTest {
+    protected EventList createEmptyEventLists() {
+        return EventLists.cappedEventList(1000);
+    }
+
+    public void testAppendEvicts() {
+        final CappedEventList cel = EventLists.cappedEventList(5);
+        final List archive = new ArrayList();
+        cel.setEvictionListener(new CappedEventList.EvictionListener() {
+            public void evicted(final CappedEventList source, final List evicted) {
+                archive.addAll(evicted);
+            }
+        });
+        final List events = new ArrayList();
+        cel.addListEventListener(new ListEventListener() {
+            public void listChanged(final ListEvent listEvent) {
+                events.add(listEvent);
+            }
+        });
+
+        prefillWithIntegers(cel, 5);
+        assertEquals(5, events.size());
+        assertEquals(0, archive.size());
+
+        events.clear();
+        cel.addAll(Arrays.asList(new Object[] {"a", "b", "c"}));
+        assertEquals(Arrays.asList(new Object[] {Integer.valueOf(3), Integer.valueOf(4), "a", "b", "c"}), cel);
+        assertEquals(Arrays.asList(new Object[] {Integer.valueOf(0), Integer.valueOf(1), Integer.valueOf(2)}), archive);
+        assertEquals(4, events.size());
+        assertEquals(ListEvent.createRemoved(cel, 0, 3), events.get(1));
+        assertEquals(ListEvent.createAdded(cel, 2, 5), events.get(2));
+
+        archive.clear();
+        cel.addAll(Arrays.asList(new Object[] {"1", "2", "3", "4", "5", "6", "7"}));
+        assertEquals(Arrays.asList(new Object[] {"3", "4", "5", "6", "7"}), cel);
+        assertEquals(Arrays.asList(new Object[] {Integer.valueOf(3), Integer.valueOf(4), "a", "b", "c", "1", "2"}), archive);
+
+        archive.clear();
+        cel.setCapacity(2);
+        assertEquals(Arrays.asList(new Object[] {"6", "7"}), cel);
+        assertEquals(3, archive.size());
+
+        archive.clear();
+        events.clear();
+        cel.add(0, "too old");
+        assertEquals(Arrays.asList(new Object[] {"too old"}), archive);
+        assertEquals(Arrays.asList(new Object[] {"6", "7"}), cel);
+        assertEquals(0, events.size());
+
+        try {
+            cel.setCapacity(0);
+            fail("Expected IllegalArgumentException.");
+        } catch (IllegalArgumentException iae) {
+            // expected
+        }
+    }
+
+    public void testRandomOperationsMatchArrayList() {
+        final Random r = new Random(45); // don't change the seed
+        final CappedEventList cel = EventLists.cappedEventList(20);
+        final List replay = new EventListReplayList(cel);
+        final List expected = new ArrayList();
+        for (int i=0; i < 5000; i++) {
+            final int op = r.nextInt(10);
+            if (op < 5 || expected.isEmpty()) {
+                final List values = new ArrayList();
+                for (int j=r.nextInt(4); j >= 0; j--) {
+                    values.add(Integer.valueOf(i * 10 + j));
+                }
+                cel.addAll(values);
+                expected.addAll(values);
+            } else if (op < 6) {
+                final int index = r.nextInt(expected.size() + 1);
+                final Integer value = Integer.valueOf(-i);
+                cel.add(index, value);
+                expected.add(index, value);
+            } else if (op < 8) {
+                final int index = r.nextInt(expected.size());
+                assertEquals(expected.remove(index), cel.remove(index));
+            } else if (op < 9) {
+                final int start = r.nextInt(expected.size());
+                final int end = Math.min(expected.size(), start + r.nextInt(4));
+                cel.subList(start, end).clear();
+                expected.subList(start, end).clear();
+            } else {
+                final int index = r.nextInt(expected.size());
+                expected.set(index, cel.get(index) + "!");
+                cel.set(index, expected.get(index));
+            }
+            while (expected.size() > 20) {
+                expected.remove(0);
+            }
+            assertEquals(expected, cel);
+            assertEquals(expected, replay);
+        }
+    }
+}
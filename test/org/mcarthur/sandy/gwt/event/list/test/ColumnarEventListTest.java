@@ -0,0 +1,277 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.test;
+
+import junit.framework.TestCase;
+import org.mcarthur.sandy.gwt.event.list.client.ColumnarEventList;
+import org.mcarthur.sandy.gwt.event.list.client.DoubleEventList;
+import org.mcarthur.sandy.gwt.event.list.client.EventLists;
+import org.mcarthur.sandy.gwt.event.list.client.FilteredEventList;
+import org.mcarthur.sandy.gwt.event.list.client.IntEventList;
+import org.mcarthur.sandy.gwt.event.list.client.ListEvent;
+import org.mcarthur.sandy.gwt.event.list.client.ListEventListener;
+import org.mcarthur.sandy.gwt.event.list.client.RangedEventList;
+import org.mcarthur.sandy.gwt.event.list.client.SortedEventList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for {@link org.mcarthur.sandy.gwt.event.list.client.ColumnarEventList}.
+ *
+ * @author Sandy McArthur
+ */
+public class ColumnarEventListTest extends TestCase {
+    private static final int ID = 0;
+    private static final int PRICE = 1;
+    private static final int NAME = 2;
+
+    private ColumnarEventList createProducts() {
+        final ColumnarEventList cel = EventLists.columnarEventList(new String[] {"id", "price", "name"},
+                new int[] {ColumnarEventList.TYPE_INT, ColumnarEventList.TYPE_DOUBLE, ColumnarEventList.TYPE_OBJECT});
+        cel.add(new Object[] {new Integer(3), new Double(2.5), "pear"});
+        cel.add(new Object[] {new Integer(1), new Double(0.5), "apple"});
+        cel.add(new Object[] {new Integer(2), new Integer(4), "melon"});
+        return cel;
+    }
+
+    public void testColumnAccess() {
+        final ColumnarEventList cel = createProducts();
+        assertEquals(3, cel.getColumnCount());
+        assertEquals(PRICE, cel.getColumnIndex("price"));
+        assertEquals(-1, cel.getColumnIndex("weight"));
+
+        final ColumnarEventList.Row row = (ColumnarEventList.Row)cel.get(2);
+        assertEquals(2, row.getInt(ID));
+        assertEquals(4.0, row.getDouble(PRICE), 0.0);
+        assertEquals(2.0, row.getDouble(ID), 0.0);
+        assertEquals("melon", row.getValue(NAME));
+        assertEquals(Arrays.asList(new Object[] {new Integer(2), new Double(4), "melon"}), Arrays.asList(row.toArray()));
+        assertFalse(cel.contains(new Object[] {new Integer(1), new Double(0.5), "apple"})); // an Object[] isn't a Row
+        assertEquals(1, cel.indexOf(cel.get(1)));
+
+        assertEquals(7.0, cel.sum(PRICE), 0.0);
+        assertEquals(6.0, cel.sum(ID), 0.0);
+        assertTrue(Arrays.equals(new double[] {3, 1, 2}, cel.toDoubleArray(ID)));
+
+        try {
+            cel.getInt(0, PRICE);
+            fail("Expected IllegalArgumentException.");
+        } catch (IllegalArgumentException iae) {
+            // expected
+        }
+        try {
+            cel.sum(NAME);
+            fail("Expected IllegalArgumentException.");
+        } catch (IllegalArgumentException iae) {
+            // expected
+        }
+        try {
+            cel.add(new Object[] {null, new Double(1), "fig"});
+            fail("Expected NullPointerException.");
+        } catch (NullPointerException npe) {
+            // expected
+        }
+        try {
+            cel.add(new Object[] {new Integer(4)});
+            fail("Expected IllegalArgumentException.");
+        } catch (IllegalArgumentException iae) {
+            // expected
+        }
+        assertEquals(3, cel.size());
+    }
+
+    public void testSetAndRemoveReturnValues() {
+        final ColumnarEventList cel = createProducts();
+        final List events = new ArrayList();
+        cel.addListEventListener(new ListEventListener() {
+            public void listChanged(final ListEvent listEvent) {
+                events.add(listEvent);
+            }
+        });
+
+        cel.setDouble(0, PRICE, 3.0);
+        assertEquals(1, events.size());
+        final ListEvent changed = (ListEvent)events.get(0);
+        assertTrue(changed.isChanged());
+        assertTrue(Arrays.equals(new String[] {"price"}, changed.getChangedProperties()));
+
+        final Object[] old = (Object[])cel.set(1, cel.get(0));
+        assertEquals("apple", old[NAME]);
+        assertEquals("pear", cel.getValue(1, NAME));
+        assertNull(((ListEvent)events.get(1)).getChangedProperties());
+
+        final Object[] removed = (Object[])cel.remove(0);
+        assertEquals(new Integer(3), removed[ID]);
+        assertEquals(2, cel.size());
+        cel.clear();
+        assertEquals(0, cel.size());
+        assertTrue(((ListEvent)events.get(3)).isRemoved());
+    }
+
+    public void testColumnViews() {
+        final ColumnarEventList cel = createProducts();
+        final SortedEventList byPrice = EventLists.sortedEventList(cel, cel.getComparator(PRICE));
+        final FilteredEventList cheap = EventLists.filteredEventList(byPrice, cel.getDoubleFilter(PRICE, new DoubleEventList.DoubleFilter() {
+            public boolean accept(final double value) {
+                return value < 3;
+            }
+        }));
+        final FilteredEventList odd = EventLists.filteredEventList(cel, cel.getIntFilter(ID, new IntEventList.IntFilter() {
+            public boolean accept(final int value) {
+                return value % 2 == 1;
+            }
+        }));
+        final SortedEventList byName = EventLists.sortedEventList(cel, cel.getComparator(NAME));
+
+        assertEquals(Arrays.asList(new Object[] {"apple", "pear"}), names(cheap));
+        assertEquals(Arrays.asList(new Object[] {"pear", "apple"}), names(odd));
+        assertEquals(Arrays.asList(new Object[] {"apple", "melon", "pear"}), names(byName));
+
+        final List events = new ArrayList();
+        byPrice.addListEventListener(new ListEventListener() {
+            public void listChanged(final ListEvent listEvent) {
+                events.add(listEvent);
+            }
+        });
+        // renaming doesn't touch the price order
+        cel.setValue(0, NAME, "quince");
+        assertEquals(1, events.size());
+        assertTrue(((ListEvent)events.get(0)).isChanged());
+        assertEquals(Arrays.asList(new Object[] {"apple", "melon", "quince"}), names(byName));
+
+        cel.setDouble(2, PRICE, 1.0);
+        assertEquals(Arrays.asList(new Object[] {"apple", "melon", "quince"}), names(cheap));
+        cel.setInt(1, ID, 4);
+        assertEquals(Arrays.asList(new Object[] {"quince"}), names(odd));
+    }
+
+    public void testRowsFollowTheirRecords() {
+        final ColumnarEventList cel = createIds(5);
+        final ColumnarEventList.Row row2 = (ColumnarEventList.Row)cel.get(2);
+
+        cel.add(0, new Object[] {new Integer(99)});
+        assertSame(row2, cel.get(3));
+        assertEquals(3, row2.getIndex());
+        assertEquals(2, row2.getInt(0));
+
+        cel.remove(3);
+        assertEquals(-1, row2.getIndex());
+        assertFalse(cel.contains(row2));
+        try {
+            row2.toArray();
+            fail("Expected IndexOutOfBoundsException.");
+        } catch (IndexOutOfBoundsException ioobe) {
+            // expected
+        }
+    }
+
+    public void testRangedViewOfRecords() {
+        final ColumnarEventList cel = createIds(5);
+        final RangedEventList first3 = EventLists.rangedEventList(cel, 3);
+        final List replay = new EventListReplayList(first3);
+        assertEquals(Arrays.asList(new Object[] {new Integer(0), new Integer(1), new Integer(2)}), ids(first3));
+
+        cel.add(0, new Object[] {new Integer(99)});
+        assertEquals(Arrays.asList(new Object[] {new Integer(99), new Integer(0), new Integer(1)}), ids(first3));
+
+        cel.remove(0);
+        cel.remove(0);
+        assertEquals(Arrays.asList(new Object[] {new Integer(1), new Integer(2), new Integer(3)}), ids(first3));
+        assertEquals(first3, replay);
+    }
+
+    public void testFilteredViewOfRecords() {
+        final ColumnarEventList cel = createIds(5);
+        final FilteredEventList all = EventLists.filteredEventList(cel, cel.getIntFilter(0, new IntEventList.IntFilter() {
+            public boolean accept(final int value) {
+                return true;
+            }
+        }));
+        final List replay = new EventListReplayList(all);
+
+        cel.add(0, new Object[] {new Integer(50)});
+        cel.remove(2);
+        assertEquals(Arrays.asList(new Object[] {new Integer(50), new Integer(0), new Integer(2), new Integer(3), new Integer(4)}), ids(all));
+        assertEquals(all, replay);
+
+        final SortedEventList descending = EventLists.sortedEventList(all, Collections.reverseOrder(cel.getComparator(0)));
+        cel.add(1, new Object[] {new Integer(7)});
+        cel.remove(0);
+        assertEquals(Arrays.asList(new Object[] {new Integer(7), new Integer(4), new Integer(3), new Integer(2), new Integer(0)}), ids(descending));
+    }
+
+    public void testRandomOperationsMatchArrayList() {
+        final Random r = new Random(40); // don't change the seed
+        final ColumnarEventList cel = EventLists.columnarEventList(new String[] {"i", "d", "o"},
+                new int[] {ColumnarEventList.TYPE_INT, ColumnarEventList.TYPE_DOUBLE, ColumnarEventList.TYPE_OBJECT});
+        final List expected = new ArrayList();
+
+        for (int i=0; i < 3000; i++) {
+            final int op = r.nextInt(10);
+            if (op < 4 || expected.isEmpty()) {
+                final int index = r.nextInt(expected.size() + 1);
+                final List records = new ArrayList();
+                for (int j=r.nextInt(3); j >= 0; j--) {
+                    records.add(new Object[] {new Integer(i), new Double(i / 2.0), "o" + i});
+                }
+                cel.addAll(index, records);
+                for (int j=0; j < records.size(); j++) {
+                    expected.add(index + j, Arrays.asList((Object[])records.get(j)));
+                }
+            } else if (op < 7) {
+                final int index = r.nextInt(expected.size());
+                assertEquals(expected.remove(index), Arrays.asList((Object[])cel.remove(index)));
+            } else {
+                final int index = r.nextInt(expected.size());
+                cel.setInt(index, 0, -i);
+                ((List)expected.get(index)).set(0, new Integer(-i));
+            }
+        }
+        assertEquals(expected.size(), cel.size());
+        for (int i=0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), Arrays.asList(((ColumnarEventList.Row)cel.get(i)).toArray()));
+        }
+    }
+
+    private static ColumnarEventList createIds(final int count) {
+        final ColumnarEventList cel = EventLists.columnarEventList(new String[] {"id"}, new int[] {ColumnarEventList.TYPE_INT});
+        for (int i=0; i < count; i++) {
+            cel.add(new Object[] {new Integer(i)});
+        }
+        return cel;
+    }
+
+    private static List ids(final List rows) {
+        final List ids = new ArrayList();
+        for (int i=0; i < rows.size(); i++) {
+            ids.add(((ColumnarEventList.Row)rows.get(i)).getValue(0));
+        }
+        return ids;
+    }
+
+    private static List names(final List rows) {
+        final List names = new ArrayList();
+        for (int i=0; i < rows.size(); i++) {
+            names.add(((ColumnarEventList.Row)rows.get(i)).getValue(NAME));
+        }
+        return names;
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.test;
+
+import junit.framework.TestCase;
+import org.mcarthur.sandy.gwt.event.list.client.AbstractEventList;
+import org.mcarthur.sandy.gwt.event.list.client.DeltaApplier;
+import org.mcarthur.sandy.gwt.event.list.client.DeltaCodec;
+import org.mcarthur.sandy.gwt.event.list.client.DeltaPublisher;
+import org.mcarthur.sandy.gwt.event.list.client.EventList;
+import org.mcarthur.sandy.gwt.event.list.client.EventLists;
+import org.mcarthur.sandy.gwt.event.list.client.ListEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for {@link org.mcarthur.sandy.gwt.event.list.client.DeltaPublisher} and
+ * {@link org.mcarthur.sandy.gwt.event.list.client.DeltaApplier}.
+ *
+ * @author Sandy McArthur
+ */
+public class DeltaSyncTest extends TestCase {
+
+    public void testPushedDeltas() {
+        final EventList source = EventLists.eventList();
+        source.addAll(Arrays.asList(new Object[] {"a", "", "c;d"}));
+        final List sent = new ArrayList();
+        final DeltaPublisher publisher = new DeltaPublisher(source, DeltaCodec.STRING, 10, new DeltaPublisher.Transport() {
+            public void send(final String message) {
+                sent.add(message);
+            }
+        });
+        final EventList target = EventLists.eventList();
+        final DeltaApplier applier = new DeltaApplier(target, DeltaCodec.STRING, new DeltaApplier.ResyncHandler() {
+            public void resync(final DeltaApplier applier, final int sequence) {
+                applier.apply(publisher.poll(sequence));
+            }
+        });
+
+        applier.resync();
+        assertEquals(source, target);
+        assertEquals(0, applier.getSequence());
+
+        assertNull(publisher.flush());
+        source.add("e");
+        source.set(1, "b");
+        source.remove(0);
+        assertEquals("D0,1;+3,1;1:e~1,1;1:b-0,1;", publisher.flush());
+        assertEquals(1, sent.size());
+        assertTrue(applier.apply((String)sent.get(0)));
+        assertEquals(source, target);
+
+        // stale and duplicate messages are ignored
+        assertFalse(applier.apply((String)sent.get(0)));
+        assertFalse(applier.apply(publisher.poll(-1).replaceFirst("S1", "S0")));
+        assertEquals(source, target);
+
+        // a missed delta is fetched with a resync
+        source.add("f");
+        publisher.flush();
+        source.add("g");
+        publisher.flush();
+        assertFalse(applier.apply((String)sent.get(2)));
+        assertEquals(3, applier.getSequence());
+        assertEquals(source, target);
+
+        publisher.detach();
+        try {
+            publisher.poll(0);
+            fail("Expected IllegalStateException.");
+        } catch (IllegalStateException ise) {
+            // expected
+        }
+    }
+
+    public void testDroppedResyncReply() {
+        final EventList source = EventLists.eventList();
+        final List sent = new ArrayList();
+        final DeltaPublisher publisher = new DeltaPublisher(source, DeltaCodec.STRING, 10, new DeltaPublisher.Transport() {
+            public void send(final String message) {
+                sent.add(message);
+            }
+        });
+        final List resyncs = new ArrayList();
+        final EventList target = EventLists.eventList();
+        final DeltaApplier applier = new DeltaApplier(target, DeltaCodec.STRING, new DeltaApplier.ResyncHandler() {
+            public void resync(final DeltaApplier applier, final int sequence) {
+                resyncs.add(Integer.valueOf(sequence));
+            }
+        });
+        assertTrue(applier.apply(publisher.poll(-1)));
+
+        source.add("a");
+        publisher.flush();
+        source.add("b");
+        publisher.flush();
+        // the first delta is lost, the reply to the resync is lost too
+        assertFalse(applier.apply((String)sent.get(1)));
+        assertEquals(1, resyncs.size());
+        source.add("c");
+        publisher.flush();
+        assertFalse(applier.apply((String)sent.get(2)));
+        assertEquals(1, resyncs.size());
+
+        applier.resyncFailed();
+        source.add("d");
+        publisher.flush();
+        assertFalse(applier.apply((String)sent.get(3)));
+        assertEquals(2, resyncs.size());
+        assertEquals(Integer.valueOf(0), resyncs.get(1));
+        assertTrue(applier.apply(publisher.poll(0)));
+        assertEquals(source, target);
+    }
+
+    public void testPollAfterHistoryGetsSnapshot() {
+        final EventList source = EventLists.eventList();
+        final DeltaPublisher publisher = new DeltaPublisher(source, DeltaCodec.INTEGER, 2);
+        assertEquals("S0;*0;", publisher.poll(-1));
+        assertEquals("D0,0;", publisher.poll(0));
+        for (int i=0; i < 3; i++) {
+            source.add(Integer.valueOf(i));
+            publisher.flush();
+        }
+        assertEquals("D1,3;+1,1;1:1+2,1;1:2", publisher.poll(1));
+        assertEquals("S3;*3;1:01:11:2", publisher.poll(0));
+
+        // an OTHER event is sent as the whole list
+        final OtherEventList other = new OtherEventList();
+        final DeltaPublisher otherPublisher = new DeltaPublisher(other, DeltaCodec.INTEGER, 2);
+        other.add(Integer.valueOf(7));
+        other.fireOther();
+        other.add(Integer.valueOf(8));
+        assertEquals("D0,1;*2;1:71:8", otherPublisher.flush());
+    }
+
+    public void testMalformed() {
+        final DeltaApplier applier = new DeltaApplier(EventLists.eventList(), DeltaCodec.STRING, null);
+        final String[] malformed = {"X0;", "S", "S0;+0,2;1:a", "S0;-0,1;", "S0;*1;5:a", "D0,x;"};
+        for (int i=0; i < malformed.length; i++) {
+            try {
+                applier.apply(malformed[i]);
+                fail("Expected IllegalArgumentException for " + malformed[i]);
+            } catch (IllegalArgumentException iae) {
+                // expected
+            }
+        }
+    }
+
+    public void testDeltaSizeDependsOnChange() {
+        final EventList source = EventLists.eventList();
+        for (int i=0; i < 10000; i++) {
+            source.add(Integer.valueOf(i));
+        }
+        final DeltaPublisher publisher = new DeltaPublisher(source, DeltaCodec.INTEGER, 10);
+        final String snapshot = publisher.poll(-1);
+        source.set(5000, Integer.valueOf(-1));
+        final String delta = publisher.poll(0);
+        assertEquals("D0,1;~5000,1;2:-1", delta);
+        assertTrue(snapshot.length() > 100 * delta.length());
+    }
+
+    public void testRandomLossyTransport() {
+        final Random r = new Random(48); // don't change the seed
+        final EventList source = EventLists.eventList();
+        final List inFlight = new ArrayList();
+        final DeltaPublisher publisher = new DeltaPublisher(source, DeltaCodec.INTEGER, 5, new DeltaPublisher.Transport() {
+            public void send(final String message) {
+                inFlight.add(message);
+            }
+        });
+        final List resyncs = new ArrayList();
+        final EventList target = EventLists.eventList();
+        final DeltaApplier applier = new DeltaApplier(target, DeltaCodec.INTEGER, new DeltaApplier.ResyncHandler() {
+            public void resync(final DeltaApplier applier, final int sequence) {
+                // answered later, like an RPC
+                resyncs.add(publisher.poll(sequence));
+            }
+        });
+        final List replay = new EventListReplayList(target);
+
+        for (int i=0; i < 5000; i++) {
+            final int op = r.nextInt(10);
+            if (op < 3 || source.isEmpty()) {
+                source.add(r.nextInt(source.size() + 1), Integer.valueOf(i - 2500));
+            } else if (op < 5) {
+                source.remove(r.nextInt(source.size()));
+            } else if (op < 6) {
+                source.set(r.nextInt(source.size()), Integer.valueOf(-i));
+            } else if (op < 8) {
+                publisher.flush();
+            } else if (!inFlight.isEmpty()) {
+                // deliver, drop, duplicate or reorder
+                final String message = (String)inFlight.remove(r.nextInt(Math.min(2, inFlight.size())));
+                if (r.nextInt(10) != 0) {
+                    applier.apply(message);
+                }
+                if (r.nextInt(10) == 0) {
+                    applier.apply(message);
+                }
+            }
+            if (!resyncs.isEmpty() && r.nextInt(4) == 0) {
+                applier.apply((String)resyncs.remove(0));
+            }
+            assertEquals(target, replay);
+        }
+
+        publisher.flush();
+        applier.apply(publisher.poll(applier.getSequence()));
+        assertEquals(publisher.getSequence(), applier.getSequence());
+        assertEquals(source, target);
+    }
+
+    /**
+     * An EventList that fires OTHER events on demand.
+     */
+    private static class OtherEventList extends AbstractEventList {
+        private final List elements = new ArrayList();
+
+        public Object get(final int index) {
+            return elements.get(index);
+        }
+
+        public int size() {
+            return elements.size();
+        }
+
+        public void add(final int index, final Object element) {
+            elements.add(index, element);
+            fireListEvent(ListEvent.createAdded(this, index));
+        }
+
+        void fireOther() {
+            fireListEvent(ListEvent.createOther(this));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.test;
+
+import junit.framework.TestCase;
+import org.mcarthur.sandy.gwt.event.list.client.DetachableEventList;
+import org.mcarthur.sandy.gwt.event.list.client.EventList;
+import org.mcarthur.sandy.gwt.event.list.client.EventLists;
+import org.mcarthur.sandy.gwt.event.list.client.ListEvent;
+import org.mcarthur.sandy.gwt.event.list.client.ListEventListener;
+
+import java.util.List;
+
+/**
+ * Tests for {@link org.mcarthur.sandy.gwt.event.list.client.DetachableEventList} views.
+ *
+ * @author Sandy McArthur
+ */
+public class DetachableEventListTest extends TestCase {
+
+    private EventList[] createViews(final EventList el) {
+        return new EventList[] {
+                EventLists.filteredEventList(el),
+                EventLists.sortedEventList(el),
+                EventLists.rangedEventList(el),
+                EventLists.steadyRangedEventList(el),
+                EventLists.reverseEventList(el)
+        };
+    }
+
+    public void testViewsAreDetachable() {
+        final EventList el = EventLists.eventList();
+        final EventList[] views = createViews(el);
+        for (int i=0; i < views.length; i++) {
+            assertTrue(views[i].getClass().getName(), views[i] instanceof DetachableEventList);
+        }
+    }
+
+    public void testGetViews() {
+        final EventList el = EventLists.eventList();
+        assertEquals(0, EventLists.getViews(el).size());
+
+        final EventList[] views = createViews(el);
+        final List attached = EventLists.getViews(el);
+        assertEquals(views.length, attached.size());
+        for (int i=0; i < views.length; i++) {
+            assertTrue(attached.contains(views[i]));
+        }
+    }
+
+    public void testDetachStopsEvents() {
+        final EventList el = EventLists.eventList();
+        final EventList[] views = createViews(el);
+
+        for (int i=0; i < views.length; i++) {
+            final EventList view = views[i];
+            view.addListEventListener(new ListEventListener() {
+                public void listChanged(final ListEvent listEvent) {
+                    fail("Detached view got: " + listEvent);
+                }
+            });
+            assertSame(el, ((DetachableEventList)view).detach());
+        }
+        assertEquals(0, EventLists.getViews(el).size());
+
+        el.add("one");
+        el.remove(0);
+
+        for (int i=0; i < views.length; i++) {
+            try {
+                views[i].add("two");
+                fail("Expected IllegalStateException from " + views[i].getClass().getName());
+            } catch (IllegalStateException ise) {
+                // expected
+            }
+        }
+    }
+
+    public void testGetUnobservedViews() {
+        final EventList el = EventLists.eventList();
+        final EventList sorted = EventLists.sortedEventList(el);
+        final EventList filtered = EventLists.filteredEventList(sorted);
+        final EventList reverse = EventLists.reverseEventList(el);
+
+        reverse.addListEventListener(new ListEventListener() {
+            public void listChanged(final ListEvent listEvent) {
+            }
+        });
+
+        final List unobserved = EventLists.getUnobservedViews(el);
+        assertEquals(1, unobserved.size());
+        assertSame(filtered, unobserved.get(0));
+
+        ((DetachableEventList)filtered).detach();
+        assertEquals(1, EventLists.getUnobservedViews(el).size());
+        assertSame(sorted, EventLists.getUnobservedViews(el).get(0));
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.test;
+
+import org.mcarthur.sandy.gwt.event.list.client.EventList;
+import org.mcarthur.sandy.gwt.event.list.client.EventLists;
+import org.mcarthur.sandy.gwt.event.list.client.ExpiringEventList;
+import org.mcarthur.sandy.gwt.event.list.client.ListEvent;
+import org.mcarthur.sandy.gwt.event.list.client.ListEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for {@link org.mcarthur.sandy.gwt.event.list.client.ExpiringEventList}.
+ *
+ * @author Sandy McArthur
+ */
+public class ExpiringEventListTest extends EventListTest {
+    private final TestClock clock = new TestClock();
+    private final TestScheduler scheduler = new TestScheduler();
+
+    protected EventList createEmptyEventLists() {
+        return EventLists.expiringEventList(ExpiringEventList.NEVER, clock, scheduler);
+    }
+
+    public void testExpireRemovesInBatch() {
+        final ExpiringEventList eel = EventLists.expiringEventList(100, clock, scheduler);
+        final List events = new ArrayList();
+        eel.addListEventListener(new ListEventListener() {
+            public void listChanged(final ListEvent listEvent) {
+                events.add(listEvent);
+            }
+        });
+
+        eel.add("a");                                // expires at 100
+        clock.now = 10;
+        eel.add("b", 50);                            // expires at 60
+        eel.add("c", ExpiringEventList.NEVER);
+        eel.add(0, "d", 50);                         // expires at 60
+        assertEquals(Arrays.asList(new Object[] {"d", "a", "b", "c"}), eel);
+        assertEquals(60, eel.getExpiry(0));
+        assertEquals(Long.MAX_VALUE, eel.getExpiry(3));
+
+        // only asks again when the earliest expiry moves earlier
+        assertEquals(2, scheduler.delays.size());
+        assertEquals(100, ((Long)scheduler.delays.get(0)).longValue());
+        assertEquals(50, ((Long)scheduler.delays.get(1)).longValue());
+
+        clock.now = 59;
+        assertEquals(0, eel.expire());
+        clock.now = 60;
+        events.clear();
+        assertEquals(2, eel.expire());
+        assertEquals(Arrays.asList(new Object[] {"a", "c"}), eel);
+        assertEquals(4, events.size());
+        assertEquals(ListEvent.createBatchStart(eel), events.get(0));
+        assertEquals(ListEvent.createRemoved(eel, 2), events.get(1));
+        assertEquals(ListEvent.createRemoved(eel, 0), events.get(2));
+        assertEquals(ListEvent.createBatchEnd(eel), events.get(3));
+        // the next callback is for "a"
+        assertEquals(3, scheduler.delays.size());
+        assertEquals(40, ((Long)scheduler.delays.get(2)).longValue());
+
+        clock.now = 1000;
+        events.clear();
+        assertEquals(1, eel.expire());
+        assertEquals(Arrays.asList(new Object[] {"c"}), eel);
+        assertEquals(1, events.size());
+        assertEquals(ListEvent.createRemoved(eel, 0), events.get(0));
+        assertEquals(0, eel.expire());
+    }
+
+    public void testRemovedElementsDoNotExpire() {
+        final ExpiringEventList eel = EventLists.expiringEventList(100, clock, null);
+        prefillWithIntegers(eel, 10);
+        eel.remove(Integer.valueOf(3));
+        eel.subList(5, 7).clear();
+        eel.set(0, "zero");
+        assertEquals(100, eel.getExpiry(0));
+
+        eel.setTimeToLive(ExpiringEventList.NEVER);
+        eel.add("kept");
+        clock.now = 100;
+        assertEquals(7, eel.expire());
+        assertEquals(Arrays.asList(new Object[] {"kept"}), eel);
+    }
+
+    public void testRandomOperationsMatchScan() {
+        final Random r = new Random(46); // don't change the seed
+        final ExpiringEventList eel = EventLists.expiringEventList(500, clock, scheduler);
+        final List replay = new EventListReplayList(eel);
+        final List expected = new ArrayList();
+        final List expiries = new ArrayList();
+        for (int i=0; i < 5000; i++) {
+            final int op = r.nextInt(10);
+            if (op < 5 || expected.isEmpty()) {
+                final int index = r.nextInt(expected.size() + 1);
+                final long ttl = r.nextInt(5) == 0 ? ExpiringEventList.NEVER : 1 + r.nextInt(1000);
+                final Integer value = Integer.valueOf(i);
+                eel.add(index, value, ttl);
+                expected.add(index, value);
+                expiries.add(index, new Long(ttl > 0 ? clock.now + ttl : Long.MAX_VALUE));
+            } else if (op < 7) {
+                final int index = r.nextInt(expected.size());
+                assertEquals(expected.remove(index), eel.remove(index));
+                expiries.remove(index);
+            } else if (op < 8) {
+                final int start = r.nextInt(expected.size());
+                final int end = Math.min(expected.size(), start + r.nextInt(4));
+                eel.subList(start, end).clear();
+                expected.subList(start, end).clear();
+                expiries.subList(start, end).clear();
+            } else {
+                clock.now += r.nextInt(50);
+                if (r.nextBoolean() || scheduler.due(clock.now)) {
+                    int count = 0;
+                    for (int j=expected.size() - 1; j >= 0; j--) {
+                        if (((Long)expiries.get(j)).longValue() <= clock.now) {
+                            expected.remove(j);
+                            expiries.remove(j);
+                            count++;
+                        }
+                    }
+                    assertEquals(count, eel.expire());
+                }
+            }
+            assertEquals(expected, eel);
+            assertEquals(expected, replay);
+            for (int j=0; j < expiries.size(); j++) {
+                assertEquals(((Long)expiries.get(j)).longValue(), eel.getExpiry(j));
+            }
+            // a callback is always pending for the earliest expiry
+            long earliest = Long.MAX_VALUE;
+            for (int j=0; j < expiries.size(); j++) {
+                earliest = Math.min(earliest, ((Long)expiries.get(j)).longValue());
+            }
+            if (earliest != Long.MAX_VALUE) {
+                assertTrue(scheduler.earliest() <= earliest);
+            }
+        }
+    }
+
+    private static class TestClock implements ExpiringEventList.Clock {
+        private long now = 0;
+
+        public long currentTimeMillis() {
+            return now;
+        }
+    }
+
+    private class TestScheduler implements ExpiringEventList.ExpiryScheduler {
+        private final List delays = new ArrayList();
+        private final List runAt = new ArrayList();
+
+        public void scheduleExpiry(final ExpiringEventList list, final long delayMillis) {
+            assertTrue(delayMillis >= 0);
+            delays.add(new Long(delayMillis));
+            runAt.add(new Long(clock.now + delayMillis));
+        }
+
+        /**
+         * Drops the callbacks that have come due.
+         */
+        private boolean due(final long now) {
+            boolean due = false;
+            for (int i=runAt.size() - 1; i >= 0; i--) {
+                if (((Long)runAt.get(i)).longValue() <= now) {
+                    runAt.remove(i);
+                    due = true;
+                }
+            }
+            return due;
+        }
+
+        private long earliest() {
+            long earliest = Long.MAX_VALUE;
+            for (int i=0; i < runAt.size(); i++) {
+                earliest = Math.min(earliest, ((Long)runAt.get(i)).longValue());
+            }
+            return earliest;
+        }
+    }
+}
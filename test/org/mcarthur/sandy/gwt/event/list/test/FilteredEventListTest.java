@@ -479,4 +479,24 @@ public class FilteredEventListTest extends TransformedEventListTest {
         assertEquals(3, fel.size());
         fel.removeListEventListener(lel);
     }
+
+    public void testDormantWhenUnobserved() {
+        final EventList el = EventLists.eventList();
+        final FilteredEventList fel = EventLists.filteredEventList(el, ODD_FILTER);
+
+        prefillWithIntegers(el, 10);
+        assertEquals(0, EventLists.getViews(el).size());
+
+        // changing the filter while dormant is applied when woken
+        fel.setFilter(null);
+        assertEquals(10, fel.size());
+        assertEquals(1, EventLists.getViews(el).size());
+
+        fel.setFilter(ODD_FILTER);
+        el.remove(0);
+        el.remove(0);
+        assertEquals(0, EventLists.getViews(el).size());
+        assertEquals(4, fel.size());
+        assertEquals(Integer.valueOf(3), fel.get(0));
+    }
 }
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.test;
+
+import org.mcarthur.sandy.gwt.event.list.client.EventList;
+import org.mcarthur.sandy.gwt.event.list.client.EventLists;
+import org.mcarthur.sandy.gwt.event.list.client.IndexedEventList;
+import org.mcarthur.sandy.gwt.event.list.client.KeyedReconciler;
+import org.mcarthur.sandy.gwt.event.list.client.ListEvent;
+import org.mcarthur.sandy.gwt.event.list.client.ListEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for {@link org.mcarthur.sandy.gwt.event.list.client.IndexedEventList}.
+ *
+ * @author Sandy McArthur
+ */
+public class IndexedEventListTest extends TransformedEventListTest {
+    private static final KeyedReconciler.KeyExtractor TENS = new KeyedReconciler.KeyExtractor() {
+        public Object getKey(final Object element) {
+            return Integer.valueOf(((Integer)element).intValue() / 10);
+        }
+    };
+
+    protected EventList createEmptyEventLists() {
+        return createBackedEventList(EventLists.eventList());
+    }
+
+    protected EventList createBackedEventList(final EventList el) {
+        final IndexedEventList iel = EventLists.indexedEventList(el);
+        iel.addIndex("equals", IndexedEventList.EQUALS);
+        return iel;
+    }
+
+    public void testLookups() {
+        final EventList el = EventLists.eventList();
+        prefillWithIntegers(el, 30);
+        final IndexedEventList iel = (IndexedEventList)createBackedEventList(el);
+        iel.addIndex("tens", TENS);
+
+        assertEquals(10, iel.indexOfKey("tens", Integer.valueOf(1)));
+        assertTrue(Arrays.equals(new int[] {20, 21, 22, 23, 24, 25, 26, 27, 28, 29}, iel.indexesOfKey("tens", Integer.valueOf(2))));
+        assertEquals(-1, iel.indexOfKey("tens", Integer.valueOf(3)));
+        assertEquals(Integer.valueOf(7), iel.getByKey("equals", Integer.valueOf(7)));
+        assertNull(iel.getByKey("equals", Integer.valueOf(70)));
+
+        el.add(0, Integer.valueOf(25));
+        assertEquals(0, iel.indexOf(Integer.valueOf(25)));
+        assertEquals(26, iel.lastIndexOf(Integer.valueOf(25)));
+        assertEquals(0, iel.indexOfKey("tens", Integer.valueOf(2)));
+
+        el.set(0, Integer.valueOf(5));
+        assertEquals(26, iel.indexOf(Integer.valueOf(25)));
+        assertTrue(Arrays.equals(new int[] {0, 6}, iel.indexesOfKey("equals", Integer.valueOf(5))));
+
+        assertTrue(iel.remove(Integer.valueOf(5)));
+        assertTrue(iel.remove(Integer.valueOf(5)));
+        assertFalse(iel.contains(Integer.valueOf(5)));
+        assertEquals(5, iel.indexOf(Integer.valueOf(6)));
+        assertEquals(29, iel.size());
+
+        try {
+            iel.indexOfKey("missing", Integer.valueOf(1));
+            fail("Expected IllegalArgumentException.");
+        } catch (IllegalArgumentException iae) {
+            // expected
+        }
+        assertTrue(iel.removeIndex("tens"));
+        assertFalse(iel.removeIndex("tens"));
+    }
+
+    public void testIdentityIndex() {
+        final EventList el = EventLists.eventList();
+        final IndexedEventList iel = EventLists.indexedEventList(el);
+        iel.addIndex("identity", IndexedEventList.IDENTITY);
+        final String a = new String("same");
+        final String b = new String("same");
+        el.add(a);
+        el.add(b);
+
+        assertEquals(0, iel.indexOfKey("identity", a));
+        assertEquals(1, iel.indexOfKey("identity", b));
+        assertEquals(-1, iel.indexOfKey("identity", new String("same")));
+        // no EQUALS index so indexOf falls back to a scan
+        assertEquals(0, iel.indexOf(b));
+    }
+
+    public void testRemoveByKey() {
+        final EventList el = EventLists.eventList();
+        prefillWithIntegers(el, 40);
+        final IndexedEventList iel = EventLists.indexedEventList(el);
+        iel.addIndex("tens", TENS);
+        el.add(Integer.valueOf(15));
+        el.add(0, Integer.valueOf(12));
+
+        final List events = new ArrayList();
+        iel.addListEventListener(new ListEventListener() {
+            public void listChanged(final ListEvent listEvent) {
+                events.add(listEvent);
+            }
+        });
+        assertEquals(12, iel.removeByKey("tens", Integer.valueOf(1)));
+        assertEquals(12, events.size());
+        assertEquals(30, el.size());
+        assertEquals(-1, iel.indexOfKey("tens", Integer.valueOf(1)));
+        assertEquals(10, iel.indexOfKey("tens", Integer.valueOf(2)));
+    }
+
+    public void testRandomOperationsMatchScans() {
+        final Random r = new Random(41); // don't change the seed
+        final EventList el = EventLists.eventList();
+        final IndexedEventList iel = (IndexedEventList)createBackedEventList(el);
+        iel.addIndex("tens", TENS);
+
+        for (int i=0; i < 3000; i++) {
+            final int op = r.nextInt(10);
+            if (op < 4 || el.isEmpty()) {
+                final List values = new ArrayList();
+                for (int j=r.nextInt(3); j >= 0; j--) {
+                    values.add(Integer.valueOf(r.nextInt(200)));
+                }
+                el.addAll(r.nextInt(el.size() + 1), values);
+            } else if (op < 6) {
+                el.remove(r.nextInt(el.size()));
+            } else if (op < 7) {
+                iel.remove(Integer.valueOf(r.nextInt(200)));
+            } else if (op < 8) {
+                final int start = r.nextInt(el.size());
+                el.subList(start, Math.min(el.size(), start + r.nextInt(4))).clear();
+            } else {
+                el.set(r.nextInt(el.size()), Integer.valueOf(r.nextInt(200)));
+            }
+
+            final Integer probe = Integer.valueOf(r.nextInt(200));
+            assertEquals(el.indexOf(probe), iel.indexOf(probe));
+            assertEquals(el.lastIndexOf(probe), iel.lastIndexOf(probe));
+            final List tens = new ArrayList();
+            for (int j=0; j < el.size(); j++) {
+                if (TENS.getKey(el.get(j)).equals(TENS.getKey(probe))) {
+                    tens.add(Integer.valueOf(j));
+                }
+            }
+            final int[] found = iel.indexesOfKey("tens", TENS.getKey(probe));
+            assertEquals(tens.size(), found.length);
+            for (int j=0; j < found.length; j++) {
+                assertEquals(tens.get(j), Integer.valueOf(found[j]));
+            }
+        }
+        assertEquals(el, iel);
+    }
+}
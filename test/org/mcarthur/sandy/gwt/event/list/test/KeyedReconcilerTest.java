@@ -0,0 +1,229 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.test;
+
+import junit.framework.TestCase;
+import org.mcarthur.sandy.gwt.event.list.client.EventList;
+import org.mcarthur.sandy.gwt.event.list.client.EventLists;
+import org.mcarthur.sandy.gwt.event.list.client.KeyedReconciler;
+import org.mcarthur.sandy.gwt.event.list.client.ListEvent;
+import org.mcarthur.sandy.gwt.event.list.client.ListEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for {@link org.mcarthur.sandy.gwt.event.list.client.KeyedReconciler}.
+ *
+ * @author Sandy McArthur
+ */
+public class KeyedReconcilerTest extends TestCase {
+    private static final KeyedReconciler.KeyExtractor ID = new KeyedReconciler.KeyExtractor() {
+        public Object getKey(final Object element) {
+            return ((Row)element).id;
+        }
+    };
+
+    private static final KeyedReconciler.Merger COPY = new KeyedReconciler.Merger() {
+        public Object merge(final Object existing, final Object record) {
+            ((Row)existing).value = ((Row)record).value;
+            return existing;
+        }
+    };
+
+    private static class Row {
+        private final String id;
+        private int value;
+
+        Row(final String id, final int value) {
+            this.id = id;
+            this.value = value;
+        }
+
+        public String toString() {
+            return id + "=" + value;
+        }
+    }
+
+    private EventList createRows(final int count) {
+        final EventList el = EventLists.eventList();
+        for (int i=0; i < count; i++) {
+            el.add(new Row("r" + i, i));
+        }
+        return el;
+    }
+
+    public void testUpdateExistingFiresChanged() {
+        final EventList el = createRows(5);
+        final KeyedReconciler reconciler = new KeyedReconciler(el, ID, COPY);
+        final Object row3 = el.get(3);
+
+        final ListEventListener lel = new ListEventListener() {
+            private int count = 0;
+            public void listChanged(final ListEvent listEvent) {
+                switch (count++) {
+                    case 0:
+                        assertEquals(ListEvent.createChanged(el, 3), listEvent);
+                        break;
+                    case 1:
+                        assertEquals(ListEvent.createAdded(el, 5, 7), listEvent);
+                        break;
+                    case 2:
+                        assertNull(listEvent);
+                        break;
+                    default:
+                        fail("Unexpected: " + listEvent);
+                }
+            }
+        };
+        el.addListEventListener(lel);
+        reconciler.update(Arrays.asList(new Object[] {new Row("r3", 33), new Row("r5", 5), new Row("r6", 6)}));
+        lel.listChanged(null);
+        el.removeListEventListener(lel);
+
+        assertSame(row3, el.get(3));
+        assertEquals(33, ((Row)el.get(3)).value);
+        assertEquals(7, el.size());
+        assertEquals(6, reconciler.indexOfKey("r6"));
+    }
+
+    public void testReplaceMerger() {
+        final EventList el = createRows(3);
+        final KeyedReconciler reconciler = new KeyedReconciler(el, ID, KeyedReconciler.REPLACE);
+        final Row r1 = new Row("r1", 11);
+
+        reconciler.update(Collections.singletonList(r1));
+        assertSame(r1, el.get(1));
+        assertSame(r1, reconciler.getByKey("r1"));
+    }
+
+    public void testMergerRequired() {
+        try {
+            new KeyedReconciler(createRows(1), ID, null);
+            fail("Expected NullPointerException.");
+        } catch (NullPointerException npe) {
+            // expected
+        }
+    }
+
+    public void testUpdatesKeepRowIdentity() {
+        final EventList el = createRows(4);
+        final KeyedReconciler reconciler = new KeyedReconciler(el, ID, COPY);
+        final List originals = new ArrayList(el);
+
+        for (int round=1; round <= 3; round++) {
+            final List records = new ArrayList();
+            for (int i=0; i < originals.size(); i++) {
+                records.add(new Row("r" + i, i + round * 10));
+            }
+            reconciler.update(records);
+            for (int i=0; i < originals.size(); i++) {
+                assertSame(originals.get(i), el.get(i));
+                assertEquals(i + round * 10, ((Row)el.get(i)).value);
+            }
+        }
+    }
+
+    public void testDuplicateNewKeysAreMerged() {
+        final EventList el = createRows(1);
+        final KeyedReconciler reconciler = new KeyedReconciler(el, ID, COPY);
+
+        reconciler.update(Arrays.asList(new Object[] {new Row("x", 1), new Row("x", 2)}));
+        assertEquals(2, el.size());
+        assertEquals(2, ((Row)reconciler.getByKey("x")).value);
+    }
+
+    public void testRemoveKeys() {
+        final EventList el = createRows(6);
+        final KeyedReconciler reconciler = new KeyedReconciler(el, ID, COPY);
+
+        reconciler.removeKeys(Arrays.asList(new Object[] {"r4", "r1", "missing"}));
+        assertEquals(4, el.size());
+        assertEquals(-1, reconciler.indexOfKey("r1"));
+        assertEquals(1, reconciler.indexOfKey("r2"));
+        assertEquals(3, reconciler.indexOfKey("r5"));
+    }
+
+    public void testReconcile() {
+        final EventList el = createRows(5);
+        final KeyedReconciler reconciler = new KeyedReconciler(el, ID, COPY);
+        final Object row0 = el.get(0);
+
+        final List snapshot = new ArrayList();
+        snapshot.add(new Row("r0", 100));
+        snapshot.add(new Row("r2", 102));
+        snapshot.add(new Row("r9", 109));
+        reconciler.reconcile(snapshot);
+
+        assertEquals(3, el.size());
+        assertSame(row0, el.get(0));
+        assertEquals(100, ((Row)el.get(0)).value);
+        assertEquals("r2", ((Row)el.get(1)).id);
+        assertEquals("r9", ((Row)el.get(2)).id);
+    }
+
+    public void testReconcileRemovesRunsInABatch() {
+        final EventList el = createRows(10);
+        final KeyedReconciler reconciler = new KeyedReconciler(el, ID, COPY);
+        final List events = new ArrayList();
+        el.addListEventListener(new ListEventListener() {
+            public void listChanged(final ListEvent listEvent) {
+                events.add(listEvent);
+            }
+        });
+
+        reconciler.reconcile(Arrays.asList(new Object[] {new Row("r0", 100), new Row("r1", 101), new Row("r5", 105), new Row("r6", 106), new Row("r10", 110)}));
+        assertEquals(Arrays.asList(new Object[] {
+                ListEvent.createBatchStart(el),
+                ListEvent.createRemoved(el, 7, 10),
+                ListEvent.createRemoved(el, 2, 5),
+                ListEvent.createChanged(el, 0),
+                ListEvent.createChanged(el, 1),
+                ListEvent.createChanged(el, 2),
+                ListEvent.createChanged(el, 3),
+                ListEvent.createAdded(el, 4),
+                ListEvent.createBatchEnd(el)}), events);
+        assertEquals(5, el.size());
+        assertEquals(3, reconciler.indexOfKey("r6"));
+
+        // one event needs no batch, the same key twice is removed once
+        events.clear();
+        reconciler.removeKeys(Arrays.asList(new Object[] {"r1", "r5", "r1"}));
+        assertEquals(Collections.singletonList(ListEvent.createRemoved(el, 1, 3)), events);
+        assertEquals(3, el.size());
+    }
+
+    public void testFollowsOtherChanges() {
+        final EventList el = createRows(5);
+        final KeyedReconciler reconciler = new KeyedReconciler(el, ID, COPY);
+        assertEquals(4, reconciler.indexOfKey("r4"));
+
+        el.add(0, new Row("first", 0));
+        assertEquals(5, reconciler.indexOfKey("r4"));
+
+        el.set(0, new Row("second", 0));
+        assertEquals(-1, reconciler.indexOfKey("first"));
+        assertEquals(0, reconciler.indexOfKey("second"));
+
+        el.remove(0);
+        assertEquals(4, reconciler.indexOfKey("r4"));
+
+        reconciler.detach();
+    }
+}
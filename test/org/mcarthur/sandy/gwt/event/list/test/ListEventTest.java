@@ -17,6 +17,7 @@
 package org.mcarthur.sandy.gwt.event.list.test;
 
 import junit.framework.TestCase;
+import org.mcarthur.sandy.gwt.event.list.client.EventList;
 import org.mcarthur.sandy.gwt.event.list.client.EventLists;
 import org.mcarthur.sandy.gwt.event.list.client.ListEvent;
 
@@ -74,4 +75,26 @@ public class ListEventTest extends TestCase {
          }
 
      }
+
+    public void testChangedProperties() {
+        final EventList el = EventLists.eventList();
+        final ListEvent unknown = ListEvent.createChanged(el, 0, 2);
+        assertNull(unknown.getChangedProperties());
+        assertTrue(unknown.isAnyPropertyChanged(new String[] {"a"}));
+
+        final ListEvent named = ListEvent.createPropertyChanged(el, 0, 2, new String[] {"a", "b"});
+        assertEquals(ListEvent.createChanged(el, 0, 2), named);
+        assertEquals(2, named.getChangedProperties().length);
+        assertTrue(named.isAnyPropertyChanged(new String[] {"c", "b"}));
+        assertFalse(named.isAnyPropertyChanged(new String[] {"c"}));
+        assertTrue(named.isAnyPropertyChanged(null));
+
+        // derived changes keep the property names
+        final EventList other = EventLists.eventList();
+        assertFalse(named.resource(other).isAnyPropertyChanged(new String[] {"c"}));
+        assertFalse(ListEvent.createChanged(other, 5, named).isAnyPropertyChanged(new String[] {"c"}));
+        assertNull(ListEvent.createAdded(other, 5, named).getChangedProperties());
+
+        assertNull(ListEvent.createPropertyChanged(el, 0, 1, new String[] {"a", null}).getChangedProperties());
+    }
 }
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.test;
+
+import junit.framework.TestCase;
+import org.mcarthur.sandy.gwt.event.list.client.DoubleEventList;
+import org.mcarthur.sandy.gwt.event.list.client.EventList;
+import org.mcarthur.sandy.gwt.event.list.client.EventLists;
+import org.mcarthur.sandy.gwt.event.list.client.FilteredEventList;
+import org.mcarthur.sandy.gwt.event.list.client.IntEventList;
+import org.mcarthur.sandy.gwt.event.list.client.ListEvent;
+import org.mcarthur.sandy.gwt.event.list.client.ListEventListener;
+import org.mcarthur.sandy.gwt.event.list.client.LongEventList;
+import org.mcarthur.sandy.gwt.event.list.client.SortedEventList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for {@link IntEventList}, {@link LongEventList} and {@link DoubleEventList}.
+ *
+ * @author Sandy McArthur
+ */
+public class NumericEventListTest extends TestCase {
+
+    public void testIntAccessors() {
+        final IntEventList iel = EventLists.intEventList();
+        final List events = new ArrayList();
+        iel.addListEventListener(new ListEventListener() {
+            public void listChanged(final ListEvent listEvent) {
+                events.add(listEvent);
+            }
+        });
+
+        iel.addInt(3);
+        iel.addInt(0, 1);
+        iel.add(new Integer(4));
+        iel.addAll(1, new int[] {2, 2, 2});
+        assertEquals(6, iel.size());
+        assertTrue(Arrays.equals(new int[] {1, 2, 2, 2, 3, 4}, iel.toIntArray()));
+        assertEquals(new Integer(3), iel.get(4));
+        assertEquals(4, events.size());
+        final ListEvent bulk = (ListEvent)events.get(3);
+        assertTrue(bulk.isAdded());
+        assertEquals(1, bulk.getIndexStart());
+        assertEquals(4, bulk.getIndexEnd());
+
+        events.clear();
+        assertEquals(2, iel.setInt(1, 5));
+        assertEquals(5, iel.removeInt(1));
+        iel.subList(1, 3).clear();
+        assertTrue(Arrays.equals(new int[] {1, 3, 4}, iel.toIntArray()));
+        assertEquals(3, events.size());
+        assertTrue(((ListEvent)events.get(0)).isChanged());
+        assertTrue(((ListEvent)events.get(2)).isRemoved());
+        assertEquals(3, ((ListEvent)events.get(2)).getIndexEnd());
+
+        try {
+            iel.add(null);
+            fail("Expected NullPointerException.");
+        } catch (NullPointerException npe) {
+            // expected
+        }
+        try {
+            iel.getInt(3);
+            fail("Expected IndexOutOfBoundsException.");
+        } catch (IndexOutOfBoundsException ioobe) {
+            // expected
+        }
+        assertEquals(3, iel.size());
+    }
+
+    public void testLongAndDoubleAccessors() {
+        final LongEventList lel = EventLists.longEventList();
+        lel.addAll(new long[] {5L, 7L});
+        lel.addLong(1, 6L);
+        assertTrue(Arrays.equals(new long[] {5L, 6L, 7L}, lel.toLongArray()));
+        assertEquals(new Long(6L), lel.get(1));
+        lel.add(new Integer(8));
+        assertEquals(8L, lel.getLong(3));
+
+        final DoubleEventList del = EventLists.doubleEventList();
+        del.addAll(new double[] {0.5, 1.5});
+        del.setDouble(0, 0.25);
+        assertEquals(0.25, del.getDouble(0), 0.0);
+        assertEquals(new Double(1.5), del.get(1));
+        assertEquals(1.5, del.removeDouble(1), 0.0);
+        del.clear();
+        assertEquals(0, del.toDoubleArray().length);
+    }
+
+    public void testIntViews() {
+        final IntEventList iel = EventLists.intEventList();
+        final SortedEventList sorted = EventLists.sortedEventList(iel, EventLists.intComparator(new IntEventList.IntComparator() {
+            public int compare(final int v1, final int v2) {
+                return v1 < v2 ? -1 : (v1 == v2 ? 0 : 1);
+            }
+        }));
+        final FilteredEventList evens = EventLists.filteredEventList(sorted, EventLists.intFilter(new IntEventList.IntFilter() {
+            public boolean accept(final int value) {
+                return value % 2 == 0;
+            }
+        }));
+
+        iel.addAll(new int[] {5, 2, 8, 1, 4});
+        assertEquals(Arrays.asList(new Object[] {new Integer(1), new Integer(2), new Integer(4), new Integer(5), new Integer(8)}), sorted);
+        assertEquals(Arrays.asList(new Object[] {new Integer(2), new Integer(4), new Integer(8)}), evens);
+
+        iel.setInt(0, 6);
+        assertEquals(Arrays.asList(new Object[] {new Integer(2), new Integer(4), new Integer(6), new Integer(8)}), evens);
+    }
+
+    public void testSortedByPositionStaysSorted() {
+        final Random r = new Random(39); // don't change the seed
+        final IntEventList iel = EventLists.intEventList();
+        final SortedEventList descending = EventLists.sortedEventList(iel, EventLists.intComparator(new IntEventList.IntComparator() {
+            public int compare(final int v1, final int v2) {
+                return v1 > v2 ? -1 : (v1 == v2 ? 0 : 1);
+            }
+        }));
+        final List replay = new EventListReplayList(descending);
+
+        for (int i=0; i < 2000; i++) {
+            final int op = r.nextInt(4);
+            if (op == 0 || iel.isEmpty()) {
+                final int[] values = new int[r.nextInt(4) + 1];
+                for (int j=0; j < values.length; j++) {
+                    values[j] = r.nextInt(100);
+                }
+                iel.addAll(r.nextInt(iel.size() + 1), values);
+            } else if (op == 1) {
+                iel.setInt(r.nextInt(iel.size()), r.nextInt(100));
+            } else if (op == 2) {
+                iel.removeInt(r.nextInt(iel.size()));
+            } else {
+                iel.addInt(r.nextInt(iel.size() + 1), r.nextInt(100));
+            }
+            final List expected = new ArrayList(iel);
+            Collections.sort(expected, Collections.reverseOrder());
+            assertEquals(expected, descending);
+        }
+        assertEquals(descending, replay);
+
+        final DoubleEventList del = EventLists.doubleEventList();
+        del.addAll(new double[] {2.5, 0.5, 1.5});
+        final SortedEventList ascending = EventLists.sortedEventList(del, EventLists.doubleComparator(new DoubleEventList.DoubleComparator() {
+            public int compare(final double v1, final double v2) {
+                return v1 < v2 ? -1 : (v1 == v2 ? 0 : 1);
+            }
+        }));
+        assertEquals(Arrays.asList(new Object[] {new Double(0.5), new Double(1.5), new Double(2.5)}), ascending);
+    }
+
+    public void testRandomOperationsMatchArrayList() {
+        final Random r = new Random(39); // don't change the seed
+        final IntEventList iel = EventLists.intEventList();
+        final List replay = new EventListReplayList(iel);
+        final List expected = new ArrayList();
+
+        for (int i=0; i < 5000; i++) {
+            final int op = r.nextInt(10);
+            if (op < 4 || expected.isEmpty()) {
+                final int index = r.nextInt(expected.size() + 1);
+                iel.addInt(index, i);
+                expected.add(index, new Integer(i));
+            } else if (op < 5) {
+                final int index = r.nextInt(expected.size() + 1);
+                final int[] values = new int[r.nextInt(4)];
+                for (int j=0; j < values.length; j++) {
+                    values[j] = -i - j;
+                    expected.add(index + j, new Integer(values[j]));
+                }
+                iel.addAll(index, values);
+            } else if (op < 8) {
+                final int index = r.nextInt(expected.size());
+                assertEquals(((Integer)expected.remove(index)).intValue(), iel.removeInt(index));
+            } else {
+                final int index = r.nextInt(expected.size());
+                expected.set(index, new Integer(i));
+                iel.setInt(index, i);
+            }
+        }
+        assertEquals(expected, iel);
+        assertEquals(expected, replay);
+    }
+}
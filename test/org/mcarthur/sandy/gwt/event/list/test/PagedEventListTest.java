@@ -0,0 +1,436 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.test;
+
+import junit.framework.TestCase;
+import org.mcarthur.sandy.gwt.event.list.client.EventLists;
+import org.mcarthur.sandy.gwt.event.list.client.ListEvent;
+import org.mcarthur.sandy.gwt.event.list.client.ListEventListener;
+import org.mcarthur.sandy.gwt.event.list.client.ListPageProvider;
+import org.mcarthur.sandy.gwt.event.list.client.PageProvider;
+import org.mcarthur.sandy.gwt.event.list.client.PagedEventList;
+import org.mcarthur.sandy.gwt.event.list.client.ScrollPrefetchPolicy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for {@link org.mcarthur.sandy.gwt.event.list.client.PagedEventList}.
+ *
+ * @author Sandy McArthur
+ */
+public class PagedEventListTest extends TestCase {
+
+    /**
+     * A provider that holds requests until told to answer them, like a server round trip.
+     */
+    private static class DeferredPageProvider implements PageProvider {
+        private final ListPageProvider data;
+        private final List requests = new ArrayList();
+
+        DeferredPageProvider(final List data) {
+            this.data = new ListPageProvider(data);
+        }
+
+        public void requestRange(final int start, final int length, final Callback callback) {
+            requests.add(new Object[] {new Integer(start), new Integer(length), callback});
+        }
+
+        int pendingCount() {
+            return requests.size();
+        }
+
+        void answerAll() {
+            while (!requests.isEmpty()) {
+                final Object[] request = (Object[])requests.remove(0);
+                data.requestRange(((Integer)request[0]).intValue(), ((Integer)request[1]).intValue(), (Callback)request[2]);
+            }
+        }
+
+        void failAll() {
+            while (!requests.isEmpty()) {
+                final Object[] request = (Object[])requests.remove(0);
+                ((Callback)request[2]).onFailure(new RuntimeException("failed on purpose"));
+            }
+        }
+    }
+
+    private static List createData(final int count) {
+        final List data = new ArrayList();
+        for (int i=0; i < count; i++) {
+            data.add(Integer.valueOf(i));
+        }
+        return data;
+    }
+
+    public void testImmediateProvider() {
+        final List data = createData(95);
+        final PagedEventList pel = EventLists.pagedEventList(new ListPageProvider(data), 10);
+
+        assertEquals(95, pel.getTotal());
+        assertEquals(10, pel.size());
+        assertEquals(data.subList(0, 10), pel);
+
+        pel.setStart(90);
+        assertEquals(5, pel.size());
+        assertEquals(data.subList(90, 95), pel);
+    }
+
+    public void testPlaceholdersThenChanged() {
+        final List data = createData(50);
+        final DeferredPageProvider provider = new DeferredPageProvider(data);
+        final PagedEventList pel = EventLists.pagedEventList(provider, 10);
+
+        assertEquals(0, pel.size());
+        assertEquals(0, pel.getTotal());
+        assertEquals(1, provider.pendingCount());
+
+        final List replay = new EventListReplayList(pel);
+        final List events = new ArrayList();
+        pel.addListEventListener(new ListEventListener() {
+            public void listChanged(final ListEvent listEvent) {
+                events.add(listEvent);
+            }
+        });
+
+        provider.answerAll();
+        assertEquals(50, pel.getTotal());
+        assertEquals(10, pel.size());
+        assertEquals(data.subList(0, 10), pel);
+        assertEquals(pel, replay);
+
+        // jump far away, rows are placeholders until the page arrives
+        events.clear();
+        pel.setStart(30);
+        assertEquals(10, pel.size());
+        for (int i=0; i < pel.size(); i++) {
+            assertFalse(pel.isLoaded(i));
+            assertSame(PagedEventList.LOADING, pel.get(i));
+        }
+        assertEquals(1, provider.pendingCount());
+        assertEquals(pel, replay);
+
+        events.clear();
+        provider.answerAll();
+        assertEquals(1, events.size());
+        final ListEvent changed = (ListEvent)events.get(0);
+        assertTrue(changed.isChanged());
+        assertEquals(0, changed.getIndexStart());
+        assertEquals(10, changed.getIndexEnd());
+        assertEquals(data.subList(30, 40), pel);
+        assertEquals(pel, replay);
+    }
+
+    public void testScrollKeepsVisibleRows() {
+        final List data = createData(100);
+        final DeferredPageProvider provider = new DeferredPageProvider(data);
+        final PagedEventList pel = EventLists.pagedEventList(provider, 10, 5, 10, null);
+        provider.answerAll();
+        pel.get(5);
+        provider.answerAll();
+        assertEquals(data.subList(0, 10), pel);
+
+        final List events = new ArrayList();
+        pel.addListEventListener(new ListEventListener() {
+            public void listChanged(final ListEvent listEvent) {
+                events.add(listEvent);
+            }
+        });
+        pel.setStart(3);
+        assertEquals(2, events.size());
+        final ListEvent removed = (ListEvent)events.get(0);
+        assertTrue(removed.isRemoved());
+        assertEquals(0, removed.getIndexStart());
+        assertEquals(3, removed.getIndexEnd());
+        final ListEvent added = (ListEvent)events.get(1);
+        assertTrue(added.isAdded());
+        assertEquals(7, added.getIndexStart());
+        assertEquals(10, added.getIndexEnd());
+        assertEquals(data.subList(3, 8), pel.subList(0, 5));
+    }
+
+    public void testCacheBudget() {
+        final List data = createData(200);
+        final int[] requests = new int[1];
+        final PageProvider counting = new PageProvider() {
+            private final PageProvider delegate = new ListPageProvider(data);
+            public void requestRange(final int start, final int length, final Callback callback) {
+                requests[0]++;
+                delegate.requestRange(start, length, callback);
+            }
+        };
+        final PagedEventList pel = EventLists.pagedEventList(counting, 10, 10, 3, null);
+        assertEquals(1, requests[0]);
+
+        pel.get(0);
+        for (int start=10; start <= 30; start += 10) {
+            pel.setStart(start);
+            pel.get(0);
+        }
+        assertEquals(4, requests[0]);
+
+        // page 3 and 2 are still cached
+        pel.setStart(20);
+        pel.get(0);
+        assertEquals(4, requests[0]);
+
+        // page 0 was the least recently used and was evicted
+        pel.setStart(0);
+        pel.get(0);
+        assertEquals(5, requests[0]);
+    }
+
+    public void testTotalChangesResizeRange() {
+        final List data = createData(25);
+        final DeferredPageProvider provider = new DeferredPageProvider(data);
+        final PagedEventList pel = EventLists.pagedEventList(provider, 10);
+        provider.answerAll();
+        pel.setStart(20);
+        provider.answerAll();
+        assertEquals(5, pel.size());
+
+        final List replay = new EventListReplayList(pel);
+        data.addAll(createData(3));
+        pel.refresh();
+        provider.answerAll();
+        assertEquals(28, pel.getTotal());
+        assertEquals(8, pel.size());
+        assertEquals(data.subList(20, 28), pel);
+        assertEquals(pel, replay);
+    }
+
+    public void testImmediateAnswerInGetKeepsSize() {
+        final List data = createData(7);
+        final PagedEventList pel = EventLists.pagedEventList(new ListPageProvider(data), 10, 5, 10, null);
+        assertEquals(7, pel.size());
+
+        final List events = new ArrayList();
+        pel.addListEventListener(new ListEventListener() {
+            public void listChanged(final ListEvent listEvent) {
+                events.add(listEvent);
+            }
+        });
+
+        // the second page is loaded by get and its answer has a larger total
+        data.addAll(createData(3));
+        assertEquals(Integer.valueOf(5), pel.get(5));
+        assertEquals(0, events.size());
+        assertEquals(7, pel.size());
+        assertEquals(7, pel.getTotal());
+
+        // the next change of the window catches up
+        pel.fetch(0);
+        assertEquals(1, events.size());
+        assertEquals(ListEvent.createAdded(pel, 7, 10), events.get(0));
+        assertEquals(10, pel.getTotal());
+        assertEquals(data, pel);
+    }
+
+    public void testNullRowsAreLoaded() {
+        final List data = createData(10);
+        data.set(3, null);
+        final int[] requests = new int[1];
+        final PageProvider counting = new PageProvider() {
+            private final PageProvider delegate = new ListPageProvider(data);
+            public void requestRange(final int start, final int length, final Callback callback) {
+                requests[0]++;
+                delegate.requestRange(start, length, callback);
+            }
+        };
+        final PagedEventList pel = EventLists.pagedEventList(counting, 10);
+        assertEquals(1, requests[0]);
+
+        assertTrue(pel.isLoaded(3));
+        assertNull(pel.get(3));
+        assertNull(pel.get(3));
+        assertEquals(1, requests[0]);
+    }
+
+    public void testFailureAllowsRetry() {
+        final List data = createData(20);
+        final DeferredPageProvider provider = new DeferredPageProvider(data);
+        final PagedEventList pel = EventLists.pagedEventList(provider, 10);
+        provider.answerAll();
+        pel.setStart(10);
+        pel.get(0);
+        provider.failAll();
+        assertFalse(pel.isLoaded(0));
+
+        // reading a failed page doesn't ask again for every row
+        for (int i=0; i < pel.size(); i++) {
+            assertSame(pel.getPlaceholder(), pel.get(i));
+        }
+        assertEquals(0, provider.pendingCount());
+
+        pel.retry();
+        assertEquals(1, provider.pendingCount());
+        provider.failAll();
+        pel.get(0);
+        assertEquals(0, provider.pendingCount());
+
+        // moving the range tries once more
+        pel.setStart(11);
+        assertEquals(1, provider.pendingCount());
+        provider.answerAll();
+        assertEquals(data.subList(11, 20), pel);
+    }
+
+    public void testShortAnswerKeepsRowsAndAsksForTheRest() {
+        final List data = createData(10);
+        final List requests = new ArrayList();
+        final PageProvider capped = new PageProvider() {
+            private final PageProvider delegate = new ListPageProvider(data);
+            public void requestRange(final int start, final int length, final Callback callback) {
+                requests.add(start + "+" + length);
+                // answers at most 3 rows at a time
+                delegate.requestRange(start, Math.min(length, 3), callback);
+            }
+        };
+        final PagedEventList pel = EventLists.pagedEventList(capped, 5, 5, 10, null);
+        assertEquals(5, pel.size());
+        assertTrue(pel.isLoaded(2));
+        assertFalse(pel.isLoaded(3));
+
+        assertEquals(Integer.valueOf(3), pel.get(3));
+        assertTrue(pel.isLoaded(0));
+        assertEquals(data.subList(0, 5), pel);
+        assertEquals(Arrays.asList(new Object[] {"0+5", "3+2"}), requests);
+    }
+
+    public void testRandomScrollingMatchesData() {
+        final Random rnd = new Random(31);
+        final List data = createData(500);
+        final DeferredPageProvider provider = new DeferredPageProvider(data);
+        final PagedEventList pel = EventLists.pagedEventList(provider, 20, 7, 4, null);
+        final List replay = new EventListReplayList(pel);
+        provider.answerAll();
+
+        for (int i=0; i < 200; i++) {
+            if (rnd.nextBoolean()) {
+                pel.setStart(rnd.nextInt(520));
+            } else {
+                pel.setMaxSize(rnd.nextInt(40));
+            }
+            for (int j=0; j < pel.size(); j++) {
+                pel.get(j);
+            }
+            provider.answerAll();
+            final int end = Math.min(data.size(), pel.getStart() + pel.getMaxSize());
+            assertEquals(data.subList(Math.min(pel.getStart(), end), end), pel);
+            assertEquals(pel, replay);
+        }
+    }
+
+    public void testPrefetchWhileScrolling() {
+        final List data = createData(1000);
+        final DeferredPageProvider provider = new DeferredPageProvider(data);
+        final PagedEventList pel = EventLists.pagedEventList(provider, 10);
+        provider.answerAll();
+
+        for (int start=10; start <= 100; start += 10) {
+            pel.setStart(start);
+            provider.answerAll();
+        }
+        assertEquals(0, pel.getCacheHits());
+        assertEquals(10, pel.getCacheMisses());
+
+        pel.setStart(0);
+        provider.answerAll();
+        pel.resetCacheStatistics();
+        pel.setPrefetchPolicy(new ScrollPrefetchPolicy());
+
+        for (int start=10; start <= 100; start += 10) {
+            pel.setStart(start);
+            provider.answerAll();
+        }
+        // only the first move isn't anticipated
+        assertEquals(9, pel.getCacheHits());
+        assertEquals(1, pel.getCacheMisses());
+        assertEquals(0.9, pel.getCacheHitRate(), 0.0001);
+    }
+
+    public void testPrefetchFollowsDirection() {
+        final List data = createData(1000);
+        final DeferredPageProvider provider = new DeferredPageProvider(data);
+        final PagedEventList pel = EventLists.pagedEventList(provider, 10);
+        final ScrollPrefetchPolicy policy = new ScrollPrefetchPolicy();
+        pel.setPrefetchPolicy(policy);
+        provider.answerAll();
+
+        pel.setStart(500);
+        provider.answerAll();
+        assertEquals(0, policy.getVelocity());
+
+        for (int start=490; start >= 400; start -= 10) {
+            pel.setStart(start);
+            provider.answerAll();
+        }
+        assertTrue(policy.getVelocity() < 0);
+        assertEquals(10, pel.getCacheHits());
+        assertEquals(1, pel.getCacheMisses());
+    }
+
+    public void testSlowScrollingPrefetches() {
+        final List data = createData(1000);
+        final DeferredPageProvider provider = new DeferredPageProvider(data);
+        final PagedEventList pel = EventLists.pagedEventList(provider, 10);
+        final ScrollPrefetchPolicy policy = new ScrollPrefetchPolicy();
+        pel.setPrefetchPolicy(policy);
+        provider.answerAll();
+
+        for (int start=1; start <= 30; start++) {
+            pel.setStart(start);
+            provider.answerAll();
+            assertEquals(1, policy.getVelocity());
+        }
+        // only the first move isn't anticipated
+        assertEquals(1, pel.getCacheMisses());
+
+        // turning around cancels the old direction before picking up the new one
+        pel.setStart(29);
+        provider.answerAll();
+        assertEquals(0, policy.getVelocity());
+        for (int start=28; start >= 20; start--) {
+            pel.setStart(start);
+            provider.answerAll();
+            assertEquals(-1, policy.getVelocity());
+        }
+    }
+
+    public void testStalePrefetchCancelled() {
+        final List data = createData(1000);
+        final DeferredPageProvider provider = new DeferredPageProvider(data);
+        final PagedEventList pel = EventLists.pagedEventList(provider, 10);
+        pel.setPrefetchPolicy(new ScrollPrefetchPolicy());
+        provider.answerAll();
+
+        pel.setStart(10);
+        provider.answerAll();
+        // page 30 is prefetched but doesn't arrive before the direction changes
+        pel.setStart(20);
+        pel.setStart(0);
+        provider.answerAll();
+
+        pel.setStart(30);
+        assertFalse(pel.isLoaded(0));
+        provider.answerAll();
+        assertTrue(pel.isLoaded(0));
+        assertEquals(data.subList(30, 40), pel);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.test;
+
+import org.mcarthur.sandy.gwt.event.list.client.EventList;
+import org.mcarthur.sandy.gwt.event.list.client.EventLists;
+import org.mcarthur.sandy.gwt.event.list.client.PersistentEventList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for {@link org.mcarthur.sandy.gwt.event.list.client.PersistentEventList}.
+ *
+ * @author Sandy McArthur
+ */
+public class PersistentEventListTest extends EventListTest {
+    protected EventList createEmptyEventLists() {
+        return EventLists.persistentEventList();
+    }
+
+    public void testSnapshotIsUnaffectedByLaterChanges() {
+        final PersistentEventList pel = EventLists.persistentEventList();
+        prefillWithIntegers(pel, 1000);
+
+        final List snapshot = pel.snapshot();
+        final List expected = new ArrayList(pel);
+
+        pel.remove(0);
+        pel.add(500, "middle");
+        pel.set(999, "last");
+        pel.clear();
+
+        assertEquals(1000, snapshot.size());
+        assertEquals(expected, snapshot);
+        assertTrue(Arrays.equals(expected.toArray(), snapshot.toArray()));
+
+        try {
+            snapshot.add("more");
+            fail("Expected UnsupportedOperationException.");
+        } catch (UnsupportedOperationException uoe) {
+            // expected
+        }
+    }
+
+    public void testRandomOperationsMatchArrayList() {
+        final Random r = new Random(8231); // don't change the seed
+        final PersistentEventList pel = EventLists.persistentEventList();
+        final List replay = new EventListReplayList(pel);
+        final List expected = new ArrayList();
+        final List snapshots = new ArrayList();
+        final List snapshotContents = new ArrayList();
+
+        for (int i=0; i < 20000; i++) {
+            final int op = r.nextInt(10);
+            if (op < 5 || expected.isEmpty()) {
+                final int index = r.nextInt(expected.size() + 1);
+                final Integer value = Integer.valueOf(i);
+                pel.add(index, value);
+                expected.add(index, value);
+            } else if (op < 8) {
+                final int index = r.nextInt(expected.size());
+                assertEquals(expected.remove(index), pel.remove(index));
+            } else {
+                final int index = r.nextInt(expected.size());
+                final Integer value = Integer.valueOf(-i);
+                assertEquals(expected.set(index, value), pel.set(index, value));
+            }
+            if (i % 1000 == 0) {
+                snapshots.add(pel.snapshot());
+                snapshotContents.add(new ArrayList(expected));
+            }
+        }
+        assertEquals(expected, pel);
+        assertEquals(expected, replay);
+        for (int i=0; i < snapshots.size(); i++) {
+            assertEquals(snapshotContents.get(i), snapshots.get(i));
+        }
+
+        while (!expected.isEmpty()) {
+            final int index = r.nextInt(expected.size());
+            assertEquals(expected.remove(index), pel.remove(index));
+        }
+        assertEquals(0, pel.size());
+    }
+
+    public void testAddAllFiresOneEvent() {
+        final PersistentEventList pel = EventLists.persistentEventList();
+        prefillWithIntegers(pel, 3);
+        final List replay = new EventListReplayList(pel);
+
+        final List l = new ArrayList();
+        prefillWithIntegers(l, 100);
+        pel.addAll(1, l);
+
+        assertEquals(103, pel.size());
+        assertEquals(pel, replay);
+        assertEquals(Integer.valueOf(99), pel.get(100));
+    }
+}
@@ -24,9 +24,11 @@ import org.mcarthur.sandy.gwt.event.list.client.ListEventListener;
 import org.mcarthur.sandy.gwt.event.list.client.RangedEventList;
 import org.mcarthur.sandy.gwt.event.list.client.SortedEventList;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Random;
 
 /**
  * Tests for {@link org.mcarthur.sandy.gwt.event.list.client.RangedEventList}.
@@ -1590,4 +1592,80 @@ public class RangedEventListTest extends TransformedEventListTest {
         lel.listChanged(null);
         rel.removeListEventListener(lel);
     }
+
+    public void testLargeBackingListOnlyCopiesRange() {
+        final int[] reads = new int[1];
+        final List large = new AbstractList() {
+            public Object get(final int index) {
+                reads[0]++;
+                return Integer.valueOf(index);
+            }
+
+            public int size() {
+                return 200000;
+            }
+        };
+        final EventList el = EventLists.wrap(large);
+
+        final RangedEventList rel = EventLists.rangedEventList(el, 10);
+        assertEquals(10, rel.size());
+        assertEquals(200000, rel.getTotal());
+        assertTrue("reads: " + reads[0], reads[0] <= 10);
+
+        reads[0] = 0;
+        final RangedEventList steady = EventLists.steadyRangedEventList(el, 10);
+        assertEquals(Integer.valueOf(9), steady.get(9));
+        assertTrue("reads: " + reads[0], reads[0] <= 10);
+
+        // growing and shrinking the range only touches the difference
+        reads[0] = 0;
+        rel.setMaxSize(100000);
+        rel.setMaxSize(5);
+        rel.setStart(199990);
+        assertEquals(Integer.valueOf(199994), rel.get(4));
+        assertTrue("reads: " + reads[0], reads[0] <= 100000);
+    }
+
+    public void testRandomChangesMatchBackingList() {
+        final Random rnd = new Random(34);
+        final EventList el = EventLists.eventList();
+        prefillWithIntegers(el, 60);
+        final RangedEventList rel = createBackedRangedEventList(el);
+        rel.setStart(20);
+        rel.setMaxSize(15);
+        final List replay = new EventListReplayList(rel);
+
+        for (int i=0; i < 500; i++) {
+            final int total = el.size();
+            switch (rnd.nextInt(6)) {
+                case 0:
+                    final List few = new ArrayList();
+                    prefillWithIntegers(few, 1 + rnd.nextInt(5));
+                    el.addAll(rnd.nextInt(total + 1), few);
+                    break;
+                case 1:
+                    if (total > 0) {
+                        final int from = rnd.nextInt(total);
+                        el.subList(from, Math.min(total, from + 1 + rnd.nextInt(5))).clear();
+                    }
+                    break;
+                case 2:
+                    if (total > 0) {
+                        el.set(rnd.nextInt(total), new Integer(-i));
+                    }
+                    break;
+                case 3:
+                    rel.setStart(rnd.nextInt(total + 10));
+                    break;
+                case 4:
+                    rel.setMaxSize(rnd.nextInt(30));
+                    break;
+                default:
+                    el.add(rnd.nextInt(total + 1), new Integer(i));
+            }
+            final int start = Math.min(rel.getStart(), el.size());
+            assertEquals(el.subList(start, Math.min(el.size(), start + rel.getMaxSize())), rel);
+            assertEquals(rel, replay);
+        }
+    }
 }
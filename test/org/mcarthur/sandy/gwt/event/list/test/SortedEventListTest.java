@@ -16,6 +16,7 @@
 
 package org.mcarthur.sandy.gwt.event.list.test;
 
+import org.mcarthur.sandy.gwt.event.list.client.DetachableEventList;
 import org.mcarthur.sandy.gwt.event.list.client.EventList;
 import org.mcarthur.sandy.gwt.event.list.client.EventLists;
 import org.mcarthur.sandy.gwt.event.list.client.FilteredEventList;
@@ -210,6 +211,126 @@ public class SortedEventListTest extends TransformedEventListTest {
         assertEquals(I25, sel.get(3));
     }
 
+    public void testAddAllInMiddleOfBacking() {
+        final EventList el = EventLists.eventList();
+        el.add(I5);
+        el.add(I25);
+        final SortedEventList sel = createBackedSortedEventList(el);
+        final List replay = new EventListReplayList(sel);
+
+        // placing each added element reads the backing list past the added range
+        final List values = new ArrayList();
+        values.add(I20);
+        values.add(I15);
+        values.add(I10);
+        el.addAll(1, values);
+        final List expected = new ArrayList();
+        expected.add(I5);
+        expected.add(I10);
+        expected.add(I15);
+        expected.add(I20);
+        expected.add(I25);
+        assertEquals(expected, sel);
+        assertEquals(sel, replay);
+    }
+
+    public void testRandomChangesStaySorted() {
+        final Random r = new Random(39); // don't change the seed
+        final EventList el = EventLists.eventList();
+        final SortedEventList sel = createBackedSortedEventList(el);
+        for (int i=0; i < 2000; i++) {
+            final int op = r.nextInt(3);
+            if (op == 0 || el.isEmpty()) {
+                final List values = new ArrayList();
+                for (int j=r.nextInt(3); j >= 0; j--) {
+                    values.add(Integer.valueOf(r.nextInt(100)));
+                }
+                el.addAll(r.nextInt(el.size() + 1), values);
+            } else if (op == 1) {
+                el.set(r.nextInt(el.size()), Integer.valueOf(r.nextInt(100)));
+            } else {
+                el.remove(r.nextInt(el.size()));
+            }
+            final List expected = new ArrayList(el);
+            Collections.sort(expected);
+            assertEquals(expected, sel);
+        }
+    }
+
+    public void testBinarySearchIndexOf() {
+        final EventList el = EventLists.eventList();
+        final SortedEventList sel = createBackedSortedEventList(el);
+        el.add(I10);
+        el.add(I5);
+        el.add(Integer.valueOf(10));
+        el.add(I20);
+
+        assertEquals(0, sel.indexOf(I5));
+        assertEquals(1, sel.indexOf(I10));
+        assertEquals(2, sel.lastIndexOf(I10));
+        assertEquals(-1, sel.indexOf(I15));
+        assertEquals(-1, sel.lastIndexOf(I25));
+        assertTrue(sel.contains(I20));
+        assertFalse(sel.contains("not an Integer"));
+        assertFalse(sel.contains(null));
+    }
+
+    public void testRangeView() {
+        final EventList el = EventLists.eventList();
+        prefillWithIntegers(el, 30);
+        Collections.shuffle(el, new Random(42));
+        final SortedEventList sel = createBackedSortedEventList(el);
+        final EventList range = sel.rangeView(I10, I20);
+        final EventList head = sel.rangeView(null, I5);
+
+        assertEquals(10, range.size());
+        assertEquals(I10, range.get(0));
+        assertEquals(Integer.valueOf(19), range.get(9));
+        assertEquals(5, head.size());
+
+        el.add(I15);
+        el.add(I20);
+        el.remove(I0);
+        assertEquals(11, range.size());
+        assertEquals(I15, range.get(5));
+        assertEquals(I15, range.get(6));
+        assertEquals(4, head.size());
+
+        assertSame(sel, ((DetachableEventList)range).detach());
+        assertEquals(0, range.size());
+    }
+
+    public void testRandomChangesMatchRangeView() {
+        final Random r = new Random(42); // don't change the seed
+        final EventList el = EventLists.eventList();
+        final SortedEventList sel = createBackedSortedEventList(el);
+        final EventList range = sel.rangeView(Integer.valueOf(25), Integer.valueOf(75));
+        final List replay = new EventListReplayList(range);
+        for (int i=0; i < 2000; i++) {
+            final int op = r.nextInt(4);
+            if (op < 2 || el.isEmpty()) {
+                final List values = new ArrayList();
+                for (int j=r.nextInt(3); j >= 0; j--) {
+                    values.add(Integer.valueOf(r.nextInt(100)));
+                }
+                el.addAll(r.nextInt(el.size() + 1), values);
+            } else if (op == 2) {
+                el.set(r.nextInt(el.size()), Integer.valueOf(r.nextInt(100)));
+            } else {
+                el.remove(r.nextInt(el.size()));
+            }
+            final List expected = new ArrayList();
+            for (int j=0; j < sel.size(); j++) {
+                final int value = ((Integer)sel.get(j)).intValue();
+                if (25 <= value && value < 75) {
+                    expected.add(sel.get(j));
+                }
+            }
+            assertEquals(expected, range);
+            assertEquals(expected, replay);
+        }
+    }
+
     public void testConsistentStateForRemovedEvents() throws Exception {
 
         final EventList deepest = EventLists.eventList();
@@ -324,4 +445,36 @@ public class SortedEventListTest extends TransformedEventListTest {
         assertEquals(replay, sel);
         */
     }
+
+    public void testDormantWhenUnobserved() {
+        final EventList el = EventLists.eventList();
+        final SortedEventList sel = createBackedSortedEventList(el);
+        final FilteredEventList fel = EventLists.filteredEventList(sel);
+
+        // nobody reads or listens, both views stop tracking the backing list
+        el.add(I20);
+        el.add(I5);
+        el.add(I10);
+        assertEquals(0, EventLists.getViews(el).size());
+
+        // reading rebuilds
+        assertEquals(I5, fel.get(0));
+        assertEquals(I10, fel.get(1));
+        assertEquals(I20, fel.get(2));
+        assertEquals(1, EventLists.getViews(el).size());
+
+        // read since the last change, keeps tracking
+        el.add(I0);
+        assertEquals(1, EventLists.getViews(el).size());
+        assertEquals(I0, sel.get(0));
+
+        // a listener keeps the view awake and sees consistent events
+        el.add(I25);
+        el.add(I15);
+        final List replay = new EventListReplayList(sel);
+        el.remove(I5);
+        el.add(I5);
+        assertEquals(1, EventLists.getViews(el).size());
+        assertEquals(replay, sel);
+    }
 }
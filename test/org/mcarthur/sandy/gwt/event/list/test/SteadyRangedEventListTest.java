@@ -173,4 +173,119 @@ public class SteadyRangedEventListTest extends RangedEventListTest {
         assertEquals(5, rel.getStart());
         assertEquals(4, rel.size());
     }
+
+    public void testAddAcrossRangeStart() {
+        // an insert just before the start is before the visible elements, they stay put
+        final EventList el = EventLists.eventList();
+        prefillWithIntegers(el, 100);
+
+        final RangedEventList rel = createBackedRangedEventList(el);
+        rel.setStart(10);
+        rel.setMaxSize(10);
+        final List visible = new ArrayList(rel);
+
+        final List few = new ArrayList();
+        prefillWithIntegers(few, 3);
+
+        ListEventListener lel = new ListEventListener() {
+            private int count = 0;
+            public void listChanged(final ListEvent listEvent) {
+                switch (count++) {
+                    case 0:
+                        assertEquals(ListEvent.createOther(rel), listEvent);
+                        break;
+                    case 1:
+                        assertNull(listEvent);
+                        break;
+                    default:
+                        fail("Unexpected: " + listEvent);
+                }
+            }
+        };
+        rel.addListEventListener(lel);
+        el.addAll(9, few);
+        lel.listChanged(null);
+        rel.removeListEventListener(lel);
+        assertEquals(13, rel.getStart());
+        assertEquals(visible, rel);
+
+        rel.setMaxSize(Integer.MAX_VALUE);
+        final List replay = new EventListReplayList(rel);
+        el.addAll(8, few);
+        assertEquals(16, rel.getStart());
+        assertEquals(rel, replay);
+    }
+
+    public void testRemoveAcrossRangeStart() {
+        // the part of the removal before the start moves the start, the rest is removed from the front
+        final EventList el = EventLists.eventList();
+        prefillWithIntegers(el, 100);
+
+        final RangedEventList rel = createBackedRangedEventList(el);
+        rel.setStart(10);
+        rel.setMaxSize(10);
+
+        final List few = new ArrayList();
+        few.addAll(el.subList(9,12));
+        assertEquals(3, few.size());
+
+        ListEventListener lel = new ListEventListener() {
+            private int count = 0;
+            public void listChanged(final ListEvent listEvent) {
+                switch (count++) {
+                    case 0:
+                        assertEquals(ListEvent.createBatchStart(rel), listEvent);
+                        break;
+                    case 1:
+                        assertEquals(ListEvent.createRemoved(rel, 0, 2), listEvent);
+                        break;
+                    case 2:
+                        assertEquals(ListEvent.createAdded(rel, 8, 10), listEvent);
+                        break;
+                    case 3:
+                        assertEquals(ListEvent.createBatchEnd(rel), listEvent);
+                        break;
+                    case 4:
+                        assertNull(listEvent);
+                        break;
+                    default:
+                        fail("Unexpected: " + listEvent);
+                }
+            }
+        };
+        rel.addListEventListener(lel);
+        el.removeAll(few);
+        lel.listChanged(null);
+        rel.removeListEventListener(lel);
+        assertEquals(9, rel.getStart());
+        assertEquals(el.subList(9, 19), rel);
+    }
+
+    public void testInsertsAtHeadDoNotChurn() {
+        final EventList el = EventLists.eventList();
+        prefillWithIntegers(el, 50);
+        final RangedEventList rel = createBackedRangedEventList(el);
+        rel.setStart(20);
+        rel.setMaxSize(10);
+        final List visible = new ArrayList(rel);
+        final List replay = new EventListReplayList(rel);
+
+        final List events = new ArrayList();
+        rel.addListEventListener(new ListEventListener() {
+            public void listChanged(final ListEvent listEvent) {
+                events.add(listEvent);
+            }
+        });
+        for (int i=0; i < 25; i++) {
+            el.add(0, "head" + i);
+            if (i % 5 == 0) {
+                el.remove(1);
+            }
+        }
+        assertEquals(visible, rel);
+        assertEquals(rel, replay);
+        for (int i=0; i < events.size(); i++) {
+            assertTrue(((ListEvent)events.get(i)).isOther());
+        }
+    }
 }
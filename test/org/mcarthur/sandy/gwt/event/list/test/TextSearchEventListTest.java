@@ -0,0 +1,147 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.test;
+
+import org.mcarthur.sandy.gwt.event.list.client.EventList;
+import org.mcarthur.sandy.gwt.event.list.client.EventLists;
+import org.mcarthur.sandy.gwt.event.list.client.ListEvent;
+import org.mcarthur.sandy.gwt.event.list.client.ListEventListener;
+import org.mcarthur.sandy.gwt.event.list.client.TextSearchEventList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for {@link org.mcarthur.sandy.gwt.event.list.client.TextSearchEventList}.
+ *
+ * @author Sandy McArthur
+ */
+public class TextSearchEventListTest extends TransformedEventListTest {
+    private static final String[] WORDS = {"apple", "Banana", "cherry", "date", "elderberry", "fig", "grape", "pineapple"};
+
+    protected EventList createEmptyEventLists() {
+        return createBackedEventList(EventLists.eventList());
+    }
+
+    protected EventList createBackedEventList(final EventList el) {
+        return EventLists.textSearchEventList(el, null);
+    }
+
+    public void testQueries() {
+        final EventList el = EventLists.eventList();
+        el.addAll(Arrays.asList(WORDS));
+        final TextSearchEventList tsel = (TextSearchEventList)createBackedEventList(el);
+        assertEquals(el, tsel);
+
+        tsel.setQuery("APP");
+        assertEquals("app", tsel.getQuery());
+        assertEquals(Arrays.asList(new Object[] {"apple", "pineapple"}), tsel);
+        tsel.setQuery("an");
+        assertEquals(Arrays.asList(new Object[] {"Banana"}), tsel);
+        tsel.setQuery("nan");
+        assertEquals(Arrays.asList(new Object[] {"Banana"}), tsel);
+        tsel.setQuery("xyz");
+        assertEquals(0, tsel.size());
+        tsel.setQuery("e");
+        assertEquals(Arrays.asList(new Object[] {"apple", "cherry", "date", "elderberry", "grape", "pineapple"}), tsel);
+        tsel.setQuery(null);
+        assertEquals(el, tsel);
+    }
+
+    public void testSetQueryEvents() {
+        final EventList el = EventLists.eventList();
+        el.addAll(Arrays.asList(WORDS));
+        final TextSearchEventList tsel = (TextSearchEventList)createBackedEventList(el);
+        final List replay = new EventListReplayList(tsel);
+        final List events = new ArrayList();
+        tsel.addListEventListener(new ListEventListener() {
+            public void listChanged(final ListEvent listEvent) {
+                events.add(listEvent);
+            }
+        });
+
+        tsel.setQuery("err");
+        assertEquals(Arrays.asList(new Object[] {"cherry", "elderberry"}), replay);
+        assertTrue(((ListEvent)events.get(0)).isBatchStart());
+
+        events.clear();
+        tsel.setQuery("berr");
+        assertEquals(1, events.size());
+        assertEquals(ListEvent.createRemoved(tsel, 0), events.get(0));
+        assertEquals(tsel, replay);
+    }
+
+    public void testBackingChanges() {
+        final EventList el = EventLists.eventList();
+        el.addAll(Arrays.asList(WORDS));
+        final TextSearchEventList tsel = (TextSearchEventList)createBackedEventList(el);
+        final List replay = new EventListReplayList(tsel);
+        tsel.setQuery("ap");
+
+        el.add(0, "grapefruit");
+        el.add("papaya");
+        el.add(3, "kiwi");
+        assertEquals(Arrays.asList(new Object[] {"grapefruit", "apple", "grape", "pineapple", "papaya"}), tsel);
+        el.set(1, "crabapple");
+        el.set(6, "lime");
+        el.remove("pineapple");
+        assertEquals(Arrays.asList(new Object[] {"grapefruit", "crabapple", "grape", "papaya"}), tsel);
+        assertEquals(tsel, replay);
+    }
+
+    public void testRandomOperationsMatchScans() {
+        final Random r = new Random(43); // don't change the seed
+        final EventList el = EventLists.eventList();
+        final TextSearchEventList tsel = (TextSearchEventList)createBackedEventList(el);
+        final List replay = new EventListReplayList(tsel);
+        final String alphabet = "abcab";
+        for (int i=0; i < 2000; i++) {
+            final int op = r.nextInt(10);
+            if (op < 4 || el.isEmpty()) {
+                final List values = new ArrayList();
+                for (int j=r.nextInt(3); j >= 0; j--) {
+                    values.add(randomText(r, alphabet, 8));
+                }
+                el.addAll(r.nextInt(el.size() + 1), values);
+            } else if (op < 6) {
+                el.remove(r.nextInt(el.size()));
+            } else if (op < 8) {
+                el.set(r.nextInt(el.size()), randomText(r, alphabet, 8));
+            } else {
+                tsel.setQuery(randomText(r, alphabet, 4));
+            }
+            final List expected = new ArrayList();
+            for (int j=0; j < el.size(); j++) {
+                if (((String)el.get(j)).indexOf(tsel.getQuery()) >= 0) {
+                    expected.add(el.get(j));
+                }
+            }
+            assertEquals(expected, tsel);
+            assertEquals(expected, replay);
+        }
+    }
+
+    private static String randomText(final Random r, final String alphabet, final int maxLength) {
+        final StringBuffer sb = new StringBuffer();
+        for (int i=r.nextInt(maxLength); i >= 0; i--) {
+            sb.append(alphabet.charAt(r.nextInt(alphabet.length())));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.test;
+
+import junit.framework.TestCase;
+import org.mcarthur.sandy.gwt.event.list.client.ColumnarEventList;
+import org.mcarthur.sandy.gwt.event.list.client.EventList;
+import org.mcarthur.sandy.gwt.event.list.client.EventLists;
+import org.mcarthur.sandy.gwt.event.list.client.ListEvent;
+import org.mcarthur.sandy.gwt.event.list.client.ListEventListener;
+import org.mcarthur.sandy.gwt.event.list.client.ThrottledEventList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for {@link org.mcarthur.sandy.gwt.event.list.client.ThrottledEventList}.
+ *
+ * @author Sandy McArthur
+ */
+public class ThrottledEventListTest extends TestCase {
+
+    public void testChangesHeldUntilFlush() {
+        final EventList el = EventLists.eventList();
+        el.addAll(Arrays.asList(new Object[] {"a", "b", "c", "d"}));
+        final List scheduled = new ArrayList();
+        final ThrottledEventList tel = EventLists.throttledEventList(el, new ThrottledEventList.FlushScheduler() {
+            public void scheduleFlush(final ThrottledEventList list) {
+                scheduled.add(list);
+            }
+        });
+        final List events = new ArrayList();
+        tel.addListEventListener(new ListEventListener() {
+            public void listChanged(final ListEvent listEvent) {
+                events.add(listEvent);
+            }
+        });
+
+        el.add("e");
+        el.remove("b");
+        el.set(0, "A");
+        el.add(1, "x");
+        el.remove("x");
+        assertEquals(1, scheduled.size());
+        assertTrue(tel.isPending());
+        assertEquals(Arrays.asList(new Object[] {"a", "b", "c", "d"}), tel);
+        assertEquals(0, events.size());
+
+        tel.flush();
+        assertFalse(tel.isPending());
+        assertEquals(el, tel);
+        assertEquals(5, events.size());
+        assertEquals(ListEvent.createBatchStart(tel), events.get(0));
+        assertEquals(ListEvent.createRemoved(tel, 1), events.get(1));
+        assertEquals(ListEvent.createChanged(tel, 0), events.get(2));
+        assertEquals(ListEvent.createAdded(tel, 3), events.get(3));
+        assertEquals(ListEvent.createBatchEnd(tel), events.get(4));
+
+        // an element added and removed within a tick is never reported
+        events.clear();
+        el.add("gone");
+        el.remove("gone");
+        tel.flush();
+        assertEquals(0, events.size());
+        assertEquals(2, scheduled.size());
+
+        // changes through the view are forwarded immediately
+        events.clear();
+        el.add("held");
+        tel.add(0, "now");
+        assertEquals(el, tel);
+        assertEquals(2, events.size());
+        assertEquals(ListEvent.createAdded(tel, 4), events.get(0));
+        assertEquals(ListEvent.createAdded(tel, 0), events.get(1));
+
+        assertSame(el, tel.detach());
+    }
+
+    public void testChangedPropertiesMerged() {
+        final ColumnarEventList cel = EventLists.columnarEventList(new String[] {"id", "price", "name"},
+                new int[] {ColumnarEventList.TYPE_INT, ColumnarEventList.TYPE_DOUBLE, ColumnarEventList.TYPE_OBJECT});
+        for (int i=0; i < 4; i++) {
+            cel.add(new Object[] {new Integer(i), new Double(i), "row" + i});
+        }
+        final ThrottledEventList tel = EventLists.throttledEventList(cel, null);
+        final List events = new ArrayList();
+        tel.addListEventListener(new ListEventListener() {
+            public void listChanged(final ListEvent listEvent) {
+                events.add(listEvent);
+            }
+        });
+
+        cel.setDouble(1, 1, 10);
+        cel.setDouble(2, 1, 20);
+        cel.setValue(2, 2, "two");
+        cel.setDouble(1, 1, 11);
+        tel.flush();
+        assertEquals(1, events.size());
+        final ListEvent changed = (ListEvent)events.get(0);
+        assertEquals(ListEvent.createChanged(tel, 1, 3), changed);
+        assertTrue(changed.isAnyPropertyChanged(new String[] {"name"}));
+        assertFalse(changed.isAnyPropertyChanged(new String[] {"id"}));
+
+        events.clear();
+        cel.setDouble(0, 1, 1);
+        cel.set(0, new Object[] {new Integer(9), new Double(9), "nine"});
+        tel.flush();
+        assertEquals(1, events.size());
+        assertNull(((ListEvent)events.get(0)).getChangedProperties());
+    }
+
+    public void testRandomChangesMatchAfterFlush() {
+        final Random r = new Random(47); // don't change the seed
+        final EventList el = EventLists.eventList();
+        final ThrottledEventList tel = EventLists.throttledEventList(el, null);
+        final List replay = new EventListReplayList(tel);
+        final List events = new ArrayList();
+        tel.addListEventListener(new ListEventListener() {
+            public void listChanged(final ListEvent listEvent) {
+                events.add(listEvent);
+            }
+        });
+        List presented = new ArrayList();
+        int changes = 0;
+        for (int i=0; i < 5000; i++) {
+            final int op = r.nextInt(10);
+            if (op < 4 || el.isEmpty()) {
+                final List values = new ArrayList();
+                for (int j=r.nextInt(3); j >= 0; j--) {
+                    values.add(Integer.valueOf(i * 10 + j));
+                }
+                el.addAll(r.nextInt(el.size() + 1), values);
+                changes++;
+            } else if (op < 6) {
+                el.remove(r.nextInt(el.size()));
+                changes++;
+            } else if (op < 7) {
+                final int start = r.nextInt(el.size());
+                el.subList(start, Math.min(el.size(), start + r.nextInt(4))).clear();
+                changes++;
+            } else if (op < 9) {
+                final int index = r.nextInt(el.size());
+                el.set(index, el.get(index) + "!");
+                changes++;
+            } else {
+                events.clear();
+                tel.flush();
+                presented = new ArrayList(el);
+                // never more events than there were changes
+                int forwarded = 0;
+                for (int j=0; j < events.size(); j++) {
+                    final ListEvent listEvent = (ListEvent)events.get(j);
+                    if (!listEvent.isBatchStart() && !listEvent.isBatchEnd()) {
+                        forwarded++;
+                    }
+                }
+                assertTrue(forwarded <= changes);
+                assertEquals(forwarded > 1, events.size() > forwarded);
+                changes = 0;
+            }
+            assertEquals(presented, tel);
+            assertEquals(presented, replay);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2007 Sandy McArthur, Jr.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.mcarthur.sandy.gwt.event.list.test;
+
+import junit.framework.TestCase;
+import org.mcarthur.sandy.gwt.event.list.client.EventList;
+import org.mcarthur.sandy.gwt.event.list.client.EventLists;
+import org.mcarthur.sandy.gwt.event.list.client.ListEvent;
+import org.mcarthur.sandy.gwt.event.list.client.ListEventListener;
+import org.mcarthur.sandy.gwt.event.list.client.TopNEventList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for {@link org.mcarthur.sandy.gwt.event.list.client.TopNEventList}.
+ *
+ * @author Sandy McArthur
+ */
+public class TopNEventListTest extends TestCase {
+
+    public void testTopElements() {
+        final EventList el = EventLists.eventList();
+        for (int i=0; i < 100; i++) {
+            el.add(Integer.valueOf((i * 37) % 100));
+        }
+        final TopNEventList top = EventLists.topNEventList(el, Collections.reverseOrder(), 3);
+        assertEquals(Arrays.asList(new Object[] {Integer.valueOf(99), Integer.valueOf(98), Integer.valueOf(97)}), top);
+
+        top.setLimit(5);
+        assertEquals(Integer.valueOf(95), top.get(4));
+        top.setLimit(2);
+        assertEquals(Arrays.asList(new Object[] {Integer.valueOf(99), Integer.valueOf(98)}), top);
+
+        try {
+            top.setLimit(-1);
+            fail("Expected IllegalArgumentException.");
+        } catch (IllegalArgumentException iae) {
+            // expected
+        }
+    }
+
+    public void testZeroLimit() {
+        final EventList el = EventLists.eventList();
+        for (int i=0; i < 5; i++) {
+            el.add(Integer.valueOf(i));
+        }
+        // a ranged view fires OTHER for changes past its range
+        final EventList first3 = EventLists.rangedEventList(el, 3);
+        final TopNEventList top = EventLists.topNEventList(first3, null, 0);
+        assertEquals(0, top.size());
+
+        el.set(4, Integer.valueOf(40));
+        el.add(0, Integer.valueOf(-1));
+        el.remove(1);
+        assertEquals(0, top.size());
+
+        top.setLimit(2);
+        assertEquals(Arrays.asList(new Object[] {Integer.valueOf(-1), Integer.valueOf(1)}), top);
+        top.setLimit(0);
+        assertEquals(0, top.size());
+        el.set(4, Integer.valueOf(41));
+        assertEquals(0, top.size());
+    }
+
+    public void testChangesOutsideTopAreSilent() {
+        final EventList el = EventLists.eventList();
+        for (int i=0; i < 100; i++) {
+            el.add(Integer.valueOf(i));
+        }
+        final TopNEventList top = EventLists.topNEventList(el, null, 5);
+        final List events = new ArrayList();
+        top.addListEventListener(new ListEventListener() {
+            public void listChanged(final ListEvent listEvent) {
+                events.add(listEvent);
+            }
+        });
+
+        el.add(Integer.valueOf(500));
+        el.remove(Integer.valueOf(50));
+        el.set(80, Integer.valueOf(90));
+        assertEquals(0, events.size());
+
+        el.add(Integer.valueOf(-1));
+        assertEquals(4, events.size()); // batch, added, removed, batch
+        assertEquals(ListEvent.createAdded(top, 0), events.get(1));
+        assertEquals(ListEvent.createRemoved(top, 5), events.get(2));
+        assertEquals(expectedTop(el, 5), top);
+    }
+
+    public void testRemovingTheTopRefills() {
+        final EventList el = EventLists.eventList();
+        for (int i=0; i < 50; i++) {
+            el.add(Integer.valueOf(i));
+        }
+        final TopNEventList top = EventLists.topNEventList(el, null, 4);
+        final List replay = new EventListReplayList(top);
+        for (int i=0; i < 20; i++) {
+            el.remove(top.get(0));
+            assertEquals(expectedTop(el, 4), top);
+            assertEquals(top, replay);
+        }
+        el.subList(0, 28).clear();
+        assertEquals(expectedTop(el, 4), top);
+        assertEquals(top, replay);
+    }
+
+    public void testRandomOperationsMatchSort() {
+        final Random r = new Random(44); // don't change the seed
+        final EventList el = EventLists.eventList();
+        final TopNEventList top = EventLists.topNEventList(el, null, 5);
+        final List replay = new EventListReplayList(top);
+        for (int i=0; i < 5000; i++) {
+            final int op = r.nextInt(10);
+            if (op < 4 || el.isEmpty()) {
+                final List values = new ArrayList();
+                for (int j=r.nextInt(3); j >= 0; j--) {
+                    values.add(Integer.valueOf(r.nextInt(200)));
+                }
+                el.addAll(r.nextInt(el.size() + 1), values);
+            } else if (op < 7) {
+                el.remove(r.nextInt(el.size()));
+            } else if (op < 8) {
+                final int start = r.nextInt(el.size());
+                el.subList(start, Math.min(el.size(), start + r.nextInt(10))).clear();
+            } else if (op < 9) {
+                el.set(r.nextInt(el.size()), Integer.valueOf(r.nextInt(200)));
+            } else {
+                top.setLimit(r.nextInt(8));
+            }
+            assertEquals(expectedTop(el, top.getLimit()), top);
+            assertEquals(top, replay);
+        }
+    }
+
+    private static List expectedTop(final List list, final int n) {
+        final List sorted = new ArrayList(list);
+        Collections.sort(sorted);
+        return new ArrayList(sorted.subList(0, Math.min(n, sorted.size())));
+    }
+}
@@ -23,6 +23,7 @@ import org.mcarthur.sandy.gwt.event.list.client.ListEventListener;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 /**
  * Tests for {@link org.mcarthur.sandy.gwt.event.list.client.WrappedEventList}.
@@ -81,4 +82,100 @@ public class WrappedEventListTest extends EventListTest {
         lel.listChanged(null);
         el.removeListEventListener(lel);
     }
+
+    public void testReplaceAllFiresMinimalEvents() {
+        final EventList el = createEmptyEventLists();
+        prefillWithIntegers(el, 10);
+
+        final List snapshot = new ArrayList(el);
+        snapshot.set(2, "two");
+        snapshot.remove(5);
+        snapshot.add(8, "eight");
+
+        final List events = new ArrayList();
+        final ListEventListener lel = new ListEventListener() {
+            public void listChanged(final ListEvent listEvent) {
+                events.add(listEvent);
+            }
+        };
+        el.addListEventListener(lel);
+        EventLists.replaceAll(el, snapshot);
+        el.removeListEventListener(lel);
+
+        assertEquals(snapshot, el);
+        assertEquals(5, events.size());
+        assertEquals(ListEvent.createBatchStart(el), events.get(0));
+        assertEquals(ListEvent.createChanged(el, 2), events.get(1));
+        assertEquals(ListEvent.createRemoved(el, 5), events.get(2));
+        assertEquals(ListEvent.createAdded(el, 8), events.get(3));
+        assertEquals(ListEvent.createBatchEnd(el), events.get(4));
+    }
+
+    public void testReplaceAllWithEqualContentsFiresNothing() {
+        final EventList el = createEmptyEventLists();
+        prefillWithIntegers(el, 5);
+
+        final List snapshot = new ArrayList();
+        prefillWithIntegers(snapshot, 5);
+
+        el.addListEventListener(new ListEventListener() {
+            public void listChanged(final ListEvent listEvent) {
+                fail("Unexpected: " + listEvent);
+            }
+        });
+        EventLists.replaceAll(el, snapshot);
+    }
+
+    public void testReplaceAllRemovesARunAtOnce() {
+        final int[] removes = new int[1];
+        final List counting = new ArrayList() {
+            public Object remove(final int index) {
+                removes[0]++;
+                return super.remove(index);
+            }
+        };
+        prefillWithIntegers(counting, 10000);
+        final EventList el = EventLists.wrap(counting);
+
+        final List snapshot = new ArrayList(el.subList(0, 10));
+        snapshot.addAll(el.subList(9990, 10000));
+        final List replay = new EventListReplayList(el);
+        EventLists.replaceAll(el, snapshot);
+        assertEquals(snapshot, el);
+        assertEquals(snapshot, replay);
+        assertEquals(0, removes[0]);
+    }
+
+    public void testReplaceAllRandom() {
+        final Random r = new Random(3581); // don't change the seed
+        for (int round=0; round < 200; round++) {
+            final EventList el = createEmptyEventLists();
+            final EventList reverse = EventLists.reverseEventList(createEmptyEventLists());
+            final List before = randomIntegers(r);
+            el.addAll(before);
+            reverse.addAll(before);
+
+            final List replay = new EventListReplayList(el);
+            final List reverseReplay = new EventListReplayList(reverse);
+            final List after = randomIntegers(r);
+
+            EventLists.replaceAll(el, after);
+            assertEquals(after, el);
+            assertEquals(after, replay);
+
+            // other EventLists go through the List interface
+            EventLists.replaceAll(reverse, after);
+            assertEquals(after, reverse);
+            assertEquals(after, reverseReplay);
+        }
+    }
+
+    private static List randomIntegers(final Random r) {
+        final List l = new ArrayList();
+        final int size = r.nextInt(30);
+        for (int i=0; i < size; i++) {
+            l.add(Integer.valueOf(r.nextInt(8)));
+        }
+        return l;
+    }
 }